@@ -0,0 +1,374 @@
+package edu.anadolu;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static edu.anadolu.Indexer.BUFFER_SIZE;
+
+/**
+ * Local, memory mapped map from TREC document identifier to anchor text, written by {@link AnchorTextExtractor}.
+ * It replaces the per-document Solr query of the indexer with a lookup that needs no network.
+ * <p>
+ * The documents are sorted by identifier and grouped into deflated blocks of up to 1024 documents (or about a megabyte).
+ * The first identifiers of the blocks are kept on the heap, so a lookup is a binary search over the blocks
+ * followed by the inflation of a single block. The last inflated block is cached per thread: a WARC file is indexed
+ * in identifier order, therefore consecutive lookups hit the same block, much like a streaming merge.
+ * <pre>
+ * file   := MAGIC VERSION block* index count indexOffset
+ * block  := deflated (keyLength key valueLength value){numDocs}
+ * index  := numBlocks (firstKey offset compressedLength rawLength numDocs){numBlocks}
+ * </pre>
+ */
+public final class AnchorStore {
+
+    public static final String DIRECTORY = "anchors";
+
+    private static final String FILE = "anchors.bin";
+
+    private static final int MAGIC = 0x414e4348;
+    private static final int VERSION = 1;
+    private static final int FOOTER = 8 + 8;
+
+    private static final int BLOCK_DOCS = 1024;
+    private static final int BLOCK_BYTES = 1 << 20;
+
+    /**
+     * @param storeDir anchor store directory
+     * @return true if an anchor store has been written to the given directory
+     */
+    public static boolean exists(Path storeDir) {
+        return Files.isReadable(storeDir.resolve(FILE));
+    }
+
+    /**
+     * Opens a previously written anchor store
+     *
+     * @param storeDir anchor store directory
+     * @return anchor store
+     * @throws IOException if IO exception occurs
+     */
+    public static AnchorStore open(Path storeDir) throws IOException {
+        return new AnchorStore(storeDir.resolve(FILE));
+    }
+
+    /**
+     * @param storeDir anchor store directory
+     * @return writer, the store appears only after {@link Writer#commit()}
+     * @throws IOException if IO exception occurs
+     */
+    public static Writer writer(Path storeDir) throws IOException {
+        Files.createDirectories(storeDir);
+        return new Writer(storeDir.resolve(FILE));
+    }
+
+    private final long count;
+    private final String[] firstKeys;
+    private final MappedByteBuffer[] blockChunks;
+    private final int[] positions;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final int[] numDocs;
+
+    private final ThreadLocal<Block> last = new ThreadLocal<>();
+
+    private AnchorStore(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            final long size = channel.size();
+
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER);
+            while (footer.hasRemaining())
+                if (channel.read(footer, size - FOOTER + footer.position()) < 0)
+                    throw new EOFException(file.toString());
+            footer.flip();
+            this.count = footer.getLong();
+            final long indexOffset = footer.getLong();
+
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(read(channel, 0, 8)));
+            if (header.readInt() != MAGIC || header.readInt() != VERSION)
+                throw new IOException("not an anchor store: " + file);
+
+            DataInputStream index = new DataInputStream(new ByteArrayInputStream(read(channel, indexOffset, size - FOOTER - indexOffset)));
+            final int numBlocks = index.readInt();
+
+            this.firstKeys = new String[numBlocks];
+            this.blockChunks = new MappedByteBuffer[numBlocks];
+            this.positions = new int[numBlocks];
+            this.compressedLengths = new int[numBlocks];
+            this.rawLengths = new int[numBlocks];
+            this.numDocs = new int[numBlocks];
+
+            // chunks hold whole blocks, so that a block never spans two mappings
+            long chunkStart = -1;
+            long chunkEnd = -1;
+            MappedByteBuffer chunk = null;
+
+            final long[] offsets = new long[numBlocks];
+            for (int i = 0; i < numBlocks; i++) {
+                firstKeys[i] = index.readUTF();
+                offsets[i] = index.readLong();
+                compressedLengths[i] = index.readInt();
+                rawLengths[i] = index.readInt();
+                numDocs[i] = index.readInt();
+            }
+
+            for (int i = 0; i < numBlocks; i++) {
+                if (chunk == null || offsets[i] + compressedLengths[i] > chunkEnd) {
+                    chunkStart = offsets[i];
+                    int j = i;
+                    while (j + 1 < numBlocks && offsets[j + 1] + compressedLengths[j + 1] - chunkStart <= Integer.MAX_VALUE)
+                        j++;
+                    chunkEnd = offsets[j] + compressedLengths[j];
+                    chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+                }
+                blockChunks[i] = chunk;
+                positions[i] = (int) (offsets[i] - chunkStart);
+            }
+        }
+    }
+
+    private static byte[] read(FileChannel channel, long position, long length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException();
+        return buffer.array();
+    }
+
+    /**
+     * @return number of documents having anchor text
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Looks up the anchor text of a document. Safe to be called from multiple threads.
+     *
+     * @param docId TREC document identifier
+     * @return tab separated anchor texts, or null if the document has no entry
+     * @throws IOException if the store is corrupt
+     */
+    public String get(String docId) throws IOException {
+
+        int lo = 0;
+        int hi = firstKeys.length - 1;
+        int b = -1;
+
+        // last block whose first key is less than or equal to the identifier
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (firstKeys[mid].compareTo(docId) <= 0) {
+                b = mid;
+                lo = mid + 1;
+            } else
+                hi = mid - 1;
+        }
+
+        if (b == -1) return null;
+
+        Block block = last.get();
+        if (block == null || block.ordinal != b) {
+            block = block(b);
+            last.set(block);
+        }
+
+        final int i = Arrays.binarySearch(block.keys, docId);
+        return i < 0 ? null : block.values[i];
+    }
+
+    private Block block(int b) throws IOException {
+
+        final ByteBuffer chunk = blockChunks[b].duplicate();
+        chunk.position(positions[b]);
+        final byte[] compressed = new byte[compressedLengths[b]];
+        chunk.get(compressed);
+
+        final byte[] raw = new byte[rawLengths[b]];
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < raw.length) {
+                final int inflated = inflater.inflate(raw, n, raw.length - n);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput()))
+                    throw new EOFException("truncated anchor block " + b);
+                n += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+
+        final Block block = new Block(b, numDocs[b]);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        for (int i = 0; i < block.keys.length; i++) {
+            block.keys[i] = string(in);
+            block.values[i] = string(in);
+        }
+        return block;
+    }
+
+    private static String string(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Inflated documents of a single block
+     */
+    private static final class Block {
+
+        final int ordinal;
+        final String[] keys;
+        final String[] values;
+
+        Block(int ordinal, int numDocs) {
+            this.ordinal = ordinal;
+            this.keys = new String[numDocs];
+            this.values = new String[numDocs];
+        }
+    }
+
+    /**
+     * Writes the anchor texts in increasing identifier order. Until {@link #commit()} the store goes to a temporary file,
+     * so a failed run never leaves a partial store behind.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path path;
+        private final Path tmp;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+        private final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        private final DataOutputStream block = new DataOutputStream(raw);
+
+        private final List<String> firstKeys = new ArrayList<>();
+        private final List<long[]> entries = new ArrayList<>();
+
+        private String previous = null;
+        private String first = null;
+        private int blockDocs = 0;
+        private long offset;
+        private long count = 0;
+        private boolean committed = false;
+
+        private Writer(Path path) throws IOException {
+            this.path = path;
+            this.tmp = path.resolveSibling(path.getFileName().toString() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            offset = 8;
+        }
+
+        /**
+         * @param docId  TREC document identifier, must be greater than the previous one
+         * @param anchor anchor text
+         * @throws IOException if IO exception occurs
+         */
+        public void add(String docId, String anchor) throws IOException {
+
+            if (previous != null && previous.compareTo(docId) >= 0)
+                throw new IllegalStateException("document identifiers must be added in increasing order: " + previous + " " + docId);
+            previous = docId;
+
+            if (blockDocs == 0)
+                first = docId;
+
+            write(docId);
+            write(anchor);
+            blockDocs++;
+            count++;
+
+            if (blockDocs == BLOCK_DOCS || raw.size() >= BLOCK_BYTES)
+                flush();
+        }
+
+        private void write(String value) throws IOException {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            block.writeInt(bytes.length);
+            block.write(bytes);
+        }
+
+        private void flush() throws IOException {
+
+            if (blockDocs == 0) return;
+
+            block.flush();
+            final byte[] bytes = raw.toByteArray();
+
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                final int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                compressedLength += n;
+            }
+
+            firstKeys.add(first);
+            entries.add(new long[]{offset, compressedLength, bytes.length, blockDocs});
+            offset += compressedLength;
+
+            raw.reset();
+            blockDocs = 0;
+        }
+
+        /**
+         * Writes the last block plus the block index and moves the temporary file to its place
+         *
+         * @return number of documents in the store
+         * @throws IOException if IO exception occurs
+         */
+        public long commit() throws IOException {
+            flush();
+
+            final long indexOffset = offset;
+            out.writeInt(firstKeys.size());
+            for (int i = 0; i < firstKeys.size(); i++) {
+                final long[] entry = entries.get(i);
+                out.writeUTF(firstKeys.get(i));
+                out.writeLong(entry[0]);
+                out.writeInt((int) entry[1]);
+                out.writeInt((int) entry[2]);
+                out.writeInt((int) entry[3]);
+            }
+            out.writeLong(count);
+            out.writeLong(indexOffset);
+            out.close();
+
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+}
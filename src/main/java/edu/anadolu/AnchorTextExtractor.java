@@ -4,18 +4,18 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.common.SolrInputDocument;
 import org.clueweb09.ClueWeb09WarcRecord;
+import org.clueweb09.ParallelGZIPInputStream;
 
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPInputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
+import static edu.anadolu.Indexer.BUFFER_SIZE;
 import static edu.anadolu.Indexer.discoverWarcFiles;
 
 /**
@@ -23,11 +23,28 @@ import static edu.anadolu.Indexer.discoverWarcFiles;
  */
 public final class AnchorTextExtractor {
 
+    /**
+     * Receives the anchor text of a document
+     */
+    private interface Sink {
+        void accept(String docNo, int count, String anchor) throws IOException, SolrServerException;
+    }
+
     private static void processAnchorWarcFile(Path anchorFile, HttpSolrClient solr) throws IOException, SolrServerException {
+        parse(anchorFile, (docNo, count, anchor) -> {
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.setField("id", docNo);
+            doc.setField("count", count);
+            doc.setField("anchor", anchor);
+            solr.add(doc);
+        });
+    }
+
+    private static void parse(Path anchorFile, Sink sink) throws IOException, SolrServerException {
 
         //System.out.println("processing AnchorText warc file : " + anchorFile + " writing it to csv file : " + csvFile.toString());
 
-        try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(anchorFile, StandardOpenOption.READ)))) {
+        try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(anchorFile))) {
 
             String line;
 
@@ -37,9 +54,6 @@ public final class AnchorTextExtractor {
 
                 String docNo = line.substring(6);
 
-                SolrInputDocument doc = new SolrInputDocument();
-                doc.setField("id", docNo);
-
                 String http = ClueWeb09WarcRecord.readLineFromInputStream(inStream);
                 if (!http.startsWith("http")) {
                     System.out.println("http line does not start with http : " + http);
@@ -94,9 +108,7 @@ public final class AnchorTextExtractor {
                 }
 
 
-                doc.setField("count", count);
-                doc.setField("anchor", builder.toString().trim());
-                solr.add(doc);
+                sink.accept(docNo, count, builder.toString().trim());
                 builder.setLength(0);
             }
 
@@ -147,4 +159,149 @@ public final class AnchorTextExtractor {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Extracts the anchor texts into a local {@link AnchorStore}, so that the indexer needs no Solr queries.
+     * Every anchor file is parsed, in parallel, into a sorted run, and the runs are merged into the store.
+     * Entries of a document that appear in more than one file are joined.
+     *
+     * @param anchorDirs directories of the anchor text files
+     * @param numThreads number of threads
+     * @param storeDir   anchor store directory to be (re-)written
+     * @return number of documents in the store
+     * @throws IOException          if IO exception occurs
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static long extractToStore(List<Path> anchorDirs, int numThreads, Path storeDir) throws IOException, InterruptedException {
+
+        final List<Path> anchorFiles = new ArrayList<>();
+        for (Path anchorDir : anchorDirs)
+            anchorFiles.addAll(discoverWarcFiles(anchorDir, ".warc.gz"));
+
+        System.out.println(anchorFiles.size() + " many anchor text files found under " + anchorDirs);
+
+        Files.createDirectories(storeDir);
+        final Path tmp = Files.createTempDirectory(storeDir, "runs");
+
+        final ForkJoinPool pool = new ForkJoinPool(numThreads);
+
+        final List<Path> runs;
+        try {
+            runs = pool.submit(() -> anchorFiles.parallelStream().map(anchorFile -> {
+                try {
+                    return run(anchorFile, tmp);
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(anchorFile.toAbsolutePath().toString(), ioe);
+                }
+            }).collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        final PriorityQueue<Run> queue = new PriorityQueue<>(Math.max(1, runs.size()), Comparator.comparing((Run run) -> run.key));
+
+        try (AnchorStore.Writer writer = AnchorStore.writer(storeDir)) {
+
+            for (Path path : runs) {
+                Run run = new Run(path);
+                if (run.next()) queue.add(run);
+            }
+
+            while (!queue.isEmpty()) {
+
+                Run run = queue.poll();
+                final String docNo = run.key;
+                StringBuilder anchor = new StringBuilder(run.value);
+                if (run.next()) queue.add(run);
+
+                while (!queue.isEmpty() && docNo.equals(queue.peek().key)) {
+                    run = queue.poll();
+                    join(anchor, run.value);
+                    if (run.next()) queue.add(run);
+                }
+
+                writer.add(docNo, anchor.toString());
+            }
+
+            return writer.commit();
+
+        } finally {
+            for (Run run : queue)
+                run.in.close();
+            for (Path path : runs)
+                Files.deleteIfExists(path);
+            Files.delete(tmp);
+        }
+    }
+
+    private static void join(StringBuilder anchor, String value) {
+        if (value.isEmpty()) return;
+        if (anchor.length() > 0) anchor.append("\t");
+        anchor.append(value);
+    }
+
+    /**
+     * Parses an anchor text file and writes its entries, sorted by document identifier, to a temporary file
+     */
+    private static Path run(Path anchorFile, Path tmp) throws IOException {
+
+        final TreeMap<String, StringBuilder> entries = new TreeMap<>();
+
+        try {
+            parse(anchorFile, (docNo, count, anchor) -> join(entries.computeIfAbsent(docNo, k -> new StringBuilder()), anchor));
+        } catch (SolrServerException sse) {
+            // not thrown by the sink above
+            throw new RuntimeException(sse);
+        }
+
+        final Path path = Files.createTempFile(tmp, anchorFile.getFileName().toString(), ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            for (Map.Entry<String, StringBuilder> entry : entries.entrySet()) {
+                write(out, entry.getKey());
+                write(out, entry.getValue().toString());
+            }
+        }
+        return path;
+    }
+
+    private static void write(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Sequential reader of a sorted run
+     */
+    private static final class Run {
+
+        final DataInputStream in;
+        String key;
+        String value;
+
+        Run(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException {
+            final int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException eof) {
+                in.close();
+                return false;
+            }
+            key = read(length);
+            value = read(in.readInt());
+            return true;
+        }
+
+        private String read(int length) throws IOException {
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
 }
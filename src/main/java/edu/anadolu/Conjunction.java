@@ -0,0 +1,212 @@
+package edu.anadolu;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Conjunctive (AND) evaluation of short term queries without the {@link BooleanQuery} machinery: in every segment the
+ * postings are ordered by their document frequencies, the rarest one leads, and the others leap forward to its
+ * documents with {@link PostingsEnum#advance}, which skips whole blocks through the skip lists of the postings.
+ * <p>
+ * Used for the AND runs of {@link Searcher} and for the co-occurrence counts of {@link edu.anadolu.qpp.PMI}.
+ * Hits, scores and counts are the same as the ones of {@link IndexSearcher#search(Query, int)} and
+ * {@link IndexSearcher#count(Query)}.
+ */
+public final class Conjunction {
+
+    /**
+     * Longest query the fast path is taken for, Web Track queries rarely go beyond
+     */
+    public static final int MAX_TERMS = 5;
+
+    private Conjunction() {
+    }
+
+    /**
+     * Postings of the terms in a segment, rarest first
+     */
+    private static final class Intersection {
+
+        private final PostingsEnum[] postings;
+
+        /**
+         * Index of the term, in the order given, of each postings
+         */
+        private final int[] terms;
+
+        private Intersection(PostingsEnum[] postings, int[] terms) {
+            this.postings = postings;
+            this.terms = terms;
+        }
+
+        /**
+         * @return next document that contains all of the terms
+         */
+        private int nextDoc() throws IOException {
+
+            int doc = postings[0].nextDoc();
+
+            advanceLead:
+            while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+                for (int i = 1; i < postings.length; i++) {
+                    int other = postings[i].docID();
+                    if (other < doc) other = postings[i].advance(doc);
+                    if (other > doc) {
+                        doc = postings[0].advance(other);
+                        continue advanceLead;
+                    }
+                }
+                return doc;
+            }
+            return doc;
+        }
+    }
+
+    /**
+     * @return intersection of the terms in a segment, or null if one of them does not occur in the segment
+     */
+    private static Intersection intersection(LeafReader reader, String field, BytesRef[] terms, int flags) throws IOException {
+
+        final Terms fieldTerms = reader.terms(field);
+        if (fieldTerms == null) return null;
+        final TermsEnum termsEnum = fieldTerms.iterator();
+
+        final int[] docFreq = new int[terms.length];
+        final PostingsEnum[] postings = new PostingsEnum[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            if (!termsEnum.seekExact(terms[t])) return null;
+            docFreq[t] = termsEnum.docFreq();
+            postings[t] = termsEnum.postings(null, flags);
+        }
+
+        final Integer[] order = new Integer[terms.length];
+        for (int t = 0; t < order.length; t++) order[t] = t;
+        Arrays.sort(order, Comparator.comparingInt(t -> docFreq[t]));
+
+        final PostingsEnum[] sorted = new PostingsEnum[terms.length];
+        final int[] index = new int[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = postings[order[i]];
+            index[i] = order[i];
+        }
+        return new Intersection(sorted, index);
+    }
+
+    private static BytesRef[] bytes(Collection<String> terms) {
+        return new LinkedHashSet<>(terms).stream().map(BytesRef::new).toArray(BytesRef[]::new);
+    }
+
+    /**
+     * @param reader index reader
+     * @param field  field of the terms
+     * @param terms  terms, repeated ones count once
+     * @return number of the live documents that contain all of the terms
+     * @throws IOException if IO exception occurs
+     */
+    public static int count(IndexReader reader, String field, Collection<String> terms) throws IOException {
+        return count(reader, field, bytes(terms));
+    }
+
+    private static int count(IndexReader reader, String field, BytesRef[] terms) throws IOException {
+
+        if (terms.length == 0) return 0;
+
+        int count = 0;
+        for (LeafReaderContext leaf : reader.leaves()) {
+            final Intersection intersection = intersection(leaf.reader(), field, terms, PostingsEnum.NONE);
+            if (intersection == null) continue;
+            final Bits liveDocs = leaf.reader().getLiveDocs();
+            for (int doc = intersection.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = intersection.nextDoc())
+                if (liveDocs == null || liveDocs.get(doc)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Co-occurrence counts of all pairs of the terms of a query
+     *
+     * @param reader index reader
+     * @param field  field of the terms
+     * @param terms  distinct terms
+     * @return symmetric matrix of the number of the live documents that contain both terms, zeros on the diagonal
+     * @throws IOException if IO exception occurs
+     */
+    public static int[][] pairs(IndexReader reader, String field, List<String> terms) throws IOException {
+
+        final int[][] counts = new int[terms.size()][terms.size()];
+        for (int i = 0; i < terms.size(); i++)
+            for (int j = i + 1; j < terms.size(); j++)
+                counts[i][j] = counts[j][i] = count(reader, field, new BytesRef[]{new BytesRef(terms.get(i)), new BytesRef(terms.get(j))});
+        return counts;
+    }
+
+    /**
+     * @param searcher searcher
+     * @param query    parsed query
+     * @param field    field of the query terms
+     * @param model    model to score the documents with
+     * @param numHits  number of hits
+     * @return top hits, or null if the query is not a conjunction of at most {@link #MAX_TERMS} terms
+     * @throws IOException if IO exception occurs
+     */
+    static ScoreDoc[] search(IndexSearcher searcher, Query query, String field, ModelBase model, int numHits) throws IOException {
+
+        if (!MultiModelSearcher.conjunctive(query)) return null;
+        final List<Term> clauses = MultiModelSearcher.clauses(query, field);
+        if (clauses == null || clauses.size() > MAX_TERMS) return null;
+
+        final List<Term> distinct = new ArrayList<>(new LinkedHashSet<>(clauses));
+        final CollectionStatistics collectionStatistics = searcher.collectionStatistics(field);
+
+        final BytesRef[] terms = new BytesRef[distinct.size()];
+        final Similarity.SimWeight[] weights = new Similarity.SimWeight[distinct.size()];
+        for (int t = 0; t < terms.length; t++) {
+            final Term term = distinct.get(t);
+            final TermContext context = TermStats.of(searcher.getIndexReader()).context(term);
+            if (context.docFreq() == 0) return new ScoreDoc[0];
+            terms[t] = term.bytes();
+            weights[t] = model.computeWeight(1f, collectionStatistics, searcher.termStatistics(term, context));
+        }
+
+        // terms of the clauses, scores are summed in clause order like ConjunctionScorer does
+        final int[] clauseTerms = new int[clauses.size()];
+        for (int c = 0; c < clauseTerms.length; c++)
+            clauseTerms[c] = distinct.indexOf(clauses.get(c));
+
+        final MultiModelSearcher.HitQueue queue = new MultiModelSearcher.HitQueue(Math.max(1, Math.min(numHits, searcher.getIndexReader().maxDoc())));
+        final float[] scores = new float[terms.length];
+
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+
+            final Intersection intersection = intersection(leaf.reader(), field, terms, PostingsEnum.FREQS);
+            if (intersection == null) continue;
+
+            final NumericDocValues norms = leaf.reader().getNormValues(field);
+            final Bits liveDocs = leaf.reader().getLiveDocs();
+
+            for (int doc = intersection.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = intersection.nextDoc()) {
+
+                if (liveDocs != null && !liveDocs.get(doc)) continue;
+
+                final long docLen = MultiModelSearcher.length(norms, doc);
+                for (int i = 0; i < terms.length; i++)
+                    scores[intersection.terms[i]] = model.score(weights[intersection.terms[i]], intersection.postings[i].freq(), docLen);
+
+                double score = 0;
+                for (int t : clauseTerms)
+                    score += scores[t];
+
+                queue.collect(leaf.docBase + doc, (float) score);
+            }
+        }
+
+        return queue.hits();
+    }
+}
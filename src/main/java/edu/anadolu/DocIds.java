@@ -0,0 +1,255 @@
+package edu.anadolu;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.*;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static edu.anadolu.Indexer.FIELD_ID;
+
+/**
+ * Resolves Lucene document numbers to TREC document identifiers ({@link Indexer#FIELD_ID}) without loading stored fields.
+ * <p>
+ * Indexes that carry the identifier as {@link SortedDocValues} are read directly. For older indexes, an id table is
+ * built once from the stored fields and saved under the collection, next to the result cache, with the generation of
+ * the commit, then read through a memory mapped {@link IndexInput}. The index directory is never written to. Readers
+ * that are not opened on a file system directory, or whose table cannot be saved, fall back to stored fields.
+ */
+public final class DocIds implements Closeable {
+
+    /**
+     * @param indexPath index directory, under the indexes folder of the collection
+     * @return file that the id table of the index is saved to
+     */
+    public static Path file(Path indexPath) {
+        final Path absolute = indexPath.toAbsolutePath();
+        return absolute.getParent().resolveSibling("cache").resolve(absolute.getFileName() + ".ids");
+    }
+
+    /**
+     * @param reader index reader, the id table is saved to the {@link #file} of its directory
+     * @return resolver for the documents of the reader
+     * @throws IOException if IO exception occurs
+     */
+    public static DocIds open(IndexReader reader) throws IOException {
+        Directory directory = reader instanceof DirectoryReader ? ((DirectoryReader) reader).directory() : null;
+        while (directory instanceof FilterDirectory)
+            directory = ((FilterDirectory) directory).getDelegate();
+        return open(reader, directory instanceof FSDirectory ? file(((FSDirectory) directory).getDirectory()) : null);
+    }
+
+    /**
+     * @param reader index reader
+     * @param file   file of the id table, or null for none
+     * @return resolver for the documents of the reader
+     * @throws IOException if IO exception occurs
+     */
+    public static DocIds open(IndexReader reader, Path file) throws IOException {
+
+        if (docValues(reader) || file == null || !(reader instanceof DirectoryReader))
+            return new DocIds(reader, null, null);
+
+        Directory directory = null;
+        try {
+            Files.createDirectories(file.getParent());
+            directory = FSDirectory.open(file.getParent());
+            return new DocIds(reader, directory, table(directory, file.getFileName().toString(), (DirectoryReader) reader));
+        } catch (IOException e) {
+            System.out.println("Cannot create the id table " + file + ", falling back to stored fields : " + e.getMessage());
+            IOUtils.closeWhileHandlingException(directory);
+        }
+
+        return new DocIds(reader, null, null);
+    }
+
+    /**
+     * @return true if every segment has the identifiers as sorted doc values
+     */
+    private static boolean docValues(IndexReader reader) {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            final FieldInfo info = leaf.reader().getFieldInfos().fieldInfo(FIELD_ID);
+            if (info == null || info.getDocValuesType() != DocValuesType.SORTED) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the table, if it is there and belongs to the commit of the reader
+     */
+    private static IndexInput existing(Directory directory, String name, DirectoryReader reader) throws IOException {
+
+        if (!Arrays.asList(directory.listAll()).contains(name)) return null;
+
+        final IndexInput in = directory.openInput(name, IOContext.READ);
+        if (in.length() >= Long.BYTES + Integer.BYTES) {
+            in.seek(in.length() - Long.BYTES - Integer.BYTES);
+            if (in.readLong() == reader.getIndexCommit().getGeneration() && in.readInt() == reader.maxDoc()) return in;
+        }
+        in.close();
+        System.out.println("Discarding the id table " + name + ", the index has changed");
+        return null;
+    }
+
+    /**
+     * Table layout: the identifiers as UTF-8 bytes, maxDoc + 1 offsets, the start of the offsets, the generation of the
+     * commit, maxDoc.
+     */
+    private static IndexInput table(Directory directory, String name, DirectoryReader reader) throws IOException {
+
+        final IndexInput existing = existing(directory, name, reader);
+        if (existing != null) return existing;
+
+        System.out.println("Building the id table " + name + " for " + reader.maxDoc() + " documents...");
+
+        final String prefix = name.substring(0, name.lastIndexOf('.'));
+        final String temp;
+        final String offsets;
+
+        try (IndexOutput out = directory.createTempOutput(prefix, "table", IOContext.DEFAULT)) {
+
+            temp = out.getName();
+
+            try (IndexOutput offs = directory.createTempOutput(prefix, "offsets", IOContext.DEFAULT)) {
+
+                offsets = offs.getName();
+
+                for (LeafReaderContext leaf : reader.leaves()) {
+
+                    // sequential access, stored field blocks are decompressed once
+                    final LeafReader leafReader = leaf.reader();
+                    final StoredFieldsReader fields = leafReader instanceof CodecReader ? ((CodecReader) leafReader).getFieldsReader().getMergeInstance() : null;
+
+                    for (int doc = 0; doc < leafReader.maxDoc(); doc++) {
+                        final DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(FIELD_ID);
+                        if (fields != null) fields.visitDocument(doc, visitor);
+                        else leafReader.document(doc, visitor);
+                        final String id = visitor.getDocument().get(FIELD_ID);
+                        final byte[] bytes = (id == null ? "" : id).getBytes(StandardCharsets.UTF_8);
+                        offs.writeLong(out.getFilePointer());
+                        out.writeBytes(bytes, bytes.length);
+                    }
+                }
+                offs.writeLong(out.getFilePointer());
+            }
+
+            final long start = out.getFilePointer();
+            try (IndexInput in = directory.openInput(offsets, IOContext.READONCE)) {
+                out.copyBytes(in, in.length());
+            }
+            out.writeLong(start);
+            out.writeLong(reader.getIndexCommit().getGeneration());
+            out.writeInt(reader.maxDoc());
+        }
+
+        directory.deleteFile(offsets);
+        directory.sync(Arrays.asList(temp));
+        // replaces the table of a previous commit as a whole, concurrent builders of the same commit write the same bytes
+        directory.rename(temp, name);
+        directory.syncMetaData();
+
+        final IndexInput in = existing(directory, name, reader);
+        if (in == null) throw new CorruptIndexException("id table does not match the commit " + reader.getIndexCommit().getGeneration(), name);
+        return in;
+    }
+
+    private final IndexReader reader;
+    private final List<LeafReaderContext> leaves;
+    private final Directory directory;
+    private final IndexInput table;
+    private final long offsets;
+
+    /**
+     * Inputs are not thread safe, every thread reads the table through its own clone
+     */
+    private final ThreadLocal<IndexInput> inputs;
+
+    /**
+     * Doc values are forward only iterators: every thread keeps the last one of each segment, which serves ascending
+     * targets without starting over.
+     */
+    private final ThreadLocal<SortedDocValues[]> iterators;
+
+    private DocIds(IndexReader reader, Directory directory, IndexInput table) throws IOException {
+        this.reader = reader;
+        this.leaves = reader.leaves();
+        this.directory = directory;
+        this.table = table;
+        if (table != null) {
+            table.seek(table.length() - Integer.BYTES - 2 * Long.BYTES);
+            this.offsets = table.readLong();
+            this.inputs = ThreadLocal.withInitial(table::clone);
+        } else {
+            this.offsets = -1;
+            this.inputs = null;
+        }
+        this.iterators = docValues(reader) ? ThreadLocal.withInitial(() -> new SortedDocValues[leaves.size()]) : null;
+    }
+
+    /**
+     * @param doc Lucene document number
+     * @return TREC identifier of the document
+     * @throws IOException if IO exception occurs
+     */
+    public String get(int doc) throws IOException {
+
+        if (iterators != null) {
+            final int l = ReaderUtil.subIndex(doc, leaves);
+            final LeafReaderContext leaf = leaves.get(l);
+            final int target = doc - leaf.docBase;
+            final SortedDocValues[] values = iterators.get();
+            if (values[l] == null || values[l].docID() >= target)
+                values[l] = DocValues.getSorted(leaf.reader(), FIELD_ID);
+            if (!values[l].advanceExact(target)) return null;
+            return values[l].lookupOrd(values[l].ordValue()).utf8ToString();
+        }
+
+        if (inputs != null) {
+            final IndexInput in = inputs.get();
+            in.seek(offsets + (long) doc * Long.BYTES);
+            final long from = in.readLong();
+            final byte[] bytes = new byte[(int) (in.readLong() - from)];
+            in.seek(from);
+            in.readBytes(bytes, 0, bytes.length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        final DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(FIELD_ID);
+        reader.document(doc, visitor);
+        return visitor.getDocument().get(FIELD_ID);
+    }
+
+    /**
+     * Resolves the hits in the order of their document numbers, so that every segment is visited once
+     *
+     * @param hits hits
+     * @return identifiers, in the order of the hits
+     * @throws IOException if IO exception occurs
+     */
+    public String[] get(ScoreDoc[] hits) throws IOException {
+
+        final Integer[] order = new Integer[hits.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> hits[i].doc));
+
+        final String[] ids = new String[hits.length];
+        for (int i : order)
+            ids[i] = get(hits[i].doc);
+        return ids;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(table, directory);
+    }
+}
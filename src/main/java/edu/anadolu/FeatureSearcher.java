@@ -5,7 +5,6 @@ import edu.anadolu.datasets.DataSet;
 import edu.anadolu.eval.Evaluator;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.core.SimpleAnalyzer;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
@@ -25,7 +24,6 @@ import java.nio.file.Paths;
 import java.util.*;
 
 import static edu.anadolu.Indexer.FIELD_CONTENTS;
-import static edu.anadolu.Indexer.FIELD_ID;
 import static org.clueweb09.tracks.Track.whiteSpaceSplitter;
 
 /**
@@ -72,14 +70,14 @@ public class FeatureSearcher extends Searcher {
             for (String word : subParts) {
                 if (termStatisticsMap.containsKey(word)) continue;
                 Term term = new Term(field, word);
-                TermStatistics termStatistics = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+                TermStatistics termStatistics = TermStats.of(reader).statistics(term);
                 termStatisticsMap.put(word, termStatistics);
             }
 
             String queryString = need.query();
             Query query = queryParser.parse(queryString);
 
-            ScoreDoc[] hits = searcher.search(query, numHits).scoreDocs;
+            ScoreDoc[] hits = topDocs(searcher, query, field, similarity);
 
             float[] scores = new float[hits.length];
 
@@ -99,12 +97,16 @@ public class FeatureSearcher extends Searcher {
             for (String word : subParts)
                 findDoc(map, word, field, norms);
 
+            // the map iterates in the order of the hits
+            final String[] ids = docIds().get(hits);
+
             i = 0;
+            int rank = 0;
             for (Map.Entry<Integer, List<DocTermStat>> entry : map.entrySet()) {
 
-                Document doc = searcher.doc(entry.getKey());
+                final String docId = ids[rank++];
 
-                final int judge = need.getJudgeMap().getOrDefault(doc.get(FIELD_ID), 0);
+                final int judge = need.getJudgeMap().getOrDefault(docId, 0);
 
                 out.print(Integer.toString(judge == -2 ? 0 : judge));
                 out.print(" ");
@@ -171,9 +173,8 @@ public class FeatureSearcher extends Searcher {
 
 
                 out.print("# ");
-                out.print(doc.get(FIELD_ID));
+                out.print(docId);
                 out.println();
-                out.flush();
             }
 
             subParts.clear();
@@ -329,7 +330,7 @@ public class FeatureSearcher extends Searcher {
 
             final int luceneId = postingsEnum.docID();
 
-            String docId = searcher.doc(luceneId).get(FIELD_ID);
+            String docId = docIds().get(luceneId);
 
             if (map.containsKey(docId)) {
 
@@ -399,7 +400,7 @@ public class FeatureSearcher extends Searcher {
             for (String word : subParts) {
                 if (termStatisticsMap.containsKey(word)) continue;
                 Term term = new Term(field, word);
-                TermStatistics termStatistics = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+                TermStatistics termStatistics = TermStats.of(reader).statistics(term);
                 termStatisticsMap.put(word, termStatistics);
             }
 
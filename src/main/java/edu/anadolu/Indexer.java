@@ -1,5 +1,6 @@
 package edu.anadolu;
 
+import edu.anadolu.ParsedDocument.Column;
 import edu.anadolu.analysis.Analyzers;
 import edu.anadolu.analysis.Tag;
 import edu.anadolu.datasets.Collection;
@@ -14,26 +15,31 @@ import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.params.CommonParams;
-import org.clueweb09.ClueWeb09WarcRecord;
-import org.clueweb09.ClueWeb12WarcRecord;
 import org.clueweb09.Gov2Record;
+import org.clueweb09.ParallelGZIPInputStream;
 import org.clueweb09.WarcRecord;
-import org.jsoup.Jsoup;
-import org.jsoup.helper.StringUtil;
-import org.jsoup.nodes.Element;
+import org.clueweb09.WarcRecordReader;
 
 import java.io.*;
 import java.net.MalformedURLException;
@@ -41,16 +47,12 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiPredicate;
 import java.util.stream.Stream;
-import java.util.zip.GZIPInputStream;
 
 import static edu.anadolu.analysis.Analyzers.scripts;
 import static edu.anadolu.field.MetaTag.notEmpty;
@@ -83,81 +85,36 @@ public class Indexer {
 
     public static final int BUFFER_SIZE = 1 << 16; // 64K
 
-    private final class IndexerThread extends Thread {
+    final class IndexerThread extends Thread {
 
         final private Path inputWarcFile;
 
         final private IndexWriter writer;
 
-        IndexerThread(IndexWriter writer, Path inputWarcFile) {
-            // super(inputWarcFile.getFileName().toString());
-            this.writer = writer;
-            this.inputWarcFile = inputWarcFile;
-        }
-
-        private int index(String id, String contents) throws IOException {
-
-            // make a new, empty document
-            Document document = new Document();
-
-            // document ID
-            document.add(new StringField(FIELD_ID, id, Field.Store.YES));
-
-            // entire document
-            document.add(new NoPositionsTextField(FIELD_CONTENTS, contents));
-
-            // handle script flag
-            if (!config.field && config.script) {
+        final private Checkpoint checkpoint;
 
-                for (String script : scripts)
-                    document.add(new NoPositionsTextField(script, contents));
-
-                document.add(new NoPositionsTextField("ascii", contents));
-            }
-
-
-            // URLs only
-            // document.add(new NoPositionsTextField("url", contents));
-
-            // EMails only
-            // document.add(new NoPositionsTextField("email", contents));
-
-            writer.addDocument(document);
-            return 1;
+        /**
+         * The last commit may hold some documents of this file, so they are replaced rather than added
+         */
+        final private boolean update;
 
+        IndexerThread(IndexWriter writer, Path inputWarcFile) {
+            this(writer, inputWarcFile, null);
         }
 
-        private int indexJDoc(org.jsoup.nodes.Document jDoc, String id) throws IOException {
-
-            String contents = jDoc.text();
-
-            // don't index empty documents
-            if (contents.length() == 0) {
-                if (!config.silent)
-                    System.err.println(id);
-                return 1;
-            }
-
-            return index(id, contents);
+        IndexerThread(IndexWriter writer, Path inputWarcFile, Checkpoint checkpoint) {
+            // super(inputWarcFile.getFileName().toString());
+            this.writer = writer;
+            this.inputWarcFile = inputWarcFile;
+            this.checkpoint = checkpoint;
+            this.update = checkpoint != null && checkpoint.isPartial(inputWarcFile);
         }
 
-        private int indexJDocWithAnchor(org.jsoup.nodes.Document jDoc, String id) throws IOException {
-
-            StringBuilder contents = new StringBuilder(jDoc.text()).append(" ");
-
-            if (config.anchor && solr != null) {
-                String anchor = anchor(id, solr);
-                if (anchor != null)
-                    stripHTMLAndAppend(anchor, contents);
-            }
-
-            // don't index empty documents
-            if (contents.length() < 2) {
-                if (!config.silent)
-                    System.err.println(id);
-                return 1;
-            }
-            return index(id, contents.toString().trim());
+        private void add(String id, Document document) throws IOException {
+            if (update)
+                writer.updateDocument(new Term(FIELD_ID, id), document);
+            else
+                writer.addDocument(document);
         }
 
         private int indexWarcRecord(WarcRecord warcRecord) throws IOException {
@@ -165,50 +122,40 @@ public class Indexer {
             if (!RESPONSE.equals(warcRecord.type()))
                 return 0;
 
-            String id = warcRecord.id();
-            if (skip(id)) return 0;
-
-            if (config.field) {
-                Document document = warc2LuceneDocument(warcRecord);
-                if (document != null)
-                    writer.addDocument(document);
+            if (skip(warcRecord.id())) return 0;
 
-                return 1;
-            } else if (config.semantic) {
-                Document document = SemanticElements.warc2LuceneDocument(warcRecord);
-                if (document == null)
-                    return 1;
+            Document document = document(warcRecord);
+            if (document != null)
+                add(warcRecord.id(), document);
 
-                writer.addDocument(document);
+            return 1;
+        }
 
-                return 1;
-            }
+        private int indexParsedFile() throws IOException {
 
-            org.jsoup.nodes.Document jDoc;
+            int i = 0;
 
-            try {
-                jDoc = Jsoup.parse(warcRecord.content());
-            } catch (Exception exception) {
-                if (!config.silent)
-                    System.err.println("jdoc exception " + id);
-                return 1;
+            try (ParsedCorpus.Reader reader = parsedCorpus.reader(inputWarcFile, columns())) {
+                ParsedDocument parsed;
+                while ((parsed = reader.next()) != null) {
+                    if (skip(parsed.id())) continue;
+                    Document document = document(parsed);
+                    if (document != null)
+                        add(parsed.id(), document);
+                    i++;
+                }
             }
-
-            if (config.anchor)
-                return indexJDocWithAnchor(jDoc, id);
-            else
-                return indexJDoc(jDoc, id);
-
+            return i;
         }
 
         private int indexClueWeb12WarcFile() throws IOException {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (WarcRecordReader reader = WarcRecordReader.clueWeb12(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
-                ClueWeb12WarcRecord wDoc;
-                while ((wDoc = ClueWeb12WarcRecord.readNextWarcRecord(inStream)) != null) {
+                WarcRecord wDoc;
+                while ((wDoc = reader.next()) != null) {
                     i += indexWarcRecord(wDoc);
                 }
             }
@@ -219,10 +166,10 @@ public class Indexer {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (WarcRecordReader reader = WarcRecordReader.clueWeb09(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
-                ClueWeb09WarcRecord wDoc;
-                while ((wDoc = ClueWeb09WarcRecord.readNextWarcRecord(inStream)) != null) {
+                WarcRecord wDoc;
+                while ((wDoc = reader.next()) != null) {
                     i += indexWarcRecord(wDoc);
                 }
             }
@@ -238,7 +185,7 @@ public class Indexer {
             boolean found = false;
 
             try (
-                    InputStream stream = new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE);
+                    InputStream stream = ParallelGZIPInputStream.open(inputWarcFile);
                     BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
 
 
@@ -276,7 +223,12 @@ public class Indexer {
                 Thread.currentThread().setName(inputWarcFile.toAbsolutePath().toString());
                 //setName(inputWarcFile.getFileName().toString());
 
-                if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection)) {
+                if (checkpoint != null)
+                    checkpoint.start(inputWarcFile);
+
+                if (parsedCorpus.contains(inputWarcFile)) {
+                    int addCount = indexParsedFile();
+                } else if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection)) {
                     int addCount = indexClueWeb09WarcFile();
                     //System.out.println("*./" + inputWarcFile.getParent().getFileName().toString() + File.separator + inputWarcFile.getFileName().toString() + "  " + addCount);
                 } else if (Collection.CW12A.equals(collection) || Collection.CW12B.equals(collection)) {
@@ -287,6 +239,10 @@ public class Indexer {
                     //System.out.println("./" + inputWarcFile.getParent().getFileName().toString() + File.separator + inputWarcFile.getFileName().toString() + "\t" + addCount);
                 }
 
+                // a file that fails with an exception stays unfinished, and it is indexed again when resumed
+                if (checkpoint != null)
+                    checkpoint.finish(inputWarcFile);
+
             } catch (IOException ioe) {
                 System.out.println(Thread.currentThread().getName() + ": ERROR: unexpected IOException:");
                 ioe.printStackTrace(System.out);
@@ -319,6 +275,7 @@ public class Indexer {
 
     private final IndexerConfig config;
     private final Collection collection;
+    private final ParsedCorpus parsedCorpus;
 
     public static String anchor(String id, SolrClient solr) {
         SolrQuery query = new SolrQuery();
@@ -346,6 +303,30 @@ public class Indexer {
 
     private final SolrClient solr;
 
+    /**
+     * Local anchor texts, when present they are used instead of the Solr queries
+     */
+    private final AnchorStore anchors;
+
+    /**
+     * @return anchor text of the document from the {@link AnchorStore}, or from Solr when there is no local store
+     */
+    private String anchor(String id) {
+        if (anchors != null) {
+            try {
+                return anchors.get(id);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return solr == null ? null : anchor(id, solr);
+    }
+
+    /**
+     * Spam percentile and PageRank, written to the index as doc values
+     */
+    private final StaticRanks ranks;
+
     private final Tag tag;
     private final DataSet dataset;
 
@@ -365,6 +346,28 @@ public class Indexer {
         this.solr = solr;
         this.tag = tag;
 
+        final Path parsedPath = dataset.collectionPath().resolve(ParsedCorpus.DIRECTORY);
+        this.parsedCorpus = new ParsedCorpus(docsPath, parsedPath);
+        if (Files.isDirectory(parsedPath))
+            System.out.println("WARC files found in the parsed corpus store '" + parsedPath + "' will not be parsed again");
+
+        final Path anchorPath = dataset.collectionPath().resolve(AnchorStore.DIRECTORY);
+        if (config.anchor && AnchorStore.exists(anchorPath)) {
+            this.anchors = AnchorStore.open(anchorPath);
+            System.out.println(anchors.size() + " anchor texts will be read from the local store '" + anchorPath + "'");
+        } else
+            this.anchors = null;
+
+        if (config.ranks) {
+            if (!StaticRanks.exists(dataset.home().toString(), collection)) {
+                System.out.println("Static ranks of " + collection + " are not imported, please run StaticRankTool first");
+                System.exit(1);
+            }
+            this.ranks = StaticRanks.open(dataset.home().toString(), collection);
+            System.out.println(ranks.size() + " static ranks will be read from '" + ranks + "'");
+        } else
+            this.ranks = null;
+
         if (this.config.field)
             this.indexPath = Paths.get(indexPath, tag + "Field");
         else if (this.config.semantic)
@@ -376,6 +379,154 @@ public class Indexer {
 
     }
 
+    private Document index(String id, String contents) {
+
+        // make a new, empty document
+        Document document = new Document();
+
+        // document ID
+        document.add(new StringField(FIELD_ID, id, Field.Store.YES));
+
+        // entire document
+        document.add(new NoPositionsTextField(FIELD_CONTENTS, contents));
+
+        // handle script flag
+        if (!config.field && config.script) {
+
+            for (String script : scripts)
+                document.add(new NoPositionsTextField(script, contents));
+
+            document.add(new NoPositionsTextField("ascii", contents));
+        }
+
+
+        // URLs only
+        // document.add(new NoPositionsTextField("url", contents));
+
+        // EMails only
+        // document.add(new NoPositionsTextField("email", contents));
+
+        return document;
+
+    }
+
+    private Document indexJDoc(String contents, String id) {
+
+        // don't index empty documents
+        if (contents.length() == 0) {
+            if (!config.silent)
+                System.err.println(id);
+            return null;
+        }
+
+        return index(id, contents);
+    }
+
+    private Document indexJDocWithAnchor(String text, String id) {
+
+        StringBuilder contents = new StringBuilder(text).append(" ");
+
+        if (config.anchor) {
+            String anchor = anchor(id);
+            if (anchor != null)
+                stripHTMLAndAppend(anchor, contents);
+        }
+
+        // don't index empty documents
+        if (contents.length() < 2) {
+            if (!config.silent)
+                System.err.println(id);
+            return null;
+        }
+        return index(id, contents.toString().trim());
+    }
+
+    /**
+     * Converts a response record into a Lucene document according to the {@link IndexerConfig}.
+     * This is the parsing step shared by the thread based indexers and the {@link IndexingPipeline}.
+     *
+     * @param warcRecord response record that is not skipped
+     * @return Lucene document, or null if the record is empty or cannot be parsed
+     */
+    Document document(WarcRecord warcRecord) {
+
+        String id = warcRecord.id();
+
+        ParsedDocument parsed;
+
+        try {
+            parsed = ParsedDocument.parse(warcRecord, collection, columns());
+        } catch (Exception exception) {
+            if (!config.silent)
+                System.err.println(config.field || config.semantic ? id : "jdoc exception " + id);
+            return null;
+        }
+
+        return document(parsed);
+    }
+
+    /**
+     * Converts a parsed document, either parsed right now or read from the {@link ParsedCorpus}, into a Lucene document
+     *
+     * @param parsed parsed document having the {@link #columns()}
+     * @return Lucene document, or null if the document is empty
+     */
+    Document document(ParsedDocument parsed) {
+
+        final Document document;
+
+        if (config.field) {
+            document = warc2LuceneDocument(parsed);
+        } else if (config.semantic) {
+            document = SemanticElements.warc2LuceneDocument(parsed);
+        } else if (config.anchor)
+            document = indexJDocWithAnchor(parsed.text(), parsed.id());
+        else
+            document = indexJDoc(parsed.text(), parsed.id());
+
+        if (document != null && ranks != null)
+            addStaticRanks(document, parsed.id());
+
+        // identifiers are resolved from doc values rather than stored fields, see DocIds; also the index sort of the shards
+        if (document != null)
+            document.add(new SortedDocValuesField(FIELD_ID, new BytesRef(parsed.id())));
+
+        return document;
+    }
+
+    /**
+     * Adds the spam percentile and the PageRank as doc values, documents that are not ranked get no value
+     */
+    private void addStaticRanks(Document document, String id) {
+
+        final int percentile = ranks.percentile(id);
+        if (percentile != -1)
+            document.add(new NumericDocValuesField(StaticRanks.FIELD_SPAM, percentile));
+
+        final float rank = ranks.pageRank(id);
+        if (!Float.isNaN(rank))
+            document.add(new FloatDocValuesField(StaticRanks.FIELD_PAGE_RANK, rank));
+    }
+
+    /**
+     * @return columns of the {@link ParsedDocument} that the {@link IndexerConfig} needs
+     */
+    Set<Column> columns() {
+        if (config.field)
+            return EnumSet.of(Column.ID, Column.URL, Column.TITLE, Column.BODY, Column.KEYWORDS, Column.DESCRIPTION, Column.META);
+        else if (config.semantic)
+            return EnumSet.of(Column.ID, Column.TAGS);
+        else
+            return EnumSet.of(Column.ID, Column.TEXT);
+    }
+
+    /**
+     * @return the parsed corpus store of the collection, WARC files that are in the store are not parsed again
+     */
+    ParsedCorpus parsedCorpus() {
+        return parsedCorpus;
+    }
+
     private static StringBuilder stripHTMLAndAppend(String value, StringBuilder out) {
 
         try
@@ -402,40 +553,28 @@ public class Indexer {
     /**
      * Indexes different document representations (keywords, body, title, description, URL) into separate fields.
      *
-     * @param wDoc ClueWeb09WarcRecord
+     * @param wDoc parsed document
      * @return Lucene Document having different fields (keywords, body, title, description)
      */
-    protected Document warc2LuceneDocument(WarcRecord wDoc) {
-
-        org.jsoup.nodes.Document jDoc;
-        try {
-            jDoc = Jsoup.parse(wDoc.content());
-        } catch (Exception exception) {
-            if (!config.silent)
-                System.err.println(wDoc.id());
-            return null;
-        }
-
+    protected Document warc2LuceneDocument(ParsedDocument wDoc) {
 
         // make a new, empty document
         Document document = new Document();
 
-        String title = null;
-        String body = null;
+        String title = wDoc.title();
+        String body = wDoc.body();
 
 
         document.add(new StringField("id", wDoc.id(), Field.Store.YES));
 
 
         // HTML <title> Tag
-        Element titleEl = jDoc.getElementsByTag("title").first();
-        if (titleEl != null) {
-            title = StringUtil.normaliseWhitespace(titleEl.text()).trim();
+        if (title != null) {
             document.add(new NoPositionsTextField("title", title));
         }
 
-        String keywords = MetaTag.enrich2(jDoc, "keywords");
-        String description = MetaTag.enrich2(jDoc, "description");
+        String keywords = wDoc.keywords();
+        String description = wDoc.description();
 
         if (notEmpty.test(keywords))
             document.add(new NoPositionsTextField("keywords", keywords));
@@ -445,15 +584,13 @@ public class Indexer {
 
 
         // HTML <body> Tag
-        Element bodyEl = jDoc.body();
-        if (bodyEl != null) {
-            body = bodyEl.text();
+        if (body != null) {
             document.add(new NoPositionsTextField("body", body));
         }
 
 
-        if (config.anchor && solr != null) {
-            String anchor = anchor(wDoc.id(), solr);
+        if (config.anchor) {
+            String anchor = anchor(wDoc.id());
             if (anchor != null) {
                 StringBuilder builder = new StringBuilder();
                 stripHTMLAndAppend(anchor, builder);
@@ -461,7 +598,7 @@ public class Indexer {
             }
         }
 
-        String metaNames = MetaTag.metaTagsWithNameAttribute(jDoc);
+        String metaNames = wDoc.meta();
 
         if (notEmpty.test(metaNames))
             document.add(new NoPositionsTextField("meta", metaNames));
@@ -477,7 +614,8 @@ public class Indexer {
          * https://docs.oracle.com/javase/tutorial/networking/urls/urlInfo.html
          */
 
-        final String URLString = Collection.GOV2.equals(collection) ? jDoc.baseUri() : wDoc.url();
+        // for GOV2 this is Jsoup's baseUri(), see ParsedDocument.Column#URL
+        final String URLString = wDoc.url();
 
         if (URLString != null && URLString.length() > 5) {
 
@@ -559,34 +697,131 @@ public class Indexer {
             return Analyzers.analyzer(tag);
     }
 
-    public int indexWithThreads(int numThreads) throws IOException, InterruptedException {
+    /**
+     * Durable record of the WARC files whose documents are in the index, kept in the user data of the Lucene commits.
+     * A file is completed once all of its documents are added. Files that are started but not completed
+     * at the time of a commit are partial: the commit may hold some of their documents,
+     * so their documents are replaced (by identifier) instead of added when the indexing is resumed.
+     * <p>
+     * No file is started while a commit is in progress, therefore every file having documents in a commit
+     * is either completed or partial in the user data of that commit.
+     */
+    static final class Checkpoint {
 
-        System.out.println("Indexing with " + numThreads + " threads to directory '" + indexPath.toAbsolutePath() + "'...");
+        static final String COMPLETED = "warc.completed";
+        static final String PARTIAL = "warc.partial";
 
-        final Directory dir = FSDirectory.open(indexPath);
+        /**
+         * Number of completed files between two commits
+         */
+        static final int INTERVAL = 100;
 
-        final IndexWriterConfig iwc = new IndexWriterConfig(analyzer());
+        private final IndexWriter writer;
+        private final Set<String> completed = new LinkedHashSet<>();
+        private final Set<String> partial = new LinkedHashSet<>();
+        private final Set<String> started = new HashSet<>();
+        private int sinceCommit = 0;
 
-        iwc.setSimilarity(new MetaTerm());
-        iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        iwc.setRAMBufferSizeMB(512.0);
-        iwc.setUseCompoundFile(false);
-        iwc.setMergeScheduler(new ConcurrentMergeScheduler());
+        /**
+         * @param writer index writer opened in append mode, its live commit data is the user data of the last commit
+         */
+        Checkpoint(IndexWriter writer) {
+            this.writer = writer;
+            final Iterable<Map.Entry<String, String>> data = writer.getLiveCommitData();
+            if (data == null) return;
+            for (Map.Entry<String, String> entry : data) {
+                if (COMPLETED.equals(entry.getKey()))
+                    completed.addAll(lines(entry.getValue()));
+                else if (PARTIAL.equals(entry.getKey()))
+                    partial.addAll(lines(entry.getValue()));
+            }
+        }
 
-        final IndexWriter writer = new IndexWriter(dir, iwc);
+        private static List<String> lines(String value) {
+            return value.isEmpty() ? Collections.emptyList() : Arrays.asList(value.split("\n"));
+        }
 
-        final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads);
+        private static String key(Path file) {
+            return file.toAbsolutePath().normalize().toString();
+        }
+
+        synchronized boolean isCompleted(Path file) {
+            return completed.contains(key(file));
+        }
 
+        synchronized boolean isPartial(Path file) {
+            return partial.contains(key(file));
+        }
+
+        synchronized int numCompleted() {
+            return completed.size();
+        }
+
+        synchronized void start(Path file) {
+            started.add(key(file));
+        }
+
+        synchronized void finish(Path file) throws IOException {
+            final String key = key(file);
+            started.remove(key);
+            partial.remove(key);
+            completed.add(key);
+            if (++sinceCommit >= INTERVAL)
+                commit();
+        }
+
+        /**
+         * Commits the index together with the completed and the partial files
+         */
+        synchronized void commit() throws IOException {
+            final Set<String> unfinished = new LinkedHashSet<>(partial);
+            unfinished.addAll(started);
+
+            final Map<String, String> data = new HashMap<>();
+            data.put(COMPLETED, String.join("\n", completed));
+            data.put(PARTIAL, String.join("\n", unfinished));
+
+            writer.setLiveCommitData(data.entrySet());
+            writer.commit();
+            sinceCommit = 0;
+        }
+    }
+
+    public int indexWithThreads(int numThreads) throws IOException, InterruptedException {
 
         final String suffix = Collection.GOV2.equals(collection) ? ".gz" : ".warc.gz";
         final Deque<Path> warcFiles = discoverWarcFiles(docsPath, suffix);
 
+        System.out.println(warcFiles.size() + " many " + suffix + " files found under the docs path : " + docsPath.toString());
+
+        return indexWithThreads(indexPath, warcFiles, numThreads);
+    }
+
+    private int indexWithThreads(Path target, Deque<Path> warcFiles, int numThreads) throws IOException, InterruptedException {
+
+        System.out.println("Indexing with " + numThreads + " threads to directory '" + target.toAbsolutePath() + "'...");
+
+        final Directory dir = FSDirectory.open(target);
+
+        final IndexWriterConfig iwc = indexWriterConfig();
+        if (config.resume)
+            iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+
+        final IndexWriter writer = new IndexWriter(dir, iwc);
+
+        final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads);
+
+        final Checkpoint checkpoint = config.resume ? new Checkpoint(writer) : null;
+        if (checkpoint != null) {
+            warcFiles.removeIf(checkpoint::isCompleted);
+            System.out.println(checkpoint.numCompleted() + " files are in the last commit, " + warcFiles.size() + " many files will be appended to the index");
+        }
+
         long totalWarcFiles = warcFiles.size();
-        System.out.println(totalWarcFiles + " many " + suffix + " files found under the docs path : " + docsPath.toString());
 
         for (int i = 0; i < 2000; i++) {
             if (!warcFiles.isEmpty())
-                executor.execute(new IndexerThread(writer, warcFiles.removeFirst()));
+                executor.execute(new IndexerThread(writer, warcFiles.removeFirst(), checkpoint));
             else {
                 if (!executor.isShutdown()) {
                     Thread.sleep(30000);
@@ -614,7 +849,7 @@ public class Indexer {
                 if (!warcFiles.isEmpty())
                     for (long i = previous; i < completedTaskCount; i++) {
                         if (!warcFiles.isEmpty())
-                            executor.execute(new IndexerThread(writer, warcFiles.removeFirst()));
+                            executor.execute(new IndexerThread(writer, warcFiles.removeFirst(), checkpoint));
                         else {
                             if (!executor.isShutdown())
                                 executor.shutdown();
@@ -631,15 +866,25 @@ public class Indexer {
             Thread.currentThread().interrupt();
         }
 
-        if (totalWarcFiles != executor.getCompletedTaskCount())
-            throw new RuntimeException("totalWarcFiles = " + totalWarcFiles + " is not equal to completedTaskCount =  " + executor.getCompletedTaskCount());
+        if (totalWarcFiles != executor.getCompletedTaskCount()) {
+            if (checkpoint == null)
+                throw new RuntimeException("totalWarcFiles = " + totalWarcFiles + " is not equal to completedTaskCount =  " + executor.getCompletedTaskCount());
+            System.out.println((totalWarcFiles - executor.getCompletedTaskCount()) + " files are not completed, run again to resume");
+        }
 
         System.out.println("outside while pool size = " + executor.getPoolSize() + " activeCount = " + executor.getActiveCount() + " completed task = " + executor.getCompletedTaskCount() + " task count = " + executor.getTaskCount());
 
-        int numIndexed = writer.getDocStats().maxDoc;
+        int numIndexed = checkpoint == null ? writer.getDocStats().maxDoc : writer.getDocStats().numDocs;
 
         try {
-            writer.commit();
+            // a single sorted segment per shard, whatever the thread timing was, see Shards#merge
+            if (config.sharded)
+                writer.forceMerge(1);
+
+            if (checkpoint == null)
+                writer.commit();
+            else
+                checkpoint.commit();
         } finally {
             writer.close();
             dir.close();
@@ -694,6 +939,190 @@ public class Indexer {
         return numIndexed;
     }
 
+    /**
+     * Indexer based on a staged pipeline: decompression/record splitting, Jsoup parsing, and analysis plus addDocument.
+     * Stages are joined by bounded queues, so idle workers pick up individual records rather than whole WARC files.
+     *
+     * @param numThreads total number of worker threads shared among the stages
+     * @return number of indexed documents
+     * @throws IOException if IO exception occurs
+     */
+    public int indexWithPipeline(int numThreads) throws IOException, InterruptedException {
+        return indexWithPipeline(Collections.singletonList(this), numThreads)[0];
+    }
+
+    /**
+     * Builds several indexes (e.g. NoStem, KStem, Snowball, KStemField, Semantic) of a collection in a single pass.
+     * Every record is decompressed and parsed once, then its fields are fanned out to one {@link IndexWriter}
+     * per indexer, each having the analyzer of its own tag.
+     *
+     * @param indexers   indexers of the same collection and docs path, having distinct index paths
+     * @param numThreads total number of worker threads shared among the stages
+     * @return number of indexed documents, per indexer
+     * @throws IOException if IO exception occurs
+     */
+    public static int[] indexWithPipeline(List<Indexer> indexers, int numThreads) throws IOException, InterruptedException {
+
+        final Indexer first = indexers.get(0);
+
+        Set<Path> indexPaths = new HashSet<>();
+        for (Indexer indexer : indexers) {
+            if (!first.collection.equals(indexer.collection) || !first.docsPath.equals(indexer.docsPath))
+                throw new IllegalArgumentException("indexers must share the collection and the docs path");
+            if (!indexPaths.add(indexer.indexPath.toAbsolutePath()))
+                throw new IllegalArgumentException("more than one indexer writes to " + indexer.indexPath.toAbsolutePath());
+        }
+
+        final List<Directory> dirs = new ArrayList<>(indexers.size());
+        final List<IndexWriter> writers = new ArrayList<>(indexers.size());
+
+        try {
+            for (Indexer indexer : indexers) {
+                System.out.println("Pipeline Indexing with " + numThreads + " threads to directory '" + indexer.indexPath.toAbsolutePath() + "'...");
+                Directory dir = FSDirectory.open(indexer.indexPath);
+                dirs.add(dir);
+                writers.add(new IndexWriter(dir, indexer.indexWriterConfig()));
+            }
+
+            final String suffix = Collection.GOV2.equals(first.collection) ? ".gz" : ".warc.gz";
+            final Deque<Path> warcFiles = discoverWarcFiles(first.docsPath, suffix);
+
+            System.out.println(warcFiles.size() + " many " + suffix + " files found under the docs path : " + first.docsPath.toString());
+
+            new IndexingPipeline(first.collection, indexers, writers, numThreads).run(warcFiles);
+
+            int[] numIndexed = new int[writers.size()];
+            for (int i = 0; i < writers.size(); i++) {
+                numIndexed[i] = writers.get(i).getDocStats().maxDoc;
+                writers.get(i).commit();
+                System.out.println(numIndexed[i] + " documents indexed to directory '" + indexers.get(i).indexPath.toAbsolutePath() + "'");
+            }
+            return numIndexed;
+
+        } finally {
+            IOUtils.close(writers);
+            IOUtils.close(dirs);
+        }
+    }
+
+    /**
+     * @return configuration of a fresh index: MetaTerm similarity and the analyzer of the {@link IndexerConfig}
+     */
+    IndexWriterConfig indexWriterConfig() throws IOException {
+
+        final IndexWriterConfig iwc = new IndexWriterConfig(analyzer());
+
+        iwc.setSimilarity(new MetaTerm());
+        iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        iwc.setRAMBufferSizeMB(512.0);
+        iwc.setUseCompoundFile(false);
+        iwc.setMergeScheduler(new ConcurrentMergeScheduler());
+
+        // shards are sorted by document identifier, so the merged index does not depend on thread scheduling
+        if (config.sharded)
+            iwc.setIndexSort(new Sort(new SortField(FIELD_ID, SortField.Type.STRING)));
+
+        return iwc;
+    }
+
+    /**
+     * @return directory of the shards of this index on the shared file system, see {@link Shards}
+     */
+    private Path shardsPath() {
+        return dataset.collectionPath().resolve("shards").resolve(indexPath.getFileName().toString());
+    }
+
+    /**
+     * Indexes one shard of the collection into its own index
+     *
+     * @param shard      shard to be indexed, it is (re-)indexed even if another worker claimed it
+     * @param numShards  number of shards
+     * @param numThreads number of indexing threads
+     * @return number of indexed documents
+     */
+    public int indexShard(int shard, int numShards, int numThreads) throws IOException, InterruptedException {
+
+        if (!config.sharded)
+            throw new IllegalStateException("shard indexing requires IndexerConfig#useShards");
+
+        final String suffix = Collection.GOV2.equals(collection) ? ".gz" : ".warc.gz";
+        final List<Path> files = Shards.partition(docsPath, discoverWarcFiles(docsPath, suffix), numShards).get(shard);
+
+        System.out.println("shard " + shard + " of " + numShards + " has " + files.size() + " many " + suffix + " files");
+
+        final Path root = shardsPath();
+        final int numIndexed = indexWithThreads(Shards.path(root, shard), new ArrayDeque<>(files), numThreads);
+        Shards.done(root, shard, numIndexed);
+        return numIndexed;
+    }
+
+    /**
+     * Indexes the shards that are not claimed by other workers until every shard is taken.
+     * Any number of workers, on any number of nodes sharing the file system, may run this concurrently.
+     *
+     * @param numShards  number of shards, must be the same for every worker
+     * @param numThreads number of indexing threads
+     * @return number of documents indexed by this worker
+     */
+    public int indexShards(int numShards, int numThreads) throws IOException, InterruptedException {
+
+        int numIndexed = 0;
+        int shard;
+        while ((shard = Shards.claim(shardsPath(), numShards)) != -1) {
+            System.out.println("shard " + shard + " of " + numShards + " is claimed by this worker");
+            numIndexed += indexShard(shard, numShards, numThreads);
+        }
+        return numIndexed;
+    }
+
+    /**
+     * Merges the shards into the index of this indexer, see {@link Shards#merge}.
+     * Every shard is a single segment sorted by document identifier, and the segments are added in shard order,
+     * so the document ids of the merged index are the same for every run.
+     *
+     * @param numShards number of shards
+     * @return number of documents in the merged index
+     */
+    public int mergeShards(int numShards) throws IOException {
+
+        if (!config.sharded)
+            throw new IllegalStateException("merging shards requires IndexerConfig#useShards");
+
+        final Path root = shardsPath();
+
+        long expected = 0;
+        for (int i = 0; i < numShards; i++) {
+            if (!Shards.isDone(root, i))
+                throw new IllegalStateException("shard " + i + " is not done yet: " + Shards.path(root, i));
+            expected += Shards.numDocs(root, i);
+        }
+
+        System.out.println("Merging " + numShards + " shards to directory '" + indexPath.toAbsolutePath() + "'...");
+
+        final Directory[] shards = new Directory[numShards];
+        try (Directory dir = FSDirectory.open(indexPath);
+             IndexWriter writer = new IndexWriter(dir, indexWriterConfig())) {
+
+            for (int i = 0; i < numShards; i++)
+                shards[i] = FSDirectory.open(Shards.path(root, i));
+
+            Shards.merge(writer, shards);
+            writer.commit();
+
+            final int numIndexed = writer.getDocStats().numDocs;
+            if (numIndexed != expected)
+                throw new IllegalStateException("merged index has " + numIndexed + " documents whereas the shards have " + expected);
+            return numIndexed;
+
+        } finally {
+            IOUtils.close(shards);
+        }
+    }
+
+    boolean silent() {
+        return config.silent;
+    }
+
     static final class WarcMatcher implements BiPredicate<Path, BasicFileAttributes> {
 
         private final String suffix;
@@ -723,6 +1152,9 @@ public class Indexer {
         boolean script = false;
         boolean semantic = false;
         boolean silent = false;
+        boolean ranks = false;
+        boolean resume = false;
+        boolean sharded = false;
 
         public IndexerConfig useAnchorText(boolean anchor) {
             this.anchor = anchor;
@@ -748,5 +1180,29 @@ public class Indexer {
             this.silent = silent;
             return this;
         }
+
+        /**
+         * @param ranks write the spam percentile and the PageRank of the {@link StaticRanks} as doc values
+         */
+        public IndexerConfig useStaticRanks(boolean ranks) {
+            this.ranks = ranks;
+            return this;
+        }
+
+        /**
+         * @param resume append to an existing index, skipping the WARC files that are in its last commit, see {@link Checkpoint}
+         */
+        public IndexerConfig useResume(boolean resume) {
+            this.resume = resume;
+            return this;
+        }
+
+        /**
+         * @param sharded index into shards sorted by document identifier, see {@link Indexer#indexShards(int, int)}
+         */
+        public IndexerConfig useShards(boolean sharded) {
+            this.sharded = sharded;
+            return this;
+        }
     }
 }
@@ -0,0 +1,455 @@
+package edu.anadolu;
+
+import edu.anadolu.datasets.Collection;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.clueweb09.Gov2Record;
+import org.clueweb09.ParallelGZIPInputStream;
+import org.clueweb09.WarcRecord;
+import org.clueweb09.WarcRecordReader;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static edu.anadolu.Indexer.RESPONSE;
+
+/**
+ * Staged indexing pipeline for ClueWeb{09|12} plus GOV2.
+ * <p>
+ * <ol>
+ * <li>split: decompresses WARC files and splits them into records</li>
+ * <li>parse: Jsoup parsing of a record into a {@link ParsedDocument}, which is then turned into one Lucene document
+ * per target index, see {@link Indexer#document(ParsedDocument)}.
+ * Files that are in the {@link ParsedCorpus} are read from the store by the split stage, so this stage only builds the documents.</li>
+ * <li>write: analysis and {@link IndexWriter#addDocument(Iterable)}, every target index has its own writer threads</li>
+ * </ol>
+ * Stages are connected with bounded queues. Every worker of a stage takes the next record from the shared queue,
+ * so a few huge WARC files keep all parse and write workers busy until the last record.
+ * When several indexes are built in a single pass, a full queue of the slowest writer blocks the parsers,
+ * so memory is bounded by the queue capacities rather than the heap.
+ * Throughput (records/s, MB/s) of each stage is reported periodically.
+ * <p>
+ * A worker that fails on an item with anything but an {@link IOException} records the first failure and stops the pipeline:
+ * the remaining files are not split, and every worker keeps taking items without processing them until its poison pill,
+ * so that no stage blocks on a full queue. The failure is rethrown once all workers are joined.
+ */
+final class IndexingPipeline {
+
+    /**
+     * Unit of work that flows through the queues. Bytes refer to the decompressed size of the record
+     * (characters of the loaded columns for documents read from the {@link ParsedCorpus}).
+     */
+    private static final class Item {
+
+        final WarcRecord record;
+        final ParsedDocument parsed;
+        final Document document;
+        final long bytes;
+
+        Item(WarcRecord record, ParsedDocument parsed, Document document, long bytes) {
+            this.record = record;
+            this.parsed = parsed;
+            this.document = document;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Poison pill that tells a worker its upstream stage is exhausted
+     */
+    private static final Item END = new Item(null, null, null, 0);
+
+    /**
+     * Throughput counters of a single stage
+     */
+    static final class Stage {
+
+        private final String name;
+        private final LongAdder records = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final long start = System.nanoTime();
+        private volatile long end = 0;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void add(long bytes) {
+            this.records.increment();
+            this.bytes.add(bytes);
+        }
+
+        void finish() {
+            end = System.nanoTime();
+        }
+
+        @Override
+        public String toString() {
+            final double seconds = Math.max(1e-9, ((end == 0 ? System.nanoTime() : end) - start) / 1e9);
+            final long r = records.sum();
+            final double mb = bytes.sum() / (1024.0 * 1024.0);
+            return String.format("%-6s %,14d records %,12.1f MB %,10.1f records/s %,8.2f MB/s", name, r, mb, r / seconds, mb / seconds);
+        }
+    }
+
+    /**
+     * Index that receives the documents: its indexer (analyzer, document representation, skip rules) and writer
+     */
+    private static final class Target {
+
+        final Indexer indexer;
+        final IndexWriter writer;
+        final BlockingQueue<Item> documents;
+        final Stage write;
+        final int numWriters;
+
+        Target(Indexer indexer, IndexWriter writer, int numWriters) {
+            this.indexer = indexer;
+            this.writer = writer;
+            this.numWriters = numWriters;
+            this.documents = new ArrayBlockingQueue<>(numWriters * 64);
+            this.write = new Stage("write " + indexer.indexPath.getFileName());
+        }
+    }
+
+    private final Collection collection;
+    private final List<Target> targets;
+    private final Set<ParsedDocument.Column> columns;
+    private final boolean silent;
+
+    private final int numSplitters;
+    private final int numParsers;
+
+    private final BlockingQueue<Item> records;
+
+    private final Stage split = new Stage("split");
+    private final Stage parse = new Stage("parse");
+
+    /**
+     * First failure of a worker, if any
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param collection collection of the indexers
+     * @param indexers   one indexer per target index
+     * @param writers    writers of the indexers, in the same order
+     * @param numThreads total number of worker threads
+     */
+    IndexingPipeline(Collection collection, List<Indexer> indexers, List<IndexWriter> writers, int numThreads) {
+        this.collection = collection;
+
+        // decompression is cheap compared to Jsoup parsing and analysis
+        this.numSplitters = Math.max(1, numThreads / 8);
+        this.numParsers = Math.max(1, indexers.size() == 1 ? numThreads / 2 : numThreads / 4);
+        final int numWriters = Math.max(1, (numThreads - numSplitters - numParsers) / indexers.size());
+
+        this.records = new ArrayBlockingQueue<>(numParsers * 64);
+
+        this.targets = new ArrayList<>(indexers.size());
+        this.columns = EnumSet.noneOf(ParsedDocument.Column.class);
+        boolean silent = true;
+        for (int i = 0; i < indexers.size(); i++) {
+            targets.add(new Target(indexers.get(i), writers.get(i), numWriters));
+            columns.addAll(indexers.get(i).columns());
+            silent &= indexers.get(i).silent();
+        }
+        this.silent = silent;
+    }
+
+    /**
+     * Runs the pipeline to completion
+     *
+     * @param warcFiles files to be indexed
+     */
+    void run(Deque<Path> warcFiles) throws InterruptedException {
+
+        System.out.println("split threads = " + numSplitters + " parse threads = " + numParsers + " write threads = " + targets.get(0).numWriters + " x " + targets.size());
+
+        // start with the largest files so that they do not determine the total run time
+        final ConcurrentLinkedDeque<Path> files = new ConcurrentLinkedDeque<>();
+        warcFiles.stream().sorted(Comparator.comparingLong(IndexingPipeline::size).reversed()).forEach(files::add);
+
+        final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> {
+            StringBuilder queues = new StringBuilder();
+            for (Target target : targets)
+                queues.append(' ').append(target.documents.size());
+            System.out.println(files.size() + " files remaining, records queue = " + records.size() + " documents queues =" + queues);
+            report();
+        }, 1, 1, TimeUnit.MINUTES);
+
+        final List<Thread> splitters = start("split", numSplitters, () -> {
+            Path file;
+            while (failure.get() == null && (file = files.pollFirst()) != null) {
+                try {
+                    split(file);
+                } catch (IOException ioe) {
+                    System.out.println(file.toAbsolutePath() + ": ERROR: unexpected IOException:");
+                    ioe.printStackTrace(System.out);
+                } catch (InterruptedException ie) {
+                    throw ie;
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }
+        });
+
+        final List<Thread> parsers = start("parse", numParsers, () -> {
+            Item item;
+            while ((item = records.take()) != END) {
+                if (failure.get() != null) continue;
+                try {
+                    parse(item);
+                } catch (InterruptedException ie) {
+                    throw ie;
+                } catch (Throwable t) {
+                    fail(t);
+                }
+                parse.add(item.bytes);
+            }
+        });
+
+        final List<List<Thread>> writers = new ArrayList<>(targets.size());
+        for (Target target : targets)
+            writers.add(start("write-" + target.indexer.indexPath.getFileName(), target.numWriters, () -> {
+                Item item;
+                while ((item = target.documents.take()) != END) {
+                    if (failure.get() != null) continue;
+                    try {
+                        target.writer.addDocument(item.document);
+                    } catch (IOException ioe) {
+                        System.out.println(Thread.currentThread().getName() + ": ERROR: unexpected IOException:");
+                        ioe.printStackTrace(System.out);
+                    } catch (Throwable t) {
+                        fail(t);
+                    }
+                    target.write.add(item.bytes);
+                }
+            }));
+
+        try {
+            join(splitters, split);
+            for (int i = 0; i < numParsers; i++)
+                records.put(END);
+
+            join(parsers, parse);
+            for (Target target : targets)
+                for (int i = 0; i < target.numWriters; i++)
+                    target.documents.put(END);
+
+            for (int t = 0; t < targets.size(); t++)
+                join(writers.get(t), targets.get(t).write);
+
+            final Throwable t = failure.get();
+            if (t instanceof Error) throw (Error) t;
+            if (t != null) throw new RuntimeException("indexing pipeline failed", t);
+
+        } catch (InterruptedException ie) {
+            List<List<Thread>> all = new ArrayList<>(writers);
+            all.add(splitters);
+            all.add(parsers);
+            for (List<Thread> threads : all)
+                for (Thread thread : threads)
+                    thread.interrupt();
+            throw ie;
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        report();
+    }
+
+    /**
+     * Parses a record once and hands the document of each target over to its writers
+     */
+    private void parse(Item item) throws InterruptedException {
+
+        final String id = item.parsed != null ? item.parsed.id() : item.record.id();
+
+        // skip rules may differ, e.g. SpamRemovingIndexer
+        final boolean[] skipped = new boolean[targets.size()];
+        boolean all = true;
+        for (int t = 0; t < targets.size(); t++) {
+            skipped[t] = targets.get(t).indexer.skip(id);
+            all &= skipped[t];
+        }
+
+        ParsedDocument parsed = item.parsed;
+
+        if (parsed == null && !all) {
+            try {
+                parsed = ParsedDocument.parse(item.record, collection, columns);
+            } catch (Exception exception) {
+                if (!silent)
+                    System.err.println("jdoc exception " + id);
+            }
+        }
+
+        if (item.record != null)
+            item.record.free();
+
+        if (parsed == null) return;
+
+        for (int t = 0; t < targets.size(); t++) {
+
+            if (skipped[t]) continue;
+
+            final Target target = targets.get(t);
+
+            Document document;
+            try {
+                document = target.indexer.document(parsed);
+            } catch (RuntimeException e) {
+                System.out.println(Thread.currentThread().getName() + ": ERROR: " + id);
+                e.printStackTrace(System.out);
+                document = null;
+            }
+
+            if (document != null)
+                target.documents.put(new Item(null, null, document, item.bytes));
+        }
+    }
+
+    private void fail(Throwable t) {
+        if (failure.compareAndSet(null, t)) {
+            System.out.println(Thread.currentThread().getName() + ": ERROR: stopping the pipeline:");
+            t.printStackTrace(System.out);
+        }
+    }
+
+    private void report() {
+        System.out.println(split);
+        System.out.println(parse);
+        for (Target target : targets)
+            System.out.println(target.write);
+    }
+
+    private interface Worker {
+        void work() throws InterruptedException;
+    }
+
+    private static List<Thread> start(String name, int n, Worker worker) {
+        List<Thread> threads = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.work();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }, name + "-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    /**
+     * Waits for the workers of a stage, the caller then sends one poison pill to each worker of the next stage
+     */
+    private static void join(List<Thread> threads, Stage stage) throws InterruptedException {
+        for (Thread thread : threads)
+            thread.join();
+        stage.finish();
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException ioe) {
+            return 0L;
+        }
+    }
+
+    private void emit(WarcRecord warcRecord, long bytes) throws InterruptedException {
+        split.add(bytes);
+
+        // see if it's a response record
+        if (!RESPONSE.equals(warcRecord.type()))
+            return;
+
+        records.put(new Item(warcRecord, null, null, bytes));
+    }
+
+    private void split(Path inputWarcFile) throws IOException, InterruptedException {
+        if (targets.get(0).indexer.parsedCorpus().contains(inputWarcFile))
+            splitParsedFile(inputWarcFile);
+        else if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection))
+            splitClueWeb09WarcFile(inputWarcFile);
+        else if (Collection.CW12A.equals(collection) || Collection.CW12B.equals(collection))
+            splitClueWeb12WarcFile(inputWarcFile);
+        else if (Collection.GOV2.equals(collection))
+            splitGov2File(inputWarcFile);
+    }
+
+    private void splitParsedFile(Path inputWarcFile) throws IOException, InterruptedException {
+        try (ParsedCorpus.Reader reader = targets.get(0).indexer.parsedCorpus().reader(inputWarcFile, columns)) {
+            ParsedDocument parsed;
+            while ((parsed = reader.next()) != null) {
+                final long bytes = parsed.length();
+                split.add(bytes);
+                records.put(new Item(null, parsed, null, bytes));
+            }
+        }
+    }
+
+    private void splitClueWeb09WarcFile(Path inputWarcFile) throws IOException, InterruptedException {
+        try (WarcRecordReader reader = WarcRecordReader.clueWeb09(ParallelGZIPInputStream.open(inputWarcFile))) {
+            WarcRecordReader.Record wDoc;
+            while ((wDoc = reader.next()) != null) {
+                emit(wDoc, wDoc.length());
+            }
+        }
+    }
+
+    private void splitClueWeb12WarcFile(Path inputWarcFile) throws IOException, InterruptedException {
+        try (WarcRecordReader reader = WarcRecordReader.clueWeb12(ParallelGZIPInputStream.open(inputWarcFile))) {
+            WarcRecordReader.Record wDoc;
+            while ((wDoc = reader.next()) != null) {
+                emit(wDoc, wDoc.length());
+            }
+        }
+    }
+
+    private void splitGov2File(Path inputWarcFile) throws IOException, InterruptedException {
+
+        boolean found = false;
+
+        try (
+                InputStream stream = ParallelGZIPInputStream.open(inputWarcFile);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+
+            // Gov2Record#free clears the builder, so each record needs its own
+            StringBuilder builder = new StringBuilder();
+
+            for (; ; ) {
+                String line = reader.readLine();
+                if (line == null)
+                    break;
+
+                line = line.trim();
+
+                if (line.startsWith(Gov2Record.DOC)) {
+                    found = true;
+                    continue;
+                }
+
+                if (line.startsWith(Gov2Record.TERMINATING_DOC)) {
+                    found = false;
+                    emit(Gov2Record.parseGov2Record(builder), builder.length());
+                    builder = new StringBuilder();
+                }
+
+                if (found)
+                    builder.append(line).append(" ");
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package edu.anadolu;
 import edu.anadolu.datasets.DataSet;
 import edu.anadolu.eval.Evaluator;
 import edu.anadolu.eval.ModelScore;
+import edu.anadolu.eval.ScoreMatrix;
 import org.apache.commons.math3.stat.StatUtils;
 import org.clueweb09.InfoNeed;
 import org.clueweb09.tracks.Track;
@@ -251,13 +252,6 @@ public class LearningToSelect {
         return doubleMap;
     }
 
-    private double neighbours(List<NeedDistance> needDistanceList, String candidateModel, int k) {
-        double sum = 0.0;
-        for (int i = 0; i < k; i++)
-            sum += evaluator.score(needDistanceList.get(i).need, candidateModel);
-        return sum / k;
-    }
-
     Map<Integer, Double> process(List<InfoNeed> trainingQueries, List<InfoNeed> testQueries, int n) throws IOException {
 
 
@@ -269,6 +263,8 @@ public class LearningToSelect {
 
         Map<Integer, Double> doubleMap = emptyDoubleMap();
 
+        final ScoreMatrix matrix = evaluator.scoreMatrix();
+
 
         for (InfoNeed testQuery : testQueries) {
 
@@ -299,9 +295,12 @@ public class LearningToSelect {
 
                 Collections.sort(needDistanceList);
 
+                // mean score of the candidate model over the k nearest neighbours, for every k
+                final int m = matrix.model(candidateModel);
+                double sum = 0.0;
                 for (int k = 1; k <= rangeK; k++) {
-                    double sum = neighbours(needDistanceList, candidateModel, k);
-                    map.get(k).add(new ModelScore(candidateModel, sum));
+                    sum += matrix.score(m, matrix.topic(needDistanceList.get(k - 1).need));
+                    map.get(k).add(new ModelScore(candidateModel, sum / k));
                 }
 
             }
@@ -0,0 +1,242 @@
+package edu.anadolu;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.search.similarities.TermImpacts;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Top-k retrieval of disjunctive (OR) term queries with dynamic pruning: MaxScore (Turtle and Flood, 1995) over the
+ * term upper bounds of {@link ModelBase#maxScore}, refined with the per-block bounds of {@link TermImpacts}.
+ * <p>
+ * The terms are ordered by their upper bounds. The ones whose bounds sum up to no more than the current k-th score
+ * are non-essential: a document that contains only them cannot enter the top-k, so only the postings of the essential
+ * terms drive the iteration, and the non-essential postings are advanced only while the document can still make it.
+ * Hits, scores and tie breaking are the same as the ones of {@link IndexSearcher#search(Query, int)}.
+ */
+final class MaxScore {
+
+    private MaxScore() {
+    }
+
+    /**
+     * @param searcher searcher
+     * @param query    parsed query
+     * @param field    field of the query terms
+     * @param model    model to score the documents with
+     * @param numHits  number of hits
+     * @return top hits, or null if the query is not a disjunction of terms or the model cannot bound any of them
+     * @throws IOException if IO exception occurs
+     */
+    static ScoreDoc[] search(IndexSearcher searcher, Query query, String field, ModelBase model, int numHits) throws IOException {
+
+        final List<Term> clauses = MultiModelSearcher.clauses(query, field);
+        if (clauses == null || MultiModelSearcher.conjunctive(query)) return null;
+
+        // distinct terms that occur in the collection, with the number of clauses they appear in
+        final LinkedHashMap<Term, Integer> counts = new LinkedHashMap<>();
+        for (Term term : clauses)
+            counts.merge(term, 1, Integer::sum);
+
+        final CollectionStatistics collectionStatistics = searcher.collectionStatistics(field);
+
+        final List<Term> terms = new ArrayList<>();
+        final List<TermContext> contexts = new ArrayList<>();
+        final List<Similarity.SimWeight> weights = new ArrayList<>();
+        boolean bounded = false;
+
+        for (Term term : counts.keySet()) {
+            final TermContext context = TermStats.of(searcher.getIndexReader()).context(term);
+            if (context.docFreq() == 0) continue;
+            final Similarity.SimWeight weight = model.computeWeight(1f, collectionStatistics, searcher.termStatistics(term, context));
+            bounded |= model.hasMaxScore(weight);
+            terms.add(term);
+            contexts.add(context);
+            weights.add(weight);
+        }
+
+        if (terms.isEmpty()) return new ScoreDoc[0];
+        if (!bounded) return null;
+
+        final int[] repeats = new int[terms.size()];
+        for (int t = 0; t < repeats.length; t++)
+            repeats[t] = counts.get(terms.get(t));
+
+        final MultiModelSearcher.HitQueue queue = new MultiModelSearcher.HitQueue(Math.max(1, Math.min(numHits, searcher.getIndexReader().maxDoc())));
+
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves())
+            search(leaf, field, model, terms, contexts, weights, repeats, queue);
+
+        return queue.hits();
+    }
+
+    private static void search(LeafReaderContext leaf, String field, ModelBase model, List<Term> terms, List<TermContext> contexts,
+                               List<Similarity.SimWeight> weights, int[] repeats, MultiModelSearcher.HitQueue queue) throws IOException {
+
+        final LeafReader reader = leaf.reader();
+
+        // postings of the terms that occur in this segment
+        final List<Integer> present = new ArrayList<>();
+        final List<PostingsEnum> postingsList = new ArrayList<>();
+        for (int t = 0; t < terms.size(); t++) {
+            final TermState state = contexts.get(t).get(leaf.ord);
+            if (state == null) continue;
+            final TermsEnum termsEnum = reader.terms(field).iterator();
+            termsEnum.seekExact(terms.get(t).bytes(), state);
+            final PostingsEnum postingsEnum = termsEnum.postings(null, PostingsEnum.FREQS);
+            postingsEnum.nextDoc();
+            present.add(t);
+            postingsList.add(postingsEnum);
+        }
+
+        final int n = present.size();
+        if (n == 0) return;
+
+        final Similarity.SimWeight[] weight = new Similarity.SimWeight[n];
+        final int[] repeat = new int[n];
+        final PostingsEnum[] postings = new PostingsEnum[n];
+        final TermImpacts[] impacts = new TermImpacts[n];
+        final double[] bound = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            final int t = present.get(i);
+            weight[i] = weights.get(t);
+            repeat[i] = repeats[t];
+            postings[i] = postingsList.get(i);
+            impacts[i] = model.hasMaxScore(weight[i]) ? TermImpacts.get(reader, field, terms.get(t).bytes()) : null;
+            bound[i] = impacts[i] == null ? Double.POSITIVE_INFINITY : bound(model.maxScore(weight[i], impacts[i], TermImpacts.TERM), repeat[i]);
+        }
+
+        // terms in increasing order of their upper bounds, and the running sums of the bounds
+        final Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) boxed[i] = i;
+        Arrays.sort(boxed, Comparator.comparingDouble(i -> bound[i]));
+        final int[] order = new int[n];
+        final double[] prefix = new double[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = boxed[i];
+            prefix[i] = (i == 0 ? 0 : prefix[i - 1]) + bound[order[i]];
+        }
+
+        // lazily computed block bounds
+        final float[][] blockBounds = new float[n][];
+        final int[] cursors = new int[n];
+        for (int i = 0; i < n; i++)
+            if (impacts[i] != null) {
+                blockBounds[i] = new float[impacts[i].numBlocks()];
+                Arrays.fill(blockBounds[i], Float.NaN);
+            }
+
+        final NumericDocValues norms = reader.getNormValues(field);
+        final Bits liveDocs = reader.getLiveDocs();
+        final double[] remaining = new double[n];
+
+        float threshold = queue.threshold();
+        int essential = essential(prefix, threshold, 0);
+
+        while (essential < n) {
+
+            int doc = DocIdSetIterator.NO_MORE_DOCS;
+            for (int i = essential; i < n; i++)
+                doc = Math.min(doc, postings[order[i]].docID());
+
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) break;
+
+            double score = 0;
+            long docLen = -1;
+
+            for (int i = essential; i < n; i++) {
+                final int t = order[i];
+                if (postings[t].docID() != doc) continue;
+                if (docLen == -1) docLen = MultiModelSearcher.length(norms, doc);
+                final float s = model.score(weight[t], postings[t].freq(), docLen);
+                for (int r = 0; r < repeat[t]; r++)
+                    score += s;
+                postings[t].nextDoc();
+            }
+
+            // bounds of the non-essential terms at the blocks of this document
+            double rest = 0;
+            for (int i = 0; i < essential; i++) {
+                remaining[i] = blockBound(model, order[i], doc, weight, repeat, impacts, bound, blockBounds, cursors);
+                rest += remaining[i];
+            }
+
+            boolean pruned = false;
+            for (int i = essential - 1; i >= 0; i--) {
+                if ((float) (score + rest) <= threshold) {
+                    pruned = true;
+                    break;
+                }
+                final int t = order[i];
+                if (postings[t].docID() < doc) postings[t].advance(doc);
+                if (postings[t].docID() == doc) {
+                    if (docLen == -1) docLen = MultiModelSearcher.length(norms, doc);
+                    final float s = model.score(weight[t], postings[t].freq(), docLen);
+                    for (int r = 0; r < repeat[t]; r++)
+                        score += s;
+                }
+                rest -= remaining[i];
+            }
+
+            if (pruned || (liveDocs != null && !liveDocs.get(doc))) continue;
+
+            queue.collect(leaf.docBase + doc, (float) score);
+
+            if (queue.threshold() != threshold) {
+                threshold = queue.threshold();
+                essential = essential(prefix, threshold, essential);
+            }
+        }
+    }
+
+    /**
+     * A term contributes zero to the documents it does not occur in, hence bounds below zero do not help
+     */
+    private static double bound(float maxScore, int repeat) {
+        return Math.max(0d, (double) maxScore * repeat);
+    }
+
+    private static double blockBound(ModelBase model, int t, int doc, Similarity.SimWeight[] weight, int[] repeat,
+                                     TermImpacts[] impacts, double[] bound, float[][] blockBounds, int[] cursors) {
+
+        if (impacts[t] == null) return bound[t];
+
+        final int block = impacts[t].block(doc, cursors[t]);
+        cursors[t] = block;
+
+        // no postings left
+        if (block == impacts[t].numBlocks()) return 0d;
+
+        if (Float.isNaN(blockBounds[t][block]))
+            blockBounds[t][block] = model.maxScore(weight[t], impacts[t], block);
+
+        return Math.min(bound[t], bound(blockBounds[t][block], repeat[t]));
+    }
+
+    /**
+     * @return number of the terms, with the lowest bounds, that cannot bring a document above the threshold on their own
+     */
+    private static int essential(double[] prefix, float threshold, int from) {
+        int essential = from;
+        while (essential < prefix.length && (float) prefix[essential] <= threshold)
+            essential++;
+        return essential;
+    }
+
+    /**
+     * @return true if the pruned hits are identical to the exhaustive ones
+     */
+    static boolean same(ScoreDoc[] expected, ScoreDoc[] actual) {
+        if (expected.length != actual.length) return false;
+        for (int i = 0; i < expected.length; i++)
+            if (expected[i].doc != actual[i].doc || Float.compare(expected[i].score, actual[i].score) != 0)
+                return false;
+        return true;
+    }
+}
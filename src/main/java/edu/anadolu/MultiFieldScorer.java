@@ -0,0 +1,266 @@
+package edu.anadolu;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Multi-field (BM25F / PL2F style) scoring of a query for the {@link ModelBase} family over an index that has a field per
+ * document representation, e.g. KStemField. The postings of every (field, term) pair are read once, in a single pass,
+ * and the per-field term frequencies and lengths of the matching documents are kept. A vector of field weights merges
+ * them into one pseudo document per candidate, tf = &sum; w<sub>f</sub> tf<sub>f</sub> and
+ * length = &sum; w<sub>f</sub> length<sub>f</sub>, and the collection statistics in the same way, which the model then scores
+ * as if it was a single field. Scoring a weight vector does not touch the index, so field weights can be tuned at the
+ * cost of arithmetic over the candidates.
+ * <p>
+ * With a single non-zero weight of one, hits and scores are the ones of the model searched over that field.
+ * <p>
+ * Memory: 8 bytes per posting of the query words in the fields, and 9 + 4 &times; fields bytes per candidate. A frequent
+ * word on ClueWeb09 category A has postings in the hundreds of millions per field, which runs to several GB for a single
+ * query; {@link #collect} refuses a query whose candidates do not fit into half of the heap that is available.
+ */
+public final class MultiFieldScorer {
+
+    /**
+     * @param reader index reader
+     * @param fields fields to merge
+     * @param words  analyzed query words, repeated words count more
+     * @return per-field statistics of the documents that contain a query word in any of the fields
+     * @throws IOException if IO exception occurs
+     */
+    public static MultiFieldScorer collect(IndexReader reader, List<String> fields, List<String> words) throws IOException {
+
+        final LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+        for (String word : words)
+            counts.merge(word, 1, Integer::sum);
+
+        final String[] terms = counts.keySet().toArray(new String[0]);
+        final int F = fields.size();
+        final int T = terms.length;
+
+        // every posting of a (term, field) pair is an entry, and every candidate has at least one entry
+        long entries = 0;
+        for (String field : fields)
+            for (String term : terms)
+                entries += reader.docFreq(new Term(field, term));
+
+        final long candidates = Math.min(reader.maxDoc(), entries);
+        final long bytes = 8 * entries + candidates * (9 + 4L * F);
+        final Runtime runtime = Runtime.getRuntime();
+        final long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+
+        if (entries > ArrayUtil.MAX_ARRAY_LENGTH || bytes > available / 2)
+            throw new RuntimeException(entries + " postings of " + words + " in " + fields + " need " + bytes + " bytes, but " + available + " bytes of heap are available!");
+
+        final MultiFieldScorer scorer = new MultiFieldScorer(fields.toArray(new String[0]), terms,
+                counts.values().stream().mapToInt(Integer::intValue).toArray(), (int) entries, (int) candidates);
+
+        for (int f = 0; f < F; f++) {
+            final String field = fields.get(f);
+            scorer.docCount[f] = Math.max(0, reader.getDocCount(field));
+            scorer.tokens[f] = Math.max(0, reader.getSumTotalTermFreq(field));
+            for (int t = 0; t < T; t++)
+                scorer.ttf[t * F + f] = Math.max(0, reader.totalTermFreq(new Term(field, terms[t])));
+        }
+
+        for (LeafReaderContext leaf : reader.leaves())
+            scorer.collect(leaf);
+
+        return scorer;
+    }
+
+    private final String[] fields;
+    private final String[] terms;
+    private final int[] repeats;
+
+    private final long[] docCount;
+    private final long[] tokens;
+    private final long[] ttf;
+
+    /**
+     * Candidates in increasing document order: ids, whether they are live, length of [field], and the range of their
+     * entries. Most candidates contain a single query word in a single field, so only the non-zero tf of the
+     * (term, field) pairs are kept, as entries of the slot term * F + field. The arrays are sized up front by the
+     * document frequencies, so they hold no more than the postings that are read and are never copied.
+     */
+    private int size = 0;
+    private final int[] docs;
+    private final boolean[] live;
+    private final int[] lengths;
+    private final int[] start;
+
+    private int numEntries = 0;
+    private final int[] slots;
+    private final int[] freqs;
+
+    private MultiFieldScorer(String[] fields, String[] terms, int[] repeats, int entries, int candidates) {
+        this.fields = fields;
+        this.terms = terms;
+        this.repeats = repeats;
+        this.docCount = new long[fields.length];
+        this.tokens = new long[fields.length];
+        this.ttf = new long[terms.length * fields.length];
+        this.docs = new int[candidates];
+        this.live = new boolean[candidates];
+        this.lengths = new int[candidates * fields.length];
+        this.start = new int[candidates + 1];
+        this.slots = new int[entries];
+        this.freqs = new int[entries];
+    }
+
+    /**
+     * Walks the postings of all (field, term) pairs of a segment together, in document order
+     */
+    private void collect(LeafReaderContext leaf) throws IOException {
+
+        final LeafReader reader = leaf.reader();
+        final int F = fields.length;
+        final int T = terms.length;
+
+        final PostingsEnum[] postings = new PostingsEnum[T * F];
+        for (int f = 0; f < F; f++) {
+            final Terms fieldTerms = reader.terms(fields[f]);
+            if (fieldTerms == null) continue;
+            final TermsEnum termsEnum = fieldTerms.iterator();
+            for (int t = 0; t < T; t++)
+                if (termsEnum.seekExact(new BytesRef(terms[t]))) {
+                    postings[t * F + f] = termsEnum.postings(null, PostingsEnum.FREQS);
+                    postings[t * F + f].nextDoc();
+                }
+        }
+
+        final NumericDocValues[] norms = new NumericDocValues[F];
+        for (int f = 0; f < F; f++)
+            norms[f] = reader.getNormValues(fields[f]);
+
+        final Bits liveDocs = reader.getLiveDocs();
+
+        for (; ; ) {
+
+            int doc = DocIdSetIterator.NO_MORE_DOCS;
+            for (PostingsEnum p : postings)
+                if (p != null) doc = Math.min(doc, p.docID());
+
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) break;
+
+            // deleted documents are kept for the document frequencies, like Lucene counts them
+            final int c = size++;
+            docs[c] = leaf.docBase + doc;
+            live[c] = liveDocs == null || liveDocs.get(doc);
+
+            for (int i = 0; i < postings.length; i++)
+                if (postings[i] != null && postings[i].docID() == doc) {
+                    slots[numEntries] = i;
+                    freqs[numEntries++] = postings[i].freq();
+                    postings[i].nextDoc();
+                }
+            start[size] = numEntries;
+
+            for (int f = 0; f < F; f++)
+                if (norms[f] != null && norms[f].advanceExact(doc))
+                    lengths[c * F + f] = (int) norms[f].longValue();
+        }
+    }
+
+    /**
+     * @return number of the documents that contain a query word in any of the fields
+     */
+    public int numCandidates() {
+        return size;
+    }
+
+    public List<String> fields() {
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    /**
+     * @param model   model to score the pseudo documents with
+     * @param weights non-negative weights of the fields, in the order of {@link #fields()}
+     * @param numHits number of hits
+     * @return top hits, ties broken by document id
+     */
+    public ScoreDoc[] search(ModelBase model, double[] weights, int numHits) {
+
+        final int F = fields.length;
+        final int T = terms.length;
+
+        if (weights.length != F) throw new IllegalArgumentException("there are " + F + " fields but " + weights.length + " weights");
+
+        // collection of the pseudo documents: the documents that have a weighted field
+        double numberOfTokens = 0;
+        long numberOfDocuments = 0;
+        for (int f = 0; f < F; f++) {
+            if (weights[f] < 0) throw new IllegalArgumentException("negative weight " + weights[f] + " for the field " + fields[f]);
+            if (weights[f] == 0) continue;
+            numberOfTokens += weights[f] * tokens[f];
+            numberOfDocuments = Math.max(numberOfDocuments, docCount[f]);
+        }
+
+        final MultiModelSearcher.HitQueue queue = new MultiModelSearcher.HitQueue(Math.max(1, numHits));
+        if (numberOfDocuments == 0) return queue.hits();
+
+        final double averageDocumentLength = numberOfTokens / numberOfDocuments;
+
+        // a term occurs in a pseudo document if it occurs in any of its weighted fields
+        final long[] df = new long[T];
+        final double[] tf = new double[T];
+        for (int c = 0; c < size; c++) {
+            tf(c, weights, tf);
+            for (int t = 0; t < T; t++)
+                if (tf[t] > 0) df[t]++;
+        }
+
+        final ModelBase.TermScorer[] scorers = new ModelBase.TermScorer[T];
+        for (int t = 0; t < T; t++) {
+            double termFrequency = 0;
+            for (int f = 0; f < F; f++)
+                termFrequency += weights[f] * ttf[t * F + f];
+            if (df[t] > 0)
+                scorers[t] = model.bind(averageDocumentLength, df[t], termFrequency, numberOfDocuments, numberOfTokens);
+        }
+
+        for (int c = 0; c < size; c++) {
+
+            if (!live[c]) continue;
+
+            double length = 0;
+            for (int f = 0; f < F; f++)
+                length += weights[f] * lengths[c * F + f];
+            // rounding must not make the pseudo document shorter than the weighted tf of a term
+            final long docLength = Math.max(1, (long) Math.ceil(length));
+
+            tf(c, weights, tf);
+
+            double score = 0;
+            boolean matched = false;
+            for (int t = 0; t < T; t++) {
+                if (tf[t] == 0) continue;
+                final float s = (float) scorers[t].score(tf[t], Math.max(docLength, (long) Math.ceil(tf[t])));
+                for (int r = 0; r < repeats[t]; r++)
+                    score += s;
+                matched = true;
+            }
+
+            if (matched) queue.collect(docs[c], (float) score);
+        }
+
+        return queue.hits();
+    }
+
+    /**
+     * Weighted tf of every term in a candidate
+     */
+    private void tf(int c, double[] weights, double[] tf) {
+        final int F = fields.length;
+        Arrays.fill(tf, 0);
+        for (int e = start[c]; e < start[c + 1]; e++)
+            tf[slots[e] / F] += weights[slots[e] % F] * freqs[e];
+    }
+}
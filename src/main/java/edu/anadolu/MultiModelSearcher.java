@@ -0,0 +1,380 @@
+package edu.anadolu;
+
+import edu.anadolu.analysis.Analyzers;
+import edu.anadolu.datasets.DataSet;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.PriorityQueue;
+import org.clueweb09.InfoNeed;
+import org.clueweb09.tracks.Track;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searcher for parameter sweeps: instead of one full search per model, the postings of a query are walked once
+ * and every (doc, freq, docLen) is scored by all models, each model having its own top-k heap.
+ * The run files are identical to the ones of {@link Searcher#search(Track, Similarity, QueryParser.Operator, String, Path)}.
+ */
+public class MultiModelSearcher extends Searcher {
+
+    public MultiModelSearcher(Path indexPath, DataSet dataSet, int numHits) throws IOException {
+        super(indexPath, dataSet, numHits);
+    }
+
+    /**
+     * The run files of all models for the topics of a track: a query is a unit of work that scores every model, and the
+     * files are written by the thread that completes the last query.
+     */
+    private final class Sweep {
+
+        private final Track track;
+        private final List<ModelBase> models;
+        private final QueryParser.Operator operator;
+        private final String field;
+        private final Path path;
+        private final Query[] queries;
+        private final IndexSearcher searcher;
+        private final ScoreDoc[][][] hits;
+        private final AtomicInteger remaining;
+
+        Sweep(Track track, List<ModelBase> models, QueryParser.Operator operator, String field, Path path) throws ParseException {
+            this.track = track;
+            this.models = models;
+            this.operator = operator;
+            this.field = field;
+            this.path = path;
+
+            // queries are immutable, parse them once for all models
+            final QueryParser queryParser = new QueryParser(field, Analyzers.analyzer(analyzerTag));
+            queryParser.setDefaultOperator(operator);
+            final List<InfoNeed> needs = track.getTopics();
+            this.queries = new Query[needs.size()];
+            for (int q = 0; q < queries.length; q++)
+                queries[q] = queryParser.parse(needs.get(q).query());
+
+            this.searcher = new IndexSearcher(reader);
+            this.hits = new ScoreDoc[queries.length][][];
+            this.remaining = new AtomicInteger(queries.length);
+        }
+
+        void search(int q) throws IOException {
+            hits[q] = MultiModelSearcher.search(searcher, queries[q], field, models, numHits);
+            if (remaining.decrementAndGet() == 0)
+                write();
+        }
+
+        private void write() throws IOException {
+            final List<InfoNeed> needs = track.getTopics();
+            for (int m = 0; m < models.size(); m++)
+                try (RunFile.Output out = output(path, MultiModelSearcher.this.toString(models.get(m), operator, field, 0))) {
+                    for (int q = 0; q < queries.length; q++)
+                        add(out, needs.get(q), hits[q][m]);
+                }
+        }
+    }
+
+    /**
+     * Searches every (track, field, query) as a separate unit of work on a work stealing pool, each scoring all models,
+     * so that all cores are busy whatever the number of tracks and fields. The run files of a track and field are written
+     * once all of its queries are searched.
+     */
+    @Override
+    public void searchWithThreads(int numThreads, Collection<ModelBase> models, Collection<String> fields, String runsPath) throws InterruptedException, IOException {
+
+        final List<ModelBase> modelList = new ArrayList<>(models);
+        final List<Sweep> sweeps = new ArrayList<>();
+
+        try {
+            for (final Track track : dataSet.tracks()) {
+
+                final Path path = Paths.get(dataSet.collectionPath().toString(), runsPath, indexTag, track.toString());
+                createDirectories(path);
+
+                for (final String field : fields)
+                    sweeps.add(new Sweep(track, modelList, QueryParser.Operator.OR, field, path));
+            }
+        } catch (ParseException pe) {
+            throw new RuntimeException(pe);
+        }
+
+        final ExecutorService pool = Executors.newWorkStealingPool(numThreads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (final Sweep sweep : sweeps)
+            for (int q = 0; q < sweep.queries.length; q++) {
+                final int query = q;
+                futures.add(pool.submit(() -> {
+                    sweep.search(query);
+                    return null;
+                }));
+            }
+
+        System.out.println("There are " + futures.size() + " many (track, field, query) units to process, each scoring " + models.size() + " models...");
+
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public void search(Track track, List<ModelBase> models, QueryParser.Operator operator, String field, Path path) throws IOException, ParseException {
+        final Sweep sweep = new Sweep(track, models, operator, field, path);
+        for (int q = 0; q < sweep.queries.length; q++)
+            sweep.search(q);
+    }
+
+    /**
+     * Top hits of a query for each model, in a single pass over the postings when the query is a term or a flat boolean
+     * query of terms (what the classic query parser produces for bag-of-words topics). Scores and tie breaking follow
+     * {@link IndexSearcher#search(Query, int)}; other query shapes fall back to one search per model.
+     *
+     * @param searcher searcher
+     * @param query    parsed query
+     * @param field    field of the query terms
+     * @param models   models to score the documents with
+     * @param numHits  number of hits per model
+     * @return top hits of every model, in the order of the models
+     * @throws IOException if IO exception occurs
+     */
+    static ScoreDoc[][] search(IndexSearcher searcher, Query query, String field, List<ModelBase> models, int numHits) throws IOException {
+
+        final ScoreDoc[][] hits = new ScoreDoc[models.size()][];
+
+        final List<Term> clauses = clauses(query, field);
+        if (clauses == null)
+            return searchEach(searcher, query, models, numHits);
+        final boolean conjunctive = conjunctive(query);
+
+        // distinct terms with the number of clauses they appear in
+        final LinkedHashMap<Term, Integer> counts = new LinkedHashMap<>();
+        for (Term term : clauses)
+            counts.merge(term, 1, Integer::sum);
+
+        final int n = counts.size();
+        final Term[] terms = counts.keySet().toArray(new Term[n]);
+        final int[] repeats = new int[n];
+        final TermContext[] contexts = new TermContext[n];
+        final Similarity.SimWeight[][] weights = new Similarity.SimWeight[models.size()][n];
+
+        final CollectionStatistics collectionStatistics = searcher.collectionStatistics(field);
+
+        for (int t = 0; t < n; t++) {
+            repeats[t] = counts.get(terms[t]);
+            contexts[t] = TermStats.of(searcher.getIndexReader()).context(terms[t]);
+
+            // a term that does not occur matches nothing
+            if (contexts[t].docFreq() == 0) {
+                if (conjunctive) {
+                    Arrays.fill(hits, new ScoreDoc[0]);
+                    return hits;
+                }
+                continue;
+            }
+
+            final TermStatistics termStatistics = searcher.termStatistics(terms[t], contexts[t]);
+            for (int m = 0; m < weights.length; m++)
+                weights[m][t] = models.get(m).computeWeight(1f, collectionStatistics, termStatistics);
+        }
+
+        final HitQueue[] queues = new HitQueue[models.size()];
+        for (int m = 0; m < queues.length; m++)
+            queues[m] = new HitQueue(Math.max(1, Math.min(numHits, searcher.getIndexReader().maxDoc())));
+
+        final PostingsEnum[] postings = new PostingsEnum[n];
+        final int[] freqs = new int[n];
+        final float[] scores = new float[n];
+
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+
+            int active = 0;
+            for (int t = 0; t < n; t++) {
+                postings[t] = null;
+                final TermState state = contexts[t].get(leaf.ord);
+                if (state == null) continue;
+                final TermsEnum termsEnum = leaf.reader().terms(field).iterator();
+                termsEnum.seekExact(terms[t].bytes(), state);
+                postings[t] = termsEnum.postings(null, PostingsEnum.FREQS);
+                postings[t].nextDoc();
+                active++;
+            }
+
+            if (active == 0 || (conjunctive && active < n)) continue;
+
+            final NumericDocValues norms = leaf.reader().getNormValues(field);
+            final Bits liveDocs = leaf.reader().getLiveDocs();
+
+            while (true) {
+
+                int doc = DocIdSetIterator.NO_MORE_DOCS;
+                for (int t = 0; t < n; t++)
+                    if (postings[t] != null)
+                        doc = Math.min(doc, postings[t].docID());
+
+                if (doc == DocIdSetIterator.NO_MORE_DOCS) break;
+
+                int matched = 0;
+                for (int t = 0; t < n; t++) {
+                    if (postings[t] != null && postings[t].docID() == doc) {
+                        freqs[t] = postings[t].freq();
+                        matched++;
+                    } else
+                        freqs[t] = 0;
+                }
+
+                if ((!conjunctive || matched == n) && (liveDocs == null || liveDocs.get(doc))) {
+
+                    final long docLen = length(norms, doc);
+
+                    for (int m = 0; m < queues.length; m++) {
+
+                        final ModelBase model = models.get(m);
+                        for (int t = 0; t < n; t++)
+                            if (freqs[t] > 0)
+                                scores[t] = model.score(weights[m][t], freqs[t], docLen);
+
+                        // summed like the boolean scorers do: each clause's float score into a double
+                        double score = 0;
+                        for (int t = 0; t < n; t++)
+                            if (freqs[t] > 0)
+                                for (int r = 0; r < repeats[t]; r++)
+                                    score += scores[t];
+
+                        queues[m].collect(leaf.docBase + doc, (float) score);
+                    }
+                }
+
+                for (int t = 0; t < n; t++)
+                    if (freqs[t] > 0)
+                        postings[t].nextDoc();
+            }
+        }
+
+        for (int m = 0; m < queues.length; m++)
+            hits[m] = queues[m].hits();
+
+        return hits;
+    }
+
+    /**
+     * Clauses of a term query or of a flat boolean query of term queries, with the same occur, over the given field.
+     * A term that is repeated in the query is scored once per clause.
+     *
+     * @return terms of the clauses, or null if the query has another shape
+     */
+    static List<Term> clauses(Query query, String field) {
+
+        final List<Term> clauses = new ArrayList<>();
+
+        if (query instanceof TermQuery) {
+            clauses.add(((TermQuery) query).getTerm());
+        } else if (query instanceof BooleanQuery && ((BooleanQuery) query).getMinimumNumberShouldMatch() == 0) {
+            final BooleanClause.Occur occur = conjunctive(query) ? BooleanClause.Occur.MUST : BooleanClause.Occur.SHOULD;
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                if (!(clause.getQuery() instanceof TermQuery) || clause.getOccur() != occur)
+                    return null;
+                clauses.add(((TermQuery) clause.getQuery()).getTerm());
+            }
+        } else
+            return null;
+
+        for (Term term : clauses)
+            if (!field.equals(term.field()))
+                return null;
+
+        return clauses;
+    }
+
+    /**
+     * @return true if the clauses of the query must all match
+     */
+    static boolean conjunctive(Query query) {
+        if (!(query instanceof BooleanQuery)) return false;
+        final List<BooleanClause> clauses = ((BooleanQuery) query).clauses();
+        return !clauses.isEmpty() && clauses.get(0).getOccur() == BooleanClause.Occur.MUST;
+    }
+
+    static long length(NumericDocValues norms, int doc) throws IOException {
+        if (norms == null) {
+            throw new RuntimeException("document length norms is null!");
+        }
+        if (norms.advanceExact(doc)) {
+            return norms.longValue();
+        } else {
+            throw new RuntimeException("norms.advanceExact(doc) returns false!");
+        }
+    }
+
+    private static ScoreDoc[][] searchEach(IndexSearcher searcher, Query query, List<ModelBase> models, int numHits) throws IOException {
+        final ScoreDoc[][] hits = new ScoreDoc[models.size()][];
+        for (int m = 0; m < hits.length; m++) {
+            searcher.setSimilarity(models.get(m));
+            hits[m] = searcher.search(query, numHits).scoreDocs;
+        }
+        return hits;
+    }
+
+    /**
+     * Top-k heap of a single model, ordered the same way as the one of {@link TopScoreDocCollector}
+     */
+    static final class HitQueue extends PriorityQueue<ScoreDoc> {
+
+        private final int numHits;
+
+        HitQueue(int numHits) {
+            super(numHits);
+            this.numHits = numHits;
+        }
+
+        @Override
+        protected boolean lessThan(ScoreDoc a, ScoreDoc b) {
+            return a.score == b.score ? a.doc > b.doc : a.score < b.score;
+        }
+
+        /**
+         * Documents are collected in increasing order, hence a tie never replaces the top
+         */
+        void collect(int doc, float score) {
+            if (size() < numHits)
+                add(new ScoreDoc(doc, score));
+            else if (score > top().score) {
+                final ScoreDoc top = top();
+                top.doc = doc;
+                top.score = score;
+                updateTop();
+            }
+        }
+
+        /**
+         * @return score a document must exceed to enter the queue
+         */
+        float threshold() {
+            return size() < numHits ? Float.NEGATIVE_INFINITY : top().score;
+        }
+
+        /**
+         * @return hits in decreasing score order, empties the queue
+         */
+        ScoreDoc[] hits() {
+            final ScoreDoc[] hits = new ScoreDoc[size()];
+            for (int i = hits.length - 1; i >= 0; i--)
+                hits[i] = pop();
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package edu.anadolu;
+
+import edu.anadolu.ParsedDocument.Column;
+import edu.anadolu.datasets.Collection;
+import org.clueweb09.Gov2Record;
+import org.clueweb09.ParallelGZIPInputStream;
+import org.clueweb09.WarcOffsetIndex;
+import org.clueweb09.WarcRecord;
+import org.clueweb09.WarcRecordReader;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static edu.anadolu.Indexer.BUFFER_SIZE;
+import static edu.anadolu.Indexer.RESPONSE;
+
+/**
+ * Parsed corpus store: the Jsoup parse of every response record is written once, and later indexing runs
+ * (KStem, KStemField, KStemAnchor, Semantic, scripts, ...) read the extracted fields instead of parsing the HTML again.
+ * <p>
+ * There is one store file per WARC file, at the same relative path under the store directory plus ".parsed",
+ * so that consumers keep iterating WARC files and switch to the store file when it exists.
+ * A store file is a sequence of blocks of up to 1024 documents (or about a million characters).
+ * Inside a block each column is deflated separately, so a reader inflates only the columns it needs.
+ * <pre>
+ * file   := MAGIC VERSION block* 0
+ * block  := numDocs (rawLength compressedLength deflatedColumn){numColumns}
+ * column := (length UTF-8){numDocs}, where length is -1 for null
+ * </pre>
+ */
+public final class ParsedCorpus {
+
+    public static final String DIRECTORY = "parsed";
+
+    private static final String SUFFIX = ".parsed";
+
+    private static final int MAGIC = 0x50415253;
+    private static final int VERSION = 1;
+
+    private static final int BLOCK_DOCS = 1024;
+    private static final long BLOCK_CHARS = 1 << 20;
+
+    private static final Set<Column> ALL = Collections.unmodifiableSet(EnumSet.allOf(Column.class));
+
+    private final Path docsPath;
+    private final Path storePath;
+
+    /**
+     * @param docsPath  docs path of the collection
+     * @param storePath store directory, typically tfd.home/collection/parsed
+     */
+    public ParsedCorpus(Path docsPath, Path storePath) {
+        this.docsPath = docsPath;
+        this.storePath = storePath;
+    }
+
+    /**
+     * @return store file of the given WARC file
+     */
+    public Path path(Path warcFile) {
+        return storePath.resolve(docsPath.relativize(warcFile).toString() + SUFFIX);
+    }
+
+    /**
+     * @return true if the given WARC file has been parsed into the store
+     */
+    public boolean contains(Path warcFile) {
+        return Files.isRegularFile(path(warcFile));
+    }
+
+    /**
+     * @param warcFile WARC file that is already in the store
+     * @param columns  columns to be loaded, the identifier is always loaded
+     * @return reader of the parsed documents
+     * @throws IOException if IO exception occurs
+     */
+    public Reader reader(Path warcFile, Set<Column> columns) throws IOException {
+        return new Reader(path(warcFile), columns);
+    }
+
+    /**
+     * @param warcFile WARC file to be written into the store
+     * @return writer, the store file appears only after {@link Writer#commit()}
+     * @throws IOException if IO exception occurs
+     */
+    public Writer writer(Path warcFile) throws IOException {
+        return new Writer(path(warcFile));
+    }
+
+    /**
+     * Parses the WARC files that are not in the store yet, so an interrupted build can be resumed.
+     *
+     * @param collection collection
+     * @param numThreads number of threads
+     * @return number of parsed documents
+     * @throws IOException          if IO exception occurs
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public long build(Collection collection, int numThreads) throws IOException, InterruptedException {
+
+        final WarcOffsetIndex.Format format = WarcOffsetIndex.Format.of(collection);
+        final String suffix = WarcOffsetIndex.Format.GOV2.equals(format) ? ".gz" : ".warc.gz";
+
+        final List<Path> warcFiles = new ArrayList<>(Indexer.discoverWarcFiles(docsPath, suffix));
+        System.out.println(warcFiles.size() + " many " + suffix + " files found under the docs path : " + docsPath.toString());
+
+        warcFiles.removeIf(this::contains);
+        System.out.println(warcFiles.size() + " many " + suffix + " files will be parsed into " + storePath.toString());
+
+        final ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            return pool.submit(() -> warcFiles.parallelStream().mapToLong(warcFile -> {
+                try {
+                    return parse(warcFile, format, collection);
+                } catch (IOException ioe) {
+                    System.out.println(warcFile.toAbsolutePath() + ": ERROR: unexpected IOException:");
+                    ioe.printStackTrace(System.out);
+                    return 0;
+                }
+            }).sum()).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Skip certain documents that hang Jsoup.parse method, see {@link Indexer#skip(String)}
+     */
+    private static boolean skip(String docId) {
+        return "clueweb12-1100wb-15-21376".equals(docId) || "clueweb12-1100wb-15-21381".equals(docId) || "clueweb12-1013wb-14-21356".equals(docId) || "clueweb12-0200wb-38-08218".equals(docId) || "clueweb12-0200wb-38-08219".equals(docId);
+    }
+
+    private static int add(Writer writer, WarcRecord warcRecord, Collection collection) throws IOException {
+
+        if (!RESPONSE.equals(warcRecord.type()) || skip(warcRecord.id()))
+            return 0;
+
+        final ParsedDocument document;
+        try {
+            document = ParsedDocument.parse(warcRecord, collection, ALL);
+        } catch (Exception exception) {
+            System.err.println("jdoc exception " + warcRecord.id());
+            return 0;
+        }
+
+        writer.add(document);
+        return 1;
+    }
+
+    private long parse(Path warcFile, WarcOffsetIndex.Format format, Collection collection) throws IOException {
+
+        long i = 0;
+
+        try (Writer writer = writer(warcFile)) {
+
+            if (WarcOffsetIndex.Format.GOV2.equals(format)) {
+
+                StringBuilder builder = new StringBuilder();
+                boolean found = false;
+
+                try (
+                        InputStream stream = ParallelGZIPInputStream.open(warcFile);
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+
+                    for (; ; ) {
+                        String line = reader.readLine();
+                        if (line == null)
+                            break;
+
+                        line = line.trim();
+
+                        if (line.startsWith(Gov2Record.DOC)) {
+                            found = true;
+                            continue;
+                        }
+
+                        if (line.startsWith(Gov2Record.TERMINATING_DOC)) {
+                            found = false;
+                            i += add(writer, Gov2Record.parseGov2Record(builder), collection);
+                            builder.setLength(0);
+                        }
+
+                        if (found)
+                            builder.append(line).append(" ");
+                    }
+                }
+
+            } else {
+
+                InputStream stream = ParallelGZIPInputStream.open(warcFile);
+                try (WarcRecordReader reader = WarcOffsetIndex.Format.CW12.equals(format) ? WarcRecordReader.clueWeb12(stream) : WarcRecordReader.clueWeb09(stream)) {
+                    WarcRecord wDoc;
+                    while ((wDoc = reader.next()) != null) {
+                        i += add(writer, wDoc, collection);
+                        wDoc.free();
+                    }
+                }
+            }
+
+            writer.commit();
+        }
+
+        return i;
+    }
+
+    /**
+     * Writes the parsed documents of a single WARC file. Until {@link #commit()} the documents go to a temporary file,
+     * so a crashed or failed run never leaves a partial store file behind.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path path;
+        private final Path tmp;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+        private final List<ParsedDocument> block = new ArrayList<>(BLOCK_DOCS);
+        private long chars = 0;
+        private boolean committed = false;
+
+        private Writer(Path path) throws IOException {
+            this.path = path;
+            Files.createDirectories(path.getParent());
+            this.tmp = path.resolveSibling(path.getFileName().toString() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void add(ParsedDocument document) throws IOException {
+            block.add(document);
+            chars += document.length();
+            if (block.size() == BLOCK_DOCS || chars >= BLOCK_CHARS)
+                flush();
+        }
+
+        private void flush() throws IOException {
+
+            if (block.isEmpty()) return;
+
+            out.writeInt(block.size());
+
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            DataOutputStream column = new DataOutputStream(raw);
+
+            for (Column c : Column.values()) {
+
+                raw.reset();
+                for (ParsedDocument document : block) {
+                    final String value = document.get(c);
+                    if (value == null) {
+                        column.writeInt(-1);
+                    } else {
+                        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        column.writeInt(bytes.length);
+                        column.write(bytes);
+                    }
+                }
+                column.flush();
+
+                final byte[] bytes = raw.toByteArray();
+                final byte[] compressed = deflate(bytes);
+                out.writeInt(bytes.length);
+                out.writeInt(compressed.length);
+                out.write(compressed);
+            }
+
+            block.clear();
+            chars = 0;
+        }
+
+        private byte[] deflate(byte[] bytes) {
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                compressed.write(buffer, 0, n);
+            }
+            return compressed.toByteArray();
+        }
+
+        /**
+         * Writes the last block and moves the temporary file to its place in the store
+         */
+        public void commit() throws IOException {
+            flush();
+            out.writeInt(0);
+            out.close();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * Reads the parsed documents of a single WARC file, inflating only the requested columns
+     */
+    public static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final Set<Column> columns;
+        private final Inflater inflater = new Inflater(true);
+
+        private ParsedDocument[] block = new ParsedDocument[0];
+        private int next = 0;
+        private boolean eof = false;
+
+        private Reader(Path path, Set<Column> columns) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            this.columns = EnumSet.of(Column.ID);
+            this.columns.addAll(columns);
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                in.close();
+                throw new IOException("not a parsed corpus file: " + path);
+            }
+        }
+
+        /**
+         * @return the next parsed document, or null at the end of the file
+         * @throws IOException if IO exception occurs
+         */
+        public ParsedDocument next() throws IOException {
+            if (next == block.length && !readBlock())
+                return null;
+            ParsedDocument document = block[next];
+            block[next++] = null;
+            return document;
+        }
+
+        private boolean readBlock() throws IOException {
+
+            if (eof) return false;
+
+            final int numDocs = in.readInt();
+            if (numDocs == 0) {
+                eof = true;
+                return false;
+            }
+
+            block = new ParsedDocument[numDocs];
+            for (int i = 0; i < numDocs; i++)
+                block[i] = new ParsedDocument();
+            next = 0;
+
+            for (Column c : Column.values()) {
+
+                final int rawLength = in.readInt();
+                final int compressedLength = in.readInt();
+
+                if (!columns.contains(c)) {
+                    int skipped = 0;
+                    while (skipped < compressedLength) {
+                        final int n = in.skipBytes(compressedLength - skipped);
+                        if (n <= 0) throw new EOFException();
+                        skipped += n;
+                    }
+                    continue;
+                }
+
+                final byte[] compressed = new byte[compressedLength];
+                in.readFully(compressed);
+                final byte[] raw = inflate(compressed, rawLength);
+
+                int p = 0;
+                for (int i = 0; i < numDocs; i++) {
+                    final int length = (raw[p] & 0xff) << 24 | (raw[p + 1] & 0xff) << 16 | (raw[p + 2] & 0xff) << 8 | (raw[p + 3] & 0xff);
+                    p += 4;
+                    if (length == -1) continue;
+                    block[i].set(c, new String(raw, p, length, StandardCharsets.UTF_8));
+                    p += length;
+                }
+            }
+
+            return true;
+        }
+
+        private byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+            inflater.reset();
+            inflater.setInput(compressed);
+            final byte[] raw = new byte[rawLength];
+            try {
+                int n = 0;
+                while (n < rawLength) {
+                    final int inflated = inflater.inflate(raw, n, rawLength - n);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput()))
+                        throw new EOFException("truncated column");
+                    n += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+            return raw;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package edu.anadolu;
+
+import edu.anadolu.datasets.Collection;
+import edu.anadolu.field.MetaTag;
+import edu.anadolu.field.SemanticElements;
+import org.clueweb09.WarcRecord;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.StringUtil;
+import org.jsoup.nodes.Element;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static edu.anadolu.field.MetaTag.notEmpty;
+
+/**
+ * Fields extracted from the raw HTML of a web page by a single Jsoup parse.
+ * A value is null when the page does not have it (e.g. no &lt;title&gt; tag) or when the column is not loaded.
+ *
+ * @see ParsedCorpus
+ */
+public final class ParsedDocument {
+
+    /**
+     * Columns of the parsed corpus store
+     */
+    public enum Column {
+
+        /**
+         * TREC document identifier
+         */
+        ID,
+
+        /**
+         * URL from the WARC header, for GOV2 Jsoup's baseUri()
+         */
+        URL,
+
+        /**
+         * Text of the whole document, jDoc.text()
+         */
+        TEXT,
+
+        /**
+         * Whitespace normalised text of the &lt;title&gt; tag
+         */
+        TITLE,
+
+        /**
+         * Text of the &lt;body&gt; tag
+         */
+        BODY,
+
+        /**
+         * Content of the keywords meta tags, see {@link MetaTag#enrich2(org.jsoup.nodes.Document, String)}
+         */
+        KEYWORDS,
+
+        /**
+         * Content of the description meta tags, see {@link MetaTag#enrich2(org.jsoup.nodes.Document, String)}
+         */
+        DESCRIPTION,
+
+        /**
+         * Name attributes of the meta tags, see {@link MetaTag#metaTagsWithNameAttribute(org.jsoup.nodes.Document)}
+         */
+        META,
+
+        /**
+         * HTML5 semantic elements as tokens
+         */
+        TAGS,
+
+        /**
+         * Texts of the h1-h6 tags, one per line
+         */
+        HEADINGS,
+
+        /**
+         * href attributes of the anchors, one per line
+         */
+        OUTLINKS
+    }
+
+    private final String[] values = new String[Column.values().length];
+
+    ParsedDocument() {
+    }
+
+    public String get(Column column) {
+        return values[column.ordinal()];
+    }
+
+    void set(Column column, String value) {
+        values[column.ordinal()] = value;
+    }
+
+    public String id() {
+        return get(Column.ID);
+    }
+
+    public String url() {
+        return get(Column.URL);
+    }
+
+    public String text() {
+        return get(Column.TEXT);
+    }
+
+    public String title() {
+        return get(Column.TITLE);
+    }
+
+    public String body() {
+        return get(Column.BODY);
+    }
+
+    public String keywords() {
+        return get(Column.KEYWORDS);
+    }
+
+    public String description() {
+        return get(Column.DESCRIPTION);
+    }
+
+    public String meta() {
+        return get(Column.META);
+    }
+
+    public String tags() {
+        return get(Column.TAGS);
+    }
+
+    public String headings() {
+        return get(Column.HEADINGS);
+    }
+
+    public String outlinks() {
+        return get(Column.OUTLINKS);
+    }
+
+    /**
+     * @return number of characters in the loaded columns
+     */
+    long length() {
+        long length = 0;
+        for (String value : values)
+            if (value != null) length += value.length();
+        return length;
+    }
+
+    /**
+     * Parses the raw HTML of a record with Jsoup and extracts the requested columns only
+     *
+     * @param warcRecord response record
+     * @param collection GOV2 records have no URL in the header
+     * @param columns    columns to be extracted
+     * @return parsed document
+     */
+    public static ParsedDocument parse(WarcRecord warcRecord, Collection collection, Set<Column> columns) {
+
+        org.jsoup.nodes.Document jDoc = Jsoup.parse(warcRecord.content());
+
+        ParsedDocument document = new ParsedDocument();
+        document.set(Column.ID, warcRecord.id());
+
+        if (columns.contains(Column.URL))
+            document.set(Column.URL, Collection.GOV2.equals(collection) ? jDoc.baseUri() : warcRecord.url());
+
+        if (columns.contains(Column.TEXT))
+            document.set(Column.TEXT, jDoc.text());
+
+        if (columns.contains(Column.TITLE)) {
+            Element titleEl = jDoc.getElementsByTag("title").first();
+            if (titleEl != null)
+                document.set(Column.TITLE, StringUtil.normaliseWhitespace(titleEl.text()).trim());
+        }
+
+        if (columns.contains(Column.BODY)) {
+            Element bodyEl = jDoc.body();
+            if (bodyEl != null)
+                document.set(Column.BODY, bodyEl.text());
+        }
+
+        if (columns.contains(Column.KEYWORDS))
+            document.set(Column.KEYWORDS, MetaTag.enrich2(jDoc, "keywords"));
+
+        if (columns.contains(Column.DESCRIPTION))
+            document.set(Column.DESCRIPTION, MetaTag.enrich2(jDoc, "description"));
+
+        if (columns.contains(Column.META))
+            document.set(Column.META, MetaTag.metaTagsWithNameAttribute(jDoc));
+
+        if (columns.contains(Column.TAGS))
+            document.set(Column.TAGS, SemanticElements.semanticElements(jDoc));
+
+        if (columns.contains(Column.HEADINGS))
+            document.set(Column.HEADINGS, jDoc.select("h1, h2, h3, h4, h5, h6").stream()
+                    .map(Element::text)
+                    .map(String::trim)
+                    .filter(notEmpty)
+                    .collect(Collectors.joining("\n")));
+
+        if (columns.contains(Column.OUTLINKS))
+            document.set(Column.OUTLINKS, jDoc.select("a[href]").stream()
+                    .map(e -> e.attr("href"))
+                    .map(String::trim)
+                    .filter(notEmpty)
+                    .collect(Collectors.joining("\n")));
+
+        return document;
+    }
+}
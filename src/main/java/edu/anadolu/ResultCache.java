@@ -0,0 +1,170 @@
+package edu.anadolu;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.similarities.Similarity;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Top-k (docid, score) lists of the (similarity, query) pairs searched over an index, kept in memory with least recently
+ * used eviction bounded by the total number of hits, and saved to disk. Lucene document numbers are only valid for a
+ * commit, so a saved cache whose commit generation differs from the one of the index is discarded.
+ * <p>
+ * Only the longest list of a pair is kept: the top-k of a cached top-k' with k &lt;= k' is its prefix, ties included.
+ */
+final class ResultCache {
+
+    private static final int MAGIC = 0x52435331;
+
+    private static final class Entry {
+
+        /**
+         * Number of hits requested, the list is shorter only when fewer documents matched
+         */
+        final int k;
+        final int[] docs;
+        final float[] scores;
+
+        Entry(int k, int[] docs, float[] scores) {
+            this.k = k;
+            this.docs = docs;
+            this.scores = scores;
+        }
+    }
+
+    private final Path file;
+    private final String indexTag;
+    private final long generation;
+    private final long maxHits;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long hits = 0;
+    private boolean dirty = false;
+
+    /**
+     * @param file       file to load the cache from and save it to
+     * @param indexTag   tag of the index
+     * @param generation commit generation of the index
+     * @param maxHits    maximum number of hits to keep in memory
+     * @throws IOException if IO exception occurs
+     */
+    ResultCache(Path file, String indexTag, long generation, long maxHits) throws IOException {
+        this.file = file;
+        this.indexTag = indexTag;
+        this.generation = generation;
+        this.maxHits = maxHits;
+        if (Files.exists(file)) load();
+    }
+
+    static String key(Similarity similarity, Query query) {
+        return similarity.getClass().getName() + "\t" + similarity.toString() + "\t" + query.toString();
+    }
+
+    /**
+     * @return top-k hits, or null if the pair is not cached for k hits
+     */
+    synchronized ScoreDoc[] get(String key, int k) {
+
+        final Entry entry = entries.get(key);
+        if (entry == null || (entry.k < k && entry.docs.length == entry.k)) return null;
+
+        final ScoreDoc[] scoreDocs = new ScoreDoc[Math.min(k, entry.docs.length)];
+        for (int i = 0; i < scoreDocs.length; i++)
+            scoreDocs[i] = new ScoreDoc(entry.docs[i], entry.scores[i]);
+        return scoreDocs;
+    }
+
+    synchronized void put(String key, int k, ScoreDoc[] scoreDocs) {
+
+        final Entry old = entries.get(key);
+        if ((old != null && old.k >= k) || scoreDocs.length > maxHits) return;
+
+        final int[] docs = new int[scoreDocs.length];
+        final float[] scores = new float[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            docs[i] = scoreDocs[i].doc;
+            scores[i] = scoreDocs[i].score;
+        }
+
+        if (old != null) hits -= old.docs.length;
+        entries.put(key, new Entry(k, docs, scores));
+        hits += docs.length;
+        dirty = true;
+
+        final Iterator<Entry> eldest = entries.values().iterator();
+        while (hits > maxHits) {
+            hits -= eldest.next().docs.length;
+            eldest.remove();
+        }
+    }
+
+    private void load() throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+
+            if (in.readInt() != MAGIC || !indexTag.equals(in.readUTF()) || in.readLong() != generation) {
+                System.out.println("Discarding the result cache " + file + ", the index has changed");
+                return;
+            }
+
+            final int size = in.readInt();
+            for (int e = 0; e < size; e++) {
+                final byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                final int k = in.readInt();
+                final int[] docs = new int[in.readInt()];
+                final float[] scores = new float[docs.length];
+                for (int i = 0; i < docs.length; i++) {
+                    docs[i] = in.readInt();
+                    scores[i] = in.readFloat();
+                }
+                entries.put(new String(key, StandardCharsets.UTF_8), new Entry(k, docs, scores));
+                hits += docs.length;
+            }
+        }
+
+        System.out.println("Loaded " + entries.size() + " cached result lists from " + file);
+    }
+
+    /**
+     * Writes the cache, least recently used first, if it has changed since it was loaded
+     *
+     * @throws IOException if IO exception occurs
+     */
+    synchronized void save() throws IOException {
+
+        if (!dirty) return;
+
+        Files.createDirectories(file.getParent());
+        final Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(indexTag);
+            out.writeLong(generation);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                final byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(e.getValue().k);
+                out.writeInt(e.getValue().docs.length);
+                for (int i = 0; i < e.getValue().docs.length; i++) {
+                    out.writeInt(e.getValue().docs[i]);
+                    out.writeFloat(e.getValue().scores[i]);
+                }
+            }
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+}
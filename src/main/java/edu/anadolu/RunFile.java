@@ -0,0 +1,306 @@
+package edu.anadolu;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary run file: the result lists of a run as per-query blocks of (document ordinal, score), and a dictionary of the
+ * TREC document identifiers that the ordinals refer to. Scores are kept as the floats they are computed as, so the
+ * TREC text that {@link #export(Path, Path)} prints is byte identical to the one of a text run.
+ * <p>
+ * Layout: header (magic, run tag, no documents id), blocks (qid, n, n &times; (ordinal, score)),
+ * dictionary (size, identifiers), footer (dictionary offset, number of blocks, magic).
+ */
+public final class RunFile {
+
+    public static final String SUFFIX = ".run";
+
+    private static final int MAGIC = 0x52554E31;
+    private static final int FOOTER = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private RunFile() {
+    }
+
+    /**
+     * Output of a run, one result list per query
+     */
+    public interface Output extends Closeable {
+
+        /**
+         * @param qid    query id
+         * @param ids    document identifiers, in rank order
+         * @param scores scores, in rank order
+         * @throws IOException if IO exception occurs
+         */
+        void add(int qid, String[] ids, float[] scores) throws IOException;
+    }
+
+    /**
+     * @return TREC text output
+     */
+    public static Output text(Path path, String runTag, String noDocumentsID) throws IOException {
+        final PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.US_ASCII));
+        return new Output() {
+            @Override
+            public void add(int qid, String[] ids, float[] scores) {
+                print(out, qid, ids, scores, ids.length, runTag, noDocumentsID);
+            }
+
+            @Override
+            public void close() {
+                out.close();
+            }
+        };
+    }
+
+    /**
+     * @return binary output
+     */
+    public static Output binary(Path path, String runTag, String noDocumentsID) throws IOException {
+        return new Writer(path, runTag, noDocumentsID);
+    }
+
+    /**
+     * Prints a result list in TREC format
+     */
+    private static void print(PrintWriter out, int qid, String[] ids, float[] scores, int size, String runTag, String noDocumentsID) {
+
+        /**
+         * If you are returning zero documents for a query, instead return the single document
+         * clueweb09-en0000-00-00000
+         * clueweb12-0000wb-00-00000
+         * GX000-00-0000000
+         * If you would normally return no documents for a query, instead return the single document "clueweb09-en0000-00-00000" at rank one.
+         * Doing so maintains consistent evaluation results (averages over the same number of queries) and does not break anyone's tools.
+         */
+        if (size == 0) {
+
+            out.print(qid);
+            out.print("\tQ0\t");
+            out.print(noDocumentsID);
+            out.print("\t1\t0\t");
+            out.print(runTag);
+            out.println();
+            return;
+        }
+
+        /**
+         * the first column is the topic number.
+         * the second column is currently unused and should always be "Q0".
+         * the third column is the official document identifier of the retrieved document.
+         * the fourth column is the rank the document is retrieved.
+         * the fifth column shows the score (integer or floating point) that generated the ranking.
+         * the sixth column is called the "run tag" and should be a unique identifier for your
+         */
+        for (int i = 0; i < size; i++) {
+            out.print(qid);
+            out.print("\tQ0\t");
+            out.print(ids[i]);
+            out.print("\t");
+            out.print(i + 1);
+            out.print("\t");
+            out.print(scores[i]);
+            out.print("\t");
+            out.print(runTag);
+            out.println();
+        }
+    }
+
+    private static final class Writer implements Output {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int numQueries = 0;
+
+        private Writer(Path path, String runTag, String noDocumentsID) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeUTF(runTag);
+            out.writeUTF(noDocumentsID);
+        }
+
+        @Override
+        public void add(int qid, String[] ids, float[] scores) throws IOException {
+            out.writeInt(qid);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                Integer ordinal = ordinals.get(ids[i]);
+                if (ordinal == null) {
+                    ordinal = dictionary.size();
+                    ordinals.put(ids[i], ordinal);
+                    dictionary.add(ids[i]);
+                }
+                out.writeInt(ordinal);
+                out.writeFloat(scores[i]);
+            }
+            numQueries++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            final long offset = out.size();
+            if (offset == Integer.MAX_VALUE) throw new IOException("run file is too large");
+            out.writeInt(dictionary.size());
+            for (String id : dictionary)
+                out.writeUTF(id);
+            out.writeLong(offset);
+            out.writeInt(numQueries);
+            out.writeInt(MAGIC);
+            out.close();
+        }
+    }
+
+    /**
+     * Streams the result lists of a binary run file, one query at a time. The arrays of a block are reused.
+     */
+    public static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final String runTag;
+        private final String noDocumentsID;
+        private final String[] dictionary;
+        private final int numQueries;
+
+        private int read = 0;
+        private int qid;
+        private int size;
+        private int[] ordinals = new int[1024];
+        private float[] scores = new float[1024];
+
+        public Reader(Path path) throws IOException {
+
+            // footer and dictionary
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final ByteBuffer footer = ByteBuffer.allocate(FOOTER);
+                if (channel.size() < FOOTER) throw new IOException(path + " is not a run file");
+                while (footer.hasRemaining())
+                    if (channel.read(footer, channel.size() - FOOTER + footer.position()) == -1) throw new EOFException(path.toString());
+                footer.flip();
+                final long offset = footer.getLong();
+                this.numQueries = footer.getInt();
+                if (footer.getInt() != MAGIC) throw new IOException(path + " is not a run file");
+
+                channel.position(offset);
+                final DataInputStream dictionaryIn = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+                this.dictionary = new String[dictionaryIn.readInt()];
+                for (int i = 0; i < dictionary.length; i++)
+                    dictionary[i] = dictionaryIn.readUTF();
+            }
+
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+            if (in.readInt() != MAGIC) throw new IOException(path + " is not a run file");
+            this.runTag = in.readUTF();
+            this.noDocumentsID = in.readUTF();
+        }
+
+        public String runTag() {
+            return runTag;
+        }
+
+        public String noDocumentsID() {
+            return noDocumentsID;
+        }
+
+        public int numQueries() {
+            return numQueries;
+        }
+
+        /**
+         * @return number of the distinct documents in the run
+         */
+        public int numDocs() {
+            return dictionary.length;
+        }
+
+        /**
+         * Advances to the result list of the next query
+         *
+         * @return false if there are no more queries
+         * @throws IOException if IO exception occurs
+         */
+        public boolean next() throws IOException {
+            if (read == numQueries) return false;
+            qid = in.readInt();
+            size = in.readInt();
+            if (ordinals.length < size) {
+                ordinals = new int[size];
+                scores = new float[size];
+            }
+            for (int i = 0; i < size; i++) {
+                ordinals[i] = in.readInt();
+                scores[i] = in.readFloat();
+            }
+            read++;
+            return true;
+        }
+
+        public int qid() {
+            return qid;
+        }
+
+        /**
+         * @return number of the documents retrieved for the current query
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param rank zero based rank
+         * @return ordinal of the document in the dictionary of the run
+         */
+        public int ordinal(int rank) {
+            return ordinals[rank];
+        }
+
+        public String docID(int rank) {
+            return dictionary[ordinals[rank]];
+        }
+
+        public float score(int rank) {
+            return scores[rank];
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Prints a binary run file as TREC text
+     *
+     * @param run  binary run file
+     * @param text TREC submission file to write
+     * @throws IOException if IO exception occurs
+     */
+    public static void export(Path run, Path text) throws IOException {
+
+        try (Reader reader = new Reader(run);
+             PrintWriter out = new PrintWriter(Files.newBufferedWriter(text, StandardCharsets.US_ASCII))) {
+
+            String[] ids = new String[0];
+            while (reader.next()) {
+                if (ids.length < reader.size()) ids = new String[reader.size()];
+                for (int i = 0; i < reader.size(); i++)
+                    ids[i] = reader.docID(i);
+                print(out, reader.qid(), ids, reader.scores, reader.size(), reader.runTag(), reader.noDocumentsID());
+            }
+        }
+    }
+
+    /**
+     * @return true if the path is a binary run file
+     */
+    public static boolean isBinary(Path path) {
+        return path.getFileName().toString().endsWith(SUFFIX);
+    }
+}
@@ -4,7 +4,6 @@ import edu.anadolu.analysis.Analyzers;
 import edu.anadolu.analysis.Tag;
 import edu.anadolu.datasets.DataSet;
 import edu.anadolu.similarities.MATF;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -25,12 +24,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static edu.anadolu.Indexer.FIELD_CONTENTS;
-import static edu.anadolu.Indexer.FIELD_ID;
 
 /**
  * Searcher for ClueWeb09
@@ -42,44 +42,62 @@ public class Searcher implements Closeable {
 
     protected final String indexTag;
 
-    private final class SearcherThread extends Thread {
+    /**
+     * A run file: the result lists of a model for the topics of a track. Its queries are searched concurrently, and the
+     * file is written by the thread that completes the last one.
+     */
+    private final class Run {
 
-        private final QueryParser.Operator operator;
-        private final String field;
         private final Track track;
         private final Similarity similarity;
+        private final String field;
         private final Path path;
+        private final String runTag;
+        private final Query[] queries;
+        private final IndexSearcher searcher;
+        private final ScoreDoc[][] hits;
+        private final AtomicInteger remaining;
 
-        SearcherThread(Track track, Similarity similarity, QueryParser.Operator operator, String field, Path path) {
-            this.operator = operator;
-            this.field = field;
+        Run(Track track, Similarity similarity, QueryParser.Operator operator, String field, Path path, Query[] queries, ExecutorService segments) {
             this.track = track;
             this.similarity = similarity;
+            this.field = field;
+            this.runTag = Searcher.this.toString(similarity, operator, field, 0);
             this.path = path;
-            setName(indexTag + similarity.toString() + track.toString());
+            this.queries = queries;
+            this.searcher = segments == null ? new IndexSearcher(reader) : new IndexSearcher(reader, segments);
+            this.searcher.setSimilarity(similarity);
+            this.hits = new ScoreDoc[queries.length][];
+            this.remaining = new AtomicInteger(queries.length);
         }
 
-        @Override
-        public void run() {
-            try {
-                search(track, similarity, operator, field, path);
-            } catch (Exception e) {
-                System.out.println(Thread.currentThread().getName() + ": unexpected exception : " + e.getMessage());
-                e.printStackTrace();
-            }
+        void search(int q) throws IOException {
+            hits[q] = topDocs(searcher, queries[q], field, similarity);
+            if (remaining.decrementAndGet() == 0)
+                write();
         }
 
-        @Override
-        public String toString() {
-            return indexTag + similarity.toString() + track.toString();
+        private void write() throws IOException {
+            try (RunFile.Output out = output(path, runTag)) {
+                final List<InfoNeed> needs = track.getTopics();
+                for (int q = 0; q < queries.length; q++) {
+                    add(out, needs.get(q), hits[q]);
+                    hits[q] = null;
+                }
+            }
         }
-
-
     }
 
     protected final DataSet dataSet;
     final int numHits;
 
+    private boolean prune = false;
+    private boolean verify = false;
+    private int segmentThreads = 0;
+    private boolean binary = false;
+    private ResultCache cache = null;
+    private DocIds docIds = null;
+
     final Tag analyzerTag;
 
     public Searcher(Path indexPath, DataSet dataSet, int numHits) throws IOException {
@@ -99,6 +117,90 @@ public class Searcher implements Closeable {
         System.out.println("Opened index directory : " + indexPath + " has " + reader.numDocs() + " numDocs and has " + reader.maxDoc() + " maxDocs");
         System.out.println("Analyzer Tag : " + analyzerTag);
 
+        // term contexts of the topics are built once, for all models and runs
+        TermStats.of(reader, TermStats.file(indexPath)).preload(FIELD_CONTENTS, Analyzers.analyzer(analyzerTag), dataSet.getTopics());
+    }
+
+    /**
+     * Enables dynamic pruning (MaxScore) of OR queries for the models that can bound their scores
+     *
+     * @param prune  whether to prune
+     * @param verify whether to check every pruned, and every conjunctive ({@link Conjunction}), result list against exhaustive scoring
+     */
+    public void setPruning(boolean prune, boolean verify) {
+        this.prune = prune;
+        this.verify = verify;
+    }
+
+    /**
+     * Enables Lucene's intra-query parallelism: the segments of the index are searched concurrently for a single query
+     *
+     * @param segmentThreads number of threads to search the segments with, zero disables
+     */
+    public void setSegmentThreads(int segmentThreads) {
+        this.segmentThreads = segmentThreads;
+    }
+
+    /**
+     * @param binary whether to write runs as binary {@link RunFile}s rather than TREC text
+     */
+    public void setBinaryRuns(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Caches the top hits of the searches, see {@link ResultCache}. The cache is saved under the collection when the
+     * searcher is closed, and reused by the next searchers over the same index commit.
+     *
+     * @param maxHits maximum number of hits to keep in memory, zero disables
+     * @throws IOException if IO exception occurs
+     */
+    public void setResultCache(long maxHits) throws IOException {
+        if (cache != null) cache.save();
+        final long generation = ((DirectoryReader) reader).getIndexCommit().getGeneration();
+        this.cache = maxHits > 0 ? new ResultCache(dataSet.collectionPath().resolve("cache").resolve(indexTag + ".results"), indexTag, generation, maxHits) : null;
+    }
+
+    /**
+     * @return top hits of the query, served from the result cache when possible
+     */
+    protected ScoreDoc[] topDocs(IndexSearcher searcher, Query query, String field, Similarity similarity) throws IOException {
+
+        if (cache == null)
+            return search(searcher, query, field, similarity);
+
+        final String key = ResultCache.key(similarity, query);
+        ScoreDoc[] hits = cache.get(key, numHits);
+        if (hits == null) {
+            hits = search(searcher, query, field, similarity);
+            cache.put(key, numHits, hits);
+        }
+        return hits;
+    }
+
+    private ScoreDoc[] search(IndexSearcher searcher, Query query, String field, Similarity similarity) throws IOException {
+
+        // short AND queries are intersected directly
+        if (similarity instanceof ModelBase && MultiModelSearcher.conjunctive(query)) {
+            final ScoreDoc[] hits = Conjunction.search(searcher, query, field, (ModelBase) similarity, numHits);
+            if (hits != null) {
+                if (verify && !MaxScore.same(searcher.search(query, numHits).scoreDocs, hits))
+                    throw new RuntimeException("conjunctive top " + numHits + " differs from BooleanQuery scoring for query " + query + " and model " + similarity);
+                return hits;
+            }
+        }
+
+        if (!prune || !(similarity instanceof ModelBase))
+            return searcher.search(query, numHits).scoreDocs;
+
+        final ScoreDoc[] hits = MaxScore.search(searcher, query, field, (ModelBase) similarity, numHits);
+        if (hits == null)
+            return searcher.search(query, numHits).scoreDocs;
+
+        if (verify && !MaxScore.same(searcher.search(query, numHits).scoreDocs, hits))
+            throw new RuntimeException("pruned top " + numHits + " differs from exhaustive scoring for query " + query + " and model " + similarity);
+
+        return hits;
     }
 
     public String toString(Similarity similarity, QueryParser.Operator operator, String field, int part) {
@@ -106,9 +208,25 @@ public class Searcher implements Closeable {
         return similarity.toString().replaceAll(" ", "_") + "_" + field + "_" + indexTag + "_" + operator.toString() + "_" + p;
     }
 
+    /**
+     * @return resolver of the TREC identifiers of the hits, opened on first use
+     * @throws IOException if IO exception occurs
+     */
+    protected synchronized DocIds docIds() throws IOException {
+        if (docIds == null)
+            docIds = DocIds.open(reader);
+        return docIds;
+    }
+
     @Override
     public void close() throws IOException {
-        reader.close();
+        try {
+            if (cache != null) cache.save();
+            if (docIds != null) docIds.close();
+            TermStats.of(reader).save();
+        } finally {
+            reader.close();
+        }
     }
 
     public void createDirectories(Path path) throws IOException {
@@ -116,43 +234,70 @@ public class Searcher implements Closeable {
             Files.createDirectories(path);
     }
 
+    /**
+     * Searches every (model, query) pair as a separate unit of work on a work stealing pool, so that all cores are busy
+     * even when there is a single model or track. A run file is written once all of its queries are searched.
+     */
     public void searchWithThreads(int numThreads, Collection<ModelBase> models, Collection<String> fields, String runsPath) throws InterruptedException, IOException {
+        searchWithThreads(numThreads, models, fields, runsPath, QueryParser.Operator.OR);
+    }
 
-        System.out.println("There are " + models.size() * fields.size() * dataSet.tracks().length + " many tasks to process...");
+    /**
+     * @param operators default operators of the query parser, a run is written for each
+     */
+    public void searchWithThreads(int numThreads, Collection<ModelBase> models, Collection<String> fields, String runsPath, QueryParser.Operator... operators) throws InterruptedException, IOException {
 
-        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads);
+        final ExecutorService pool = Executors.newWorkStealingPool(numThreads);
+        final ExecutorService segments = segmentThreads > 0 ? Executors.newFixedThreadPool(segmentThreads) : null;
 
-        for (final Track track : dataSet.tracks()) {
+        final List<Run> runs = new ArrayList<>();
 
-            final Path path = Paths.get(dataSet.collectionPath().toString(), runsPath, indexTag, track.toString());
-            createDirectories(path);
+        try {
+            for (final Track track : dataSet.tracks()) {
 
-            for (String field : fields)
-                for (final ModelBase model : models) {
-                    //    executor.execute(new SearcherThread(track, model, QueryParser.Operator.AND, path));
-                    executor.execute(new SearcherThread(track, model, QueryParser.Operator.OR, field, path));
-                }
-        }
+                final Path path = Paths.get(dataSet.collectionPath().toString(), runsPath, indexTag, track.toString());
+                createDirectories(path);
 
-        //add some delay to let some threads spawn by scheduler
-        Thread.sleep(30000);
-        executor.shutdown(); // Disable new tasks from being submitted
+                for (String field : fields)
+                    for (QueryParser.Operator operator : operators) {
 
-        try {
-            // Wait for existing tasks to terminate
-            while (!executor.awaitTermination(3, TimeUnit.MINUTES)) {
-                Thread.sleep(1000);
-                //System.out.println(String.format("%.2f percentage completed", (double) executor.getCompletedTaskCount() / executor.getTaskCount() * 100.0d));
+                        // queries are immutable, parse them once for all models
+                        final QueryParser queryParser = new QueryParser(field, Analyzers.analyzer(analyzerTag));
+                        queryParser.setDefaultOperator(operator);
+                        final List<InfoNeed> needs = track.getTopics();
+                        final Query[] queries = new Query[needs.size()];
+                        for (int q = 0; q < queries.length; q++)
+                            queries[q] = queryParser.parse(needs.get(q).query());
+
+                        for (final ModelBase model : models)
+                            runs.add(new Run(track, model, operator, field, path, queries, segments));
+                    }
             }
-        } catch (InterruptedException ie) {
-            // (Re-)Cancel if current thread also interrupted
-            executor.shutdownNow();
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
+        } catch (ParseException pe) {
+            throw new RuntimeException(pe);
         }
 
-        if (executor.getTaskCount() != executor.getCompletedTaskCount())
-            throw new RuntimeException("total task count = " + executor.getTaskCount() + " is not equal to completed task count =  " + executor.getCompletedTaskCount());
+        final List<Future<?>> futures = new ArrayList<>();
+        for (final Run run : runs)
+            for (int q = 0; q < run.queries.length; q++) {
+                final int query = q;
+                futures.add(pool.submit(() -> {
+                    run.search(query);
+                    return null;
+                }));
+            }
+
+        System.out.println("There are " + runs.size() + " runs and " + futures.size() + " many (model, query) units to process...");
+
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            if (segments != null) segments.shutdownNow();
+        }
     }
 
     public void search(Track track, Similarity similarity, QueryParser.Operator operator, Path path) throws IOException, ParseException {
@@ -166,7 +311,7 @@ public class Searcher implements Closeable {
 
         final String runTag = toString(similarity, operator, field, 0);
 
-        PrintWriter out = new PrintWriter(Files.newBufferedWriter(path.resolve(runTag + ".txt"), StandardCharsets.US_ASCII));
+        RunFile.Output out = output(path, runTag);
 
 
         QueryParser queryParser = new QueryParser(field, Analyzers.analyzer(analyzerTag));
@@ -179,56 +324,33 @@ public class Searcher implements Closeable {
             Query query = queryParser.parse(queryString);
 
 
-            ScoreDoc[] hits = searcher.search(query, numHits).scoreDocs;
+            ScoreDoc[] hits = topDocs(searcher, query, field, similarity);
 
-            /**
-             * If you are returning zero documents for a query, instead return the single document
-             * clueweb09-en0000-00-00000
-             * clueweb12-0000wb-00-00000
-             * GX000-00-0000000
-             * If you are returning zero documents for a query, instead return the single document "clueweb09-en0000-00-00000".
-             * If you would normally return no documents for a query, instead return the single document "clueweb09-en0000-00-00000" at rank one.
-             * Doing so maintains consistent evaluation results (averages over the same number of queries) and does not break anyone's tools.
-             */
-            if (hits.length == 0) {
-
-                out.print(need.id());
-                out.print("\tQ0\t");
-                out.print(dataSet.getNoDocumentsID());
-                out.print("\t1\t0\t");
-                out.print(runTag);
-                out.println();
-                continue;
-            }
-
-            /**
-             * the first column is the topic number.
-             * the second column is currently unused and should always be "Q0".
-             * the third column is the official document identifier of the retrieved document.
-             * the fourth column is the rank the document is retrieved.
-             * the fifth column shows the score (integer or floating point) that generated the ranking.
-             * the sixth column is called the "run tag" and should be a unique identifier for your
-             */
-            for (int i = 0; i < hits.length; i++) {
-                int docId = hits[i].doc;
-                Document doc = searcher.doc(docId);
-                out.print(need.id());
-                out.print("\tQ0\t");
-                out.print(doc.get(FIELD_ID));
-                out.print("\t");
-                out.print(i + 1);
-                out.print("\t");
-                out.print(hits[i].score);
-                out.print("\t");
-                out.print(runTag);
-                out.println();
-                out.flush();
-            }
+            add(out, need, hits);
         }
 
         out.close();
     }
 
+    /**
+     * @return output of a run: TREC text, or a {@link RunFile} when binary runs are enabled
+     */
+    protected RunFile.Output output(Path path, String runTag) throws IOException {
+        return binary
+                ? RunFile.binary(path.resolve(runTag + RunFile.SUFFIX), runTag, dataSet.getNoDocumentsID())
+                : RunFile.text(path.resolve(runTag + ".txt"), runTag, dataSet.getNoDocumentsID());
+    }
+
+    /**
+     * Adds the result list of a topic to a run
+     */
+    protected void add(RunFile.Output out, InfoNeed need, ScoreDoc[] hits) throws IOException {
+        final float[] scores = new float[hits.length];
+        for (int i = 0; i < hits.length; i++)
+            scores[i] = hits[i].score;
+        out.add(need.id(), docIds().get(hits), scores);
+    }
+
     public void sota(Track track, Similarity similarity) throws IOException, ParseException {
 
 
@@ -302,12 +424,11 @@ public class Searcher implements Closeable {
                 continue;
             }
 
+            final String[] ids = docIds().get(hits);
             for (int i = 0; i < hits.length; i++) {
-                int docId = hits[i].doc;
-                Document doc = searcher.doc(docId);
                 out.print(need.id());
                 out.print("\tQ0\t");
-                out.print(doc.get(FIELD_ID));
+                out.print(ids[i]);
                 out.print("\t");
                 out.print(i + 1);
                 out.print("\t");
@@ -322,6 +443,44 @@ public class Searcher implements Closeable {
         out.close();
     }
 
+    /**
+     * Multi-field (BM25F / PL2F style) search: the postings of a topic are read once, and every model and weight vector
+     * is scored from them into a run of its own.
+     *
+     * @param track   track
+     * @param models  models to score the merged fields with
+     * @param fields  fields to merge, e.g. title, keywords, description, body
+     * @param weights weight vectors of the fields
+     */
+    public void multiField(Track track, Collection<? extends ModelBase> models, List<String> fields, List<double[]> weights) throws IOException {
+
+        final Path path = Paths.get(dataSet.collectionPath().toString(), "multifield_runs", indexTag, track.toString());
+        createDirectories(path);
+
+        final List<ModelBase> modelList = new ArrayList<>(models);
+        final RunFile.Output[] outs = new RunFile.Output[modelList.size() * weights.size()];
+
+        try {
+            for (int m = 0; m < modelList.size(); m++)
+                for (int w = 0; w < weights.size(); w++) {
+                    final StringBuilder label = new StringBuilder();
+                    for (int f = 0; f < fields.size(); f++)
+                        if (weights.get(w)[f] > 0) label.append(label.length() == 0 ? "" : "-").append(fields.get(f)).append(weights.get(w)[f]);
+                    outs[m * weights.size() + w] = output(path, modelList.get(m).toString() + "_" + label);
+                }
+
+            for (InfoNeed need : track.getTopics()) {
+                final MultiFieldScorer scorer = MultiFieldScorer.collect(reader, fields, Analyzers.getAnalyzedTokens(need.query(), Analyzers.analyzer(analyzerTag)));
+                for (int m = 0; m < modelList.size(); m++)
+                    for (int w = 0; w < weights.size(); w++)
+                        add(outs[m * weights.size() + w], need, scorer.search(modelList.get(m), weights.get(w), numHits));
+            }
+        } finally {
+            for (RunFile.Output out : outs)
+                if (out != null) out.close();
+        }
+    }
+
 
     public void search(Track track, MATF matf, QueryParser.Operator operator) throws IOException, ParseException {
 
@@ -378,12 +537,11 @@ public class Searcher implements Closeable {
              * the fifth column shows the score (integer or floating point) that generated the ranking.
              * the sixth column is called the "run tag" and should be a unique identifier for your
              */
+            final String[] ids = docIds().get(hits);
             for (int i = 0; i < hits.length; i++) {
-                int docId = hits[i].doc;
-                Document doc = searcher.doc(docId);
                 out.print(need.id());
                 out.print("\tQ0\t");
-                out.print(doc.get(FIELD_ID));
+                out.print(ids[i]);
                 out.print("\t");
                 out.print(i + 1);
                 out.print("\t");
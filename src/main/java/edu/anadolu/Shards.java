@@ -0,0 +1,153 @@
+package edu.anadolu;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Splits the WARC files of a collection into shards that are indexed by separate processes, possibly on different nodes,
+ * and merged afterwards. Coordination is done with files on the shared file system only:
+ * <ul>
+ * <li>i: index of the i-th shard</li>
+ * <li>i.lock: created atomically by the worker that claims the i-th shard</li>
+ * <li>i.done: written (atomically) after the i-th shard is committed, holds its number of documents</li>
+ * </ul>
+ * A shard whose worker crashed has a lock but no done file; it can be re-indexed explicitly, see {@link Indexer#indexShard}.
+ */
+final class Shards {
+
+    private Shards() {
+    }
+
+    /**
+     * Deterministic partition of the WARC files: the directories holding the files are sorted by their path relative to
+     * the docs path and split into contiguous ranges of roughly equal size in bytes. The result depends only on the
+     * files, not on the order they are discovered, so every worker computes the same partition.
+     *
+     * @param docsPath  docs path of the collection
+     * @param warcFiles WARC files under the docs path
+     * @param numShards number of shards
+     * @return files of every shard, in sorted order
+     */
+    static List<List<Path>> partition(Path docsPath, Collection<Path> warcFiles, int numShards) {
+
+        if (numShards < 1)
+            throw new IllegalArgumentException("number of shards must be positive: " + numShards);
+
+        final TreeMap<String, List<Path>> directories = new TreeMap<>();
+        for (Path warcFile : warcFiles) {
+            final Path parent = docsPath.relativize(warcFile).getParent();
+            directories.computeIfAbsent(parent == null ? "" : parent.toString(), k -> new ArrayList<>()).add(warcFile);
+        }
+
+        final Map<String, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (Map.Entry<String, List<Path>> entry : directories.entrySet()) {
+            long size = 0;
+            for (Path warcFile : entry.getValue()) {
+                try {
+                    size += Files.size(warcFile);
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(warcFile.toString(), ioe);
+                }
+            }
+            sizes.put(entry.getKey(), size);
+            total += size;
+        }
+
+        final List<List<Path>> shards = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++)
+            shards.add(new ArrayList<>());
+
+        // a directory goes to the shard where its first byte falls
+        long offset = 0;
+        for (Map.Entry<String, List<Path>> entry : directories.entrySet()) {
+            final int shard = total == 0 ? 0 : (int) Math.min(numShards - 1, offset * numShards / total);
+            final List<Path> files = entry.getValue();
+            files.sort(Comparator.comparing(Path::toString));
+            shards.get(shard).addAll(files);
+            offset += sizes.get(entry.getKey());
+        }
+
+        return shards;
+    }
+
+    static Path path(Path root, int shard) {
+        return root.resolve(Integer.toString(shard));
+    }
+
+    /**
+     * Claims the first shard that is neither claimed nor done by another worker
+     *
+     * @param root      shards directory on the shared file system
+     * @param numShards number of shards
+     * @return the claimed shard, or -1 if every shard is taken
+     * @throws IOException if IO exception occurs
+     */
+    static int claim(Path root, int numShards) throws IOException {
+        Files.createDirectories(root);
+        for (int i = 0; i < numShards; i++) {
+            if (isDone(root, i)) continue;
+            try {
+                Files.createFile(root.resolve(i + ".lock"));
+                return i;
+            } catch (FileAlreadyExistsException e) {
+                // claimed by another worker
+            }
+        }
+        return -1;
+    }
+
+    static boolean isDone(Path root, int shard) {
+        return Files.isRegularFile(root.resolve(shard + ".done"));
+    }
+
+    /**
+     * Marks a committed shard as done
+     */
+    static void done(Path root, int shard, long numDocs) throws IOException {
+        final Path tmp = root.resolve(shard + ".done.tmp");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(tmp, StandardCharsets.US_ASCII))) {
+            out.println(numDocs);
+        }
+        Files.move(tmp, root.resolve(shard + ".done"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return number of documents of a shard that is done
+     */
+    static long numDocs(Path root, int shard) throws IOException {
+        return Long.parseLong(new String(Files.readAllBytes(root.resolve(shard + ".done")), StandardCharsets.US_ASCII).trim());
+    }
+
+    /**
+     * Adds the shards, in shard order, to the writer. Each worker merges its shard into a single segment sorted by
+     * document identifier (see {@link IndexWriter#forceMerge(int)}), in parallel with the other workers, so the shards
+     * are copied as they are with {@link IndexWriter#addIndexes(Directory...)} instead of being merged serially here.
+     * A shard with more than one segment is rejected, since its segments depend on thread timing and merge scheduling.
+     *
+     * @param writer writer of the merged index, sorted by document identifier
+     * @param shards indexes of the shards, each a single sorted segment
+     * @throws IOException if IO exception occurs
+     */
+    static void merge(IndexWriter writer, Directory... shards) throws IOException {
+
+        for (int i = 0; i < shards.length; i++)
+            try (DirectoryReader reader = DirectoryReader.open(shards[i])) {
+                if (reader.leaves().size() > 1)
+                    throw new IllegalArgumentException("shard " + i + " has " + reader.leaves().size() + " segments, it must be force merged to one segment");
+            }
+
+        writer.addIndexes(shards);
+    }
+}
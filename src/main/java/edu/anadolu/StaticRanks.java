@@ -0,0 +1,399 @@
+package edu.anadolu;
+
+import edu.anadolu.datasets.Collection;
+import org.clueweb09.ParallelGZIPInputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static edu.anadolu.Indexer.BUFFER_SIZE;
+
+/**
+ * Static (query independent) document scores of the ClueWeb collections in a memory mapped, fixed width table:
+ * the Waterloo spam ranking percentile and the PageRank of every document.
+ * It replaces the Solr spam09A/spam12A and rank09A/rank12A cores, so a lookup is a binary search instead of an HTTP request.
+ * <p>
+ * ranks.bin: header (magic, version, key width, count) followed by records sorted by document identifier:
+ * zero padded identifier, percentile (byte, -1 if missing), PageRank (float, NaN if missing).
+ */
+public final class StaticRanks {
+
+    public static final String DIRECTORY = "ranks";
+
+    /**
+     * Lucene doc values fields written by the indexer, see {@link Indexer.IndexerConfig#useStaticRanks(boolean)}
+     */
+    public static final String FIELD_SPAM = "spam";
+    public static final String FIELD_PAGE_RANK = "pagerank";
+
+    private static final String FILE = "ranks.bin";
+
+    private static final int MAGIC = 0x52414e4b;
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 4 + 8;
+
+    /**
+     * Bytes of a record after the identifier: percentile, PageRank
+     */
+    private static final int VALUE = 1 + 4;
+
+    /**
+     * Number of input lines that are sorted in memory at once
+     */
+    private static final int RUN_SIZE = 1 << 23;
+
+    /**
+     * Both ClueWeb09 (A, B, MQ09, MQE2) and ClueWeb12 (A, B, NTCIR) share the scores of the full collection.
+     *
+     * @return directory of the table under tfd.home, or null if the collection has no static ranks
+     */
+    public static Path path(String tfd_home, Collection collection) {
+        if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection) || Collection.MQ09.equals(collection) || Collection.MQE2.equals(collection))
+            return Paths.get(tfd_home, Collection.CW09A.toString(), DIRECTORY);
+        else if (Collection.CW12A.equals(collection) || Collection.CW12B.equals(collection) || Collection.NTCIR.equals(collection))
+            return Paths.get(tfd_home, Collection.CW12A.toString(), DIRECTORY);
+        else
+            return null;
+    }
+
+    /**
+     * @return true if the static ranks of the collection have been imported
+     */
+    public static boolean exists(String tfd_home, Collection collection) {
+        Path dir = path(tfd_home, collection);
+        return dir != null && Files.isReadable(dir.resolve(FILE));
+    }
+
+    /**
+     * Opens previously imported static ranks
+     *
+     * @return static ranks
+     * @throws IOException if IO exception occurs
+     */
+    public static StaticRanks open(String tfd_home, Collection collection) throws IOException {
+        return new StaticRanks(path(tfd_home, collection).resolve(FILE));
+    }
+
+    private final Path file;
+    private final int keyWidth;
+    private final int recordSize;
+    private final long count;
+    private final long recordsPerChunk;
+    private final MappedByteBuffer[] chunks;
+
+    private StaticRanks(Path file) throws IOException {
+
+        this.file = file;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("not a static rank table: " + file);
+
+            this.keyWidth = header.getInt();
+            this.count = header.getLong();
+            this.recordSize = keyWidth + VALUE;
+
+            // chunks hold whole records, so that a record never spans two mappings
+            this.recordsPerChunk = Integer.MAX_VALUE / recordSize;
+            final int numChunks = (int) ((count + recordsPerChunk - 1) / recordsPerChunk);
+            this.chunks = new MappedByteBuffer[numChunks];
+            for (int i = 0; i < numChunks; i++) {
+                final long first = i * recordsPerChunk;
+                final long size = Math.min(recordsPerChunk, count - first) * recordSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * recordSize, size);
+            }
+        }
+    }
+
+    /**
+     * @return number of documents in the table
+     */
+    public long size() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    /**
+     * @param docId TREC document identifier
+     * @return spam ranking percentile (0-99, lower is spammier), or -1 if the document is not ranked
+     */
+    public int percentile(String docId) {
+        final long i = find(docId.getBytes(StandardCharsets.UTF_8));
+        if (i < 0) return -1;
+        return chunks[(int) (i / recordsPerChunk)].get((int) (i % recordsPerChunk) * recordSize + keyWidth);
+    }
+
+    /**
+     * @param docId TREC document identifier
+     * @return PageRank, or NaN if the document is not ranked
+     */
+    public float pageRank(String docId) {
+        final long i = find(docId.getBytes(StandardCharsets.UTF_8));
+        if (i < 0) return Float.NaN;
+        return chunks[(int) (i / recordsPerChunk)].getFloat((int) (i % recordsPerChunk) * recordSize + keyWidth + 1);
+    }
+
+    /**
+     * Binary search over the sorted records
+     *
+     * @return record number, or -1 if not found
+     */
+    private long find(byte[] key) {
+
+        if (key.length > keyWidth) return -1;
+
+        long lo = 0;
+        long hi = count - 1;
+
+        while (lo <= hi) {
+            final long mid = (lo + hi) >>> 1;
+            final int c = compare(mid, key);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the zero padded identifier of the i-th record with the key
+     */
+    private int compare(long i, byte[] key) {
+        final ByteBuffer chunk = chunks[(int) (i / recordsPerChunk)];
+        final int base = (int) (i % recordsPerChunk) * recordSize;
+        for (int j = 0; j < keyWidth; j++) {
+            final int a = chunk.get(base + j) & 0xff;
+            final int b = j < key.length ? key[j] & 0xff : 0;
+            if (a != b) return a - b;
+        }
+        return 0;
+    }
+
+    /**
+     * Unsigned lexicographic order of UTF-8 bytes, which is also the order of the zero padded identifiers
+     */
+    private static final Comparator<byte[]> ORDER = (a, b) -> {
+        final int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            final int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return a.length - b.length;
+    };
+
+    /**
+     * Score of a document read from one of the input files
+     */
+    private static final class Entry {
+
+        final byte[] key;
+        final boolean spam;
+        final float value;
+
+        Entry(byte[] key, boolean spam, float value) {
+            this.key = key;
+            this.spam = spam;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Sequential reader of a sorted run
+     */
+    private static final class Run {
+
+        final DataInputStream in;
+        Entry entry;
+
+        Run(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException {
+            final int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException eof) {
+                in.close();
+                return false;
+            }
+            final byte[] key = new byte[length];
+            in.readFully(key);
+            entry = new Entry(key, in.readBoolean(), in.readFloat());
+            return true;
+        }
+    }
+
+    /**
+     * Imports the Waterloo spam ranking and the PageRank files. The input files are not assumed to be sorted:
+     * they are read in chunks that are sorted in memory and spilled to temporary runs, which are then merged.
+     *
+     * @param spamFile     Waterloo spam ranking file (e.g. clueweb09spam.Fusion), lines of "percentile docId", may be gzipped
+     * @param pageRankFile PageRank file, lines of "docId rank", may be gzipped, or null
+     * @param dir          directory of the table to be (re-)written
+     * @return number of documents in the table
+     * @throws IOException if IO exception occurs
+     */
+    public static long build(Path spamFile, Path pageRankFile, Path dir) throws IOException {
+
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempDirectory(dir, "runs");
+
+        final List<Path> runs = new ArrayList<>();
+        int keyWidth = 0;
+
+        try {
+            keyWidth = Math.max(keyWidth, runs(spamFile, true, tmp, runs));
+            if (pageRankFile != null)
+                keyWidth = Math.max(keyWidth, runs(pageRankFile, false, tmp, runs));
+
+            final PriorityQueue<Run> queue = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> ORDER.compare(a.entry.key, b.entry.key));
+            for (Path path : runs) {
+                Run run = new Run(path);
+                if (run.next()) queue.add(run);
+            }
+
+            final Path table = dir.resolve(FILE);
+            final Path partial = dir.resolve(FILE + ".tmp");
+
+            long count = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE))) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(keyWidth);
+                out.writeLong(0);
+
+                while (!queue.isEmpty()) {
+
+                    Run run = queue.poll();
+                    final byte[] key = run.entry.key;
+
+                    int percentile = -1;
+                    float rank = Float.NaN;
+
+                    // the same document may come from both files, and from several runs of a file
+                    for (; ; ) {
+                        if (run.entry.spam)
+                            percentile = (int) run.entry.value;
+                        else
+                            rank = run.entry.value;
+                        if (run.next()) queue.add(run);
+                        if (queue.isEmpty() || ORDER.compare(key, queue.peek().entry.key) != 0) break;
+                        run = queue.poll();
+                    }
+
+                    out.write(key);
+                    for (int j = key.length; j < keyWidth; j++)
+                        out.write(0);
+                    out.writeByte(percentile);
+                    out.writeFloat(rank);
+                    count++;
+                }
+            } finally {
+                for (Run run : queue)
+                    run.in.close();
+            }
+
+            // the count is known only after the merge
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(8).putLong(count);
+                buffer.flip();
+                while (buffer.hasRemaining())
+                    channel.write(buffer, 4 + 4 + 4 + buffer.position());
+            }
+
+            Files.move(partial, table, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+
+        } finally {
+            for (Path path : runs)
+                Files.deleteIfExists(path);
+            Files.delete(tmp);
+        }
+    }
+
+    /**
+     * Reads an input file into sorted runs
+     *
+     * @return length of the longest identifier
+     */
+    private static int runs(Path file, boolean spam, Path tmp, List<Path> runs) throws IOException {
+
+        int keyWidth = 0;
+        final List<Entry> entries = new ArrayList<>();
+
+        try (InputStream stream = file.getFileName().toString().endsWith(".gz") ? ParallelGZIPInputStream.open(file) : Files.newInputStream(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                final String[] parts = line.split("\\s+");
+                if (parts.length != 2) {
+                    System.out.println("line does not have two columns in " + file + " : " + line);
+                    continue;
+                }
+
+                final String docId = spam ? parts[1] : parts[0];
+                final float value = Float.parseFloat(spam ? parts[0] : parts[1]);
+
+                if (spam && (value < 0 || value >= 100))
+                    throw new RuntimeException("percentile invalid " + line);
+
+                final byte[] key = docId.getBytes(StandardCharsets.UTF_8);
+                keyWidth = Math.max(keyWidth, key.length);
+                entries.add(new Entry(key, spam, value));
+
+                if (entries.size() == RUN_SIZE)
+                    runs.add(spill(entries, tmp));
+            }
+        }
+
+        if (!entries.isEmpty())
+            runs.add(spill(entries, tmp));
+
+        return keyWidth;
+    }
+
+    private static Path spill(List<Entry> entries, Path tmp) throws IOException {
+
+        entries.sort((a, b) -> ORDER.compare(a.key, b.key));
+
+        final Path path = Files.createTempFile(tmp, "ranks", ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            for (Entry entry : entries) {
+                out.writeInt(entry.key.length);
+                out.write(entry.key);
+                out.writeBoolean(entry.spam);
+                out.writeFloat(entry.value);
+            }
+        }
+        entries.clear();
+        return path;
+    }
+}
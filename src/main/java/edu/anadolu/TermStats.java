@@ -0,0 +1,264 @@
+package edu.anadolu;
+
+import edu.anadolu.analysis.Analyzers;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.util.BytesRef;
+import org.clueweb09.InfoNeed;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide cache of the term statistics of an index: document frequency, total term frequency and the
+ * {@link TermContext} of every term asked for, so that a term is looked up in the term dictionaries of the segments
+ * once rather than once per model, query and tool. There is one cache per open reader, shared by all of its users and
+ * dropped when the reader is closed.
+ * <p>
+ * The frequencies depend only on the commit, they are saved under the collection, next to the result cache, with the
+ * generation of the commit and loaded by the next reader of the same commit. The index directory is never written to,
+ * and saving is best effort. Term contexts refer to the segments of a reader, they are rebuilt lazily, or eagerly with
+ * {@link #preload}.
+ */
+public final class TermStats {
+
+    private static final int MAGIC = 0x54534332;
+
+    private static final Map<IndexReader.CacheKey, TermStats> INSTANCES = new ConcurrentHashMap<>();
+
+    /**
+     * @param indexPath index directory, under the indexes folder of the collection
+     * @return file that the statistics of the index are saved to
+     */
+    public static Path file(Path indexPath) {
+        final Path absolute = indexPath.toAbsolutePath();
+        return absolute.getParent().resolveSibling("cache").resolve(absolute.getFileName() + ".terms");
+    }
+
+    /**
+     * @param reader index reader
+     * @return term statistics cache of the reader, which is not saved unless the reader is registered with a file
+     */
+    public static TermStats of(IndexReader reader) {
+        return of(reader, null);
+    }
+
+    /**
+     * Registers the reader with the file its statistics are loaded from and saved to; a reader is registered when it is
+     * opened, before any other use of its cache
+     *
+     * @param reader index reader
+     * @param file   statistics file, see {@link #file(Path)}
+     * @return term statistics cache of the reader
+     */
+    public static TermStats of(IndexReader reader, Path file) {
+
+        final IndexReader.CacheHelper helper = reader.getReaderCacheHelper();
+        if (helper == null) return new TermStats(reader, null);
+
+        return INSTANCES.computeIfAbsent(helper.getKey(), key -> {
+            helper.addClosedListener(INSTANCES::remove);
+            final TermStats stats = new TermStats(reader, reader instanceof DirectoryReader ? file : null);
+            try {
+                stats.load();
+            } catch (IOException e) {
+                System.out.println("Cannot load the term statistics " + file + " : " + e.getMessage());
+                stats.entries.clear();
+            }
+            return stats;
+        });
+    }
+
+    private static final class Entry {
+
+        final long docFreq;
+        final long totalTermFreq;
+        volatile TermContext context;
+
+        Entry(long docFreq, long totalTermFreq, TermContext context) {
+            this.docFreq = docFreq;
+            this.totalTermFreq = totalTermFreq;
+            this.context = context;
+        }
+    }
+
+    private final IndexReader reader;
+    private final Path file;
+    private final Map<Term, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    private TermStats(IndexReader reader, Path file) {
+        this.reader = reader;
+        this.file = file;
+    }
+
+    private Entry entry(Term term) throws IOException {
+
+        Entry entry = entries.get(term);
+
+        if (entry == null) {
+            final TermContext context = TermContext.build(reader.getContext(), term);
+            entry = new Entry(context.docFreq(), context.totalTermFreq(), context);
+            final Entry previous = entries.putIfAbsent(term, entry);
+            if (previous == null) dirty = true;
+            else entry = previous;
+        }
+
+        if (entry.context == null)
+            entry.context = TermContext.build(reader.getContext(), term);
+
+        return entry;
+    }
+
+    /**
+     * @return term context, built for the reader of this cache
+     */
+    public TermContext context(Term term) throws IOException {
+        return entry(term).context;
+    }
+
+    /**
+     * @return the same statistics as {@link org.apache.lucene.search.IndexSearcher#termStatistics}
+     */
+    public TermStatistics statistics(Term term) throws IOException {
+        final Entry entry = frequencies(term);
+        return new TermStatistics(term.bytes(), entry.docFreq, entry.totalTermFreq);
+    }
+
+    public long docFreq(Term term) throws IOException {
+        return frequencies(term).docFreq;
+    }
+
+    public long totalTermFreq(Term term) throws IOException {
+        return frequencies(term).totalTermFreq;
+    }
+
+    /**
+     * Total term frequency of a term that is not worth caching, such as a word of a document: served by the cache if
+     * the term is there, looked up in the index otherwise, without adding it to the cache or to the saved file
+     */
+    public long lookupTotalTermFreq(Term term) throws IOException {
+        final Entry entry = entries.get(term);
+        return entry != null ? entry.totalTermFreq : reader.totalTermFreq(term);
+    }
+
+    /**
+     * Frequencies do not need the term context, a loaded entry serves them as is, and a new entry does not keep it
+     */
+    private Entry frequencies(Term term) throws IOException {
+
+        Entry entry = entries.get(term);
+
+        if (entry == null) {
+            final TermContext context = TermContext.build(reader.getContext(), term);
+            entry = new Entry(context.docFreq(), context.totalTermFreq(), null);
+            final Entry previous = entries.putIfAbsent(term, entry);
+            if (previous == null) dirty = true;
+            else entry = previous;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Builds the term contexts of the words of the topics
+     *
+     * @param field    field of the terms
+     * @param analyzer analyzer of the index
+     * @param needs    topics
+     * @throws IOException if IO exception occurs
+     */
+    public void preload(String field, Analyzer analyzer, Collection<InfoNeed> needs) throws IOException {
+        for (InfoNeed need : needs)
+            for (String word : Analyzers.getAnalyzedTokens(need.query(), analyzer))
+                context(new Term(field, word));
+    }
+
+    private long generation() throws IOException {
+        return ((DirectoryReader) reader).getIndexCommit().getGeneration();
+    }
+
+    private void load() throws IOException {
+
+        if (file == null || !Files.exists(file)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+
+            if (in.readInt() != MAGIC || in.readLong() != generation() || in.readInt() != reader.maxDoc()) {
+                System.out.println("Discarding the term statistics " + file + ", the index has changed");
+                return;
+            }
+
+            final int size = in.readInt();
+            String field = null;
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) field = in.readUTF();
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                final long docFreq = in.readLong();
+                final long totalTermFreq = in.readLong();
+                entries.putIfAbsent(new Term(field, new BytesRef(bytes)), new Entry(docFreq, totalTermFreq, null));
+            }
+        }
+
+        System.out.println("Loaded the statistics of " + entries.size() + " terms from " + file);
+    }
+
+    /**
+     * Saves the frequencies under the collection, if new terms have been looked up since they were loaded.
+     * A failure, such as a read-only collection, only costs the lookups of the next reader, so it is reported and ignored.
+     */
+    public synchronized void save() {
+
+        if (file == null || !dirty) return;
+        dirty = false;
+
+        try {
+            write();
+        } catch (IOException e) {
+            System.out.println("Cannot save the term statistics " + file + " : " + e.getMessage());
+        }
+    }
+
+    private void write() throws IOException {
+
+        // grouped by field, the field is written once per group
+        final List<Map.Entry<Term, Entry>> list = new ArrayList<>(entries.entrySet());
+        list.sort(Map.Entry.comparingByKey());
+
+        Files.createDirectories(file.getParent());
+        final Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeLong(generation());
+                out.writeInt(reader.maxDoc());
+                out.writeInt(list.size());
+                String field = null;
+                for (Map.Entry<Term, Entry> e : list) {
+                    final Term term = e.getKey();
+                    final boolean next = !term.field().equals(field);
+                    out.writeBoolean(next);
+                    if (next) {
+                        field = term.field();
+                        out.writeUTF(field);
+                    }
+                    out.writeInt(term.bytes().length);
+                    out.write(term.bytes().bytes, term.bytes().offset, term.bytes().length);
+                    out.writeLong(e.getValue().docFreq);
+                    out.writeLong(e.getValue().totalTermFreq);
+                }
+            }
+            // concurrent processes replace the file as a whole, the last one wins
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
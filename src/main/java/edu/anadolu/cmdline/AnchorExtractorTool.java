@@ -1,10 +1,15 @@
 package edu.anadolu.cmdline;
 
+import edu.anadolu.AnchorStore;
 import edu.anadolu.AnchorTextExtractor;
 import edu.anadolu.datasets.Collection;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.kohsuke.args4j.Option;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -15,6 +20,9 @@ final class AnchorExtractorTool extends CmdLineTool {
     @Option(name = "-collection", required = true, usage = "Collection")
     protected Collection collection;
 
+    @Option(name = "-store", usage = "Boolean switch to write anchor texts to the local anchor store (tfd.home/collection/anchors) instead of Solr")
+    private boolean store = false;
+
     @Override
     public String getShortDescription() {
         return "Anchor Text Extractor Tool";
@@ -32,6 +40,26 @@ final class AnchorExtractorTool extends CmdLineTool {
 
         final int numThreads = Integer.parseInt(props.getProperty("numThreads", "2"));
 
+        if (store) {
+
+            final List<Path> anchorDirs = new ArrayList<>();
+            if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection)) {
+                for (int i = 1; i <= 10; i++)
+                    anchorDirs.add(Paths.get(props.getProperty("paths.docs.anchor.CW09"), "ClueWeb09_English_" + i));
+            } else if (Collection.CW12B.equals(collection)) {
+                for (int i = 1; i <= 4; i++)
+                    anchorDirs.add(Paths.get(props.getProperty("paths.docs.anchor.CW12B"), "Disk" + i));
+            } else {
+                System.out.println("anchor text is only available to ClueWeb09 and ClueWeb12 collections!");
+                return;
+            }
+
+            final Path storeDir = Paths.get(tfd_home, collection.toString(), AnchorStore.DIRECTORY);
+            final long start = System.nanoTime();
+            final long count = AnchorTextExtractor.extractToStore(anchorDirs, numThreads, storeDir);
+            System.out.println("Total " + count + " anchor texts written to " + storeDir.toAbsolutePath() + " in " + execution(start));
+            return;
+        }
 
         if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection)) {
 
@@ -133,6 +133,12 @@ public final class CLI {
 
         tools.add(new WarcTool());
 
+        tools.add(new OffsetTool());
+
+        tools.add(new ParseTool());
+
+        tools.add(new StaticRankTool());
+
         tools.add(new QueryPerTFTool());
 
         tools.add(new RocTool());
@@ -153,6 +159,8 @@ public final class CLI {
 
         tools.add(new ResultListFeaturesTool());
 
+        tools.add(new RunExportTool());
+
         for (CmdLineTool tool : tools) {
             toolLookupMap.put(tool.getName(), tool);
         }
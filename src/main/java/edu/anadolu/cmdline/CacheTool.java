@@ -16,7 +16,7 @@ import java.util.Properties;
 import static edu.anadolu.cmdline.ParamTool.train;
 
 /**
- * Save best parameters in cache.properties file
+ * Save best parameters in params.bin and best spam thresholds in cache.properties files
  */
 class CacheTool extends CmdLineTool {
 
@@ -66,6 +66,16 @@ class CacheTool extends CmdLineTool {
             throw new RuntimeException(ioe);
         }
 
+        Path paramFile = Paths.get(tfd_home, ParamTrainer.FILE_NAME);
+        ParamTrainer.clear(paramFile);
+
+        try {
+            if (Files.deleteIfExists(paramFile))
+                System.out.println("deleted : " + paramFile.toString());
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+
         Collection[] collections = {Collection.CW09A, Collection.CW09B, Collection.CW12B, Collection.MQ09, Collection.GOV2, Collection.ROB04, Collection.MQE2};
 
         for (final Collection collection : collections) {
@@ -113,6 +123,7 @@ class CacheTool extends CmdLineTool {
 
             for (final String tag : tags)
                 for (final Measure measure : Measure.values()) {
+                    // the first one trains all of the models for all of the measures of the tag
                     for (String parametricModel : parametricModels) {
                         if ((Collection.GOV2.equals(collection) || Collection.ROB04.equals(collection)) && tags[1].equals(tag))
                             continue;
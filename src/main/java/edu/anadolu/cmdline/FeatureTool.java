@@ -89,7 +89,7 @@ public final class FeatureTool extends CmdLineTool {
 
             for (Track track : dataset.tracks()) {
 
-                Path thePath = Paths.get(dataset.collectionPath().toString(), "runs", tag, track.toString(), model + "_contents_" + tag + "_" + "OR_all.txt");
+                Path thePath = SubmissionFile.resolve(Paths.get(dataset.collectionPath().toString(), "runs", tag, track.toString()), model + "_contents_" + tag + "_" + "OR_all");
 
                 if (!Files.exists(thePath) || !Files.isRegularFile(thePath) || !Files.isReadable(thePath))
                     throw new IllegalArgumentException(thePath + " does not exist or is not a directory.");
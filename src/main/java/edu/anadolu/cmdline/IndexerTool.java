@@ -1,5 +1,6 @@
 package edu.anadolu.cmdline;
 
+import edu.anadolu.AnchorStore;
 import edu.anadolu.Indexer;
 import edu.anadolu.analysis.Tag;
 import edu.anadolu.datasets.Collection;
@@ -11,6 +12,9 @@ import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.kohsuke.args4j.Option;
 
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 import static edu.anadolu.analysis.Tag.KStem;
@@ -38,6 +42,30 @@ public final class IndexerTool extends CmdLineTool {
     @Option(name = "-silent", usage = "Do not print the identifiers of empty documents that are skipped during indexing (which are printed by default)")
     private boolean silent = false;
 
+    @Option(name = "-ranks", usage = "Boolean switch to write the spam percentile and the PageRank as doc values (needs StaticRankTool)")
+    private boolean ranks = false;
+
+    @Option(name = "-resume", usage = "Boolean switch to append to an existing index, skipping the WARC files that are already committed (e.g. after a crash)")
+    private boolean resume = false;
+
+    @Option(name = "-docs", metaVar = "/datasets/ClueWeb09A/ClueWeb09_English_2", usage = "Docs path that overrides paths.docs, e.g. a new subset to be added to an existing index with -resume")
+    private String docs;
+
+    @Option(name = "-shards", metaVar = "16", usage = "Number of shards; every worker process claims and indexes the shards that are free on the shared file system")
+    private int shards = 0;
+
+    @Option(name = "-shard", metaVar = "0..shards-1", usage = "Index this shard only (e.g. to redo the shard of a crashed worker), requires -shards")
+    private int shard = -1;
+
+    @Option(name = "-merge", usage = "Boolean switch to merge the finished shards into the index, requires -shards")
+    private boolean merge = false;
+
+    @Option(name = "-pipeline", usage = "Boolean switch to index with the staged (split, parse, write) record level pipeline")
+    private boolean pipeline = false;
+
+    @Option(name = "-fanout", metaVar = "NoStem,KStem,ICU,KStem:field,KStem:semantic", usage = "Comma separated list of Tag[:anchor|field|script|semantic] indexes to build in a single pass over the corpus (uses the pipeline)")
+    private String fanout = null;
+
 
     @Option(name = "-tag", metaVar = "[KStem|NoStem|ICU|NoStemTurkish|Zemberek]", required = false, usage = "Analyzer Tag")
     private Tag tag = KStem;
@@ -60,7 +88,7 @@ public final class IndexerTool extends CmdLineTool {
             return;
         }
 
-        final String docsPath = props.getProperty("paths.docs." + collection.toString());
+        final String docsPath = docs != null ? docs : props.getProperty("paths.docs." + collection.toString());
 
         final String indexPath = Paths.get(tfd_home, collection.toString(), "indexes").toString();
 
@@ -91,7 +119,10 @@ public final class IndexerTool extends CmdLineTool {
         }
 
         final HttpSolrClient solr;
-        if (anchor) {
+        if (AnchorStore.exists(Paths.get(tfd_home, collection.toString(), AnchorStore.DIRECTORY))) {
+            // anchor texts are read from the local store, see AnchorExtractorTool -store
+            solr = null;
+        } else if (anchor || (fanout != null && fanout.contains(":anchor"))) {
 
             final String solrBaseURL = props.getProperty("SOLR.URL");
             if (solrBaseURL == null) {
@@ -110,16 +141,66 @@ public final class IndexerTool extends CmdLineTool {
             solr = null;
         }
 
+        if ((resume || shards > 0) && (pipeline || fanout != null)) {
+            System.out.println("-resume and -shards are supported by the thread based indexer only, please drop -pipeline and -fanout");
+            return;
+        }
+
+        if (((shard != -1 || merge) && shards < 1) || shard >= shards) {
+            System.out.println("-shard and -merge require -shards, and the shard must be less than the number of shards");
+            return;
+        }
+
         DataSet dataset = CollectionFactory.dataset(collection, tfd_home);
         long start = System.nanoTime();
+
+        if (fanout != null) {
+            List<Indexer> indexers = new ArrayList<>();
+            for (String variant : fanout.split(",")) {
+                final String[] parts = variant.trim().split(":");
+                final String option = parts.length == 1 ? "" : parts[1];
+                if (!option.isEmpty() && !Arrays.asList("anchor", "field", "script", "semantic").contains(option)) {
+                    System.out.println("unknown index variant " + variant + " " + getHelp());
+                    return;
+                }
+                Indexer.IndexerConfig config = new Indexer.IndexerConfig()
+                        .useAnchorText(anchor || "anchor".equals(option))
+                        .useMetaFields("field".equals(option))
+                        .useScripts("script".equals(option))
+                        .useSemanticElements("semantic".equals(option))
+                        .useSilent(silent)
+                        .useStaticRanks(ranks);
+                indexers.add(new Indexer(dataset, docsPath, indexPath, solr, Tag.valueOf(parts[0]), config));
+            }
+            int[] numIndexed = Indexer.indexWithPipeline(indexers, numThreads);
+            System.out.println("Total " + Arrays.toString(numIndexed) + " documents indexed in " + execution(start));
+            return;
+        }
+
         Indexer.IndexerConfig config = new Indexer.IndexerConfig()
                 .useAnchorText(anchor)
                 .useMetaFields(field)
                 .useScripts(script)
                 .useSemanticElements(semantic)
-                .useSilent(silent);
+                .useSilent(silent)
+                .useStaticRanks(ranks)
+                .useResume(resume)
+                .useShards(shards > 0);
         Indexer indexer = new Indexer(dataset, docsPath, indexPath, solr, tag, config);
-        int numIndexed = indexer.indexWithThreads(numThreads);
+
+        if (shards > 0) {
+            final int numIndexed;
+            if (merge)
+                numIndexed = indexer.mergeShards(shards);
+            else if (shard != -1)
+                numIndexed = indexer.indexShard(shard, shards, numThreads);
+            else
+                numIndexed = indexer.indexShards(shards, numThreads);
+            System.out.println("Total " + numIndexed + " documents " + (merge ? "merged" : "indexed") + " in " + execution(start));
+            return;
+        }
+
+        int numIndexed = pipeline ? indexer.indexWithPipeline(numThreads) : indexer.indexWithThreads(numThreads);
         System.out.println("Total " + numIndexed + " documents indexed in " + execution(start));
     }
 }
@@ -5,6 +5,7 @@ import edu.anadolu.datasets.CollectionFactory;
 import edu.anadolu.datasets.DataSet;
 import edu.anadolu.eval.Evaluator;
 import edu.anadolu.eval.ModelScore;
+import edu.anadolu.eval.Significance;
 import edu.anadolu.knn.Measure;
 import edu.anadolu.knn.Solution;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -32,6 +33,12 @@ public final class LatexTool extends EvaluatorTool {
     @Option(name = "-task", required = false, usage = "task to be executed")
     private String task;
 
+    @Option(name = "-test", required = false, usage = "significance test of the sig task")
+    private Significance.Test test = Significance.Test.Randomization;
+
+    @Option(name = "-correction", required = false, usage = "multiple comparison correction of the sig task")
+    private Significance.Correction correction = Significance.Correction.Holm;
+
     @Override
     public String getShortDescription() {
         return "LaTex Utility";
@@ -328,6 +335,11 @@ public final class LatexTool extends EvaluatorTool {
             return;
         }
 
+        if ("sig".equals(task)) {
+            significance();
+            return;
+        }
+
         System.out.println(
                 String.format(TABLE,
                         measure.metric().toString(),
@@ -412,6 +424,61 @@ public final class LatexTool extends EvaluatorTool {
         }
     }
 
+    /**
+     * Prints p-values of every pair of models for every measure
+     */
+    private void significance() {
+
+        for (Measure measure : Measure.values()) {
+
+            Evaluator evaluator = new Evaluator(dataset, tag, measure, models, "evals", op);
+
+            List<String> names = new ArrayList<>(evaluator.getModelSet());
+            Collections.sort(names);
+
+            Significance significance = new Significance(evaluator.scoreMatrix(), names, evaluator.getNeeds());
+            double[][] pValues = Significance.correct(significance.pValues(test, Significance.ITERATIONS, 0L), correction);
+
+            System.out.println("%========= " + measure + " " + test + " p-values (" + correction + ") ===========");
+            System.out.println(pValueTable(names, pValues));
+        }
+    }
+
+    /**
+     * @return tabular of the p-values of model pairs, the significant ones in bold
+     */
+    static String pValueTable(List<String> models, double[][] pValues) {
+
+        StringBuilder builder = new StringBuilder("\\begin{tabular}{| c |");
+        for (int i = 0; i < models.size(); i++)
+            builder.append(" c |");
+        builder.append("}").append(System.lineSeparator());
+        builder.append("\\hline").append(System.lineSeparator());
+
+        for (String model : models)
+            builder.append(" & ").append(latexModel(model, false));
+        builder.append(" \\\\").append(System.lineSeparator());
+        builder.append("\\hline").append(System.lineSeparator());
+
+        for (int i = 0; i < models.size(); i++) {
+            builder.append(latexModel(models.get(i), false));
+            for (int j = 0; j < models.size(); j++) {
+                builder.append(" & ");
+                if (i == j)
+                    builder.append("--");
+                else if (pValues[i][j] < 0.05)
+                    builder.append(String.format("\\bfseries %.4f", pValues[i][j]));
+                else
+                    builder.append(String.format("%.4f", pValues[i][j]));
+            }
+            builder.append(" \\\\").append(System.lineSeparator());
+            builder.append("\\hline").append(System.lineSeparator());
+        }
+
+        builder.append("\\end{tabular}");
+        return builder.toString();
+    }
+
     private void acc(String home) {
 
         System.out.println("========= multi-label classification sigma1  ===========");
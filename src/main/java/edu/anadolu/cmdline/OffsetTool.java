@@ -0,0 +1,53 @@
+package edu.anadolu.cmdline;
+
+import edu.anadolu.datasets.Collection;
+import edu.anadolu.datasets.CollectionFactory;
+import edu.anadolu.datasets.DataSet;
+import org.clueweb09.WarcOffsetIndex;
+import org.kohsuke.args4j.Option;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Builds the document identifier to WARC offset index that is used to fetch individual documents
+ */
+final class OffsetTool extends CmdLineTool {
+
+    @Option(name = "-collection", required = true, usage = "Collection")
+    protected Collection collection;
+
+    @Override
+    public String getShortDescription() {
+        return "Builds docid to WARC file offset index for random access to documents";
+    }
+
+    @Override
+    public String getHelp() {
+        return "Following properties must be defined in config.properties for " + CLI.CMD + " " + getName() + " paths.docs tfd.home";
+    }
+
+    @Override
+    public void run(Properties props) throws Exception {
+
+        if (parseArguments(props) == -1) return;
+
+        final String tfd_home = props.getProperty("tfd.home");
+        final String docsPath = props.getProperty("paths.docs." + collection.toString());
+
+        if (tfd_home == null || docsPath == null) {
+            System.out.println(getHelp());
+            return;
+        }
+
+        final int numThreads = props.containsKey("numThreads") ? Integer.parseInt(props.getProperty("numThreads")) : Runtime.getRuntime().availableProcessors();
+
+        DataSet dataset = CollectionFactory.dataset(collection, tfd_home);
+        Path indexDir = dataset.collectionPath().resolve(WarcOffsetIndex.DIRECTORY);
+
+        final long start = System.nanoTime();
+        final long count = WarcOffsetIndex.build(Paths.get(docsPath), WarcOffsetIndex.Format.of(collection), indexDir, numThreads);
+        System.out.println("Total " + count + " document offsets written to " + indexDir.toAbsolutePath() + " in " + execution(start));
+    }
+}
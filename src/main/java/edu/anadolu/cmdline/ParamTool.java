@@ -16,12 +16,8 @@ import org.clueweb09.InfoNeed;
 import org.clueweb09.tracks.Track;
 import org.kohsuke.args4j.Option;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.*;
 
@@ -117,57 +113,11 @@ public final class ParamTool extends CmdLineTool {
      * @return LGDc18.5, DirichletLMc1500.0, BM25k3.0b0.1,  etc.
      */
     public static ModelBase train(String model, DataSet dataSet, String tag, Measure measure, String op) {
-
-        String key = cacheKey(model, tag, measure, op);
-
-        Properties properties = cacheProperties(dataSet);
-
-        if (properties.getProperty(key) != null) {
-            String value = properties.getProperty(key);
-            return string2model(value);
-        }
-
-        Evaluator evaluator = new Evaluator(dataSet, tag, measure, model + "*", "parameter_evals", op);
-
-        String bestModel = evaluator.bestModel().model;
-
-        properties.put(key, bestModel);
-        saveCacheProperties(dataSet, properties);
-
-        return string2model(bestModel);
+        return train(model, new DataSet[]{dataSet}, tag, measure, op);
     }
 
     public static ModelBase train(String model, DataSet[] dataSets, String tag, Measure measure, String op) {
-
-        String[] evalDirs = new String[dataSets.length];
-        StringBuilder key = new StringBuilder("");
-
-        for (int i = 0; i < dataSets.length; i++) {
-            evalDirs[i] = "parameter_evals";
-            key.append(dataSets[i].collection().toString()).append("_");
-        }
-
-        key.append(cacheKey(model, tag, measure, op));
-
-        Path cacheFile = dataSets[0].home().resolve("cache.properties");
-
-        Properties properties = cacheProperties(cacheFile);
-
-        if (properties.getProperty(key.toString()) != null) {
-            String value = properties.getProperty(key.toString());
-            return string2model(value);
-        }
-
-        Evaluator evaluator = new Evaluator(dataSets, tag, measure, model + "*", evalDirs, op);
-        String bestModel = evaluator.bestModel().model;
-        properties.put(key.toString(), bestModel);
-
-        try (OutputStream out = Files.newOutputStream(cacheFile)) {
-            properties.store(out, null);
-        } catch (IOException ioe) {
-            throw new RuntimeException(ioe);
-        }
-        return string2model(bestModel);
+        return string2model(ParamTrainer.best(model, dataSets, tag, measure, op));
     }
 
     private void hyper(DataSet dataset) {
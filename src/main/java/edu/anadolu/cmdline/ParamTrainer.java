@@ -0,0 +1,225 @@
+package edu.anadolu.cmdline;
+
+import edu.anadolu.datasets.DataSet;
+import edu.anadolu.eval.Evaluator;
+import edu.anadolu.knn.Measure;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static edu.anadolu.cmdline.CmdLineTool.parametricModels;
+
+/**
+ * Best free-parameter values of the parametric models, trained on the parameter sweep runs of parameter_evals.
+ * When a value is missing, every parametric model is trained for every measure in one parallel pass, so that the
+ * evaluation files of the sweep are read once for all of them.
+ * Values are memoized per collections, tag, measure and query operator in a versioned binary file under tfd.home,
+ * which is kept in memory for the lifetime of the process.
+ * Training runs outside of any lock: every value is published as soon as it is trained, a value that is being trained
+ * by another thread is waited for, and a value that failed to train is not trained again by this process.
+ */
+final class ParamTrainer {
+
+    static final String FILE_NAME = "params.bin";
+
+    static final int MAGIC = 0x50524d53;
+    static final int VERSION = 1;
+
+    /**
+     * Best values of a file, the saved ones and the ones trained by this process
+     */
+    private static final class Params {
+
+        private final Path file;
+
+        /**
+         * Values that are saved to the file
+         */
+        private final Map<String, String> values;
+
+        /**
+         * Training of the keys that this process started, failed ones included so that they are not trained again
+         */
+        private final Map<String, CompletableFuture<String>> trainings = new ConcurrentHashMap<>();
+
+        private Params(Path file) {
+            this.file = file;
+            this.values = read(file);
+        }
+    }
+
+    /**
+     * Values of this process, by the path they are saved to
+     */
+    private static final Map<Path, Params> CACHES = new ConcurrentHashMap<>();
+
+    private ParamTrainer() {
+    }
+
+    static String key(DataSet[] dataSets, String model, String tag, Measure measure, String op) {
+        StringBuilder key = new StringBuilder();
+        for (DataSet dataSet : dataSets)
+            key.append(dataSet.collection().toString()).append("_");
+        return key.append(ParamTool.cacheKey(model, tag, measure, op)).toString();
+    }
+
+    /**
+     * @param model BM25, PL2, LGD, or DirichletLM
+     * @return LGDc18.5, DirichletLMc1500.0, BM25k3.0b0.1,  etc.
+     */
+    static String best(String model, DataSet[] dataSets, String tag, Measure measure, String op) {
+
+        final Params params = CACHES.computeIfAbsent(dataSets[0].home().resolve(FILE_NAME), Params::new);
+        final String key = key(dataSets, model, tag, measure, op);
+
+        final String best = params.values.get(key);
+        if (best != null) return best;
+
+        if (!params.trainings.containsKey(key))
+            train(params, model, dataSets, tag, op);
+
+        // trained by this thread, by a concurrent one, or failed before
+        try {
+            return params.trainings.get(key).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private static final class Task {
+
+        private final String model;
+        private final Measure measure;
+        private final String key;
+        private final CompletableFuture<String> training;
+
+        private Task(String model, Measure measure, String key, CompletableFuture<String> training) {
+            this.model = model;
+            this.measure = measure;
+            this.key = key;
+            this.training = training;
+        }
+    }
+
+    /**
+     * Trains the values of the parametric models for all measures that are neither known nor being trained, in parallel,
+     * publishes each value as soon as it is trained, and saves them
+     */
+    private static void train(Params params, String model, DataSet[] dataSets, String tag, String op) {
+
+        final Set<String> models = new LinkedHashSet<>(Arrays.asList(parametricModels));
+        models.add(model);
+
+        final List<Task> tasks = new ArrayList<>();
+        for (Measure measure : Measure.values())
+            for (String parametricModel : models) {
+                final String key = key(dataSets, parametricModel, tag, measure, op);
+                if (params.values.containsKey(key)) continue;
+                final CompletableFuture<String> training = new CompletableFuture<>();
+                if (params.trainings.putIfAbsent(key, training) == null)
+                    tasks.add(new Task(parametricModel, measure, key, training));
+            }
+
+        final String[] evalDirs = new String[dataSets.length];
+        Arrays.fill(evalDirs, "parameter_evals");
+
+        tasks.parallelStream().forEach(task -> {
+            try {
+                Evaluator evaluator = new Evaluator(dataSets, tag, task.measure, task.model + "*", evalDirs, op);
+                final String best = evaluator.bestModel().model;
+                params.values.put(task.key, best);
+                task.training.complete(best);
+            } catch (RuntimeException e) {
+                System.out.println("Cannot train " + task.key + " : " + e.getMessage());
+                task.training.completeExceptionally(e);
+            } catch (Error e) {
+                // nobody must wait for it forever
+                task.training.completeExceptionally(e);
+                throw e;
+            }
+        });
+
+        if (tasks.stream().anyMatch(task -> !task.training.isCompletedExceptionally()))
+            save(params);
+    }
+
+    /**
+     * Saves the values known so far, one writer at a time
+     */
+    private static void save(Params params) {
+        synchronized (params) {
+            try {
+                write(params.file, params.values);
+            } catch (IOException e) {
+                System.out.println("Cannot save the best parameters " + params.file + " : " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return values of this process for the file, read from it the first time
+     */
+    static Map<String, String> values(Path file) {
+        return Collections.unmodifiableMap(CACHES.computeIfAbsent(file, Params::new).values);
+    }
+
+    /**
+     * Forgets the values and the failures of this process, for the file is deleted
+     */
+    static void clear(Path file) {
+        CACHES.remove(file);
+    }
+
+    /**
+     * @return saved values, or none if the file is missing or of another version
+     */
+    static Map<String, String> read(Path file) {
+
+        final Map<String, String> cache = new ConcurrentHashMap<>();
+        if (!Files.isRegularFile(file)) return cache;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.out.println("Ignoring the best parameters " + file + " of another version");
+                return cache;
+            }
+
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++)
+                cache.put(in.readUTF(), in.readUTF());
+
+        } catch (IOException e) {
+            System.out.println("Cannot load the best parameters " + file + " : " + e.getMessage());
+            cache.clear();
+        }
+        return cache;
+    }
+
+    static void write(Path file, Map<String, String> cache) throws IOException {
+
+        final Path temp = Files.createTempFile(file.getParent(), "params", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                final Map<String, String> sorted = new TreeMap<>(cache);
+                out.writeInt(sorted.size());
+                for (Map.Entry<String, String> entry : sorted.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package edu.anadolu.cmdline;
+
+import edu.anadolu.ParsedCorpus;
+import edu.anadolu.datasets.Collection;
+import edu.anadolu.datasets.CollectionFactory;
+import edu.anadolu.datasets.DataSet;
+import org.kohsuke.args4j.Option;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Parses the WARC files once into the parsed corpus store, which is then used by the indexers instead of Jsoup
+ */
+final class ParseTool extends CmdLineTool {
+
+    @Option(name = "-collection", required = true, usage = "Collection")
+    protected Collection collection;
+
+    @Override
+    public String getShortDescription() {
+        return "Writes Jsoup extracted fields of the documents into the parsed corpus store";
+    }
+
+    @Override
+    public String getHelp() {
+        return "Following properties must be defined in config.properties for " + CLI.CMD + " " + getName() + " paths.docs tfd.home";
+    }
+
+    @Override
+    public void run(Properties props) throws Exception {
+
+        if (parseArguments(props) == -1) return;
+
+        final String tfd_home = props.getProperty("tfd.home");
+        final String docsPath = props.getProperty("paths.docs." + collection.toString());
+
+        if (tfd_home == null || docsPath == null) {
+            System.out.println(getHelp());
+            return;
+        }
+
+        final int numThreads = props.containsKey("numThreads") ? Integer.parseInt(props.getProperty("numThreads")) : Runtime.getRuntime().availableProcessors();
+
+        DataSet dataset = CollectionFactory.dataset(collection, tfd_home);
+        Path storePath = dataset.collectionPath().resolve(ParsedCorpus.DIRECTORY);
+
+        final long start = System.nanoTime();
+        final long count = new ParsedCorpus(Paths.get(docsPath), storePath).build(collection, numThreads);
+        System.out.println("Total " + count + " documents parsed into " + storePath.toAbsolutePath() + " in " + execution(start));
+    }
+}
@@ -0,0 +1,74 @@
+package edu.anadolu.cmdline;
+
+import edu.anadolu.RunFile;
+import edu.anadolu.datasets.Collection;
+import edu.anadolu.datasets.CollectionFactory;
+import edu.anadolu.datasets.DataSet;
+import edu.anadolu.eval.Evaluator;
+import org.kohsuke.args4j.Option;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Exports binary run files (.run) to TREC submission files, e.g. for trec_eval and gdeval
+ */
+final class RunExportTool extends CmdLineTool {
+
+    @Option(name = "-collection", required = true, usage = "Collection")
+    protected Collection collection;
+
+    @Option(name = "-runs", usage = "runs directory under the collection, e.g. runs, parameter_runs, base_spam_runs")
+    private String runs = "runs";
+
+    @Option(name = "-delete", usage = "Boolean switch to delete the binary run files once exported")
+    private boolean delete = false;
+
+    @Override
+    public String getShortDescription() {
+        return "Exports binary run files to TREC text";
+    }
+
+    @Override
+    public String getHelp() {
+        return "Following properties must be defined in config.properties for " + CLI.CMD + " " + getName() + " tfd.home";
+    }
+
+    @Override
+    public void run(Properties props) throws Exception {
+
+        if (parseArguments(props) == -1) return;
+
+        final String tfd_home = props.getProperty("tfd.home");
+
+        if (tfd_home == null) {
+            System.out.println(getHelp());
+            return;
+        }
+
+        final DataSet dataset = CollectionFactory.dataset(collection, tfd_home);
+        final Path runsPath = dataset.collectionPath().resolve(runs);
+
+        final List<Path> pathList = Evaluator.discoverTextFiles(runsPath, RunFile.SUFFIX);
+        System.out.println("there are " + pathList.size() + " many binary run files found under " + runsPath);
+
+        final long start = System.nanoTime();
+
+        pathList.parallelStream().forEach(run -> {
+            final String name = run.getFileName().toString();
+            final Path text = run.resolveSibling(name.substring(0, name.length() - RunFile.SUFFIX.length()) + ".txt");
+            try {
+                RunFile.export(run, text);
+                if (delete) Files.delete(run);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        });
+
+        System.out.println("Exported " + pathList.size() + " run files in " + execution(start));
+    }
+}
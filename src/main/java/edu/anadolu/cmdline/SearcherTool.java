@@ -1,6 +1,7 @@
 package edu.anadolu.cmdline;
 
 import edu.anadolu.FeatureSearcher;
+import edu.anadolu.MultiModelSearcher;
 import edu.anadolu.Searcher;
 import edu.anadolu.datasets.CollectionFactory;
 import edu.anadolu.datasets.DataSet;
@@ -51,6 +52,27 @@ public final class SearcherTool extends CmdLineTool {
     @Option(name = "-size", usage = "Sample size. 1000, 5000, etc.")
     private int size = 5000;
 
+    @Option(name = "-prune", usage = "Boolean switch to prune OR queries with MaxScore for the models that can bound their scores")
+    private boolean prune = false;
+
+    @Option(name = "-verify", usage = "Boolean switch to check pruned and conjunctive (AND) result lists against exhaustive scoring")
+    private boolean verify = false;
+
+    @Option(name = "-segments", usage = "Number of threads to search the segments of the index with for a single query, zero disables")
+    private int segments = 0;
+
+    @Option(name = "-binary", usage = "Boolean switch to write binary run files (.run) instead of TREC text, see RunExport tool")
+    private boolean binary = false;
+
+    @Option(name = "-cache", usage = "Maximum number of hits to keep in the query result cache that is saved under the collection, zero disables")
+    private long cache = 0;
+
+    @Option(name = "-and", usage = "Boolean switch to write the conjunctive (AND) runs too, short queries take the postings intersection fast path")
+    private boolean and = false;
+
+    @Option(name = "-weights", usage = "Field weight vectors of the multifield task, separated by semicolons, e.g. title=0.9,body=0.3;title=1,body=1")
+    private String weights = "title=0.9,keywords=0.7,description=0.5,body=0.3";
+
     @Override
     public String getShortDescription() {
         return "Searcher Tool for Gov2 ClueWeb09 ClueWeb12";
@@ -165,7 +187,9 @@ public final class SearcherTool extends CmdLineTool {
                 // search for a specific tag, skip the rest
                 if (this.tag != null && !tag.equals(this.tag)) continue;
 
-                try (Searcher searcher = new Searcher(path, dataset, 1000)) {
+                // all parameter values are scored in a single pass over the postings of a query
+                try (Searcher searcher = new MultiModelSearcher(path, dataset, 1000)) {
+                    searcher.setBinaryRuns(binary);
                     searcher.searchWithThreads(numThreads, models, fields, "parameter_runs");
                 }
             }
@@ -213,6 +237,10 @@ public final class SearcherTool extends CmdLineTool {
                     modelBaseList.add(new DFRee());
 
                     try (Searcher searcher = new Searcher(path, dataset, 10000)) {
+                        searcher.setPruning(prune, verify);
+                        searcher.setSegmentThreads(segments);
+                        searcher.setBinaryRuns(binary);
+                        searcher.setResultCache(cache);
                         searcher.searchWithThreads(numThreads, modelBaseList, fields, "base_spam_runs");
                     }
                     modelBaseList.clear();
@@ -243,6 +271,7 @@ public final class SearcherTool extends CmdLineTool {
                 modelBaseList.add(new DFRee());
 
                 try (FeatureSearcher searcher = new FeatureSearcher(path, dataset, size)) {
+                    searcher.setResultCache(cache);
                     searcher.searchF(modelBaseList, "features");
                 }
                 modelBaseList.clear();
@@ -279,6 +308,56 @@ public final class SearcherTool extends CmdLineTool {
 
             System.out.println("Field based feature extraction completed in " + execution(start));
             return;
+        } else if ("multifield".equals(task)) {
+
+            final long start = System.nanoTime();
+
+            // union of the fields of the weight vectors, a field missing from a vector has zero weight
+            final List<Map<String, Double>> vectors = new ArrayList<>();
+            final TreeSet<String> weighted = new TreeSet<>();
+            for (String vector : weights.split(";")) {
+                final Map<String, Double> map = new LinkedHashMap<>();
+                for (String pair : vector.split(",")) {
+                    final String[] parts = pair.split("=");
+                    if (parts.length != 2) throw new RuntimeException("malformed field weight " + pair + " in " + weights);
+                    map.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+                }
+                weighted.addAll(map.keySet());
+                vectors.add(map);
+            }
+
+            final List<String> multiFields = new ArrayList<>(weighted);
+            final List<double[]> weightList = new ArrayList<>();
+            for (Map<String, Double> map : vectors)
+                weightList.add(multiFields.stream().mapToDouble(f -> map.getOrDefault(f, 0.0)).toArray());
+
+            for (final Path path : discoverIndexes(dataset)) {
+
+                final String tag = path.getFileName().toString();
+
+                // Multi-field scoring is available only KStemField
+                if (!tag.equals("KStemField")) continue;
+
+                final TreeSet<ModelBase> modelBaseList = new TreeSet<>(Comparator.comparing(ModelBase::toString));
+
+                for (String parametricModel : parametricModels)
+                    modelBaseList.add(train(parametricModel, dataset, "KStem", Measure.NDCG1000, "OR"));
+
+                modelBaseList.add(new DFIC());
+                modelBaseList.add(new DPH());
+                modelBaseList.add(new DLH13());
+                modelBaseList.add(new DFRee());
+
+                try (Searcher searcher = new Searcher(path, dataset, 1000)) {
+                    searcher.setBinaryRuns(binary);
+                    for (final Track track : dataset.tracks())
+                        searcher.multiField(track, modelBaseList, multiFields, weightList);
+                }
+                modelBaseList.clear();
+            }
+
+            System.out.println("Multi-field search completed in " + execution(start));
+            return;
         }
 
         final long start = System.nanoTime();
@@ -302,7 +381,11 @@ public final class SearcherTool extends CmdLineTool {
             modelBaseList.add(new DFRee());
 
             try (Searcher searcher = new Searcher(path, dataset, 1000)) {
-                searcher.searchWithThreads(numThreads, modelBaseList, fields, "runs");
+                searcher.setPruning(prune, verify);
+                searcher.setSegmentThreads(segments);
+                searcher.setBinaryRuns(binary);
+                searcher.setResultCache(cache);
+                searcher.searchWithThreads(numThreads, modelBaseList, fields, "runs", and ? operators : new QueryParser.Operator[]{QueryParser.Operator.OR});
             }
             modelBaseList.clear();
         }
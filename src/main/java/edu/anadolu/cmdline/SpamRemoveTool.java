@@ -1,6 +1,7 @@
 package edu.anadolu.cmdline;
 
 import edu.anadolu.Indexer;
+import edu.anadolu.StaticRanks;
 import edu.anadolu.datasets.Collection;
 import edu.anadolu.datasets.CollectionFactory;
 import edu.anadolu.datasets.DataSet;
@@ -64,15 +65,23 @@ public final class SpamRemoveTool extends CmdLineTool {
             return;
         }
 
-        final String solrBaseURL = props.getProperty("SOLR.URL");
+        final HttpSolrClient solr;
 
-        if (solrBaseURL == null) {
-            System.out.println(getHelp());
-            return;
-        }
+        // spam percentiles are read from the static rank table when it is imported
+        if (StaticRanks.exists(tfd_home, collection)) {
+            solr = null;
+        } else {
 
-        final HttpSolrClient solr = getSpamSolr(collection, solrBaseURL);
-        if (solr == null) return;
+            final String solrBaseURL = props.getProperty("SOLR.URL");
+
+            if (solrBaseURL == null) {
+                System.out.println(getHelp());
+                return;
+            }
+
+            solr = getSpamSolr(collection, solrBaseURL);
+            if (solr == null) return;
+        }
 
 
         DataSet dataset = CollectionFactory.dataset(collection, tfd_home);
@@ -1,5 +1,7 @@
 package edu.anadolu.cmdline;
 
+import edu.anadolu.RunFile;
+import edu.anadolu.StaticRanks;
 import edu.anadolu.datasets.Collection;
 import edu.anadolu.datasets.CollectionFactory;
 import edu.anadolu.datasets.DataSet;
@@ -24,6 +26,7 @@ import java.util.Properties;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 import static edu.anadolu.cmdline.RocTool.Ranking.fusion;
 import static org.apache.solr.common.params.CommonParams.HEADER_ECHO_PARAMS;
@@ -73,13 +76,6 @@ public final class SpamTool extends CmdLineTool {
             return;
         }
 
-        final String solrBaseURL = props.getProperty("SOLR.URL");
-
-        if (solrBaseURL == null) {
-            System.out.println(getHelp());
-            return;
-        }
-
         DataSet dataset = CollectionFactory.dataset(collection, tfd_home);
 
         if (!dataset.spamAvailable()) {
@@ -88,15 +84,41 @@ public final class SpamTool extends CmdLineTool {
         }
 
         final HttpSolrClient solr;
-        if (fusion.equals(ranking))
-            solr = getSpamSolr(collection, solrBaseURL);
-        else
-            solr = new HttpSolrClient.Builder().withBaseSolrUrl(solrBaseURL + ranking.toString()).build();
+        final ToIntFunction<String> percentile;
+
+        // the static rank table holds the fusion ranking, the other rankings are in Solr only
+        if (fusion.equals(ranking) && StaticRanks.exists(tfd_home, collection)) {
+            final StaticRanks ranks = StaticRanks.open(tfd_home, collection);
+            solr = null;
+            percentile = docID -> percentile(ranks, docID);
+        } else {
 
-        if (solr == null) return;
+            final String solrBaseURL = props.getProperty("SOLR.URL");
+
+            if (solrBaseURL == null) {
+                System.out.println(getHelp());
+                return;
+            }
+
+            if (fusion.equals(ranking))
+                solr = getSpamSolr(collection, solrBaseURL);
+            else
+                solr = new HttpSolrClient.Builder().withBaseSolrUrl(solrBaseURL + ranking.toString()).build();
+
+            if (solr == null) return;
+
+            percentile = docID -> {
+                try {
+                    return percentile(solr, docID);
+                } catch (IOException | SolrServerException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
 
 
         List<Path> pathList = Evaluator.discoverTextFiles(dataset.collectionPath().resolve("base_spam_runs"), ".txt");
+        pathList.addAll(Evaluator.discoverTextFiles(dataset.collectionPath().resolve("base_spam_runs"), RunFile.SUFFIX));
 
         System.out.println("there are " + pathList.size() + " many TREC submission files found to be processed...");
 
@@ -109,8 +131,8 @@ public final class SpamTool extends CmdLineTool {
 
             executor.execute(() -> {
                 try {
-                    filterTRECSubmissionFile(dataset, submission, solr,ranking);
-                } catch (SolrServerException | IOException ioe) {
+                    filterTRECSubmissionFile(dataset, submission, percentile, ranking);
+                } catch (IOException ioe) {
                     System.out.println(Thread.currentThread().getName() + ": ERROR: unexpected IOException:");
                     ioe.printStackTrace();
                 }
@@ -136,18 +158,18 @@ public final class SpamTool extends CmdLineTool {
         }
 
         System.out.println("Percolator completed in " + execution(start));
-        solr.close();
+        if (solr != null) solr.close();
     }
 
 
     /**
      * Filter documents from a TREC submission file
      */
-    private static void filterTRECSubmissionFile(DataSet dataset, Path submission, HttpSolrClient solr) throws IOException, SolrServerException {
+    private static void filterTRECSubmissionFile(DataSet dataset, Path submission, ToIntFunction<String> spam) throws IOException {
 
         final SubmissionFile submissionFile = new SubmissionFile(submission);
 
-        Path relPath = dataset.collectionPath().resolve("base_spam_runs").relativize(submission);
+        Path relPath = textPath(dataset.collectionPath().resolve("base_spam_runs").relativize(submission));
 
         Map<Integer, List<SubmissionFile.Tuple>> submissionFileMap = submissionFile.entryMap();
         String runTag = submissionFile.runTag();
@@ -180,7 +202,7 @@ public final class SpamTool extends CmdLineTool {
 
             for (SubmissionFile.Tuple tuple : list) {
 
-                int percentile = percentile(solr, tuple.docID);
+                int percentile = spam.applyAsInt(tuple.docID);
 
                 for (int threshold = 5; threshold <= 95; threshold += 5) {
 
@@ -228,6 +250,15 @@ public final class SpamTool extends CmdLineTool {
     }
 
 
+    /**
+     * Filtered runs are written as TREC text, binary runs are read directly
+     */
+    private static Path textPath(Path relPath) {
+        if (!RunFile.isBinary(relPath)) return relPath;
+        final String name = relPath.getFileName().toString();
+        return relPath.resolveSibling(name.substring(0, name.length() - RunFile.SUFFIX.length()) + ".txt");
+    }
+
     /**
      * Retrieve spam score of a given document id
      */
@@ -257,11 +288,24 @@ public final class SpamTool extends CmdLineTool {
         else throw new RuntimeException("percentile invalid " + percentile);
     }
 
-    private static void filterTRECSubmissionFile(DataSet dataset, Path submission, HttpSolrClient solr, RocTool.Ranking ranking) throws IOException, SolrServerException {
+    /**
+     * Retrieve spam score of a given document id from the static rank table
+     */
+    public static int percentile(StaticRanks ranks, String docID) {
+
+        int percentile = ranks.percentile(docID);
+
+        if (percentile == -1)
+            throw new RuntimeException("cannot find docID " + docID + " in " + ranks);
+
+        return percentile;
+    }
+
+    private static void filterTRECSubmissionFile(DataSet dataset, Path submission, ToIntFunction<String> spam, RocTool.Ranking ranking) throws IOException {
 
         final SubmissionFile submissionFile = new SubmissionFile(submission);
 
-        Path relPath = dataset.collectionPath().resolve("base_spam_runs").relativize(submission);
+        Path relPath = textPath(dataset.collectionPath().resolve("base_spam_runs").relativize(submission));
 
         Map<Integer, List<SubmissionFile.Tuple>> submissionFileMap = submissionFile.entryMap();
         String runTag = submissionFile.runTag();
@@ -284,7 +328,7 @@ public final class SpamTool extends CmdLineTool {
 
             for (SubmissionFile.Tuple tuple : list) {
 
-                int percentile = percentile(solr, tuple.docID);
+                int percentile = spam.applyAsInt(tuple.docID);
 
                 if ((percentile > start && percentile < finish) || count == 1000) {
                     continue;
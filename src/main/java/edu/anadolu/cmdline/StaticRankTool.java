@@ -0,0 +1,57 @@
+package edu.anadolu.cmdline;
+
+import edu.anadolu.StaticRanks;
+import edu.anadolu.datasets.Collection;
+import org.kohsuke.args4j.Option;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Imports the Waterloo spam rankings and the PageRank scores into the memory mapped static rank table
+ */
+final class StaticRankTool extends CmdLineTool {
+
+    @Option(name = "-collection", required = true, usage = "Collection")
+    protected Collection collection;
+
+    @Option(name = "-spam", required = true, metaVar = "clueweb09spam.Fusion", usage = "Waterloo spam ranking file, lines of percentile docId")
+    private String spam;
+
+    @Option(name = "-pagerank", metaVar = "ClueWeb09-En-PRranked.txt", usage = "PageRank file, lines of docId rank")
+    private String pageRank;
+
+    @Override
+    public String getShortDescription() {
+        return "Imports spam percentiles and PageRank scores into a docid keyed binary table";
+    }
+
+    @Override
+    public String getHelp() {
+        return "Following properties must be defined in config.properties for " + CLI.CMD + " " + getName() + " tfd.home";
+    }
+
+    @Override
+    public void run(Properties props) throws Exception {
+
+        if (parseArguments(props) == -1) return;
+
+        final String tfd_home = props.getProperty("tfd.home");
+
+        if (tfd_home == null) {
+            System.out.println(getHelp());
+            return;
+        }
+
+        final Path dir = StaticRanks.path(tfd_home, collection);
+        if (dir == null) {
+            System.out.println("static ranks are only available to ClueWeb09 and ClueWeb12 collections!");
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final long count = StaticRanks.build(Paths.get(spam), pageRank == null ? null : Paths.get(pageRank), dir);
+        System.out.println("Total " + count + " static ranks written to " + dir.toAbsolutePath() + " in " + execution(start));
+    }
+}
@@ -0,0 +1,297 @@
+package edu.anadolu.eval;
+
+import org.clueweb09.InfoNeed;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Metrics of the runs of a track, run &times; topic &times; metric, read from the output files of an evaluation tool.
+ * Every file is parsed once, in parallel with the others, and the matrix is saved next to the files. The saved rows
+ * are reused as long as the size and the modification time of their files are the same, so that only new or changed
+ * outputs are parsed again. Matrices are also kept for the lifetime of the process, for the many evaluators that
+ * parameter training builds over the same files.
+ */
+final class EvalMatrix {
+
+    private static final String PREFIX = "matrix_";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x45564d31;
+
+    private static final Metric[] METRICS = Metric.values();
+
+    /**
+     * Matrices of this process, by the path they are saved to
+     */
+    private static final Map<Path, EvalMatrix> LOADED = new ConcurrentHashMap<>();
+
+    /**
+     * Evaluators built in parallel load a saved matrix one at a time, so that a file is parsed once
+     */
+    private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Opens an evaluation tool over an output file
+     */
+    interface Parser {
+        EvalTool parse(Path path) throws IOException;
+    }
+
+    /**
+     * Metrics of a file: [topic][metric], NaN when the tool does not report it
+     */
+    private static final class Row {
+
+        private final long size;
+        private final long lastModified;
+        private final double[] values;
+
+        private Row(long size, long lastModified, double[] values) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.values = values;
+        }
+
+        private boolean isCurrent(Path path) throws IOException {
+            return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+        }
+    }
+
+    private final Path directory;
+    private final List<Path> paths;
+    private final int[] topics;
+    private final Map<Integer, Integer> topicIndex = new HashMap<>();
+    private final Map<String, Row> rows;
+
+    private EvalMatrix(Path directory, List<Path> paths, int[] topics, Map<String, Row> rows) {
+        this.directory = directory;
+        this.paths = paths;
+        this.topics = topics;
+        this.rows = rows;
+        for (int t = 0; t < topics.length; t++)
+            topicIndex.put(topics[t], t);
+    }
+
+    /**
+     * @param paths  output files of the runs
+     * @param needs  topics of the track
+     * @param parser evaluation tool
+     * @return metrics of the runs, kept in memory only
+     * @throws IOException if IO exception occurs
+     */
+    static EvalMatrix load(List<Path> paths, List<InfoNeed> needs, Parser parser) throws IOException {
+        return load(paths, needs, null, parser);
+    }
+
+    /**
+     * @param paths  output files of the runs
+     * @param needs  topics of the track
+     * @param k      cutoff the tool is opened with, there is a saved matrix per cutoff
+     * @param parser evaluation tool
+     * @return metrics of the runs
+     * @throws IOException if IO exception occurs
+     */
+    static EvalMatrix load(List<Path> paths, List<InfoNeed> needs, int k, Parser parser) throws IOException {
+        final Path cache = directory(paths).resolve(PREFIX + k + SUFFIX);
+        synchronized (LOCKS.computeIfAbsent(cache, c -> new Object())) {
+            return load(paths, needs, cache, parser);
+        }
+    }
+
+    private static EvalMatrix load(List<Path> paths, List<InfoNeed> needs, Path cache, Parser parser) throws IOException {
+
+        final Path directory = directory(paths);
+        final int[] topics = needs.stream().mapToInt(InfoNeed::id).sorted().distinct().toArray();
+
+        Map<String, Row> rows = new HashMap<>();
+        final EvalMatrix loaded = cache == null ? null : LOADED.get(cache);
+        if (loaded != null && Arrays.equals(loaded.topics, topics))
+            rows.putAll(loaded.rows);
+        else if (cache != null)
+            try {
+                rows = read(cache, topics);
+            } catch (IOException e) {
+                System.out.println("Cannot load the evaluation matrix " + cache + " : " + e.getMessage());
+            }
+
+        final EvalMatrix matrix = new EvalMatrix(directory, paths, topics, rows);
+
+        final List<Path> stale = new ArrayList<>();
+        for (Path path : paths) {
+            final Row row = rows.get(matrix.key(path));
+            if (row == null || !row.isCurrent(path)) stale.add(path);
+        }
+
+        if (stale.isEmpty()) {
+            if (cache != null) LOADED.put(cache, matrix);
+            return matrix;
+        }
+
+        final Map<String, Row> parsed = stale.parallelStream().collect(Collectors.toConcurrentMap(matrix::key, path -> {
+            try {
+                final long size = Files.size(path);
+                final long lastModified = Files.getLastModifiedTime(path).toMillis();
+                return new Row(size, lastModified, matrix.values(path, parser.parse(path), needs));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        rows.putAll(parsed);
+
+        if (cache != null) {
+            LOADED.put(cache, matrix);
+            try {
+                matrix.write(cache);
+            } catch (IOException e) {
+                System.out.println("Cannot save the evaluation matrix " + cache + " : " + e.getMessage());
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * @return directory of the output files, which the keys of the rows are relative to
+     */
+    private static Path directory(List<Path> paths) {
+        if (paths.isEmpty())
+            throw new RuntimeException("there are no output files to evaluate!");
+        return paths.get(0).getParent();
+    }
+
+    private String key(Path path) {
+        return directory.relativize(path).toString();
+    }
+
+    /**
+     * Metrics that the tool does not report, needs that are not in the file, and NA values, such as the statAP of a
+     * sampled topic without relevant documents, are left NaN and fail on access. Any other value that is not a number,
+     * or any other failure of the tool, fails right away.
+     */
+    private double[] values(Path path, EvalTool tool, List<InfoNeed> needs) {
+
+        final double[] values = new double[topics.length * METRICS.length];
+        Arrays.fill(values, Double.NaN);
+
+        for (InfoNeed need : needs) {
+            final int t = topicIndex.get(need.id());
+            for (Metric metric : METRICS) {
+
+                final String value;
+                try {
+                    value = tool.getMetric(need, metric);
+                } catch (UnsupportedOperationException | AssertionError e) {
+                    // not reported by the tool, e.g. gdeval has no Recall
+                    continue;
+                } catch (NeedNotFoundException e) {
+                    continue;
+                } catch (RuntimeException e) {
+                    throw new RuntimeException("cannot evaluate " + metric + " of need : " + need + " in " + path, e);
+                }
+
+                if ("NA".equals(value)) continue;
+
+                try {
+                    values[t * METRICS.length + metric.ordinal()] = Double.parseDouble(value);
+                } catch (NumberFormatException | NullPointerException e) {
+                    throw new RuntimeException("cannot parse " + metric + " of need : " + need + " in " + path + " : " + value, e);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return output files, in the order given
+     */
+    List<Path> paths() {
+        return paths;
+    }
+
+    double value(Path path, InfoNeed need, Metric metric) {
+
+        final Row row = rows.get(key(path));
+        final Integer t = topicIndex.get(need.id());
+
+        final double value = row == null || t == null ? Double.NaN : row.values[t * METRICS.length + metric.ordinal()];
+        if (Double.isNaN(value))
+            throw new RuntimeException("need : " + need + " cannot be found in " + path + " for " + metric);
+
+        return value;
+    }
+
+    /**
+     * @return saved rows, or none if the topics have changed
+     */
+    private static Map<String, Row> read(Path cache, int[] topics) throws IOException {
+
+        final Map<String, Row> rows = new HashMap<>();
+        if (!Files.isRegularFile(cache)) return rows;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache), 1 << 16))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != METRICS.length) return rows;
+
+            final int[] saved = new int[in.readInt()];
+            for (int t = 0; t < saved.length; t++)
+                saved[t] = in.readInt();
+            if (!Arrays.equals(saved, topics)) return rows;
+
+            final int size = in.readInt();
+            for (int r = 0; r < size; r++) {
+                final String key = in.readUTF();
+                final long length = in.readLong();
+                final long lastModified = in.readLong();
+                final double[] values = new double[topics.length * METRICS.length];
+                for (int i = 0; i < values.length; i++)
+                    values[i] = in.readDouble();
+                rows.put(key, new Row(length, lastModified, values));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Saves the rows whose files are still there, including the ones of other runs of the directory
+     */
+    private void write(Path cache) throws IOException {
+
+        final Map<String, Row> current = new TreeMap<>();
+        for (Map.Entry<String, Row> entry : rows.entrySet()) {
+            final Path path = directory.resolve(entry.getKey());
+            if (Files.isRegularFile(path) && entry.getValue().isCurrent(path))
+                current.put(entry.getKey(), entry.getValue());
+        }
+
+        final Path temp = Files.createTempFile(directory, PREFIX, ".tmp");
+        try {
+            write(temp, current);
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void write(Path temp, Map<String, Row> current) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(METRICS.length);
+            out.writeInt(topics.length);
+            for (int topic : topics)
+                out.writeInt(topic);
+            out.writeInt(current.size());
+            for (Map.Entry<String, Row> entry : current.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().lastModified);
+                for (double value : entry.getValue().values)
+                    out.writeDouble(value);
+            }
+        }
+    }
+}
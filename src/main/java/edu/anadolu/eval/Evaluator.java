@@ -3,6 +3,7 @@ package edu.anadolu.eval;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Multisets;
+import edu.anadolu.RunFile;
 import edu.anadolu.cmdline.SpamEvalTool.AGG;
 import edu.anadolu.datasets.DataSet;
 import edu.anadolu.knn.Measure;
@@ -31,7 +32,8 @@ import static edu.anadolu.cmdline.CmdLineTool.parametricModels;
 import static edu.anadolu.cmdline.ParamTool.train;
 
 /**
- * Evaluator utility reads output files generated by evaluation scripts and creates graphics, Latex tables, etc.
+ * Evaluator utility reads output files generated by evaluation scripts, or evaluates the runs with {@link NativeEval}
+ * when there are none, and creates graphics, Latex tables, etc.
  */
 public class Evaluator {
 
@@ -245,26 +247,27 @@ public class Evaluator {
             fillWorstModelMap();
         }
 
-        Map<String, Double> scoreMap = new HashMap<>();
-
-        for (Map.Entry<InfoNeed, List<ModelScore>> entry : performanceMap.entrySet()) {
-            for (ModelScore modelScore : entry.getValue()) {
-
-                final String key = entry.getKey().id() + "_" + modelScore.model;
-                if (scoreMap.containsKey(key))
-                    throw new RuntimeException(key + " shouldn't exist in scoreMap!");
-                else
-                    scoreMap.put(key, modelScore.score);
-            }
-        }
-
-        this.scoreMap = Collections.unmodifiableMap(scoreMap);
+        this.scoreMatrix = new ScoreMatrix(modelSet, performanceMap);
 
         fillVarianceIntervals(4);
         // displayVarianceIntervals(4);
     }
 
-    private Map<String, Double> scoreMap;
+    private ScoreMatrix scoreMatrix;
+
+    /**
+     * @return model &times; topic scores, to be addressed by int indices in tight loops
+     */
+    public ScoreMatrix scoreMatrix() {
+        return scoreMatrix;
+    }
+
+    /**
+     * @return matrix indices of the current models, in the iteration order of the model set
+     */
+    protected int[] modelIndices() {
+        return scoreMatrix.models(modelSet);
+    }
 
     public static String prettyModel(String model) {
 
@@ -442,17 +445,25 @@ public class Evaluator {
 
     public double[] scoreArray(String model, List<InfoNeed> needs) {
 
-        double scores[] = new double[needs.size()];
-        Arrays.fill(scores, 0.0);
-
-        int c = 0;
-        for (InfoNeed need : needs) {
-            scores[c++] = score(need, model);
-        }
+        final int m = scoreMatrix.models(Collections.singletonList(model))[0];
+        return checked(scoreMatrix.row(m, scoreMatrix.topics(needs)), model);
+    }
 
+    /**
+     * Missing cells of the score matrix are NaN, they must not leak into the results
+     */
+    private static double[] checked(double[] scores, String what) {
+        for (double score : scores)
+            checked(score, what);
         return scores;
     }
 
+    private static double checked(double score, String what) {
+        if (Double.isNaN(score))
+            throw new RuntimeException(what + " is not evaluated for all of the needs!");
+        return score;
+    }
+
     public List<Solution> modelsAsSolutionList() {
         return modelsAsSolutionList(needs);
     }
@@ -509,14 +520,14 @@ public class Evaluator {
 
     public double score(InfoNeed need, String model) {
 
-        final String key = need.id() + "_" + model;
+        final int m = scoreMatrix.model(model);
+        final int t = scoreMatrix.topic(need);
 
-        if (!scoreMap.containsKey(key))
-            throw new RuntimeException(key + " does not exist in scoreMap!");
-        else {
+        final double score = m == -1 || t == -1 ? Double.NaN : scoreMatrix.score(m, t);
+        if (Double.isNaN(score))
+            throw new RuntimeException(need.id() + "_" + model + " does not exist in scoreMatrix!");
 
-            return scoreMap.get(key);
-        }
+        return score;
     }
 
     private Map<InfoNeed, ModelScore> oracleMap() {
@@ -808,23 +819,17 @@ public class Evaluator {
 
         List<Prediction> list = new ArrayList<>(needs.size());
 
+        final int[] models = modelIndices();
 
         for (InfoNeed testQuery : needs) {
-            double max = Double.NEGATIVE_INFINITY;
 
-            String predictedModel = null;
+            final int t = scoreMatrix.topics(Collections.singletonList(testQuery))[0];
+            checked(scoreMatrix.column(t, models), "need " + testQuery.id());
+            final int m = scoreMatrix.argMax(t, models);
 
-            for (String model : modelSet) {
-                double score = score(testQuery, model);
-                if (score > max) {
-                    max = score;
-                    predictedModel = model;
-                }
-            }
+            if (-1 == m) throw new RuntimeException("predictedModel is null!");
 
-            if (null == predictedModel) throw new RuntimeException("predictedModel is null!");
-
-            Prediction prediction = new Prediction(testQuery, predictedModel, max);
+            Prediction prediction = new Prediction(testQuery, scoreMatrix.model(m), scoreMatrix.score(m, t));
             list.add(prediction);
         }
 
@@ -941,15 +946,15 @@ public class Evaluator {
         output.close();
     }
 
-    private List<ModelScore> mapToList(Map<String, String> map) {
+    private List<ModelScore> mapToList(Map<String, Double> map) {
         List<ModelScore> list = new ArrayList<>(map.size());
 
-        for (Map.Entry<String, String> entry : map.entrySet()) {
+        for (Map.Entry<String, Double> entry : map.entrySet()) {
             String key = entry.getKey();
             int i = key.indexOf("_");
             if (i != -1) key = key.substring(0, i);
             modelSet.add(key);
-            list.add(new ModelScore(key, Double.parseDouble(entry.getValue())));
+            list.add(new ModelScore(key, entry.getValue()));
         }
         return list;
     }
@@ -974,29 +979,89 @@ public class Evaluator {
     }
 
     private List<Path> pathFactory(InfoNeed need) throws IOException {
+        return getPathList(need, toolDirectory(need));
+    }
+
+    /**
+     * @return sub directory of the outputs of the evaluation tool
+     */
+    private String toolDirectory(InfoNeed need) {
         if (edu.anadolu.datasets.Collection.MQ07.equals(need.dataSet().collection()))
-            return getPathList(need, "");
+            return "";
         if (edu.anadolu.datasets.Collection.MQ08.equals(need.dataSet().collection()))
-            return getPathList(need, "");
+            return "";
         if (edu.anadolu.datasets.Collection.MQ09.equals(need.dataSet().collection()))
-            return getPathList(need, "");
+            return "";
         else if (Metric.ERR.equals(metric) || Metric.NDCG.equals(metric))
-            return getPathList(need, Integer.toString(k));
+            return Integer.toString(k);
         else if (Metric.MAP.equals(metric) || Metric.P.equals(metric) || Metric.Recall.equals(metric) || Metric.NCG.equals(metric))
-            return getPathList(need, "trec_eval");
+            return "trec_eval";
         else
             throw new AssertionError(this);
     }
 
+    /**
+     * Run directory, e.g. spam_60_runs for spam_60_evals, of the track of the topic when the evaluation tools have not
+     * been run for it. Such runs are evaluated by {@link NativeEval}.
+     *
+     * @return directory of the runs, or null if the outputs of the evaluation tool are to be read
+     */
+    protected Path runDirectory(InfoNeed need) {
 
-    private Map<String, String> evaluate(InfoNeed need) throws IOException {
+        final String evalDirectory = evalDirectoryMap.get(need.dataSet());
+        if (!evalDirectory.endsWith("evals")) return null;
 
-        Map<String, String> map = new TreeMap<>();
+        final String collectionPath = need.dataSet().collectionPath().toString();
+        if (Files.isDirectory(Paths.get(collectionPath, evalDirectory, indexTag, need.getWT().toString(), toolDirectory(need))))
+            return null;
 
-        for (Path path : pathFactory(need)) {
-            String runTag = getRunTag(path);
-            map.put(runTag, toolFactory(path, need).getMetric(need, metric));
-        }
+        final String runDirectory = evalDirectory.substring(0, evalDirectory.length() - "evals".length()) + "runs";
+        final Path path = Paths.get(collectionPath, runDirectory, indexTag, need.getWT().toString());
+        return Files.isDirectory(path) ? path : null;
+    }
+
+    /**
+     * Metrics of the runs of a track: data set, track and tool directory
+     */
+    private final Map<List<Object>, EvalMatrix> matrices = new HashMap<>();
+
+    /**
+     * Reads the evaluation files of the track of the topic once, or evaluates its runs with {@link NativeEval}
+     */
+    private EvalMatrix matrix(InfoNeed need) throws IOException {
+
+        final List<Object> key = Arrays.asList(need.dataSet(), need.getWT(), toolDirectory(need));
+
+        EvalMatrix matrix = matrices.get(key);
+        if (matrix != null) return matrix;
+
+        final Path runDirectory = runDirectory(need);
+        if (runDirectory != null) {
+
+            List<Path> paths = new ArrayList<>(discoverTextFiles(runDirectory, op + "_all.txt"));
+            paths.addAll(discoverTextFiles(runDirectory, op + "_all" + RunFile.SUFFIX));
+
+            if (paths.size() == 0)
+                throw new IllegalArgumentException(runDirectory + " does not contain any run files.");
+
+            // judgments are not tracked, metrics of runs are not saved
+            matrix = EvalMatrix.load(percolate(paths), need.getWT().getTopics(), path -> new NativeEval(path, k));
+        } else
+            matrix = EvalMatrix.load(pathFactory(need), need.getWT().getTopics(), k, path -> toolFactory(path, need));
+
+        matrices.put(key, matrix);
+        return matrix;
+    }
+
+
+    private Map<String, Double> evaluate(InfoNeed need) throws IOException {
+
+        final EvalMatrix matrix = matrix(need);
+
+        Map<String, Double> map = new TreeMap<>();
+
+        for (Path path : matrix.paths())
+            map.put(getRunTag(path), matrix.value(path, need, metric));
 
         return map;
     }
@@ -1233,31 +1298,26 @@ public class Evaluator {
 
     public double N() {
 
+        final int[] models = modelIndices();
+
         double sum = 0.0;
 
-        for (InfoNeed need : needs) {
-            for (String model : modelSet) {
-                sum += score(need, model);
-            }
-        }
+        for (int t : scoreMatrix.topics(needs))
+            sum += scoreMatrix.columnSum(t, models);
 
-        return sum;
+        return checked(sum, "N");
     }
 
     public Map<InfoNeed, Double> columnSum() {
 
         Map<InfoNeed, Double> D = new HashMap<>();
 
-        for (InfoNeed need : needs) {
-
-            double sum = 0.0;
-
-            for (String model : modelSet) {
-                sum += score(need, model);
-            }
+        final int[] models = modelIndices();
+        final int[] topics = scoreMatrix.topics(needs);
 
-            D.put(need, sum);
-        }
+        int i = 0;
+        for (InfoNeed need : needs)
+            D.put(need, checked(scoreMatrix.columnSum(topics[i++], models), "need " + need.id()));
 
         return D;
     }
@@ -1266,16 +1326,12 @@ public class Evaluator {
 
         Map<String, Double> TF = new HashMap<>();
 
-        for (String model : modelSet) {
-
-            double sum = 0.0;
-
-            for (InfoNeed need : needs) {
-                sum += score(need, model);
-            }
+        final int[] topics = scoreMatrix.topics(needs);
+        final int[] models = modelIndices();
 
-            TF.put(model, sum);
-        }
+        int i = 0;
+        for (String model : modelSet)
+            TF.put(model, checked(scoreMatrix.rowSum(models[i++], topics), model));
 
         return TF;
     }
@@ -1995,18 +2051,19 @@ public class Evaluator {
     }
 
     public List<ModelScore> averageForAllModels(final Collection<InfoNeed> needs) {
-        return modelSet.stream().map(p -> averagePerModel(p, needs)).collect(Collectors.toList());
+        final int[] topics = scoreMatrix.topics(needs);
+        final int[] models = modelIndices();
+
+        final List<ModelScore> list = new ArrayList<>(models.length);
+        int i = 0;
+        for (String model : modelSet)
+            list.add(new ModelScore(model, checked(scoreMatrix.mean(models[i++], topics), model)));
+        return list;
     }
 
     public ModelScore averagePerModel(String model, Collection<InfoNeed> needs) {
-
-        double mean = 0.0;
-        for (InfoNeed need : needs) {
-            mean += score(need, model);
-        }
-        mean /= (double) needs.size();
-
-        return new ModelScore(model, mean);
+        final int m = scoreMatrix.models(Collections.singletonList(model))[0];
+        return new ModelScore(model, checked(scoreMatrix.mean(m, scoreMatrix.topics(needs)), model));
     }
 
     public ModelScore averagePerModel(String model) {
@@ -0,0 +1,454 @@
+package edu.anadolu.eval;
+
+import edu.anadolu.RunFile;
+import org.clueweb09.InfoNeed;
+import org.clueweb09.tracks.MQ09;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.clueweb09.tracks.Track.whiteSpaceSplitter;
+
+/**
+ * Evaluates runs in the JVM, replacing the output files of
+ * <ul>
+ * <li><code>trec_eval -M1000 -q</code>: map, P_k, recall_k and ncg_cut_k, printed with four digits</li>
+ * <li><code>gdeval.pl -k k</code>: ndcg@k and err@k, printed with five digits</li>
+ * <li><code>statAP_MQ_eval_v4.pl -q</code>: AP, Prec_at_k and nDCG_k of the Million Query tracks, printed with three digits</li>
+ * </ul>
+ * Measures are computed the way the tools compute them and rounded the way printf rounds them, so the strings are the
+ * ones that {@link TrecEval}, {@link GdEval} and {@link StatAP} read from the outputs. Judgments come from the
+ * {@link org.clueweb09.tracks.Track#getMap()} of the topic; statAP needs the inclusion probabilities, the prels file of
+ * the track is read once for all runs.
+ * <p>
+ * Documents are ranked by decreasing score, ties by decreasing document id, like trec_eval and gdeval.pl do.
+ * statAP_MQ_eval_v4.pl leaves ties in the order of a Perl hash, which is not reproducible; they are broken the same way.
+ */
+public final class NativeEval implements EvalTool {
+
+    /**
+     * trec_eval -M1000
+     */
+    private static final int MAX_NUM_DOCS = 1000;
+
+    /**
+     * Maximum judgment of gdeval.pl, used by ERR
+     */
+    private static final int MAX_JUDGMENT = 4;
+
+    /**
+     * Cutoffs of statAP_MQ_eval_v4.pl
+     */
+    private static final int[] CUTOFFS = {10, 20, 50, 100};
+
+    /**
+     * Result list of a topic, in the order of the run
+     */
+    private static final class Ranking {
+
+        private String[] docs = new String[16];
+        private double[] scores = new double[16];
+        private int size = 0;
+        private volatile int[] order = null;
+
+        private void add(String doc, double score) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+
+        /**
+         * @return documents by decreasing score, ties by decreasing document id
+         */
+        private int[] order() {
+            if (order == null) {
+                final Integer[] positions = new Integer[size];
+                for (int i = 0; i < size; i++) positions[i] = i;
+                Arrays.sort(positions, (a, b) -> {
+                    final int c = Double.compare(scores[b], scores[a]);
+                    return c != 0 ? c : docs[b].compareTo(docs[a]);
+                });
+                order = Arrays.stream(positions).mapToInt(Integer::intValue).toArray();
+            }
+            return order;
+        }
+    }
+
+    /**
+     * In-memory run, filled by a searcher in place of a run file
+     */
+    public static final class Run implements RunFile.Output {
+
+        private final Map<Integer, Ranking> rankings = new ConcurrentHashMap<>();
+
+        @Override
+        public void add(int qid, String[] ids, float[] scores) {
+            final Ranking ranking = new Ranking();
+            for (int i = 0; i < ids.length; i++)
+                ranking.add(ids[i], scores[i]);
+            rankings.put(qid, ranking);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final Map<Integer, Ranking> rankings;
+    private final int k;
+
+    /**
+     * @param run result lists of the topics
+     * @param k   cutoff
+     */
+    public NativeEval(Run run, int k) {
+        this.rankings = run.rankings;
+        this.k = k;
+    }
+
+    /**
+     * @param path TREC text run, or binary run file
+     * @param k    cutoff
+     * @throws IOException if IO exception occurs
+     */
+    public NativeEval(Path path, int k) throws IOException {
+        this.rankings = RunFile.isBinary(path) ? readBinary(path) : readText(path);
+        this.k = k;
+    }
+
+    private static Map<Integer, Ranking> readText(Path path) throws IOException {
+
+        final Map<Integer, Ranking> rankings = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                final String[] parts = whiteSpaceSplitter.split(line);
+                if (parts.length < 6) throw new IllegalArgumentException("unexpected formatted line : " + line);
+
+                rankings.computeIfAbsent(Integer.parseInt(parts[0]), qid -> new Ranking()).add(parts[2], Double.parseDouble(parts[4]));
+            }
+        }
+        return rankings;
+    }
+
+    private static Map<Integer, Ranking> readBinary(Path path) throws IOException {
+
+        final Map<Integer, Ranking> rankings = new HashMap<>();
+
+        try (RunFile.Reader reader = new RunFile.Reader(path)) {
+            while (reader.next()) {
+                final Ranking ranking = rankings.computeIfAbsent(reader.qid(), qid -> new Ranking());
+                for (int i = 0; i < reader.size(); i++)
+                    ranking.add(reader.docID(i), reader.score(i));
+            }
+        }
+        return rankings;
+    }
+
+    /**
+     * Evaluates the runs in parallel, a run is held in memory only while its topics are scored
+     *
+     * @param paths  TREC text runs or binary run files
+     * @param needs  topics to score
+     * @param metric metric
+     * @param k      cutoff
+     * @return metric of each topic, as the evaluation tool prints it, for each run
+     */
+    public static Map<Path, Map<InfoNeed, String>> evaluate(Collection<Path> paths, Collection<InfoNeed> needs, Metric metric, int k) {
+        return paths.parallelStream().collect(Collectors.toConcurrentMap(Function.identity(), path -> {
+            final NativeEval eval;
+            try {
+                eval = new NativeEval(path, k);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final Map<InfoNeed, String> map = new HashMap<>();
+            for (InfoNeed need : needs)
+                map.put(need, eval.getMetric(need, metric));
+            return map;
+        }));
+    }
+
+    @Override
+    public String getMetric(InfoNeed need, Metric metric) {
+
+        final Ranking ranking = rankings.get(need.id());
+
+        if (need.getWT() instanceof MQ09)
+            return statAP(need, ranking, metric);
+        else if (Metric.ERR.equals(metric) || Metric.NDCG.equals(metric))
+            return gdEval(need, ranking, metric);
+        else if (Metric.MAP.equals(metric) || Metric.P.equals(metric) || Metric.Recall.equals(metric) || Metric.NCG.equals(metric))
+            return trecEval(need, ranking, metric);
+        else
+            throw new AssertionError(this);
+    }
+
+    private static Map<String, Integer> judgments(InfoNeed need) {
+        return need.getWT().getMap().getOrDefault(need.id(), Collections.emptyMap());
+    }
+
+    /**
+     * @return judgment levels above zero, in decreasing order
+     */
+    private static int[] ideal(Map<String, Integer> judgments) {
+        return judgments.values().stream().filter(judge -> judge > 0).sorted(Comparator.reverseOrder()).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Fixed point notation with the given number of digits, rounded like printf
+     */
+    static String format(double value, int digits) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return Double.toString(value);
+        return new BigDecimal(value).setScale(digits, RoundingMode.HALF_EVEN).toPlainString();
+    }
+
+    private String trecEval(InfoNeed need, Ranking ranking, Metric metric) {
+
+        // trec_eval skips the topics that are not in the run
+        if (ranking == null) throw new NeedNotFoundException(need);
+
+        final Map<String, Integer> judgments = judgments(need);
+        final int[] order = ranking.order();
+        final int size = Math.min(order.length, MAX_NUM_DOCS);
+
+        int numRel = 0;
+        for (int judge : judgments.values())
+            if (judge >= 1) numRel++;
+
+        final double value;
+
+        if (Metric.MAP.equals(metric)) {
+            double sum = 0;
+            int relSoFar = 0;
+            for (int i = 0; i < size; i++)
+                if (judgments.getOrDefault(ranking.docs[order[i]], -1) >= 1) {
+                    relSoFar++;
+                    sum += (double) relSoFar / (double) (i + 1);
+                }
+            value = numRel == 0 ? 0 : sum / numRel;
+        } else if (Metric.P.equals(metric) || Metric.Recall.equals(metric)) {
+            int relSoFar = 0;
+            for (int i = 0; i < Math.min(size, k); i++)
+                if (judgments.getOrDefault(ranking.docs[order[i]], -1) >= 1) relSoFar++;
+            if (Metric.P.equals(metric))
+                value = (double) relSoFar / (double) k;
+            else
+                value = numRel == 0 ? 0 : (double) relSoFar / (double) numRel;
+        } else {
+            double gain = 0;
+            for (int i = 0; i < Math.min(size, k); i++)
+                gain += Math.max(0, judgments.getOrDefault(ranking.docs[order[i]], 0));
+            final int[] ideal = ideal(judgments);
+            double idealGain = 0;
+            for (int i = 0; i < Math.min(ideal.length, k); i++)
+                idealGain += ideal[i];
+            value = idealGain == 0 ? 0 : gain / idealGain;
+        }
+
+        return format(value, 4);
+    }
+
+    private String gdEval(InfoNeed need, Ranking ranking, Metric metric) {
+
+        final Map<String, Integer> judgments = judgments(need);
+        final int[] ideal = ideal(judgments);
+
+        // gdeval.pl prints the topics that are in the run and have a relevant document, GdEval reports zero for the rest
+        if (ranking == null || ideal.length == 0) return "0.00000";
+
+        final int[] order = ranking.order();
+        final int[] judged = new int[Math.min(order.length, k)];
+        for (int i = 0; i < judged.length; i++)
+            judged[i] = Math.max(0, judgments.getOrDefault(ranking.docs[order[i]], 0));
+
+        if (Metric.NDCG.equals(metric)) {
+            final double actual = dcg(judged);
+            return format(actual == 0 ? 0 : actual / dcg(Arrays.copyOf(ideal, Math.min(ideal.length, k))), 5);
+        }
+
+        double score = 0;
+        double decay = 1;
+        for (int i = 0; i < judged.length; i++) {
+            final double r = (Math.pow(2, judged[i]) - 1) / Math.pow(2, MAX_JUDGMENT);
+            score += r * decay / (i + 1);
+            decay *= 1 - r;
+        }
+        return format(score, 5);
+    }
+
+    private static double dcg(int[] judged) {
+        double score = 0;
+        for (int i = 0; i < judged.length; i++)
+            score += (Math.pow(2, judged[i]) - 1) / (Math.log(i + 2) / Math.log(2));
+        return score;
+    }
+
+    /**
+     * Sampled judgments of a topic, as statAP_MQ_eval_v4.pl keeps them
+     */
+    private static final class Sample {
+        private final Map<String, Integer> relevance = new LinkedHashMap<>();
+        private final Map<String, Double> iprob = new HashMap<>();
+        private int judgedUMASS;
+        private int judgedNEU;
+    }
+
+    private static final Map<Path, Map<Integer, Sample>> PRELS = new ConcurrentHashMap<>();
+
+    /**
+     * Reads a five column prels file (topic doc rel method iprob) with the default force_mixed_eval=1
+     */
+    private static Map<Integer, Sample> prels(Path path) {
+        return PRELS.computeIfAbsent(path, p -> {
+
+            final Map<Integer, Sample> samples = new HashMap<>();
+
+            try (BufferedReader reader = Files.newBufferedReader(p, StandardCharsets.US_ASCII)) {
+
+                int oldTopic = -1;
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+
+                    line = line.trim();
+                    if (line.isEmpty()) continue;
+
+                    final String[] parts = whiteSpaceSplitter.split(line);
+                    if (parts.length != 5) throw new IllegalArgumentException("prels file should contain five columns : " + line);
+
+                    final int topic = Integer.parseInt(parts[0]);
+                    final int rel = Integer.parseInt(parts[2]);
+                    final int method = Integer.parseInt(parts[3]);
+
+                    if (rel == -999) continue;
+
+                    final Sample sample = samples.computeIfAbsent(topic, t -> new Sample());
+                    if (oldTopic != topic) {
+                        sample.judgedUMASS = 0;
+                        sample.judgedNEU = 0;
+                        oldTopic = topic;
+                    }
+
+                    // documents with NA or invalid inclusion probabilities are ignored
+                    if ("NA".equals(parts[4])) continue;
+                    double iprob = Double.parseDouble(parts[4]);
+                    if (iprob < 0 || iprob > 1) continue;
+
+                    if (method == 0 || method == 2) sample.judgedUMASS++;
+                    if (method == 1 || method == 2 || method == 4) sample.judgedNEU++;
+
+                    // collisions
+                    if (method == 0 || method == 2) iprob = 1;
+
+                    sample.relevance.put(parts[1], rel);
+                    sample.iprob.put(parts[1], iprob);
+                }
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return samples;
+        });
+    }
+
+    private static int rating(int rel) {
+        return (rel < 0 ? 0 : 1 << rel) - 1;
+    }
+
+    private static double discount(int rank) {
+        return Math.log(rank + 1) / Math.log(2);
+    }
+
+    private String statAP(InfoNeed need, Ranking ranking, Metric metric) {
+
+        final Sample sample = prels(((MQ09) need.getWT()).prels()).get(need.id());
+
+        // statAP_MQ_eval_v4.pl skips the topics that are not in the run
+        if (sample == null || ranking == null) throw new NeedNotFoundException(need);
+
+        // judged by UMASS exclusively
+        if (sample.judgedNEU == 0) return "0.00000";
+
+        int cutoff = -1;
+        for (int c = 0; c < CUTOFFS.length; c++)
+            if (CUTOFFS[c] == k) cutoff = c;
+        if (k == 1000 && (Metric.NDCG.equals(metric) || Metric.ERR.equals(metric))) cutoff = CUTOFFS.length - 1;
+
+        if (!Metric.MAP.equals(metric) && (cutoff == -1 || !(Metric.P.equals(metric) || Metric.NDCG.equals(metric) || Metric.ERR.equals(metric))))
+            throw new UnsupportedOperationException("Unsupported metric : " + metric + "@" + k);
+
+        double estimated = 0;
+        for (Map.Entry<String, Integer> e : sample.relevance.entrySet())
+            if (e.getValue() > 0)
+                estimated += 1 / sample.iprob.get(e.getKey());
+
+        if (estimated <= 0)
+            return Metric.MAP.equals(metric) ? "NA" : format(0, 3);
+
+        // a document retrieved twice counts once, with its last score, but occupies both ranks
+        final Ranking distinct = new Ranking();
+        final Map<String, Double> scores = new LinkedHashMap<>();
+        for (int i = 0; i < ranking.size; i++)
+            scores.put(ranking.docs[i], ranking.scores[i]);
+        scores.forEach(distinct::add);
+        final int[] order = distinct.order();
+
+        final double[] normalization = new double[CUTOFFS.length];
+        final int[] rels = sample.relevance.values().stream().sorted(Comparator.reverseOrder()).mapToInt(Integer::intValue).toArray();
+        for (int rank = 1; rank <= rels.length && rels[rank - 1] > 0 && rank <= CUTOFFS[CUTOFFS.length - 1]; rank++)
+            for (int c = 0; c < CUTOFFS.length; c++)
+                if (rank <= CUTOFFS[c]) normalization[c] += rating(rels[rank - 1]) / discount(rank);
+
+        final double[] ndcg = new double[CUTOFFS.length];
+        final double[] prec = new double[CUTOFFS.length];
+        double sumPrec = 0;
+        double sumUp = 0;
+
+        for (int r = 1; r <= ranking.size; r++) {
+
+            int rel = 0;
+            if (r <= order.length) {
+                final String doc = distinct.docs[order[r - 1]];
+                final Integer judge = sample.relevance.get(doc);
+                if (judge != null) {
+                    rel = judge;
+                    if (rel > 0) {
+                        final double iprob = sample.iprob.get(doc);
+                        sumUp += (1 + sumPrec) / r / iprob;
+                        sumPrec += 1 / iprob;
+                    }
+                }
+            }
+
+            for (int c = 0; c < CUTOFFS.length; c++) {
+                if (r <= CUTOFFS[c]) ndcg[c] += rating(rel) / discount(r);
+                if (r == CUTOFFS[c]) prec[c] = sumPrec / r;
+            }
+        }
+
+        if (Metric.MAP.equals(metric))
+            return format(sumUp / estimated, 3);
+        else if (Metric.P.equals(metric))
+            return format(prec[cutoff], 3);
+        else
+            return format(ndcg[cutoff] / normalization[cutoff], 3);
+    }
+}
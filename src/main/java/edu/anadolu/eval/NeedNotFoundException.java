@@ -0,0 +1,14 @@
+package edu.anadolu.eval;
+
+import org.clueweb09.InfoNeed;
+
+/**
+ * Thrown by an {@link EvalTool} when a topic is not in its output, for instance when the run did not retrieve anything
+ * for it and the tool skipped the topic
+ */
+public final class NeedNotFoundException extends RuntimeException {
+
+    public NeedNotFoundException(InfoNeed need) {
+        super("need : " + need + " cannot be found!");
+    }
+}
@@ -0,0 +1,287 @@
+package edu.anadolu.eval;
+
+import org.clueweb09.InfoNeed;
+
+import java.util.*;
+
+/**
+ * Effectiveness scores of an {@link Evaluator}, model &times; topic, as a dense array of primitives.
+ * Models and topics are addressed by int indices, so that the loops over them (oracles, averages, variances, ranks)
+ * run over contiguous rows instead of looking up boxed values by string keys.
+ * A model that is not evaluated for a topic is NaN.
+ * Operations take the model indices to consider; ties are broken in favour of the one that comes first.
+ */
+public final class ScoreMatrix {
+
+    private final String[] models;
+    private final InfoNeed[] needs;
+
+    private final Map<String, Integer> modelIndex;
+    private final Map<Integer, Integer> topicIndex;
+
+    /**
+     * scores[model][topic]
+     */
+    private final double[][] scores;
+
+    /**
+     * @param models         models, in the order the indices are assigned
+     * @param performanceMap scores of the models per information need
+     */
+    ScoreMatrix(Collection<String> models, Map<InfoNeed, List<ModelScore>> performanceMap) {
+
+        final LinkedHashSet<String> names = new LinkedHashSet<>(models);
+        for (List<ModelScore> list : performanceMap.values())
+            for (ModelScore modelScore : list)
+                names.add(modelScore.model);
+
+        this.models = names.toArray(new String[names.size()]);
+        this.needs = performanceMap.keySet().stream().sorted(Comparator.comparingInt(InfoNeed::id)).toArray(InfoNeed[]::new);
+
+        this.modelIndex = new HashMap<>(this.models.length * 2);
+        for (int m = 0; m < this.models.length; m++)
+            modelIndex.put(this.models[m], m);
+
+        this.topicIndex = new HashMap<>(needs.length * 2);
+        for (int t = 0; t < needs.length; t++)
+            if (topicIndex.put(needs[t].id(), t) != null)
+                throw new RuntimeException("topic " + needs[t].id() + " shouldn't exist in the score matrix!");
+
+        this.scores = new double[this.models.length][needs.length];
+        for (double[] row : scores)
+            Arrays.fill(row, Double.NaN);
+
+        for (int t = 0; t < needs.length; t++)
+            for (ModelScore modelScore : performanceMap.get(needs[t])) {
+                final double[] row = scores[modelIndex.get(modelScore.model)];
+                if (!Double.isNaN(row[t]))
+                    throw new RuntimeException(needs[t].id() + "_" + modelScore.model + " shouldn't exist in the score matrix!");
+                row[t] = modelScore.score;
+            }
+    }
+
+    public int modelCount() {
+        return models.length;
+    }
+
+    public int topicCount() {
+        return needs.length;
+    }
+
+    public String model(int m) {
+        return models[m];
+    }
+
+    public InfoNeed need(int t) {
+        return needs[t];
+    }
+
+    /**
+     * @return index of the model, or -1 if it is not in the matrix
+     */
+    public int model(String model) {
+        final Integer m = modelIndex.get(model);
+        return m == null ? -1 : m;
+    }
+
+    /**
+     * @return index of the topic, or -1 if it is not in the matrix
+     */
+    public int topic(InfoNeed need) {
+        final Integer t = topicIndex.get(need.id());
+        return t == null ? -1 : t;
+    }
+
+    /**
+     * @return indices of the models, in the iteration order of the collection
+     */
+    public int[] models(Collection<String> models) {
+        final int[] indices = new int[models.size()];
+        int i = 0;
+        for (String model : models) {
+            final int m = model(model);
+            if (m == -1) throw new RuntimeException(model + " does not exist in the score matrix!");
+            indices[i++] = m;
+        }
+        return indices;
+    }
+
+    /**
+     * @return indices of the topics, in the iteration order of the collection
+     */
+    public int[] topics(Collection<? extends InfoNeed> needs) {
+        final int[] indices = new int[needs.size()];
+        int i = 0;
+        for (InfoNeed need : needs) {
+            final int t = topic(need);
+            if (t == -1) throw new RuntimeException(need.id() + " does not exist in the score matrix!");
+            indices[i++] = t;
+        }
+        return indices;
+    }
+
+    public double score(int m, int t) {
+        return scores[m][t];
+    }
+
+    /**
+     * @return scores of a model over the given topics
+     */
+    public double[] row(int m, int[] topics) {
+        final double[] row = scores[m];
+        final double[] values = new double[topics.length];
+        for (int i = 0; i < topics.length; i++)
+            values[i] = row[topics[i]];
+        return values;
+    }
+
+    /**
+     * @return scores of the given models for a topic
+     */
+    public double[] column(int t, int[] models) {
+        final double[] values = new double[models.length];
+        for (int i = 0; i < models.length; i++)
+            values[i] = scores[models[i]][t];
+        return values;
+    }
+
+    /**
+     * @return sum of the scores of a model over the given topics
+     */
+    public double rowSum(int m, int[] topics) {
+        final double[] row = scores[m];
+        double sum = 0.0;
+        for (int t : topics)
+            sum += row[t];
+        return sum;
+    }
+
+    /**
+     * @return sum of the scores of the given models for a topic
+     */
+    public double columnSum(int t, int[] models) {
+        double sum = 0.0;
+        for (int m : models)
+            sum += scores[m][t];
+        return sum;
+    }
+
+    /**
+     * @return mean score of a model over the given topics
+     */
+    public double mean(int m, int[] topics) {
+        return rowSum(m, topics) / (double) topics.length;
+    }
+
+    /**
+     * @return mean scores of the given models over the given topics, one per model
+     */
+    public double[] means(int[] models, int[] topics) {
+        final double[] means = new double[models.length];
+        for (int i = 0; i < models.length; i++)
+            means[i] = mean(models[i], topics);
+        return means;
+    }
+
+    /**
+     * @return index of the best of the given models for a topic, the first one on ties
+     */
+    public int argMax(int t, int[] models) {
+        int best = -1;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int m : models) {
+            final double score = scores[m][t];
+            if (score > max) {
+                max = score;
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return index of the worst of the given models for a topic, the first one on ties
+     */
+    public int argMin(int t, int[] models) {
+        int worst = -1;
+        double min = Double.POSITIVE_INFINITY;
+        for (int m : models) {
+            final double score = scores[m][t];
+            if (score < min) {
+                min = score;
+                worst = m;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Oracle (max): the best score attainable for each topic when the right model is chosen
+     *
+     * @return best scores of the given models, one per topic
+     */
+    public double[] max(int[] models, int[] topics) {
+        final double[] max = new double[topics.length];
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int m : models) {
+            final double[] row = scores[m];
+            for (int i = 0; i < topics.length; i++)
+                if (row[topics[i]] > max[i]) max[i] = row[topics[i]];
+        }
+        return max;
+    }
+
+    /**
+     * Oracle (min): the worst score for each topic when the wrong model is chosen
+     *
+     * @return worst scores of the given models, one per topic
+     */
+    public double[] min(int[] models, int[] topics) {
+        final double[] min = new double[topics.length];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        for (int m : models) {
+            final double[] row = scores[m];
+            for (int i = 0; i < topics.length; i++)
+                if (row[topics[i]] < min[i]) min[i] = row[topics[i]];
+        }
+        return min;
+    }
+
+    /**
+     * @return bias-corrected sample variance of the scores of the given models for a topic
+     */
+    public double variance(int t, int[] models) {
+        final int n = models.length;
+        if (n == 0) return Double.NaN;
+        if (n == 1) return 0.0;
+
+        double mean = 0.0;
+        for (int m : models)
+            mean += scores[m][t];
+        mean /= n;
+
+        double squares = 0.0, sum = 0.0;
+        for (int m : models) {
+            final double deviation = scores[m][t] - mean;
+            squares += deviation * deviation;
+            sum += deviation;
+        }
+        // corrected two-pass algorithm
+        return (squares - sum * sum / n) / (n - 1);
+    }
+
+    /**
+     * @return the given models sorted by their scores for a topic, best first, the earlier one first on ties
+     */
+    public int[] ranks(int t, int[] models) {
+        final Integer[] boxed = new Integer[models.length];
+        for (int i = 0; i < models.length; i++)
+            boxed[i] = models[i];
+        // stable
+        Arrays.sort(boxed, (a, b) -> Double.compare(scores[b][t], scores[a][t]));
+        final int[] ranks = new int[models.length];
+        for (int i = 0; i < models.length; i++)
+            ranks[i] = boxed[i];
+        return ranks;
+    }
+}
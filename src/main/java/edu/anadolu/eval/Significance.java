@@ -0,0 +1,279 @@
+package edu.anadolu.eval;
+
+import org.clueweb09.InfoNeed;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Paired significance tests between every pair of models over the same topics: Fisher's randomization test and
+ * the bootstrap test, both two-sided on the mean difference.
+ * Scores are copied into primitive arrays once, pairs are tested in parallel on the fork-join pool, and every pair
+ * draws from its own split of a seeded {@link SplittableRandom}, so that the p-values do not depend on the scheduling.
+ * The p-values of the family of all pairs can be adjusted for multiple comparisons.
+ */
+public final class Significance {
+
+    public enum Test {
+        /**
+         * Fisher's randomization (permutation) test: the signs of the differences are flipped at random
+         */
+        Randomization,
+        /**
+         * Bootstrap test: the differences, shifted to zero mean, are resampled with replacement
+         */
+        Bootstrap
+    }
+
+    public enum Correction {
+        None,
+        /**
+         * Family-wise error rate, single step
+         */
+        Bonferroni,
+        /**
+         * Family-wise error rate, step down
+         */
+        Holm,
+        /**
+         * False discovery rate of Benjamini and Hochberg
+         */
+        BH
+    }
+
+    public static final int ITERATIONS = 100000;
+
+    /**
+     * Tolerance of the comparison of a resampled statistic with the observed one, against rounding errors of the sums
+     */
+    private static final double EPSILON = 1e-10;
+
+    private final String[] models;
+    private final double[][] scores;
+
+    /**
+     * @param models model names
+     * @param scores scores[model][topic]
+     */
+    public Significance(String[] models, double[][] scores) {
+
+        if (models.length != scores.length)
+            throw new RuntimeException("models and scores sizes are not equal!");
+
+        for (double[] row : scores)
+            if (row.length != scores[0].length)
+                throw new RuntimeException("models are not evaluated on the same topics!");
+
+        // a missing score compares false with everything, and its pair would come out as significant
+        for (int i = 0; i < scores.length; i++)
+            for (double score : scores[i])
+                if (Double.isNaN(score))
+                    throw new RuntimeException(models[i] + " is not evaluated for all of the needs!");
+
+        this.models = models;
+        this.scores = scores;
+    }
+
+    /**
+     * @param matrix scores of an evaluator
+     * @param models models to compare
+     * @param needs  topics the models are compared on
+     */
+    public Significance(ScoreMatrix matrix, List<String> models, Collection<? extends InfoNeed> needs) {
+        this(models.toArray(new String[models.size()]), rows(matrix, models, needs));
+    }
+
+    private static double[][] rows(ScoreMatrix matrix, List<String> models, Collection<? extends InfoNeed> needs) {
+        final int[] topics = matrix.topics(needs);
+        return Arrays.stream(matrix.models(models)).mapToObj(m -> matrix.row(m, topics)).toArray(double[][]::new);
+    }
+
+    public String[] models() {
+        return models;
+    }
+
+    /**
+     * @param test       randomization or bootstrap
+     * @param iterations number of permutations or resamples per pair
+     * @param seed       seed of the random numbers
+     * @return symmetric matrix of two-sided p-values, NaN on the diagonal
+     */
+    public double[][] pValues(Test test, int iterations, long seed) {
+
+        final int n = models.length;
+
+        final int[] first = new int[n * (n - 1) / 2];
+        final int[] second = new int[first.length];
+        final SplittableRandom[] randoms = new SplittableRandom[first.length];
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        int pair = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++) {
+                first[pair] = i;
+                second[pair] = j;
+                randoms[pair++] = random.split();
+            }
+
+        final double[][] pValues = new double[n][n];
+        for (int i = 0; i < n; i++)
+            pValues[i][i] = Double.NaN;
+
+        IntStream.range(0, first.length).parallel().forEach(p -> {
+
+            final double[] differences = differences(scores[first[p]], scores[second[p]]);
+
+            final double pValue = Test.Randomization.equals(test)
+                    ? randomization(differences, iterations, randoms[p])
+                    : bootstrap(differences, iterations, randoms[p]);
+
+            pValues[first[p]][second[p]] = pValue;
+            pValues[second[p]][first[p]] = pValue;
+        });
+
+        return pValues;
+    }
+
+    private static double[] differences(double[] a, double[] b) {
+        final double[] differences = new double[a.length];
+        for (int i = 0; i < a.length; i++)
+            differences[i] = a[i] - b[i];
+        return differences;
+    }
+
+    /**
+     * Two-sided paired randomization test. Sums are compared instead of means, as the number of topics is fixed.
+     * Every random long supplies the signs of 64 topics.
+     *
+     * @return fraction of the sign assignments whose absolute sum is at least the observed one, counting the observed
+     * assignment itself, so that a sampled p-value is never zero
+     */
+    static double randomization(double[] differences, int iterations, SplittableRandom random) {
+
+        final int n = differences.length;
+
+        double observed = 0.0;
+        for (double difference : differences)
+            observed += difference;
+        observed = Math.abs(observed) - EPSILON;
+
+        int count = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+
+            double sum = 0.0;
+            for (int start = 0; start < n; start += 64) {
+                long signs = random.nextLong();
+                final int end = Math.min(n, start + 64);
+                for (int i = start; i < end; i++, signs >>>= 1)
+                    sum += (signs & 1L) == 0 ? differences[i] : -differences[i];
+            }
+
+            if (Math.abs(sum) >= observed) count++;
+        }
+
+        return (count + 1.0) / (iterations + 1);
+    }
+
+    /**
+     * Two-sided paired bootstrap test, resampling the differences shifted to zero mean, so that the null hypothesis holds
+     *
+     * @return fraction of the resamples whose absolute sum is at least the observed one, counting the observed sample
+     * itself, so that a sampled p-value is never zero
+     */
+    static double bootstrap(double[] differences, int iterations, SplittableRandom random) {
+
+        final int n = differences.length;
+
+        double observed = 0.0;
+        for (double difference : differences)
+            observed += difference;
+
+        final double mean = observed / n;
+        final double[] shifted = new double[n];
+        for (int i = 0; i < n; i++)
+            shifted[i] = differences[i] - mean;
+
+        observed = Math.abs(observed) - EPSILON;
+
+        int count = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+
+            double sum = 0.0;
+            for (int i = 0; i < n; i++)
+                sum += shifted[random.nextInt(n)];
+
+            if (Math.abs(sum) >= observed) count++;
+        }
+
+        return (count + 1.0) / (iterations + 1);
+    }
+
+    /**
+     * Adjusts the p-values of the family of all pairs of models for multiple comparisons
+     *
+     * @param pValues    symmetric matrix of p-values
+     * @param correction correction method
+     * @return symmetric matrix of adjusted p-values, NaN on the diagonal
+     */
+    public static double[][] correct(double[][] pValues, Correction correction) {
+
+        final int n = pValues.length;
+        final int m = n * (n - 1) / 2;
+
+        final double[] raw = new double[m];
+        int pair = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                raw[pair++] = pValues[i][j];
+
+        final double[] adjusted = adjust(raw, correction);
+
+        final double[][] corrected = new double[n][n];
+        pair = 0;
+        for (int i = 0; i < n; i++) {
+            corrected[i][i] = Double.NaN;
+            for (int j = i + 1; j < n; j++) {
+                corrected[i][j] = adjusted[pair];
+                corrected[j][i] = adjusted[pair++];
+            }
+        }
+        return corrected;
+    }
+
+    static double[] adjust(double[] pValues, Correction correction) {
+
+        final int m = pValues.length;
+        final double[] adjusted = new double[m];
+
+        if (Correction.None.equals(correction)) {
+            System.arraycopy(pValues, 0, adjusted, 0, m);
+            return adjusted;
+        }
+
+        if (Correction.Bonferroni.equals(correction)) {
+            for (int i = 0; i < m; i++)
+                adjusted[i] = Math.min(1.0, pValues[i] * m);
+            return adjusted;
+        }
+
+        // indices in increasing order of the p-values
+        final int[] order = IntStream.range(0, m).boxed()
+                .sorted(Comparator.comparingDouble(i -> pValues[i]))
+                .mapToInt(Integer::intValue).toArray();
+
+        if (Correction.Holm.equals(correction)) {
+            double max = 0.0;
+            for (int k = 0; k < m; k++) {
+                max = Math.max(max, Math.min(1.0, (m - k) * pValues[order[k]]));
+                adjusted[order[k]] = max;
+            }
+        } else {
+            double min = 1.0;
+            for (int k = m - 1; k >= 0; k--) {
+                min = Math.min(min, pValues[order[k]] * m / (k + 1));
+                adjusted[order[k]] = min;
+            }
+        }
+        return adjusted;
+    }
+}
@@ -66,7 +66,7 @@ public final class StatAP implements EvalTool {
                 //TODO Read http://maroo.cs.umass.edu/getpdf.php?id=800 and understand UMASS and related statAP flags
                 if (parts.length == 2 && "UMASS".equals(parts[1]) && parts[0].startsWith("topic=")) {
                     topic = Integer.parseInt(parts[0].substring(6));
-                    nDCG_20 = nDCG_100 = ap = p30 = "0.00000";
+                    nDCG_20 = nDCG_100 = ap = p30 = p10 = "0.00000";
                     return;
                 }
                 throw new IllegalArgumentException("paragraph does not have 17 nor 18 entries : " + paragraph);
@@ -146,7 +146,7 @@ public final class StatAP implements EvalTool {
     public String getMetric(InfoNeed need, Metric metric) {
 
         if (!elementList.containsKey(need.id()))
-            throw new RuntimeException("need : " + need + " cannot be found!");
+            throw new NeedNotFoundException(need);
 
         Element element = elementList.get(need.id());
 
@@ -35,7 +35,11 @@ public final class TrecEval implements EvalTool {
             this.k = k;
 
             for (String line : lines) {
-                if (line.startsWith("map")) {
+
+                // P_10 is a prefix of P_100 and P_1000
+                final String measure = whiteSpaceSplitter.split(line)[0];
+
+                if ("map".equals(measure)) {
                    String[] parts = whiteSpaceSplitter.split(line);
 
                     if (parts.length != 3) throw new RuntimeException("line does not have 3 parts:  " + line);
@@ -45,7 +49,7 @@ public final class TrecEval implements EvalTool {
 
                 }
 
-                if (line.startsWith("P_" + Integer.toString(k))) {
+                if (("P_" + k).equals(measure)) {
                     String[] parts = whiteSpaceSplitter.split(line);
 
                     if (parts.length != 3) throw new RuntimeException("line does not have 3 parts:  " + line);
@@ -53,7 +57,7 @@ public final class TrecEval implements EvalTool {
                     qID = Integer.parseInt(parts[1]);
 
                 }
-                if (line.startsWith("recall_" + Integer.toString(k))) {
+                if (("recall_" + k).equals(measure)) {
                     String[] parts = whiteSpaceSplitter.split(line);
 
                     if (parts.length != 3) throw new RuntimeException("line does not have 3 parts:  " + line);
@@ -61,7 +65,7 @@ public final class TrecEval implements EvalTool {
                     qID = Integer.parseInt(parts[1]);
 
                 }
-                if (line.startsWith("ncg_cut_" + Integer.toString(k))) {
+                if (("ncg_cut_" + k).equals(measure)) {
                     String[] parts = whiteSpaceSplitter.split(line);
 
                     if (parts.length != 3) throw new RuntimeException("line does not have 3 parts:  " + line);
@@ -115,7 +119,7 @@ public final class TrecEval implements EvalTool {
     public String getMetric(InfoNeed need, Metric metric) {
 
         if (!elementList.containsKey(need.id()))
-            throw new RuntimeException("need : " + need + " cannot be found!");
+            throw new NeedNotFoundException(need);
 
         Element element = elementList.get(need.id());
 
@@ -1,6 +1,8 @@
 package edu.anadolu.exp;
 
 import edu.anadolu.Indexer;
+import edu.anadolu.ParsedCorpus;
+import edu.anadolu.ParsedDocument;
 import edu.anadolu.analysis.Analyzers;
 import edu.anadolu.datasets.Collection;
 import edu.anadolu.datasets.DataSet;
@@ -10,6 +12,7 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.clueweb09.ClueWeb09WarcRecord;
 import org.clueweb09.ClueWeb12WarcRecord;
 import org.clueweb09.Gov2Record;
+import org.clueweb09.ParallelGZIPInputStream;
 import org.clueweb09.WarcRecord;
 import org.jsoup.Jsoup;
 
@@ -20,9 +23,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
 import java.util.function.BiPredicate;
 import java.util.stream.Stream;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import static edu.anadolu.Indexer.BUFFER_SIZE;
@@ -93,11 +96,33 @@ public class Word2VecTraverser {
             return 1;
         }
 
+        private int processParsedFile() throws IOException {
+
+            int i = 0;
+
+            try (ParsedCorpus.Reader reader = parsedCorpus.reader(inputWarcFile, EnumSet.of(ParsedDocument.Column.TEXT))) {
+                ParsedDocument parsed;
+                while ((parsed = reader.next()) != null) {
+
+                    if (skip(parsed.id())) continue;
+
+                    // don't index empty documents
+                    if (parsed.text().length() == 0) {
+                        System.err.println(parsed.id());
+                    } else
+                        out.println(getAnalyzedTokens(parsed.text(), Analyzers.analyzer(KStem)));
+
+                    i++;
+                }
+            }
+            return i;
+        }
+
         private int processClueWeb12WarcFile() throws IOException {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
                 ClueWeb12WarcRecord wDoc;
                 while ((wDoc = ClueWeb12WarcRecord.readNextWarcRecord(inStream)) != null) {
@@ -111,7 +136,7 @@ public class Word2VecTraverser {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
                 ClueWeb09WarcRecord wDoc;
                 while ((wDoc = ClueWeb09WarcRecord.readNextWarcRecord(inStream)) != null) {
@@ -130,7 +155,7 @@ public class Word2VecTraverser {
             boolean found = false;
 
             try (
-                    InputStream stream = new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE);
+                    InputStream stream = ParallelGZIPInputStream.open(inputWarcFile);
                     BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
 
 
@@ -166,7 +191,9 @@ public class Word2VecTraverser {
 
                 Thread.currentThread().setName(inputWarcFile.toAbsolutePath().toString());
 
-                if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection)) {
+                if (parsedCorpus.contains(inputWarcFile)) {
+                    int addCount = processParsedFile();
+                } else if (Collection.CW09A.equals(collection) || Collection.CW09B.equals(collection)) {
                     int addCount = processClueWeb09WarcFile();
                     //System.out.println("*./" + inputWarcFile.getParent().getFileName().toString() + File.separator + inputWarcFile.getFileName().toString() + "  " + addCount);
                 } else if (Collection.CW12A.equals(collection) || Collection.CW12B.equals(collection)) {
@@ -199,6 +226,7 @@ public class Word2VecTraverser {
 
     private final Path docsPath;
     private final Collection collection;
+    private final ParsedCorpus parsedCorpus;
 
 
     public Word2VecTraverser(DataSet dataset, String docsDir) {
@@ -210,6 +238,8 @@ public class Word2VecTraverser {
             System.out.println("Document directory '" + docsPath.toString() + "' does not exist or is not readable, please check the path");
             System.exit(1);
         }
+
+        this.parsedCorpus = new ParsedCorpus(docsPath, dataset.collectionPath().resolve(ParsedCorpus.DIRECTORY));
     }
 
 
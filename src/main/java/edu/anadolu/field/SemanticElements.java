@@ -1,6 +1,7 @@
 package edu.anadolu.field;
 
 import edu.anadolu.Indexer;
+import edu.anadolu.ParsedDocument;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.document.Document;
@@ -73,6 +74,20 @@ public class SemanticElements {
 
         return document;
     }
+
+    /**
+     * Indexes HTML5 Semantic Elements that are extracted into the {@link ParsedDocument.Column#TAGS} column.
+     *
+     * @param parsed parsed document
+     * @return Lucene Document having semantic tags are
+     */
+    public static Document warc2LuceneDocument(ParsedDocument parsed) {
+        Document document = new Document();
+        document.add(new StringField("id", parsed.id(), Field.Store.YES));
+        document.add(new Indexer.NoPositionsTextField("tags", parsed.tags()));
+        return document;
+    }
+
     static String dfnSemantic(org.jsoup.nodes.Document jDoc){
         StringBuilder dfns = new StringBuilder();
         List<SemanticTag> selectedTags = semanticElementsWithAttr(jDoc);
@@ -196,7 +211,7 @@ public class SemanticElements {
     }
 
     @Deprecated
-    static String semanticElements(org.jsoup.nodes.Document jDoc) {
+    public static String semanticElements(org.jsoup.nodes.Document jDoc) {
 
         StringBuilder tags = new StringBuilder();
 
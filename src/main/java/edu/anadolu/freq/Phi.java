@@ -1,5 +1,6 @@
 package edu.anadolu.freq;
 
+import edu.anadolu.TermStats;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.*;
@@ -38,7 +39,7 @@ public class Phi extends TermFreqDistribution {
      * Total Term Frequency (TF) of a term
      */
     public long TF(Term term) throws IOException {
-        TermStatistics termStatistics = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+        TermStatistics termStatistics = TermStats.of(reader).statistics(term);
         return termStatistics.totalTermFreq();
     }
 
@@ -1,6 +1,7 @@
 package edu.anadolu.freq;
 
 
+import edu.anadolu.DocIds;
 import edu.anadolu.analysis.Analyzers;
 import edu.anadolu.analysis.Tag;
 import org.apache.lucene.analysis.Analyzer;
@@ -98,13 +99,14 @@ public class TermFreqDistribution implements TFD {
     /**
      * Frequency Distribution over Query Relevance Judgments
      *
-     * @param word  singe query term
-     * @param field field
-     * @param track track
-     * @param need  topic
+     * @param word   singe query term
+     * @param field  field
+     * @param track  track
+     * @param need   topic
+     * @param docIds resolver of the document identifiers
      * @throws IOException if occurs during file write operations
      */
-    private void saveQRelDistribution(String word, String field, Track track, InfoNeed need, final Map<Integer, PrintWriter> writerMap) throws IOException {
+    private void saveQRelDistribution(String word, String field, Track track, InfoNeed need, final Map<Integer, PrintWriter> writerMap, DocIds docIds) throws IOException {
 
         Term term = new Term(field, word);
         PostingsEnum postingsEnum = MultiFields.getTermDocsEnum(reader, field, term.bytes());
@@ -124,7 +126,7 @@ public class TermFreqDistribution implements TFD {
 
         while (postingsEnum.nextDoc() != PostingsEnum.NO_MORE_DOCS) {
 
-            String docID = reader.document(postingsEnum.docID()).get("id");
+            String docID = docIds.get(postingsEnum.docID());
 
             final int judge = need.getJudge(docID);
 
@@ -155,19 +157,22 @@ public class TermFreqDistribution implements TFD {
         for (int judge : track.getJudgeLevels())
             writerMap.put(judge, new PrintWriter(Files.newBufferedWriter(base.resolve(generateFileName(judge)))));
 
-        for (InfoNeed need : track.getTopics()) {
+        try (DocIds docIds = DocIds.open(reader)) {
 
-            List<String> subParts = Analyzers.getAnalyzedTokens(need.query(), analyzer);
+            for (InfoNeed need : track.getTopics()) {
 
-            // Topics 95 and 100 from WT10 do not have relevance judgments.
-            if (!track.isJudged(need.id())) {
-                System.err.println("Skipping topic " + need.id() + " from " + track.toString() + ". It is not judged at all.");
-                continue;
-            }
+                List<String> subParts = Analyzers.getAnalyzedTokens(need.query(), analyzer);
 
-            for (String word : subParts)
-                saveQRelDistribution(word, field, track, need, writerMap);
+                // Topics 95 and 100 from WT10 do not have relevance judgments.
+                if (!track.isJudged(need.id())) {
+                    System.err.println("Skipping topic " + need.id() + " from " + track.toString() + ". It is not judged at all.");
+                    continue;
+                }
+
+                for (String word : subParts)
+                    saveQRelDistribution(word, field, track, need, writerMap, docIds);
 
+            }
         }
 
         for (Map.Entry<Integer, PrintWriter> entry : writerMap.entrySet()) {
@@ -9,6 +9,7 @@ import edu.anadolu.datasets.CollectionFactory;
 import edu.anadolu.datasets.DataSet;
 import edu.anadolu.eval.Evaluator;
 import edu.anadolu.eval.ModelScore;
+import edu.anadolu.eval.ScoreMatrix;
 import edu.anadolu.freq.Freq;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.stat.StatUtils;
@@ -125,13 +126,25 @@ public class KNNTool extends EvaluatorTool {
     }
 
 
+    /**
+     * @return matrix indices of the test queries, in fold order
+     */
+    private static int[] testTopics(ScoreMatrix matrix, Fold[] folds) {
+        List<InfoNeed> testQueries = new ArrayList<>();
+        for (Fold fold : folds)
+            testQueries.addAll(fold.testQueries);
+        return matrix.topics(testQueries);
+    }
+
     public final double[] scoreArray(int size, Evaluator evaluator, String model, Fold[] folds) {
 
-        double[] scores = new double[size];
-        int c = 0;
+        final ScoreMatrix matrix = evaluator.scoreMatrix();
+        final int[] topics = testTopics(matrix, folds);
 
-        if (c != size) throw new RuntimeException("counter :" + c + " does not match size : " + size);
-        return scores;
+        if (topics.length != size)
+            throw new RuntimeException("counter :" + topics.length + " does not match size : " + size);
+
+        return matrix.row(matrix.models(Collections.singleton(model))[0], topics);
     }
 
     public final double[] oracleMinScoreArray(Evaluator evaluator, List<InfoNeed> residualTFDAwareNeeds, Fold[]
@@ -153,29 +166,13 @@ public class KNNTool extends EvaluatorTool {
 
     public final double[] oracleMaxScoreArray(Evaluator evaluator, int size, Fold[] folds) {
 
-        double[] oracleMaxScores = new double[size];
-        int c = 0;
-        for (Fold fold : folds)
-            for (InfoNeed testQuery : fold.testQueries) {
-
-
-                double max = Double.NEGATIVE_INFINITY;
-
-                for (String model : evaluator.getModelSet()) {
-                    double score = evaluator.score(testQuery, model);
-                    if (score > max)
-                        max = score;
-                }
-
-                oracleMaxScores[c++] = max;
-
+        final ScoreMatrix matrix = evaluator.scoreMatrix();
+        final int[] topics = testTopics(matrix, folds);
 
-            }
-
-        if (c != size)
-            throw new RuntimeException("counter :" + c + " does not match size : " + size);
+        if (topics.length != size)
+            throw new RuntimeException("counter :" + topics.length + " does not match size : " + size);
 
-        return oracleMaxScores;
+        return matrix.max(matrix.models(evaluator.getModelSet()), topics);
     }
 
     public double[] randomXScoreArray(Evaluator evaluator, int size, Fold[] folds) {
@@ -642,6 +639,9 @@ public class KNNTool extends EvaluatorTool {
 
         int c = 1;
 
+        final ScoreMatrix matrix = evaluator.scoreMatrix();
+        final int[] indices = matrix.models(modelSet);
+
         for (Fold fold : folds)
             for (final InfoNeed testQuery : fold.testQueries) {
 
@@ -651,11 +651,13 @@ public class KNNTool extends EvaluatorTool {
                 r0.createCell(c).setCellValue("T" + qID);
                 //RxT.addCell(new Label(c, 0, "T" + qID));
 
+                final double[] column = matrix.column(matrix.topic(testQuery), indices);
+
                 counter = 0;
-                for (String model : modelSet) {
+                for (double score : column) {
                     // RxT.addCell(new Number(c, ++counter, evaluator.score(testQuery, model)));
                     Row r = RxT.getRow(++counter);
-                    r.createCell(c).setCellValue(evaluator.score(testQuery, model));
+                    r.createCell(c).setCellValue(score);
                 }
 
                 RxT.getRow(++counter).createCell(c, CellType.NUMERIC).setCellValue(oracleMinScores[c - 2]);
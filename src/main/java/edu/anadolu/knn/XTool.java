@@ -12,6 +12,7 @@ import edu.anadolu.datasets.CollectionFactory;
 import edu.anadolu.datasets.DataSet;
 import edu.anadolu.eval.Evaluator;
 import edu.anadolu.eval.ModelScore;
+import edu.anadolu.eval.ScoreMatrix;
 import edu.anadolu.freq.Freq;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.stat.StatUtils;
@@ -350,6 +351,8 @@ public class XTool extends CmdLineTool {
 
         int c = 1;
 
+        final ScoreMatrix matrix = evaluator.scoreMatrix();
+        final int[] indices = matrix.models(models);
 
         for (final InfoNeed testQuery : residualNeeds) {
 
@@ -359,9 +362,9 @@ public class XTool extends CmdLineTool {
             r0.createCell(c).setCellValue("T" + qID);
 
             counter = 0;
-            for (String model : models) {
+            for (double score : matrix.column(matrix.topic(testQuery), indices)) {
                 Row r = RxT.getRow(++counter);
-                r.createCell(c).setCellValue(evaluator.score(testQuery, model));
+                r.createCell(c).setCellValue(score);
             }
 
             //    RxT.getRow(++counter).createCell(c, CellType.NUMERIC).setCellValue(oracleMinScores[c - 2]);
@@ -2,8 +2,8 @@ package edu.anadolu.ltr;
 
 
 import edu.anadolu.Indexer;
+import edu.anadolu.TermStats;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.index.TermContext;
 
 import java.io.IOException;
 import java.util.Map;
@@ -24,9 +24,11 @@ public class CDD implements IDocFeature {
         
         int contentsize = base.listContent.size();
         long totalTerm = base.collectionStatistics.sumTotalTermFreq();
+        // words of the document are looked up without filling the shared term statistics cache
+        final TermStats stats = TermStats.of(base.reader);
         for(Map.Entry<String,Integer> word : base.mapTf.entrySet()){
             Term term = new Term(Indexer.FIELD_CONTENTS, word.getKey());
-            double pColl = (double) TermContext.build(base.reader.getContext(), term).totalTermFreq()/totalTerm;
+            double pColl = (double) stats.lookupTotalTermFreq(term)/totalTerm;
             double pDoc = (double) word.getValue()/ contentsize;
             double pwd = (lambda * pDoc) + ((1-lambda) * pColl);
             cdd += pColl * Math.log(pColl/pwd);
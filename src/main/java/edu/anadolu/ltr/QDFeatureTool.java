@@ -1,6 +1,7 @@
 package edu.anadolu.ltr;
 
 import edu.anadolu.Indexer;
+import edu.anadolu.TermStats;
 import edu.anadolu.analysis.Analyzers;
 import edu.anadolu.analysis.Tag;
 import edu.anadolu.cmdline.CLI;
@@ -12,7 +13,6 @@ import edu.anadolu.similarities.*;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.TermStatistics;
@@ -137,6 +137,7 @@ public class QDFeatureTool extends CmdLineTool {
         this.analyzerTag = Tag.tag(indexTag);
 
         this.reader = DirectoryReader.open(FSDirectory.open(indexPath));
+        TermStats.of(reader, TermStats.file(indexPath));
 
         IndexSearcher searcher = new IndexSearcher(reader);
         CollectionStatistics collectionStatistics = searcher.collectionStatistics(Indexer.FIELD_CONTENTS);
@@ -149,11 +150,12 @@ public class QDFeatureTool extends CmdLineTool {
             for (String word : subParts) {
                 if (termStatisticsMap.containsKey(word)) continue;
                 Term term = new Term(Indexer.FIELD_CONTENTS, word);
-                TermStatistics termStatistics = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+                TermStatistics termStatistics = TermStats.of(reader).statistics(term);
                 termStatisticsMap.put(word, termStatistics);
             }
 
         }
+        TermStats.of(reader).save();
 
         ///////////////////////////// Index Reading for stats ///////////////////////////////////////////
         long start = System.nanoTime();
@@ -1,6 +1,7 @@
 package edu.anadolu.ltr;
 
 import edu.anadolu.Indexer;
+import edu.anadolu.StaticRanks;
 import edu.anadolu.analysis.Analyzers;
 import edu.anadolu.analysis.Tag;
 import edu.anadolu.cmdline.CLI;
@@ -257,8 +258,10 @@ public class SEOTool extends CmdLineTool {
         }else if(type.equals("doc")){
             features.add(new NumberOfChildPages(collection));
             features.add(new InLinkCount(collection));
-            features.add(new PageRank(collection));
-            features.add(new SpamScore(collection));
+            // spam percentiles and PageRank scores are read from the static rank table when it is imported
+            final StaticRanks ranks = StaticRanks.exists(tfd_home, collection) ? StaticRanks.open(tfd_home, collection) : null;
+            features.add(new PageRank(collection, ranks));
+            features.add(new SpamScore(collection, ranks));
 
             features.add(new Entropy());
             features.add(new NumberOfSlashesInURL());
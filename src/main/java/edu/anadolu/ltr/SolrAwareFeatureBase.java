@@ -1,5 +1,6 @@
 package edu.anadolu.ltr;
 
+import edu.anadolu.StaticRanks;
 import edu.anadolu.datasets.Collection;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 
@@ -14,13 +15,24 @@ abstract class SolrAwareFeatureBase implements IDocFeature, Closeable {
     final HttpSolrClient solrClient;
     final Collection collection;
 
+    /**
+     * Static rank table that is used instead of Solr when it is not null
+     */
+    final StaticRanks ranks;
+
     SolrAwareFeatureBase(Collection collection) {
-        this.solrClient = SEOTool.solrClientFactory(collection, this.getClass());
+        this(collection, null);
+    }
+
+    SolrAwareFeatureBase(Collection collection, StaticRanks ranks) {
+        this.solrClient = ranks == null ? SEOTool.solrClientFactory(collection, this.getClass()) : null;
         this.collection = collection;
+        this.ranks = ranks;
     }
 
     @Override
     public void close() throws IOException {
-        solrClient.close();
+        if (solrClient != null)
+            solrClient.close();
     }
 }
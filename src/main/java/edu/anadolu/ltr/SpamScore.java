@@ -1,5 +1,6 @@
 package edu.anadolu.ltr;
 
+import edu.anadolu.StaticRanks;
 import edu.anadolu.datasets.Collection;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -17,6 +18,10 @@ public class SpamScore extends SolrAwareFeatureBase {
         super(collection);
     }
 
+    public SpamScore(Collection collection, StaticRanks ranks) {
+        super(collection, ranks);
+    }
+
     @Override
     public String toString() {
         return this.getClass().getSimpleName();
@@ -24,6 +29,14 @@ public class SpamScore extends SolrAwareFeatureBase {
 
     @Override
     public double calculate(DocFeatureBase base) throws IOException {
+
+        if (ranks != null) {
+            int percentile = ranks.percentile(base.docId);
+            if (percentile == -1)
+                throw new RuntimeException("cannot find docID " + base.docId + " in " + ranks);
+            return (double) percentile / 100;
+        }
+
         SolrQuery query = new SolrQuery(base.docId).setFields("percentile");
         query.set(HEADER_ECHO_PARAMS, CommonParams.EchoParamStyle.NONE.toString());
         query.set(OMIT_HEADER, true);
@@ -14,6 +14,8 @@ import org.apache.lucene.search.TermStatistics;
 import org.clueweb09.ClueWeb09WarcRecord;
 import org.clueweb09.ClueWeb12WarcRecord;
 import org.clueweb09.Gov2Record;
+import org.clueweb09.ParallelGZIPInputStream;
+import org.clueweb09.WarcOffsetIndex;
 import org.clueweb09.WarcRecord;
 
 import java.io.*;
@@ -21,7 +23,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.Executors;
@@ -32,9 +33,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.GZIPInputStream;
 
-import static edu.anadolu.Indexer.BUFFER_SIZE;
 import static edu.anadolu.Indexer.discoverWarcFiles;
 
 /**
@@ -80,7 +79,7 @@ public class Traverser {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
                 ClueWeb12WarcRecord wDoc;
                 while ((wDoc = ClueWeb12WarcRecord.readNextWarcRecord(inStream)) != null) {
@@ -96,7 +95,7 @@ public class Traverser {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
                 ClueWeb09WarcRecord wDoc;
                 while ((wDoc = ClueWeb09WarcRecord.readNextWarcRecord(inStream)) != null) {
@@ -117,7 +116,7 @@ public class Traverser {
             boolean found = false;
 
             try (
-                    InputStream stream = new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE);
+                    InputStream stream = ParallelGZIPInputStream.open(inputWarcFile);
                     BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
 
 
@@ -184,6 +183,7 @@ public class Traverser {
     }
 
     private final Path docsPath;
+    private final Path offsetsPath;
     private final Collection collection;
     private final Set<String> docIdSet;
     private final List<IDocFeature> featureList;
@@ -195,6 +195,7 @@ public class Traverser {
 
     Traverser(DataSet dataset, String docsDir, Set<String> docIdSet, List<IDocFeature> featureList, CollectionStatistics collectionStatistics, Tag analyzerTag, IndexSearcher searcher, IndexReader reader, String resultsettype) {
         this.collection = dataset.collection();
+        this.offsetsPath = dataset.collectionPath().resolve(WarcOffsetIndex.DIRECTORY);
         this.docIdSet = docIdSet;
         this.featureList = featureList;
         this.collectionStatistics = collectionStatistics;
@@ -226,7 +227,12 @@ public class Traverser {
 
         final AtomicReference<PrintWriter> out = new AtomicReference<>(new PrintWriter(Files.newBufferedWriter(resultPath, StandardCharsets.US_ASCII)));
 
-        if(collection.equals(Collection.CW09A)||collection.equals(Collection.CW09B)) {
+        if (!"all".equals(resultsettype) && WarcOffsetIndex.exists(offsetsPath)) {
+            // fetch only the requested documents instead of scanning their WARC files
+            System.out.println(docIdSet.size() + " docs will be fetched using the offset index " + offsetsPath);
+            WorkerThread worker = new WorkerThread(null, out, rc1);
+            WarcOffsetIndex.open(offsetsPath, docsPath).fetchParallel(docIdSet, worker::processWarcRecord);
+        } else if(collection.equals(Collection.CW09A)||collection.equals(Collection.CW09B)) {
             Set<String> docIdPathSuffix = new LinkedHashSet<>();
             for (String s : docIdSet)
                 docIdPathSuffix.add(s.split("-")[1] + File.separator + s.split("-")[2] + ".warc.gz");
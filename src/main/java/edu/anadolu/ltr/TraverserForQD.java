@@ -14,16 +14,13 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.GZIPInputStream;
 
-import static edu.anadolu.Indexer.BUFFER_SIZE;
 
 /**
  * Traverses for ClueWeb{09|12} plus GOV2
@@ -75,7 +72,7 @@ public class TraverserForQD {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
                 ClueWeb12WarcRecord wDoc;
                 while ((wDoc = ClueWeb12WarcRecord.readNextWarcRecord(inStream)) != null) {
@@ -89,7 +86,7 @@ public class TraverserForQD {
 
             int i = 0;
 
-            try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE))) {
+            try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(inputWarcFile))) {
                 // iterate through our stream
                 ClueWeb09WarcRecord wDoc;
                 while ((wDoc = ClueWeb09WarcRecord.readNextWarcRecord(inStream)) != null) {
@@ -108,7 +105,7 @@ public class TraverserForQD {
             boolean found = false;
 
             try (
-                    InputStream stream = new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ), BUFFER_SIZE);
+                    InputStream stream = ParallelGZIPInputStream.open(inputWarcFile);
                     BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
 
 
@@ -173,6 +170,7 @@ public class TraverserForQD {
     }
 
     private final Path docsPath;
+    private final Path offsetsPath;
     private final Collection collection;
     private Set<String> docIdSet;
     private Set<AbstractMap.SimpleEntry<String,String>> qdPairs;
@@ -186,6 +184,7 @@ public class TraverserForQD {
 
     TraverserForQD(DataSet dataset, String docsDir, Set<AbstractMap.SimpleEntry<String,String>> qdPairs, List<IQDFeature> qdFeatureList, CollectionStatistics collectionStatistics, Map<String,TermStatistics> termStatisticsMap, Tag analyzerTag, Set<String> docIdSet) {
         this.collection = dataset.collection();
+        this.offsetsPath = dataset.collectionPath().resolve(WarcOffsetIndex.DIRECTORY);
         this.qdPairs = qdPairs;
         this.qdFeatureList = qdFeatureList;
         this.dataSet = dataset;
@@ -214,10 +213,16 @@ public class TraverserForQD {
 
         final AtomicReference<PrintWriter> out = new AtomicReference<>(new PrintWriter(Files.newBufferedWriter(resultPath, StandardCharsets.US_ASCII)));
 
-        try (Stream<Path> stream = Files.find(docsPath, 4, new WarcMatcher(suffix))) {
+        if (WarcOffsetIndex.exists(offsetsPath)) {
+            // fetch only the judged documents instead of scanning the whole collection
+            System.out.println(docIdSet.size() + " docs will be fetched using the offset index " + offsetsPath);
+            WorkerThread worker = new WorkerThread(null, out);
+            WarcOffsetIndex.open(offsetsPath, docsPath).fetchParallel(docIdSet, worker::processWarcRecord);
+        } else
+            try (Stream<Path> stream = Files.find(docsPath, 4, new WarcMatcher(suffix))) {
 
-            stream.parallel().forEach(p -> new WorkerThread(p, out).run());
-        }
+                stream.parallel().forEach(p -> new WorkerThread(p, out).run());
+            }
 
         out.get().flush();
         out.get().close();
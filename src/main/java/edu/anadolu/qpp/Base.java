@@ -1,13 +1,13 @@
 package edu.anadolu.qpp;
 
 import edu.anadolu.QueryBank;
+import edu.anadolu.TermStats;
 import edu.anadolu.analysis.Analyzers;
 import edu.anadolu.analysis.Tag;
 import edu.anadolu.similarities.MetaTerm;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.TermStatistics;
@@ -45,6 +45,7 @@ public abstract class Base implements Predictor, Closeable {
         this.indexPath = indexPath;
         this.analyzer = Analyzers.analyzer(Tag.tag(indexPath.getFileName().toString()));
         this.reader = DirectoryReader.open(FSDirectory.open(indexPath));
+        TermStats.of(reader, TermStats.file(indexPath));
         this.searcher = new IndexSearcher(reader);
         this.searcher.setSimilarity(new MetaTerm());
         this.field = field;
@@ -61,7 +62,11 @@ public abstract class Base implements Predictor, Closeable {
 
     @Override
     public void close() throws IOException {
-        reader.close();
+        try {
+            TermStats.of(reader).save();
+        } finally {
+            reader.close();
+        }
     }
 
 
@@ -70,7 +75,7 @@ public abstract class Base implements Predictor, Closeable {
      */
     public long df(String field, String word) throws IOException {
         Term term = new Term(field, word);
-        TermStatistics termStatistics = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+        TermStatistics termStatistics = TermStats.of(reader).statistics(term);
         if (termStatistics.docFreq() == 0) System.err.println(word + " has 0 df");
         return termStatistics.docFreq();
     }
@@ -80,7 +85,7 @@ public abstract class Base implements Predictor, Closeable {
      */
     public long ctf(String field, String word) throws IOException {
         Term term = new Term(field, word);
-        TermStatistics termStatistics = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+        TermStatistics termStatistics = TermStats.of(reader).statistics(term);
         return termStatistics.totalTermFreq();
     }
 
@@ -1,16 +1,13 @@
 package edu.anadolu.qpp;
 
+import edu.anadolu.Conjunction;
 import edu.anadolu.datasets.DataSet;
-import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
-import org.apache.lucene.search.BooleanClause;
-import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.TermQuery;
 import org.clueweb09.InfoNeed;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 
 import static edu.anadolu.analysis.Analyzers.getAnalyzedToken;
@@ -23,12 +20,8 @@ import static org.apache.lucene.search.similarities.ModelBase.log2;
  */
 public class PMI extends Base {
 
-    private final QueryParser queryParser;
-
     public PMI(Path indexPath, String field) throws IOException {
         super(indexPath, field);
-        queryParser = new QueryParser(field, analyzer);
-        queryParser.setDefaultOperator(QueryParser.Operator.AND);
     }
 
     public PMI(DataSet dataset, String tag, String field) throws IOException {
@@ -37,29 +30,10 @@ public class PMI extends Base {
 
 
     /**
-     * the number of documents containing at both of the terms
-     */
-    private int term1ANDterm2(String term1, String term2) throws IOException, ParseException {
-        int temp = t1ANDt2(term1, term2);
-        int actual = searcher.count(queryParser.parse(term1 + " " + term2)) + 1;
-
-        if (temp != actual) throw new RuntimeException("previous implementation returns different result from new one");
-
-        return actual;
-    }
-
-    /**
-     * the number of documents containing at both of the terms
+     * the number of documents containing at both of the terms, intersected by {@link Conjunction}
      */
-    private int t1ANDt2(String term1, String term2) throws IOException {
-
-        TermQuery t1 = new TermQuery(new Term(field, getAnalyzedToken(term1, analyzer)));
-        TermQuery t2 = new TermQuery(new Term(field, getAnalyzedToken(term2, analyzer)));
-
-        BooleanQuery.Builder builder = new BooleanQuery.Builder();
-        builder.add(t1, BooleanClause.Occur.MUST).add(t2, BooleanClause.Occur.MUST);
-
-        return searcher.count(builder.build()) + 1;
+    private int term1ANDterm2(String term1, String term2) throws IOException {
+        return Conjunction.count(reader, field, Arrays.asList(getAnalyzedToken(term1, analyzer), getAnalyzedToken(term2, analyzer))) + 1;
     }
 
     @Override
@@ -76,6 +50,10 @@ public class PMI extends Base {
         return log2((docCount + 1) * (double) term1ANDterm2(m1, m2) / (double) (analyzedDF(field, m1) * analyzedDF(field, m2)));
     }
 
+    private double pmi(long df1, long df2, int intersect) {
+        return log2((docCount + 1) * (double) (intersect + 1) / (double) (df1 * df2));
+    }
+
 
     public double value(InfoNeed need) throws IOException, ParseException {
 
@@ -90,19 +68,24 @@ public class PMI extends Base {
             return 0.0;
         }
 
+        // co-occurrence counts of all pairs in one go, terms are analyzed the way pmi(m1, m2) does
+        final String[] analyzed = new String[distinctTerms.length];
+        final long[] df = new long[distinctTerms.length];
         for (int i = 0; i < distinctTerms.length; i++) {
-            final String m1 = distinctTerms[i];
-            for (int j = i + 1; j < distinctTerms.length; j++) {
-                final String m2 = distinctTerms[j];
+            analyzed[i] = getAnalyzedToken(distinctTerms[i], analyzer);
+            df[i] = analyzedDF(field, distinctTerms[i]);
+        }
+        final int[][] counts = Conjunction.pairs(reader, field, Arrays.asList(analyzed));
 
-                int intersect = term1ANDterm2(m1, m2);
+        for (int i = 0; i < distinctTerms.length; i++) {
+            for (int j = i + 1; j < distinctTerms.length; j++) {
 
-                if (intersect == 0) {
+                if (counts[i][j] == 0) {
                     //TODO do something when there is no intersection since logarithm of zero is not defined.
                     // at the time of being use +1 trick
                 }
 
-                pmi += pmi(m1, m2);
+                pmi += pmi(df[i], df[j], counts[i][j]);
                 counter++;
 
             }
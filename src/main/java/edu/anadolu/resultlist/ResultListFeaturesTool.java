@@ -94,7 +94,7 @@ public class ResultListFeaturesTool extends CmdLineTool {
             int counter = 0;
             for (Track track : dataset.tracks()) {
 
-                Path runsPath = Paths.get(dataset.collectionPath().toString(), "runs", tag, track.toString(), model + "_contents_" + tag + "_" + "OR_all.txt");
+                Path runsPath = SubmissionFile.resolve(Paths.get(dataset.collectionPath().toString(), "runs", tag, track.toString()), model + "_contents_" + tag + "_" + "OR_all");
 
                 System.out.println("runsPath: " + runsPath);
 
@@ -55,6 +55,14 @@ public final class BM25 extends ModelBase {
 
     }
 
+    /**
+     * A negative idf (terms in more than half of the documents) turns the score upside down
+     */
+    @Override
+    protected boolean monotone(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        return numberOfDocuments - documentFrequency + 0.5d >= documentFrequency + 0.5d;
+    }
+
     @Override
     public String toString() {
         return "BM25";
@@ -31,6 +31,22 @@ public class BM25c extends ModelBase {
                 * log2((numberOfDocuments - documentFrequency + 0.5d) / (documentFrequency + 0.5d));
     }
 
+    @Override
+    protected TermScorer termScorer(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        final double idf = log2((numberOfDocuments - documentFrequency + 0.5d) / (documentFrequency + 0.5d));
+        // keyFrequency is one: k_3 + keyFrequency is k_3 + 1, and the product with keyFrequency is left out
+        final double k3 = k_3 + 1d;
+        return (tf, docLength) -> (tf * k3 / (k3 * (k_1 * ((1 - b) + b * docLength / averageDocumentLength) + tf))) * idf;
+    }
+
+    /**
+     * A negative idf (terms in more than half of the documents) turns the score upside down
+     */
+    @Override
+    protected boolean monotone(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        return numberOfDocuments - documentFrequency + 0.5d >= documentFrequency + 0.5d;
+    }
+
     @Override
     public String toString() {
         return "BM25k" + k_1 + "b" + b;
@@ -28,6 +28,17 @@ public final class DirichletLM extends ModelBase {
         return log2(1 + (tf / (c * (termFrequency / numberOfTokens)))) + log2(c / (docLength + c));
     }
 
+    @Override
+    protected TermScorer termScorer(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        final double cp = c * (termFrequency / numberOfTokens);
+        return (tf, docLength) -> log2(1 + (tf / cp)) + log2(c / (docLength + c));
+    }
+
+    @Override
+    protected boolean monotone(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        return true;
+    }
+
     @Override
     public String toString() {
         return "DirichletLMc" + c;
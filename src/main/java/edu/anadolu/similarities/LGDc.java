@@ -29,6 +29,18 @@ public final class LGDc extends ModelBase {
                         * log2((freq + TF) / freq);
     }
 
+    @Override
+    protected TermScorer termScorer(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        final double cAvg = c * averageDocumentLength;
+        final double freq = (1.0D * documentFrequency) / (1.0D * numberOfDocuments);
+        return (tf, docLength) -> log2((freq + tf * log2(1.0d + cAvg / docLength)) / freq);
+    }
+
+    @Override
+    protected boolean monotone(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        return true;
+    }
+
     /**
      * Returns the name of the model.
      *
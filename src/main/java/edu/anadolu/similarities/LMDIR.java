@@ -27,6 +27,11 @@ public class LMDIR extends ModelBase {
                 (docLength+c));
     }
 
+    @Override
+    protected boolean monotone(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        return true;
+    }
+
     @Override
     public String toString() {
         return "LMDIR" + c;
@@ -46,6 +46,21 @@ public final class PL2 extends ModelBase {
                 + TF * (log2(TF) - LOG_2_OF_E));
     }
 
+    /**
+     * Largest ttf/N for which the score is known to be non-decreasing in the normalized TF. Checked numerically over
+     * TF in [1e-6, 1e4]: with log2(e) in place of LOG_2_OF_E the score dips for TF in (0.3, 0.9) once ttf/N exceeds
+     * about 0.87, with LOG_2_OF_E = 1 once it exceeds about 1.2. The bound keeps a margin below both.
+     */
+    static final double MONOTONE_MAX_F = 0.85;
+
+    /**
+     * The normalized TF grows with tf and shrinks with docLength, and the score grows with it for rare enough terms
+     */
+    @Override
+    protected boolean monotone(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        return termFrequency <= MONOTONE_MAX_F * numberOfDocuments;
+    }
+
     @Override
     public String toString() {
         return "PL2";
@@ -23,6 +23,27 @@ public final class PL2c extends ModelBase {
                 + TF * (log2(TF) - LOG_2_OF_E));
     }
 
+    @Override
+    protected TermScorer termScorer(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        final double cAvg = c * averageDocumentLength;
+        final double f = (1.0D * termFrequency) / (1.0D * numberOfDocuments);
+        final double idf = log2(1.0D / f);
+        final double fLogE = f * LOG_2_OF_E;
+        return (tf, docLength) -> {
+            double TF = tf * log2(1.0d + cAvg / docLength);
+            return 1.0D / (TF + 1d) * (TF * idf + fLogE + 0.5d * log2(2 * Math.PI * TF) + TF * (log2(TF) - LOG_2_OF_E));
+        };
+    }
+
+    /**
+     * The normalized TF grows with tf and shrinks with docLength, and the score grows with it for rare enough terms,
+     * see {@link PL2#MONOTONE_MAX_F}
+     */
+    @Override
+    protected boolean monotone(double averageDocumentLength, double documentFrequency, double termFrequency, double numberOfDocuments, double numberOfTokens) {
+        return termFrequency <= PL2.MONOTONE_MAX_F * numberOfDocuments;
+    }
+
     private final double c;
 
     /**
@@ -1,6 +1,7 @@
 package edu.anadolu.spam;
 
 import edu.anadolu.Indexer;
+import edu.anadolu.StaticRanks;
 import edu.anadolu.analysis.Tag;
 import edu.anadolu.cmdline.SpamTool;
 import edu.anadolu.datasets.DataSet;
@@ -14,6 +15,7 @@ import java.nio.file.Paths;
 public class SpamRemovingIndexer extends Indexer {
 
     private final HttpSolrClient solr;
+    private final StaticRanks ranks;
     private final int spamThreshold;
 
     public SpamRemovingIndexer(DataSet dataset, String docsDir, String indexPath, HttpSolrClient solr, Tag tag, IndexerConfig config, int spam) throws IOException {
@@ -21,6 +23,10 @@ public class SpamRemovingIndexer extends Indexer {
         this.solr = solr;
         this.spamThreshold = spam;
 
+        // the static rank table, when imported, is used instead of Solr
+        final String tfd_home = dataset.home().toString();
+        this.ranks = StaticRanks.exists(tfd_home, dataset.collection()) ? StaticRanks.open(tfd_home, dataset.collection()) : null;
+
         if (spam == 0) return;
         this.indexPath = Paths.get(indexPath, spam + "_" + tag);
 
@@ -30,6 +36,8 @@ public class SpamRemovingIndexer extends Indexer {
 
     @Override
     protected boolean skip(String docId) {
+        if (ranks != null)
+            return SpamTool.percentile(ranks, docId) < spamThreshold;
         try {
             int percentile = SpamTool.percentile(solr, docId);
             return (percentile < spamThreshold);
@@ -37,4 +45,4 @@ public class SpamRemovingIndexer extends Indexer {
             throw new RuntimeException(e);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package edu.anadolu.spam;
 
+import edu.anadolu.RunFile;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -65,10 +67,24 @@ public class SubmissionFile {
         }
     }
 
+    /**
+     * @param dir    directory of the runs
+     * @param runTag run tag
+     * @return the binary run file if there is one, the TREC text file otherwise
+     */
+    public static Path resolve(Path dir, String runTag) {
+        final Path binary = dir.resolve(runTag + RunFile.SUFFIX);
+        return Files.exists(binary) ? binary : dir.resolve(runTag + ".txt");
+    }
+
     public SubmissionFile(Path submission) throws IOException {
         if (!Files.isRegularFile(submission) || !Files.exists(submission) || !Files.isReadable(submission))
             throw new IllegalArgumentException(submission + " does not exist or is not a regular file");
 
+        if (RunFile.isBinary(submission)) {
+            read(submission);
+            return;
+        }
 
         try (BufferedReader reader = Files.newBufferedReader(submission, StandardCharsets.US_ASCII)) {
 
@@ -96,4 +112,24 @@ public class SubmissionFile {
         }
     }
 
+    /**
+     * Reads a binary run file, a query without documents gets the single no documents entry of the text form
+     */
+    private void read(Path submission) throws IOException {
+
+        try (RunFile.Reader reader = new RunFile.Reader(submission)) {
+
+            this.tag = reader.runTag();
+
+            while (reader.next()) {
+                final List<Tuple> list = new ArrayList<>(Math.max(1, reader.size()));
+                if (reader.size() == 0)
+                    list.add(new Tuple(reader.noDocumentsID(), "0"));
+                for (int i = 0; i < reader.size(); i++)
+                    list.add(new Tuple(reader.docID(i), Float.toString(reader.score(i))));
+                entries.put(reader.qid(), list);
+            }
+        }
+    }
+
 }
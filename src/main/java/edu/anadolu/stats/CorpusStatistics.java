@@ -1,5 +1,6 @@
 package edu.anadolu.stats;
 
+import edu.anadolu.TermStats;
 import org.apache.commons.math3.util.Precision;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.CollectionStatistics;
@@ -40,6 +41,7 @@ public final class CorpusStatistics implements Closeable {
             Files.createDirectories(termsPath);
 
         reader = DirectoryReader.open(FSDirectory.open(indexPath));
+        TermStats.of(reader, TermStats.file(indexPath));
         searcher = new IndexSearcher(reader);
 
         System.out.println("Opened index directory : " + indexPath + " has " + reader.numDocs() + " numDocs and has " + reader.maxDoc() + " maxDocs");
@@ -59,7 +61,7 @@ public final class CorpusStatistics implements Closeable {
 
         for (String word : set) {
             Term term = new Term(field, word);
-            TermStatistics termStatistics = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+            TermStatistics termStatistics = TermStats.of(reader).statistics(term);
 
             final long termFrequency = termStatistics.totalTermFreq();
             final long df = termStatistics.docFreq();
@@ -185,6 +187,10 @@ public final class CorpusStatistics implements Closeable {
 
     @Override
     public void close() throws IOException {
-        reader.close();
+        try {
+            TermStats.of(reader).save();
+        } finally {
+            reader.close();
+        }
     }
 }
@@ -0,0 +1,91 @@
+package org.apache.lucene.search.similarities;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Document lengths of a segment, decoded once from the lossless norms written by {@link ModelBase#computeNorm}.
+ * Small segments are kept in an int[] on the heap, large ones in a direct buffer.
+ * Cached per segment core and field, and evicted when the segment is closed.
+ */
+final class DocLengths {
+
+    /**
+     * Segments with more documents than this are kept off-heap
+     */
+    static final int OFF_HEAP_DOCS = 1 << 24;
+
+    private static final Map<IndexReader.CacheKey, Map<String, DocLengths>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @param reader segment reader
+     * @param field  field
+     * @return document lengths, or null if the segment has no norms for the field or cannot be cached
+     * @throws IOException if IO exception occurs
+     */
+    static DocLengths get(LeafReader reader, String field) throws IOException {
+
+        final IndexReader.CacheHelper helper = reader.getCoreCacheHelper();
+        if (helper == null || reader.maxDoc() > Integer.MAX_VALUE / Integer.BYTES) return null;
+
+        final Map<String, DocLengths> fields = CACHE.computeIfAbsent(helper.getKey(), key -> {
+            helper.addClosedListener(CACHE::remove);
+            return new ConcurrentHashMap<>();
+        });
+
+        try {
+            return fields.computeIfAbsent(field, f -> {
+                try {
+                    return load(reader, f);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static DocLengths load(LeafReader reader, String field) throws IOException {
+
+        final NumericDocValues norms = reader.getNormValues(field);
+        if (norms == null) return null;
+
+        final int maxDoc = reader.maxDoc();
+
+        // documents without the field keep zero, no term of the field matches them
+        if (maxDoc <= OFF_HEAP_DOCS) {
+            final int[] lengths = new int[maxDoc];
+            for (int doc = norms.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = norms.nextDoc())
+                lengths[doc] = (int) norms.longValue();
+            return new DocLengths(lengths, null);
+        } else {
+            final IntBuffer lengths = ByteBuffer.allocateDirect(maxDoc * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+            for (int doc = norms.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = norms.nextDoc())
+                lengths.put(doc, (int) norms.longValue());
+            return new DocLengths(null, lengths);
+        }
+    }
+
+    private final int[] heap;
+    private final IntBuffer offHeap;
+
+    private DocLengths(int[] heap, IntBuffer offHeap) {
+        this.heap = heap;
+        this.offHeap = offHeap;
+    }
+
+    int get(int doc) {
+        return heap != null ? heap[doc] : offHeap.get(doc);
+    }
+}
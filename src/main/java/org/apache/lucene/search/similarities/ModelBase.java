@@ -22,11 +22,30 @@ public abstract class ModelBase extends Similarity {
      */
     private static final double LOG_2 = Math.log(2);
 
+    /**
+     * Whether the subclass scores through its own {@link #score(BasicStats, float, long)}, which the bound
+     * {@link TermScorer} fast path must not bypass.
+     */
+    private final boolean customScore;
+
     /**
      * Sole constructor. (For invocation by subclass
      * constructors, typically implicit.)
      */
     public ModelBase() {
+        this.customScore = overridesScore(getClass());
+    }
+
+    private static boolean overridesScore(Class<?> c) {
+        for (; c != ModelBase.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("score", BasicStats.class, float.class, long.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // look at the super class
+            }
+        }
+        return false;
     }
 
     /**
@@ -52,6 +71,8 @@ public abstract class ModelBase extends Similarity {
         for (int i = 0; i < termStats.length; i++) {
             stats[i] = newStats(collectionStats.field(), boost);
             fillBasicStats(stats[i], collectionStats, termStats[i]);
+            if (stats[i] instanceof ModelStats)
+                ((ModelStats) stats[i]).bind();
         }
         return stats.length == 1 ? stats[0] : new MultiSimilarity.MultiStats(stats);
     }
@@ -60,7 +81,7 @@ public abstract class ModelBase extends Similarity {
      * Factory method to return a custom stats object
      */
     protected BasicStats newStats(String field, float boost) {
-        return new BasicStats(field, boost);
+        return new ModelStats(field, boost);
     }
 
     /**
@@ -110,6 +131,8 @@ public abstract class ModelBase extends Similarity {
      */
     protected float score(BasicStats stats, float freq, long docLen) {
 
+        if (stats instanceof ModelStats)
+            return score((ModelStats) stats, freq, docLen);
 
         // avgFieldLength = (float) (collectionStats.sumTotalTermFreq() / (double) numberOfDocuments);
 
@@ -145,6 +168,138 @@ public abstract class ModelBase extends Similarity {
         return (float) score;
     }
 
+    /**
+     * Hot path of scoring: the collection statistics are already bound to the term scorer.
+     */
+    private float score(ModelStats stats, float freq, long docLen) {
+
+        final double score = stats.scorer.score(freq, docLen);
+
+        assert score != Double.NEGATIVE_INFINITY : "This collector cannot handle score of Double.NEGATIVE_INFINITY coming from: " + this.getClass().getSimpleName();
+        assert !Double.isNaN(score) : "This collector cannot handle score of Double.NaN coming from: " + this.getClass().getSimpleName();
+
+        return (float) score;
+    }
+
+    /**
+     * Scoring function of a single term whose collection statistics are bound, see {@link #termScorer}
+     */
+    @FunctionalInterface
+    public interface TermScorer {
+        /**
+         * @param tf        the term frequency.
+         * @param docLength the document length.
+         * @return the score.
+         */
+        double score(double tf, long docLength);
+    }
+
+    /**
+     * Binds the collection statistics of a query term, once per query. Models can override this method to precompute
+     * the parts of their formula that do not depend on the document (idf like parts, c * averageDocumentLength, etc.),
+     * keeping the order of the floating point operations of {@link #score(double, long, double, double, double, double, double, double)},
+     * so that both return the same bits.
+     *
+     * @param averageDocumentLength the average length of documents in the collection.
+     * @param documentFrequency     the document frequency of the term in the collection.
+     * @param termFrequency         the term frequency in the collection.
+     * @param numberOfDocuments     the number of documents in the collection.
+     * @param numberOfTokens        the number of tokens in the collections.
+     * @return the scoring function of the term.
+     */
+    protected TermScorer termScorer(double averageDocumentLength,
+                                    double documentFrequency,
+                                    double termFrequency,
+                                    double numberOfDocuments,
+                                    double numberOfTokens) {
+        return (tf, docLength) -> score(tf, docLength, averageDocumentLength, 1, documentFrequency, termFrequency, numberOfDocuments, numberOfTokens);
+    }
+
+    /**
+     * Binds the collection statistics of a term for scorers that run outside of Lucene's query execution, e.g. the pseudo
+     * documents of multi-field scoring, see {@link #termScorer}.
+     *
+     * @param averageDocumentLength the average length of documents in the collection.
+     * @param documentFrequency     the document frequency of the term in the collection.
+     * @param termFrequency         the term frequency in the collection.
+     * @param numberOfDocuments     the number of documents in the collection.
+     * @param numberOfTokens        the number of tokens in the collections.
+     * @return the scoring function of the term.
+     * @throws UnsupportedOperationException for models that score with {@link #score(BasicStats, float, long)}
+     */
+    public final TermScorer bind(double averageDocumentLength,
+                                 double documentFrequency,
+                                 double termFrequency,
+                                 double numberOfDocuments,
+                                 double numberOfTokens) {
+        if (customScore)
+            throw new UnsupportedOperationException(this + " overrides score(BasicStats, float, long), its terms cannot be bound");
+        return termScorer(averageDocumentLength, documentFrequency, termFrequency, numberOfDocuments, numberOfTokens);
+    }
+
+    /**
+     * Whether the score of a term with the given collection statistics never decreases with tf and never increases with
+     * docLength. Only then the maximum over the (tf, docLength) pairs of {@link TermImpacts} bounds the scores of the
+     * postings, see {@link #maxScore}. Models that cannot guarantee it keep the default, their queries are not pruned.
+     *
+     * @param averageDocumentLength the average length of documents in the collection.
+     * @param documentFrequency     the document frequency of the term in the collection.
+     * @param termFrequency         the term frequency in the collection.
+     * @param numberOfDocuments     the number of documents in the collection.
+     * @param numberOfTokens        the number of tokens in the collections.
+     * @return true if the score is monotone in tf and docLength.
+     */
+    protected boolean monotone(double averageDocumentLength,
+                               double documentFrequency,
+                               double termFrequency,
+                               double numberOfDocuments,
+                               double numberOfTokens) {
+        return false;
+    }
+
+    /**
+     * @param weight the corpus level statistics returned by {@link #computeWeight} for a single term.
+     * @return true if {@link #maxScore} bounds the scores of the term.
+     */
+    public final boolean hasMaxScore(SimWeight weight) {
+        return weight instanceof ModelStats && ((ModelStats) weight).monotone;
+    }
+
+    /**
+     * Safe upper bound of the scores of a term over a block of its postings, or over all of them.
+     *
+     * @param weight  the corpus level statistics returned by {@link #computeWeight} for a single term.
+     * @param impacts impacts of the term in a segment.
+     * @param block   block of the postings, or {@link TermImpacts#TERM}.
+     * @return upper bound of the scores, or positive infinity if the model cannot bound the term.
+     */
+    public final float maxScore(SimWeight weight, TermImpacts impacts, int block) {
+
+        if (!hasMaxScore(weight)) return Float.POSITIVE_INFINITY;
+
+        final TermScorer scorer = ((ModelStats) weight).scorer;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = impacts.from(block); i < impacts.to(block); i++)
+            max = Math.max(max, scorer.score(impacts.freq(i), impacts.length(i)));
+
+        if (Double.isNaN(max)) return Float.POSITIVE_INFINITY;
+
+        // a little slack for rounding, so that the bound dominates the float scores of the dominated pairs too
+        return (float) (max + Math.abs(max) * 1e-9);
+    }
+
+    /**
+     * Scores a single term of a document outside of a Lucene query, exactly as {@link BasicSimScorer} does.
+     *
+     * @param weight the corpus level statistics returned by {@link #computeWeight} for a single term.
+     * @param freq   the term frequency.
+     * @param docLen the document length.
+     * @return the score.
+     */
+    public final float score(SimWeight weight, float freq, long docLen) {
+        return score((BasicStats) weight, freq, docLen);
+    }
+
     /**
      * Score calculation for experiments
      *
@@ -214,14 +369,21 @@ public abstract class ModelBase extends Similarity {
             SimWeight subStats[] = ((MultiSimilarity.MultiStats) stats).subStats;
             SimScorer subScorers[] = new SimScorer[subStats.length];
             for (int i = 0; i < subScorers.length; i++) {
-                BasicStats basicstats = (BasicStats) subStats[i];
-                subScorers[i] = new BasicSimScorer(basicstats, context.reader().getNormValues(basicstats.field));
+                subScorers[i] = simScorer((BasicStats) subStats[i], context);
             }
             return new MultiSimilarity.MultiSimScorer(subScorers);
         } else {
-            BasicStats basicstats = (BasicStats) stats;
-            return new BasicSimScorer(basicstats, context.reader().getNormValues(basicstats.field));
+            return simScorer((BasicStats) stats, context);
+        }
+    }
+
+    private SimScorer simScorer(BasicStats basicstats, LeafReaderContext context) throws IOException {
+        if (!customScore && basicstats instanceof ModelStats) {
+            final DocLengths lengths = DocLengths.get(context.reader(), basicstats.field);
+            if (lengths != null)
+                return new BoundSimScorer((ModelStats) basicstats, lengths);
         }
+        return new BasicSimScorer(basicstats, context.reader().getNormValues(basicstats.field));
     }
 
     /**
@@ -267,6 +429,58 @@ public abstract class ModelBase extends Similarity {
 
     // --------------------------------- Classes ---------------------------------
 
+    /**
+     * Statistics of a term together with its bound {@link TermScorer}
+     */
+    final class ModelStats extends BasicStats {
+
+        private TermScorer scorer;
+        private boolean monotone;
+
+        ModelStats(String field, float boost) {
+            super(field, boost);
+        }
+
+        void bind() {
+            final double averageDocumentLength = (double) getNumberOfFieldTokens() / getNumberOfDocuments();
+            scorer = termScorer(averageDocumentLength, getDocFreq(), getTotalTermFreq(), getNumberOfDocuments(), getNumberOfFieldTokens());
+            monotone = !customScore && monotone(averageDocumentLength, getDocFreq(), getTotalTermFreq(), getNumberOfDocuments(), getNumberOfFieldTokens());
+        }
+    }
+
+    /**
+     * Scorer of the fast path: cached document lengths and a bound term scorer, no per document lookups or allocations
+     */
+    final class BoundSimScorer extends SimScorer {
+        private final ModelStats stats;
+        private final DocLengths lengths;
+
+        BoundSimScorer(ModelStats stats, DocLengths lengths) {
+            this.stats = stats;
+            this.lengths = lengths;
+        }
+
+        @Override
+        public float score(int doc, float freq) {
+            return ModelBase.this.score(stats, freq, lengths.get(doc));
+        }
+
+        @Override
+        public Explanation explain(int doc, Explanation freq) {
+            return ModelBase.this.explain(stats, doc, freq, lengths.get(doc));
+        }
+
+        @Override
+        public float computeSlopFactor(int distance) {
+            return 1.0f / (distance + 1);
+        }
+
+        @Override
+        public float computePayloadFactor(int doc, int start, int end, BytesRef payload) {
+            return 1f;
+        }
+    }
+
 
     final class BasicSimScorer extends SimScorer {
         private final BasicStats stats;
@@ -0,0 +1,199 @@
+package org.apache.lucene.search.similarities;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Impacts of a term in a segment: the (tf, docLength) pairs of its postings that are not dominated by another pair
+ * with a higher (or equal) tf and a shorter (or equal) document length. They are kept for every block of
+ * {@link #BLOCK_SIZE} postings and for the whole term. For a model whose score grows with tf and shrinks with
+ * docLength, the maximum over the pairs is a safe upper bound of the block (or the term), see {@link ModelBase#maxScore}.
+ * <p>
+ * Lucene 7 does not store impacts, so they are computed from the postings and {@link DocLengths} the first time a term
+ * is queried, and cached per segment core and field until the segment is closed. They do not depend on the model,
+ * so every model searched over the same index reuses them.
+ */
+public final class TermImpacts {
+
+    public static final int BLOCK_SIZE = 128;
+
+    /**
+     * Pseudo block that stands for all postings of the term
+     */
+    public static final int TERM = -1;
+
+    private static final Map<IndexReader.CacheKey, Map<String, Map<BytesRef, TermImpacts>>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @param reader segment reader
+     * @param field  field
+     * @param term   term
+     * @return impacts of the term, or null if the segment has no such term, no norms, or cannot be cached
+     * @throws IOException if IO exception occurs
+     */
+    public static TermImpacts get(LeafReader reader, String field, BytesRef term) throws IOException {
+
+        final DocLengths lengths = DocLengths.get(reader, field);
+        if (lengths == null) return null;
+
+        final IndexReader.CacheHelper helper = reader.getCoreCacheHelper();
+        final Map<BytesRef, TermImpacts> terms = CACHE.computeIfAbsent(helper.getKey(), key -> {
+            helper.addClosedListener(CACHE::remove);
+            return new ConcurrentHashMap<>();
+        }).computeIfAbsent(field, f -> new ConcurrentHashMap<>());
+
+        try {
+            return terms.computeIfAbsent(BytesRef.deepCopyOf(term), t -> {
+                try {
+                    return build(reader, field, t, lengths);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static TermImpacts build(LeafReader reader, String field, BytesRef term, DocLengths lengths) throws IOException {
+
+        final Terms terms = reader.terms(field);
+        if (terms == null) return null;
+        final TermsEnum termsEnum = terms.iterator();
+        if (!termsEnum.seekExact(term)) return null;
+        final PostingsEnum postings = termsEnum.postings(null, PostingsEnum.FREQS);
+
+        int numBlocks = 0;
+        int[] lastDocs = new int[8];
+        int[] offsets = new int[9];
+        long[] pairs = new long[64];
+        int numPairs = 0;
+
+        final long[] block = new long[BLOCK_SIZE];
+        int size = 0;
+        int last = -1;
+
+        for (int doc = postings.nextDoc(); ; doc = postings.nextDoc()) {
+
+            if (doc != DocIdSetIterator.NO_MORE_DOCS) {
+                block[size++] = pair(postings.freq(), lengths.get(doc));
+                last = doc;
+            }
+
+            if (size == BLOCK_SIZE || (doc == DocIdSetIterator.NO_MORE_DOCS && size > 0)) {
+                lastDocs = ArrayUtil.grow(lastDocs, numBlocks + 1);
+                lastDocs[numBlocks] = last;
+
+                final int n = frontier(block, size);
+                pairs = ArrayUtil.grow(pairs, numPairs + n);
+                System.arraycopy(block, 0, pairs, numPairs, n);
+                numPairs += n;
+
+                offsets = ArrayUtil.grow(offsets, numBlocks + 2);
+                offsets[++numBlocks] = numPairs;
+                size = 0;
+            }
+
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) break;
+        }
+
+        // frontier of the whole term, appended after the blocks
+        final long[] all = Arrays.copyOf(pairs, numPairs);
+        final int n = frontier(all, numPairs);
+        pairs = ArrayUtil.grow(pairs, numPairs + n);
+        System.arraycopy(all, 0, pairs, numPairs, n);
+        numPairs += n;
+        offsets = ArrayUtil.grow(offsets, numBlocks + 2);
+        offsets[numBlocks + 1] = numPairs;
+
+        final int[] freqs = new int[numPairs];
+        final int[] docLengths = new int[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            freqs[i] = Integer.MAX_VALUE - (int) (pairs[i] >>> 32);
+            docLengths[i] = (int) pairs[i];
+        }
+
+        return new TermImpacts(numBlocks, Arrays.copyOf(lastDocs, numBlocks), Arrays.copyOf(offsets, numBlocks + 2), freqs, docLengths);
+    }
+
+    /**
+     * Sorts by decreasing tf and increasing length
+     */
+    private static long pair(int freq, int length) {
+        return ((long) (Integer.MAX_VALUE - freq) << 32) | length;
+    }
+
+    /**
+     * Keeps the non dominated pairs at the beginning of the array
+     *
+     * @return number of the non dominated pairs
+     */
+    private static int frontier(long[] pairs, int size) {
+        Arrays.sort(pairs, 0, size);
+        int n = 0;
+        int shortest = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            final int length = (int) pairs[i];
+            // a pair with a lower tf is kept only if its document is shorter
+            if (length < shortest) {
+                pairs[n++] = pairs[i];
+                shortest = length;
+            }
+        }
+        return n;
+    }
+
+    private final int numBlocks;
+    private final int[] lastDocs;
+    private final int[] offsets;
+    private final int[] freqs;
+    private final int[] lengths;
+
+    private TermImpacts(int numBlocks, int[] lastDocs, int[] offsets, int[] freqs, int[] lengths) {
+        this.numBlocks = numBlocks;
+        this.lastDocs = lastDocs;
+        this.offsets = offsets;
+        this.freqs = freqs;
+        this.lengths = lengths;
+    }
+
+    public int numBlocks() {
+        return numBlocks;
+    }
+
+    /**
+     * @param doc  target document
+     * @param from block to start looking from, targets are usually increasing
+     * @return the first block whose last document is greater than or equal to the target, or {@link #numBlocks()}
+     */
+    public int block(int doc, int from) {
+        int b = from;
+        while (b < numBlocks && lastDocs[b] < doc)
+            b++;
+        return b;
+    }
+
+    int from(int block) {
+        return offsets[block == TERM ? numBlocks : block];
+    }
+
+    int to(int block) {
+        return offsets[(block == TERM ? numBlocks : block) + 1];
+    }
+
+    int freq(int i) {
+        return freqs[i];
+    }
+
+    int length(int i) {
+        return lengths[i];
+    }
+}
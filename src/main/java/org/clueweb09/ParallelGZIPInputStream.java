@@ -0,0 +1,557 @@
+package org.clueweb09;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a multi-member gzip file (ClueWeb files are concatenated gzip members, often one per record)
+ * by inflating the members in parallel, while delivering the decompressed bytes in order.
+ * <p>
+ * The compressed file is memory mapped and scanned for gzip headers. Since the magic bytes may also occur inside
+ * compressed data, a scanned offset is only a candidate: its header bytes must be valid, and a member is accepted
+ * when it starts exactly where the previous member ended and its CRC32 and ISIZE match. Inflaters and buffers are
+ * pooled and reused across members and files.
+ * <p>
+ * Files that are not multi-member (e.g. GOV2) or larger than 2GB are read with a plain {@link GZIPInputStream}.
+ * A member that is not accepted, or whose decompressed size exceeds {@link #MAX_MEMBER} (e.g. a single member file with
+ * magic bytes inside its compressed data), is not buffered: the rest of the file is streamed with a {@link GZIPInputStream}.
+ * <p>
+ * available() returns one until the end of the stream like {@link GZIPInputStream} does,
+ * so that {@link ClueWeb09WarcRecord#readLineFromInputStream(java.io.DataInputStream)} behaves the same.
+ * <p>
+ * All streams share one pool of inflater threads. When as many parallel streams as cores are open
+ * (e.g. thread-per-file indexing), further files are read with a plain {@link GZIPInputStream}.
+ * Each stream keeps one member in flight of its own; members read ahead beyond that come from a budget of
+ * {@link #AHEAD} members shared by all streams, so that the decompressed bytes held in memory do not grow
+ * with the number of open streams.
+ */
+public final class ParallelGZIPInputStream extends InputStream {
+
+    public static final int BUFFER_SIZE = 1 << 16; // 64K
+
+    /**
+     * Output buffers larger than this are left to the garbage collector instead of being pooled
+     */
+    private static final int MAX_POOLED = 1 << 22; // 4M
+
+    /**
+     * Members that decompress to more than this are streamed instead of being inflated in parallel
+     */
+    static final int MAX_MEMBER = 1 << 24; // 16M
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Members in flight beyond the first one of each stream, shared by all streams
+     */
+    static final int AHEAD = THREADS * 4;
+
+    private static final Semaphore BUDGET = new Semaphore(AHEAD);
+
+    /**
+     * Parallel streams that are open and not yet streaming with a {@link GZIPInputStream}
+     */
+    private static final AtomicInteger OPEN = new AtomicInteger();
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread thread = new Thread(r, "inflater");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ConcurrentLinkedQueue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+    private static final ConcurrentLinkedQueue<byte[]> BUFFERS = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Decompressed gzip member
+     */
+    private static final class Member {
+
+        /**
+         * Member that decompresses to more than {@link #MAX_MEMBER} bytes
+         */
+        private static final Member LARGE = new Member(-1, new byte[0], 0);
+
+        private final int end;
+        private final byte[] data;
+        private final int length;
+
+        Member(int end, byte[] data, int length) {
+            this.end = end;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Opens a gzip file for reading
+     *
+     * @param file .gz file
+     * @return decompressed stream
+     * @throws IOException if IO exception occurs
+     */
+    public static InputStream open(Path file) throws IOException {
+        return open(file, false);
+    }
+
+    /**
+     * @param always use the parallel path even if as many parallel streams as cores are open
+     */
+    private static InputStream open(Path file, boolean always) throws IOException {
+
+        if (always || OPEN.get() < THREADS)
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+                if (channel.size() <= Integer.MAX_VALUE) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    int[] candidates = candidates(mapped);
+                    if (candidates.length > 1)
+                        return new ParallelGZIPInputStream(mapped, candidates);
+                }
+            }
+
+        return new GZIPInputStream(Files.newInputStream(file, StandardOpenOption.READ), BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a multi-member gzip file and remembers the compressed and decompressed offsets of the members read so far.
+     * The offsets are only known to the parallel path, so it is used regardless of the number of open streams.
+     *
+     * @param file .gz file
+     * @return decompressed stream, or null if the file is not a multi-member gzip file smaller than 2GB
+     * @throws IOException if IO exception occurs
+     */
+    static ParallelGZIPInputStream tracking(Path file) throws IOException {
+        InputStream in = open(file, true);
+        if (in instanceof ParallelGZIPInputStream) {
+            ParallelGZIPInputStream stream = (ParallelGZIPInputStream) in;
+            stream.tracking = true;
+            return stream;
+        }
+        in.close();
+        return null;
+    }
+
+    private final MappedByteBuffer mapped;
+    private final int size;
+    private final int[] candidates;
+
+    private final TreeMap<Integer, Future<Member>> inFlight = new TreeMap<>();
+
+    /**
+     * Permits taken from the shared budget: one less than the members in flight
+     */
+    private int borrowed = 0;
+
+    private boolean registered = true;
+
+    private int submitted = 0;
+    private int offset = 0;
+
+    private Member member = null;
+    private int position = 0;
+    private boolean eof = false;
+
+    /**
+     * Stream of the rest of the file, once a member could not be inflated in parallel
+     */
+    private InputStream fallback = null;
+
+    /**
+     * Compressed start, compressed end, and decompressed start of the members read so far (only when tracking)
+     */
+    private boolean tracking = false;
+    private int members = 0;
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private long[] positions = new long[0];
+    private long decompressed = 0;
+
+    private ParallelGZIPInputStream(MappedByteBuffer mapped, int[] candidates) {
+        this.mapped = mapped;
+        this.size = mapped.capacity();
+        this.candidates = candidates;
+        OPEN.incrementAndGet();
+    }
+
+    /**
+     * Offsets of possible gzip member headers: magic bytes, deflate method, no reserved flags,
+     * extra flags of a deflate compressor and a known operating system
+     */
+    static int[] candidates(MappedByteBuffer mapped) {
+
+        final int size = mapped.capacity();
+        final byte[] chunk = new byte[1 << 20];
+
+        int[] candidates = new int[1024];
+        int n = 0;
+
+        // consecutive chunks overlap by three bytes so that no header is missed
+        for (int start = 0; start < size - 3; start += chunk.length - 3) {
+
+            final int length = Math.min(chunk.length, size - start);
+            final ByteBuffer view = mapped.duplicate();
+            view.position(start);
+            view.get(chunk, 0, length);
+
+            for (int i = 0; i < length - 3; i++) {
+                if (chunk[i] == (byte) 0x1f && chunk[i + 1] == (byte) 0x8b && chunk[i + 2] == 8 && (chunk[i + 3] & 0xE0) == 0) {
+                    if (start + i + 10 > size || !header(mapped.get(start + i + 8) & 0xff, mapped.get(start + i + 9) & 0xff))
+                        continue;
+                    if (n == candidates.length) candidates = Arrays.copyOf(candidates, n * 2);
+                    candidates[n++] = start + i;
+                }
+            }
+
+            if (start + length >= size) break;
+        }
+
+        return Arrays.copyOf(candidates, n);
+    }
+
+    /**
+     * @param xfl extra flags: none, maximum or fastest compression
+     * @param os  operating system: 0 to 13, or unknown
+     */
+    private static boolean header(int xfl, int os) {
+        return (xfl == 0 || xfl == 2 || xfl == 4) && (os <= 13 || os == 255);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) return 0;
+
+        if (fallback != null) return fallback.read(b, off, len);
+
+        while (member == null || position == member.length) {
+            if (!nextMember()) return -1;
+            if (fallback != null) return fallback.read(b, off, len);
+        }
+
+        final int n = Math.min(len, member.length - position);
+        System.arraycopy(member.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (fallback != null) return fallback.available();
+        return eof ? 0 : 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<Member> future : inFlight.values())
+            future.cancel(false);
+        inFlight.clear();
+        giveBack();
+        unregister();
+        release();
+        eof = true;
+        if (fallback != null)
+            fallback.close();
+    }
+
+    /**
+     * Returns the permits of the members no longer in flight to the shared budget
+     */
+    private void giveBack() {
+        final int excess = borrowed - Math.max(0, inFlight.size() - 1);
+        if (excess > 0) {
+            borrowed -= excess;
+            BUDGET.release(excess);
+        }
+    }
+
+    private void unregister() {
+        if (registered) {
+            registered = false;
+            OPEN.decrementAndGet();
+        }
+    }
+
+    private void release() {
+        if (member != null && member.data.length <= MAX_POOLED)
+            BUFFERS.offer(member.data);
+        member = null;
+    }
+
+    /**
+     * Moves to the member that starts where the current one ends
+     *
+     * @return false at end of stream
+     */
+    private boolean nextMember() throws IOException {
+
+        if (eof) return false;
+
+        if (member != null) {
+            offset = member.end;
+            release();
+        }
+
+        // candidates before the current offset were magic bytes inside compressed data
+        Map<Integer, Future<Member>> stale = inFlight.headMap(offset);
+        for (Future<Member> future : stale.values())
+            future.cancel(false);
+        stale.clear();
+        giveBack();
+
+        while (submitted < candidates.length) {
+            final int candidate = candidates[submitted];
+            if (candidate >= offset) {
+                // the first member in flight is free, the others need a permit
+                if (!inFlight.isEmpty()) {
+                    if (!BUDGET.tryAcquire()) break;
+                    borrowed++;
+                }
+                inFlight.put(candidate, POOL.submit(() -> inflate(candidate)));
+            }
+            submitted++;
+        }
+
+        final Future<Member> future = inFlight.remove(offset);
+        giveBack();
+
+        if (future == null) {
+            // a member with an unusual header, which GZIPInputStream reports if it is not a gzip file at all
+            if (offset == 0) {
+                stream();
+                return true;
+            }
+            // or trailing garbage after the last member, which GZIPInputStream ignores
+            try {
+                stream();
+                return true;
+            } catch (IOException e) {
+                eof = true;
+                return false;
+            }
+        }
+
+        final Member next;
+        try {
+            next = future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ie);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        if (next == null || next == Member.LARGE) {
+            stream();
+            return true;
+        }
+
+        member = next;
+        position = 0;
+
+        track(offset, next.end);
+        decompressed += next.length;
+
+        return true;
+    }
+
+    /**
+     * Streams the rest of the file from the current offset with a {@link GZIPInputStream}, which also reports corrupt members
+     */
+    private void stream() throws IOException {
+
+        for (Future<Member> future : inFlight.values())
+            future.cancel(false);
+        inFlight.clear();
+        giveBack();
+        unregister();
+        submitted = candidates.length;
+
+        final ByteBuffer view = mapped.duplicate();
+        view.position(offset);
+
+        final InputStream in = new InputStream() {
+
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) return 0;
+                if (!view.hasRemaining()) return -1;
+                final int n = Math.min(len, view.remaining());
+                view.get(b, off, n);
+                return n;
+            }
+
+            // GZIPInputStream looks for a further member only if bytes are available
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+
+        fallback = new GZIPInputStream(in, BUFFER_SIZE);
+
+        // the rest of the file is a single member to the index
+        track(offset, size);
+    }
+
+    private void track(int start, int end) {
+        if (!tracking) return;
+        if (members == starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(1024, members * 2));
+            ends = Arrays.copyOf(ends, starts.length);
+            positions = Arrays.copyOf(positions, starts.length);
+        }
+        starts[members] = start;
+        ends[members] = end;
+        positions[members] = decompressed;
+        members++;
+    }
+
+    /**
+     * Compressed byte range of the members holding the given range of the decompressed stream.
+     * Only available for streams opened with {@link #tracking(Path)} and for bytes that have already been read.
+     *
+     * @param from first byte in the decompressed stream
+     * @param to   end (exclusive) in the decompressed stream
+     * @return compressed offset and length, and the offset of the first member in the decompressed stream
+     */
+    long[] compressedRange(long from, long to) {
+        final int first = member(from);
+        final int last = member(Math.max(from, to - 1));
+        return new long[]{starts[first], ends[last] - starts[first], positions[first]};
+    }
+
+    /**
+     * @return index of the (last) member whose decompressed start is not after the given position
+     */
+    private int member(long position) {
+        int i = Arrays.binarySearch(positions, 0, members, position);
+        if (i < 0) return Math.max(0, -i - 2);
+        // skip to the last of the (empty) members starting at the same position
+        while (i + 1 < members && positions[i + 1] == position) i++;
+        return i;
+    }
+
+    /**
+     * Inflates the gzip member that starts at the given offset
+     *
+     * @return decompressed member, or null if the offset is not the start of a valid member
+     */
+    private Member inflate(int start) {
+
+        final ByteBuffer view = mapped.duplicate();
+
+        // header
+        int p = start + 10;
+        if (p > size) return null;
+        final int flags = mapped.get(start + 3) & 0xff;
+
+        if ((flags & FEXTRA) == FEXTRA) {
+            if (p + 2 > size) return null;
+            p += 2 + ((mapped.get(p) & 0xff) | (mapped.get(p + 1) & 0xff) << 8);
+        }
+        if ((flags & FNAME) == FNAME) {
+            while (p < size && mapped.get(p) != 0) p++;
+            p++;
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            while (p < size && mapped.get(p) != 0) p++;
+            p++;
+        }
+        if ((flags & FHCRC) == FHCRC)
+            p += 2;
+
+        if (p >= size) return null;
+
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) inflater = new Inflater(true);
+
+        byte[] out = BUFFERS.poll();
+        if (out == null) out = new byte[BUFFER_SIZE * 4];
+
+        final byte[] in = new byte[BUFFER_SIZE];
+
+        try {
+            int n = 0;
+            int pos = p;
+
+            while (!inflater.finished()) {
+
+                if (inflater.needsInput()) {
+                    if (pos >= size) return null;
+                    final int length = Math.min(in.length, size - pos);
+                    view.position(pos);
+                    view.get(in, 0, length);
+                    inflater.setInput(in, 0, length);
+                    pos += length;
+                }
+
+                if (inflater.needsDictionary()) return null;
+
+                if (n == out.length) {
+                    if (n >= MAX_MEMBER) return Member.LARGE;
+                    out = Arrays.copyOf(out, Math.min(MAX_MEMBER, out.length * 2));
+                }
+
+                n += inflater.inflate(out, n, out.length - n);
+            }
+
+            // trailer: CRC32 and ISIZE, both little endian
+            final int trailer = pos - inflater.getRemaining();
+            if (trailer + 8 > size) return null;
+
+            final CRC32 crc = new CRC32();
+            crc.update(out, 0, n);
+
+            if (crc.getValue() != uint32(trailer) || (n & 0xffffffffL) != uint32(trailer + 4))
+                return null;
+
+            final Member result = new Member(trailer + 8, out, n);
+            out = null;
+            return result;
+
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.reset();
+            INFLATERS.offer(inflater);
+            if (out != null && out.length <= MAX_POOLED)
+                BUFFERS.offer(out);
+        }
+    }
+
+    private long uint32(int i) {
+        return (mapped.get(i) & 0xffL) | (mapped.get(i + 1) & 0xffL) << 8 | (mapped.get(i + 2) & 0xffL) << 16 | (mapped.get(i + 3) & 0xffL) << 24;
+    }
+}
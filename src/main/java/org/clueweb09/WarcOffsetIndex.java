@@ -0,0 +1,565 @@
+package org.clueweb09;
+
+import edu.anadolu.Indexer;
+import edu.anadolu.datasets.Collection;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Persistent, memory mapped map from TREC document identifier to the location of the document inside the collection:
+ * the WARC file, the byte range of the gzip members holding the record, and the number of decompressed bytes
+ * to skip to reach the record. A single document is then fetched by inflating a few kilobytes
+ * instead of decompressing and parsing a whole WARC file.
+ * <p>
+ * The index directory contains two files:
+ * <ul>
+ * <li>files.txt: WARC file paths relative to the docs path, the line number is the file ordinal</li>
+ * <li>offsets.bin: header (magic, version, format, key width, count) followed by fixed width records sorted by
+ * document identifier: zero padded identifier, file ordinal (int), offset (long), length (int), skip (long)</li>
+ * </ul>
+ * ClueWeb files are concatenated gzip members (mostly one per record), so a record maps to its own members.
+ * Single member files (e.g. GOV2) map to the whole file and the record is reached by skipping decompressed bytes.
+ */
+public final class WarcOffsetIndex {
+
+    public static final String DIRECTORY = "offsets";
+
+    private static final String FILES = "files.txt";
+    private static final String OFFSETS = "offsets.bin";
+
+    private static final int MAGIC = 0x5741524f;
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 4 + 4 + 8;
+
+    /**
+     * Bytes of a record after the identifier: file ordinal, offset, length, skip
+     */
+    private static final int VALUE = 4 + 8 + 4 + 8;
+
+    /**
+     * Record layout of the collection
+     */
+    public enum Format {
+
+        CW09, CW12, GOV2;
+
+        public static Format of(Collection collection) {
+            switch (collection) {
+                case CW09A:
+                case CW09B:
+                case MQ09:
+                    return CW09;
+                case CW12A:
+                case CW12B:
+                case NTCIR:
+                    return CW12;
+                case GOV2:
+                case MQ07:
+                case MQ08:
+                    return GOV2;
+                default:
+                    throw new IllegalArgumentException("offset index is not defined for the collection: " + collection);
+            }
+        }
+
+        String suffix() {
+            return this == GOV2 ? ".gz" : ".warc.gz";
+        }
+    }
+
+    /**
+     * @param indexDir offset index directory
+     * @return true if an offset index has been built in the given directory
+     */
+    public static boolean exists(Path indexDir) {
+        return Files.isReadable(indexDir.resolve(FILES)) && Files.isReadable(indexDir.resolve(OFFSETS));
+    }
+
+    /**
+     * Opens a previously built offset index
+     *
+     * @param indexDir offset index directory
+     * @param docsPath docs path of the collection, the file paths in the index are relative to it
+     * @return offset index
+     * @throws IOException if IO exception occurs
+     */
+    public static WarcOffsetIndex open(Path indexDir, Path docsPath) throws IOException {
+        return new WarcOffsetIndex(indexDir, docsPath);
+    }
+
+    private final Format format;
+    private final Path[] files;
+    private final int keyWidth;
+    private final int recordSize;
+    private final long count;
+    private final long recordsPerChunk;
+    private final MappedByteBuffer[] chunks;
+
+    private WarcOffsetIndex(Path indexDir, Path docsPath) throws IOException {
+
+        List<String> lines = Files.readAllLines(indexDir.resolve(FILES), StandardCharsets.UTF_8);
+        this.files = new Path[lines.size()];
+        for (int i = 0; i < files.length; i++)
+            files[i] = docsPath.resolve(lines.get(i));
+
+        try (FileChannel channel = FileChannel.open(indexDir.resolve(OFFSETS), StandardOpenOption.READ)) {
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("not an offset index: " + indexDir.resolve(OFFSETS));
+
+            this.format = Format.values()[header.getInt()];
+            this.keyWidth = header.getInt();
+            this.count = header.getLong();
+            this.recordSize = keyWidth + VALUE;
+
+            // chunks hold whole records, so that a record never spans two mappings
+            this.recordsPerChunk = Integer.MAX_VALUE / recordSize;
+            final int numChunks = (int) ((count + recordsPerChunk - 1) / recordsPerChunk);
+            this.chunks = new MappedByteBuffer[numChunks];
+            for (int i = 0; i < numChunks; i++) {
+                final long first = i * recordsPerChunk;
+                final long size = Math.min(recordsPerChunk, count - first) * recordSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * recordSize, size);
+            }
+        }
+    }
+
+    /**
+     * @return number of documents in the index
+     */
+    public long size() {
+        return count;
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    /**
+     * Fetches a single document. Safe to be called from multiple threads.
+     *
+     * @param docId TREC document identifier
+     * @return the record, or null if the document is not in the index
+     * @throws IOException if IO exception occurs
+     */
+    public WarcRecord fetch(String docId) throws IOException {
+
+        final long i = find(docId.getBytes(StandardCharsets.UTF_8));
+        if (i < 0) return null;
+
+        final ByteBuffer chunk = chunks[(int) (i / recordsPerChunk)];
+        final int base = (int) (i % recordsPerChunk) * recordSize + keyWidth;
+
+        final Path file = files[chunk.getInt(base)];
+        final long offset = chunk.getLong(base + 4);
+        final int length = chunk.getInt(base + 12);
+        final long skip = chunk.getLong(base + 16);
+
+        final ByteBuffer compressed = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (compressed.hasRemaining())
+                if (channel.read(compressed, offset + compressed.position()) < 0)
+                    throw new EOFException(file + " is shorter than the offset index says, re-build the index");
+        }
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.array()), ParallelGZIPInputStream.BUFFER_SIZE)) {
+
+            long remaining = skip;
+            while (remaining > 0) {
+                final long n = in.skip(remaining);
+                if (n <= 0) throw new EOFException(file + " is shorter than the offset index says, re-build the index");
+                remaining -= n;
+            }
+
+            return Format.GOV2.equals(format) ? gov2(in, docId) : warc(in, docId);
+        }
+    }
+
+    /**
+     * Fetches the given documents in parallel (on the common fork join pool) and hands them over to the consumer
+     *
+     * @param docIds   TREC document identifiers
+     * @param consumer called from multiple threads
+     * @return number of documents that are not in the index
+     */
+    public long fetchParallel(Set<String> docIds, Consumer<WarcRecord> consumer) {
+        return docIds.parallelStream().filter(docId -> {
+            try {
+                WarcRecord record = fetch(docId);
+                if (record == null) {
+                    System.out.println(docId + " is not found in the offset index");
+                    return true;
+                }
+                consumer.accept(record);
+                return false;
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(docId, ioe);
+            }
+        }).count();
+    }
+
+    private WarcRecord warc(InputStream in, String docId) throws IOException {
+
+        final WarcRecordReader reader = Format.CW12.equals(format)
+                ? new WarcRecordReader(in, ClueWeb12WarcRecord.WARC_VERSION, true, ParallelGZIPInputStream.BUFFER_SIZE)
+                : new WarcRecordReader(in, ClueWeb09WarcRecord.WARC_VERSION, false, ParallelGZIPInputStream.BUFFER_SIZE);
+
+        WarcRecord record;
+        while ((record = reader.next()) != null)
+            if (docId.equals(record.id()))
+                return record;
+
+        return null;
+    }
+
+    private static WarcRecord gov2(InputStream in, String docId) throws IOException {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StringBuilder builder = new StringBuilder();
+
+        boolean found = false;
+
+        for (; ; ) {
+            String line = reader.readLine();
+            if (line == null)
+                return null;
+
+            line = line.trim();
+
+            if (line.startsWith(Gov2Record.DOC)) {
+                found = true;
+                continue;
+            }
+
+            if (line.startsWith(Gov2Record.TERMINATING_DOC)) {
+                WarcRecord gov2 = Gov2Record.parseGov2Record(builder);
+                if (docId.equals(gov2.id()))
+                    return gov2;
+                found = false;
+                builder = new StringBuilder();
+            }
+
+            if (found)
+                builder.append(line).append(" ");
+        }
+    }
+
+    /**
+     * Binary search over the sorted records
+     *
+     * @return record number, or -1 if not found
+     */
+    private long find(byte[] key) {
+
+        if (key.length > keyWidth) return -1;
+
+        long lo = 0;
+        long hi = count - 1;
+
+        while (lo <= hi) {
+            final long mid = (lo + hi) >>> 1;
+            final int c = compare(mid, key);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the zero padded identifier of the i-th record with the key
+     */
+    private int compare(long i, byte[] key) {
+        final ByteBuffer chunk = chunks[(int) (i / recordsPerChunk)];
+        final int base = (int) (i % recordsPerChunk) * recordSize;
+        for (int j = 0; j < keyWidth; j++) {
+            final int a = chunk.get(base + j) & 0xff;
+            final int b = j < key.length ? key[j] & 0xff : 0;
+            if (a != b) return a - b;
+        }
+        return 0;
+    }
+
+    /**
+     * Unsigned lexicographic order of UTF-8 bytes, which is also the order of the zero padded identifiers
+     */
+    private static final Comparator<byte[]> ORDER = (a, b) -> {
+        final int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            final int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return a.length - b.length;
+    };
+
+    /**
+     * Location of a single record
+     */
+    private static final class Entry {
+
+        final byte[] key;
+        final long offset;
+        final int length;
+        final long skip;
+
+        Entry(byte[] key, long offset, int length, long skip) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.skip = skip;
+        }
+    }
+
+    /**
+     * Sorted entries of a single WARC file, spilled to a temporary file
+     */
+    private static final class Run {
+
+        final Path path;
+        final int file;
+        final int count;
+        final byte[] first;
+        final byte[] last;
+        final int keyWidth;
+
+        Run(Path path, int file, int count, byte[] first, byte[] last, int keyWidth) {
+            this.path = path;
+            this.file = file;
+            this.count = count;
+            this.first = first;
+            this.last = last;
+            this.keyWidth = keyWidth;
+        }
+    }
+
+    /**
+     * Builds the offset index of a collection. Every WARC file is scanned once, in parallel, into a sorted run.
+     * Since the documents of a WARC file form a contiguous range of identifiers, the runs are concatenated
+     * in the order of their first identifiers, which needs no merge.
+     *
+     * @param docsPath   docs path of the collection
+     * @param format     record layout of the collection
+     * @param indexDir   offset index directory to be (re-)created
+     * @param numThreads number of threads
+     * @return number of documents in the index
+     * @throws IOException          if IO exception occurs
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static long build(Path docsPath, Format format, Path indexDir, int numThreads) throws IOException, InterruptedException {
+
+        final List<Path> warcFiles = new ArrayList<>(Indexer.discoverWarcFiles(docsPath, format.suffix()));
+        warcFiles.sort(Comparator.naturalOrder());
+
+        System.out.println(warcFiles.size() + " many " + format.suffix() + " files found under the docs path : " + docsPath.toString());
+
+        Files.createDirectories(indexDir);
+        final Path tmp = Files.createTempDirectory(indexDir, "runs");
+
+        final ForkJoinPool pool = new ForkJoinPool(numThreads);
+
+        final List<Run> runs;
+        try {
+            runs = pool.submit(() -> IntStream.range(0, warcFiles.size()).parallel()
+                    .mapToObj(i -> {
+                        try {
+                            return run(warcFiles.get(i), i, format, tmp);
+                        } catch (IOException ioe) {
+                            throw new UncheckedIOException(warcFiles.get(i).toAbsolutePath().toString(), ioe);
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .sorted((a, b) -> ORDER.compare(a.first, b.first))
+                    .collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        long count = 0;
+        int keyWidth = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            if (i > 0 && ORDER.compare(runs.get(i - 1).last, runs.get(i).first) >= 0)
+                throw new IllegalStateException("document identifiers of " + warcFiles.get(runs.get(i - 1).file) + " and " + warcFiles.get(runs.get(i).file) + " overlap");
+            count += runs.get(i).count;
+            keyWidth = Math.max(keyWidth, runs.get(i).keyWidth);
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(indexDir.resolve(FILES), StandardCharsets.UTF_8))) {
+            for (Path warcFile : warcFiles)
+                out.println(docsPath.relativize(warcFile).toString());
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexDir.resolve(OFFSETS)), ParallelGZIPInputStream.BUFFER_SIZE))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(format.ordinal());
+            out.writeInt(keyWidth);
+            out.writeLong(count);
+
+            for (Run run : runs) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.path), ParallelGZIPInputStream.BUFFER_SIZE))) {
+                    for (int i = 0; i < run.count; i++) {
+                        final byte[] key = new byte[in.readInt()];
+                        in.readFully(key);
+                        out.write(key);
+                        for (int j = key.length; j < keyWidth; j++)
+                            out.write(0);
+                        out.writeInt(run.file);
+                        out.writeLong(in.readLong());
+                        out.writeInt(in.readInt());
+                        out.writeLong(in.readLong());
+                    }
+                }
+                Files.delete(run.path);
+            }
+        }
+
+        Files.delete(tmp);
+        return count;
+    }
+
+    /**
+     * Scans a WARC file and writes its sorted entries to a temporary file
+     *
+     * @return the run, or null if the file has no documents
+     */
+    private static Run run(Path warcFile, int file, Format format, Path tmp) throws IOException {
+
+        final List<Entry> entries = Format.GOV2.equals(format) ? scanGov2(warcFile) : scanWarc(warcFile, format);
+
+        if (entries.isEmpty()) return null;
+
+        entries.sort((a, b) -> ORDER.compare(a.key, b.key));
+
+        int keyWidth = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0 && ORDER.compare(entries.get(i - 1).key, entries.get(i).key) == 0)
+                throw new IllegalStateException("duplicate document identifier " + new String(entries.get(i).key, StandardCharsets.UTF_8) + " in " + warcFile);
+            keyWidth = Math.max(keyWidth, entries.get(i).key.length);
+        }
+
+        final Path path = tmp.resolve(file + ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), ParallelGZIPInputStream.BUFFER_SIZE))) {
+            for (Entry entry : entries) {
+                out.writeInt(entry.key.length);
+                out.write(entry.key);
+                out.writeLong(entry.offset);
+                out.writeInt(entry.length);
+                out.writeLong(entry.skip);
+            }
+        }
+
+        return new Run(path, file, entries.size(), entries.get(0).key, entries.get(entries.size() - 1).key, keyWidth);
+    }
+
+    /**
+     * @param tracked stream that knows the gzip members, or null for single member files
+     * @param start   start of the record in the decompressed stream
+     * @param end     end of the record in the decompressed stream
+     */
+    private static Entry entry(String docId, ParallelGZIPInputStream tracked, long size, long start, long end) {
+        final byte[] key = docId.getBytes(StandardCharsets.UTF_8);
+        if (tracked == null)
+            return new Entry(key, 0, (int) size, start);
+        final long[] range = tracked.compressedRange(start, end);
+        return new Entry(key, range[0], (int) range[1], start - range[2]);
+    }
+
+    private static List<Entry> scanWarc(Path warcFile, Format format) throws IOException {
+
+        final List<Entry> entries = new ArrayList<>();
+        final long size = Files.size(warcFile);
+        final ParallelGZIPInputStream tracked = ParallelGZIPInputStream.tracking(warcFile);
+        final InputStream in = tracked == null ? ParallelGZIPInputStream.open(warcFile) : tracked;
+
+        try (WarcRecordReader reader = Format.CW12.equals(format)
+                ? new WarcRecordReader(in, ClueWeb12WarcRecord.WARC_VERSION, true, WarcRecordReader.WINDOW_SIZE)
+                : new WarcRecordReader(in, ClueWeb09WarcRecord.WARC_VERSION, false, WarcRecordReader.WINDOW_SIZE)) {
+
+            WarcRecord record;
+            while ((record = reader.next()) != null) {
+                // warcinfo records have no TREC identifier
+                if (record.id() == null) continue;
+                entries.add(entry(record.id(), tracked, size, reader.recordStart(), reader.position()));
+            }
+        }
+
+        return entries;
+    }
+
+    private static List<Entry> scanGov2(Path gov2File) throws IOException {
+
+        final List<Entry> entries = new ArrayList<>();
+        final long size = Files.size(gov2File);
+        final ParallelGZIPInputStream tracked = ParallelGZIPInputStream.tracking(gov2File);
+
+        // only the beginning of a line is needed to spot the tags
+        final byte[] line = new byte[256];
+        final byte[] buffer = new byte[ParallelGZIPInputStream.BUFFER_SIZE];
+
+        long position = 0;
+        long lineStart = 0;
+        int lineLength = 0;
+
+        long docStart = -1;
+        String docId = null;
+
+        try (InputStream in = tracked == null ? ParallelGZIPInputStream.open(gov2File) : tracked) {
+
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                for (int i = 0; i < n; i++, position++) {
+
+                    if (buffer[i] != '\n') {
+                        if (lineLength < line.length) line[lineLength++] = buffer[i];
+                        continue;
+                    }
+
+                    final String s = new String(line, 0, lineLength, StandardCharsets.ISO_8859_1).trim();
+
+                    if (s.startsWith(Gov2Record.DOC)) {
+                        docStart = lineStart;
+                        docId = null;
+                    } else if (docStart != -1 && docId == null && s.startsWith("<DOCNO>")) {
+                        final int j = s.indexOf("</DOCNO>");
+                        docId = s.substring("<DOCNO>".length(), j == -1 ? s.length() : j).trim();
+                    } else if (s.startsWith(Gov2Record.TERMINATING_DOC)) {
+                        if (docStart != -1 && docId != null)
+                            entries.add(entry(docId, tracked, size, docStart, position + 1));
+                        docStart = -1;
+                        docId = null;
+                    }
+
+                    lineStart = position + 1;
+                    lineLength = 0;
+                }
+            }
+        }
+
+        return entries;
+    }
+}
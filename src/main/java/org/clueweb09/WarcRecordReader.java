@@ -0,0 +1,358 @@
+package org.clueweb09;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Byte oriented reader for ClueWeb{09|12} WARC files.
+ * <p>
+ * Reads the decompressed stream into a large {@link ByteBuffer} window and scans it for the WARC version line
+ * and the Content-Length header. Record bodies are slices of the window (no copy) and are decoded to String
+ * only when {@link WarcRecord#content()} is called.
+ * <p>
+ * The window is never overwritten: when it is exhausted a fresh one is allocated and the unconsumed tail is moved there,
+ * so slices handed out earlier stay valid.
+ * <p>
+ * Records are identical to those returned by {@link ClueWeb09WarcRecord#readNextWarcRecord(java.io.DataInputStream)}
+ * and {@link ClueWeb12WarcRecord#readNextWarcRecord(java.io.DataInputStream)} over a GZIPInputStream:
+ * same id, url, type and content.
+ */
+public final class WarcRecordReader implements Closeable {
+
+    public static final int WINDOW_SIZE = 1 << 22; // 4M
+
+    private static final byte[] CONTENT_LENGTH = "Content-Length:".getBytes(StandardCharsets.US_ASCII);
+
+    private final InputStream in;
+    private final String version;
+    private final boolean cw12;
+    private final int windowSize;
+
+    private byte[] window;
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    /**
+     * Stream offset of window[0] and of the version line of the last record
+     */
+    private long base = 0;
+    private long recordStart = -1;
+
+    WarcRecordReader(InputStream in, String version, boolean cw12, int windowSize) {
+        this.in = in;
+        this.version = version;
+        this.cw12 = cw12;
+        this.windowSize = windowSize;
+        this.window = new byte[windowSize];
+    }
+
+    /**
+     * @param in decompressed ClueWeb09 stream, no need to wrap it into a DataInputStream or a BufferedInputStream
+     */
+    public static WarcRecordReader clueWeb09(InputStream in) {
+        return new WarcRecordReader(in, ClueWeb09WarcRecord.WARC_VERSION, false, WINDOW_SIZE);
+    }
+
+    /**
+     * @param in decompressed ClueWeb12 stream, no need to wrap it into a DataInputStream or a BufferedInputStream
+     */
+    public static WarcRecordReader clueWeb12(InputStream in) {
+        return new WarcRecordReader(in, ClueWeb12WarcRecord.WARC_VERSION, true, WINDOW_SIZE);
+    }
+
+    /**
+     * Reads in the next WARC record
+     *
+     * @return a WARC record (or null if eof)
+     * @throws IOException if IO exception occurs
+     */
+    public Record next() throws IOException {
+
+        String line;
+        boolean foundMark = false;
+
+        // first - find our WARC header
+        long lineStart = base + position;
+        while (!foundMark && (line = readLine()) != null) {
+            if (line.startsWith(version)) {
+                foundMark = true;
+                recordStart = lineStart;
+            }
+            lineStart = base + position;
+        }
+
+        // no WARC mark?
+        if (!foundMark) {
+            return null;
+        }
+
+        String type = cw12 ? null : "";
+        String id = null;
+        String url = null;
+
+        // then read up to (and including) the content length line
+        int contentLength = -1;
+        boolean foundContentLength = false;
+        while (!foundContentLength && (line = readLine()) != null) {
+
+            final String[] pieces = line.split(":", 2);
+            final String key;
+            final String value;
+
+            if (pieces.length != 2) {
+                key = pieces[0];
+                value = "";
+            } else {
+                key = pieces[0].trim();
+                value = pieces[1].trim();
+
+                if (pieces[0].toLowerCase(Locale.US).startsWith("content-length")) {
+                    foundContentLength = true;
+                    try {
+                        contentLength = Integer.parseInt(value);
+                    } catch (NumberFormatException nfEx) {
+                        contentLength = -1;
+                    }
+                }
+            }
+
+            // ClueWeb09WarcRecord#addHeaderMetadata ignores a WARC-Type line without a value
+            if ("WARC-Type".equals(key) && (cw12 || pieces.length == 2))
+                type = value;
+            else if ("WARC-TREC-ID".equals(key))
+                id = value;
+            else if ("WARC-Target-URI".equals(key))
+                url = value;
+        }
+
+        if (contentLength < 0 || !ensure(contentLength)) {
+            return null;
+        }
+
+        ByteBuffer body = ByteBuffer.wrap(window, position, contentLength).slice();
+        position += contentLength;
+
+        return new Record(id, url, type, body, cw12);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return offset of the version line of the last record in the decompressed stream
+     */
+    long recordStart() {
+        return recordStart;
+    }
+
+    /**
+     * @return number of bytes consumed from the decompressed stream, i.e. the end of the last record
+     */
+    long position() {
+        return base + position;
+    }
+
+    /**
+     * Makes sure that at least n unread bytes are in the window
+     *
+     * @return false if the stream ends before n bytes
+     */
+    private boolean ensure(int n) throws IOException {
+
+        if (limit - position >= n) return true;
+        if (eof) return false;
+
+        // move the tail to a fresh window, slices of the old one may still be referenced by records
+        byte[] fresh = new byte[Math.max(windowSize, n)];
+        System.arraycopy(window, position, fresh, 0, limit - position);
+        base += position;
+        limit -= position;
+        position = 0;
+        window = fresh;
+
+        while (limit < window.length) {
+            int read = in.read(window, limit, window.length - limit);
+            if (read < 0) {
+                eof = true;
+                break;
+            }
+            limit += read;
+        }
+
+        return limit - position >= n;
+    }
+
+    /**
+     * Reads a line terminated by '\n' (the '\r' is kept as in the legacy reader)
+     *
+     * @return the line, or null at end of stream
+     */
+    private String readLine() throws IOException {
+
+        int offset = 0;
+
+        for (; ; ) {
+
+            for (int i = position + offset; i < limit; i++) {
+                final byte b = window[i];
+                if (b == '\n') {
+                    String line = new String(window, position, i - position, StandardCharsets.ISO_8859_1);
+                    position = i + 1;
+                    return line;
+                }
+                if (b < 0)
+                    return readLegacyLine();
+            }
+
+            offset = limit - position;
+            if (!ensure(offset + 1))
+                return readLegacyLine();
+        }
+    }
+
+    /**
+     * Slow path for lines having non-ASCII bytes (or ending at end of stream).
+     * Mirrors {@link ClueWeb09WarcRecord#readLineFromInputStream(java.io.DataInputStream)} over a GZIPInputStream,
+     * whose available() is one until the end of the stream.
+     */
+    private String readLegacyLine() throws IOException {
+
+        StringBuilder retString = new StringBuilder();
+
+        for (; ; ) {
+            if (!ensure(1)) return null;
+
+            final byte readByte = window[position++];
+            final char thisChar;
+
+            if ((readByte & 0xE0) == 0xE0) {
+                // treat these all as individual characters
+                retString.append((char) readByte);
+                if (ensure(1))
+                    retString.append((char) window[position++]);
+                continue;
+            } else if ((readByte & 0xC0) == 0xC0) {
+                if (!ensure(1)) {
+                    retString.append((char) readByte);
+                    continue;
+                }
+                final byte secondByte = window[position++];
+                if ((secondByte & 0x80) != 0x80) {
+                    retString.append((char) readByte);
+                    retString.append((char) secondByte);
+                    continue;
+                }
+                thisChar = (char) ((secondByte & 0x3F) + 64 * (readByte & 0x1F));
+            } else {
+                thisChar = (char) readByte;
+            }
+
+            if (thisChar == '\n')
+                return retString.toString();
+
+            retString.append(thisChar);
+        }
+    }
+
+    private static int indexOf(byte[] array, int from, int to, byte b) {
+        for (int i = from; i < to; i++)
+            if (array[i] == b) return i;
+        return -1;
+    }
+
+    private static int indexOf(byte[] array, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++)
+                if (array[i + j] != pattern[j]) continue outer;
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * WARC record whose body is a slice of the reader's window
+     */
+    public static final class Record implements WarcRecord {
+
+        private final String id;
+        private final String url;
+        private final String type;
+        private final boolean cw12;
+        private ByteBuffer body;
+
+        Record(String id, String url, String type, ByteBuffer body, boolean cw12) {
+            this.id = id;
+            this.url = url;
+            this.type = type;
+            this.body = body;
+            this.cw12 = cw12;
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public String url() {
+            return url;
+        }
+
+        @Override
+        public String type() {
+            return type;
+        }
+
+        /**
+         * @return number of bytes in the record body
+         */
+        public int length() {
+            return body == null ? 0 : body.remaining();
+        }
+
+        /**
+         * @return read-only view of the record body
+         */
+        public ByteBuffer body() {
+            return body.asReadOnlyBuffer();
+        }
+
+        /**
+         * Skips the HTTP headers (and for ClueWeb12 everything up to the first '&lt;') like the legacy getContent methods.
+         * Since ASCII bytes always decode to themselves in UTF-8, the offsets are found on bytes and only the rest is decoded.
+         */
+        @Override
+        public String content() {
+
+            final byte[] array = body.array();
+            final int from = body.arrayOffset() + body.position();
+            final int to = from + body.remaining();
+
+            final int i = indexOf(array, from, to, CONTENT_LENGTH);
+            final int j = indexOf(array, i == -1 ? from : i, to, (byte) '\n');
+
+            int start = j == -1 ? from : j + 1;
+
+            if (cw12) {
+                // Get rid of HTTP headers. Look for the first '<'.
+                final int k = indexOf(array, j == -1 ? from : j, to, (byte) '<');
+                if (k != -1) start = k;
+            }
+
+            return new String(array, start, to - start, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void free() {
+            body = null;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.clueweb09;
 
-import edu.anadolu.Indexer;
 import edu.anadolu.cmdline.CLI;
 import edu.anadolu.cmdline.CmdLineTool;
 import edu.anadolu.datasets.Collection;
@@ -12,9 +11,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.Properties;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Test WarcRecord: Shows how to read, ID, URL, and Title.
@@ -70,7 +67,7 @@ public class WarcTool extends CmdLineTool {
         boolean found = false;
 
         try (
-                InputStream stream = new GZIPInputStream(Files.newInputStream(file, StandardOpenOption.READ), Indexer.BUFFER_SIZE);
+                InputStream stream = ParallelGZIPInputStream.open(file);
                 BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
 
 
@@ -119,7 +116,7 @@ public class WarcTool extends CmdLineTool {
 
         int i = 0;
 
-        try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(inputWarcFile, StandardOpenOption.READ)))) {
+        try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(inputWarcFile))) {
 
             // iterate through our stream
             ClueWeb12WarcRecord wDoc;
@@ -161,7 +158,7 @@ public class WarcTool extends CmdLineTool {
     private void cw09(String doc) throws IOException {
 
 
-        try (DataInputStream inStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(Paths.get(doc), StandardOpenOption.READ)))) {
+        try (DataInputStream inStream = new DataInputStream(ParallelGZIPInputStream.open(Paths.get(doc)))) {
 
             // iterate through our stream
             ClueWeb09WarcRecord wDoc;
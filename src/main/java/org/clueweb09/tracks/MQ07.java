@@ -22,8 +22,8 @@ public class MQ07 extends MQ08 {
     }
 
     @Override
-    protected void populateQRelsMap() throws Exception {
-        populateQRelsMap(Paths.get(home, "topics-and-qrels", "prels.1-10000"));
+    public Path prels() {
+        return Paths.get(home, "topics-and-qrels", "prels.1-10000");
     }
 
     @Override
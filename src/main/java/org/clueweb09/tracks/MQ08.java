@@ -30,8 +30,8 @@ public class MQ08 extends MQ09 {
     }
 
     @Override
-    protected void populateQRelsMap() throws Exception {
-        populateQRelsMap(Paths.get(home, "topics-and-qrels", "prels.10001-20000"));
+    public Path prels() {
+        return Paths.get(home, "topics-and-qrels", "prels.10001-20000");
     }
 
     @Override
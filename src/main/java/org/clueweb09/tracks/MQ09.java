@@ -68,9 +68,16 @@ public class MQ09 extends Track {
         return new Triple(queryID, docID, judge);
     }
 
+    /**
+     * @return five column prels file (topic doc rel method iprob) read by statAP_MQ_eval_v4.pl
+     */
+    public Path prels() {
+        return Paths.get(home, "topics-and-qrels", "prels.20001-60000");
+    }
+
     @Override
     protected void populateQRelsMap() throws Exception {
-        populateQRelsMap(Paths.get(home, "topics-and-qrels", "prels.20001-60000"));
+        populateQRelsMap(prels());
     }
 
     @Override
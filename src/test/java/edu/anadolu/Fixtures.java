@@ -0,0 +1,137 @@
+package edu.anadolu;
+
+import edu.anadolu.similarities.BM25c;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.clueweb09.ClueWeb09WarcRecord;
+import org.clueweb09.ClueWeb12WarcRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static edu.anadolu.Indexer.FIELD_ID;
+
+/**
+ * Fixtures shared by the tests
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * In-memory index of generated documents, with lossless length norms, several segments and some deletions
+     *
+     * @param numDocs number of documents, whose identifiers are doc-0, doc-1, ...
+     * @param commit  documents per segment
+     * @param delete  every delete-th document deletes the one at half of its number, none if zero
+     * @param fields  adds the fields of the d-th document besides its identifier
+     * @return directory of the index
+     * @throws IOException if IO exception occurs
+     */
+    public static Directory index(int numDocs, int commit, int delete, ObjIntConsumer<Document> fields) throws IOException {
+
+        final Directory directory = new RAMDirectory();
+        final IndexWriterConfig iwc = new IndexWriterConfig(new WhitespaceAnalyzer());
+        iwc.setSimilarity(new BM25c(1.2, 0.75));
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+
+        try (IndexWriter writer = new IndexWriter(directory, iwc)) {
+            for (int d = 0; d < numDocs; d++) {
+                Document document = new Document();
+                document.add(new StringField(FIELD_ID, "doc-" + d, Field.Store.YES));
+                fields.accept(document, d);
+                writer.addDocument(document);
+
+                if (d % commit == commit - 1) writer.commit();
+                if (delete > 0 && d % delete == 0) writer.deleteDocuments(new Term(FIELD_ID, "doc-" + (d / 2)));
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * Deletes a directory tree, as far as possible
+     *
+     * @param root directory to delete
+     * @throws IOException if IO exception occurs
+     */
+    public static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * @param data bytes to compress
+     * @return a single gzip member
+     * @throws IOException if IO exception occurs
+     */
+    public static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Writes a ClueWeb like file: a warcinfo record and then one gzip member per response record
+     *
+     * @param file       .warc.gz file
+     * @param cw12       ClueWeb12 or ClueWeb09 record format
+     * @param prefix     identifier of the d-th record is the prefix followed by d in five digits
+     * @param numRecords number of response records
+     * @param random     source of the random contents
+     * @throws IOException if IO exception occurs
+     */
+    public static void warc(Path file, boolean cw12, String prefix, int numRecords, Random random) throws IOException {
+
+        final String newLine = cw12 ? "\r\n" : "\n";
+        final String version = cw12 ? ClueWeb12WarcRecord.WARC_VERSION : ClueWeb09WarcRecord.WARC_VERSION;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(gzip((version + newLine + "WARC-Type: warcinfo" + newLine + "Content-Length: 4" + newLine + newLine + "info" + newLine + newLine).getBytes(StandardCharsets.UTF_8)));
+
+        for (int d = 0; d < numRecords; d++) {
+
+            StringBuilder body = new StringBuilder("HTTP/1.1 200 OK" + newLine + "Content-Type: text/html" + newLine + newLine + "<html>ünïcödé ");
+            final int length = random.nextInt(5000);
+            for (int i = 0; i < length; i++)
+                body.append((char) ('a' + random.nextInt(26)));
+
+            final byte[] content = body.toString().getBytes(StandardCharsets.UTF_8);
+
+            final String header = version + newLine +
+                    "WARC-Type: response" + newLine +
+                    "WARC-Target-URI: http://example.org/" + d + newLine +
+                    "WARC-TREC-ID: " + prefix + String.format("%05d", d) + newLine +
+                    "Content-Length: " + content.length + newLine + newLine;
+
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            record.write(header.getBytes(StandardCharsets.UTF_8));
+            record.write(content);
+            record.write((newLine + newLine).getBytes(StandardCharsets.US_ASCII));
+
+            out.write(gzip(record.toByteArray()));
+        }
+
+        Files.write(file, out.toByteArray());
+    }
+}
@@ -0,0 +1,86 @@
+package edu.anadolu;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Tests that {@link AnchorStore#get(String)} returns the anchor texts as they are written
+ */
+public class TestAnchorStore {
+
+    @Test
+    public void testLookup() throws IOException {
+
+        final Random random = new Random(42L);
+        final Path store = Files.createTempDirectory("anchors");
+
+        try {
+            // every third document has no anchor text, some anchors are long enough to end a block early
+            Map<String, String> expected = new TreeMap<>();
+            for (int d = 0; d < 5000; d++) {
+                if (d % 3 == 0) continue;
+                StringBuilder anchor = new StringBuilder("ünïcödé\t");
+                final int length = random.nextInt(d % 1000 == 2 ? 400000 : 100);
+                for (int i = 0; i < length; i++)
+                    anchor.append((char) ('a' + random.nextInt(26)));
+                expected.put(String.format("clueweb09-en0000-%02d-%05d", d / 1000, d), d % 10 == 1 ? "" : anchor.toString());
+            }
+
+            Assert.assertFalse(AnchorStore.exists(store));
+
+            try (AnchorStore.Writer writer = AnchorStore.writer(store)) {
+                for (Map.Entry<String, String> entry : expected.entrySet())
+                    writer.add(entry.getKey(), entry.getValue());
+                Assert.assertEquals(expected.size(), writer.commit());
+            }
+
+            Assert.assertTrue(AnchorStore.exists(store));
+
+            AnchorStore anchors = AnchorStore.open(store);
+            Assert.assertEquals(expected.size(), anchors.size());
+
+            for (int d = 0; d < 5000; d++) {
+                final String docId = String.format("clueweb09-en0000-%02d-%05d", d / 1000, d);
+                Assert.assertEquals(docId, expected.get(docId), anchors.get(docId));
+            }
+
+            Assert.assertNull(anchors.get("clueweb09-en0000-00-0000"));
+            Assert.assertNull(anchors.get("clueweb09-en0000-99-99999"));
+            Assert.assertNull(anchors.get("clueweb08"));
+
+        } finally {
+            Fixtures.delete(store);
+        }
+    }
+
+    @Test
+    public void testOrder() throws IOException {
+
+        final Path store = Files.createTempDirectory("anchors");
+
+        try {
+            try (AnchorStore.Writer writer = AnchorStore.writer(store)) {
+                writer.add("b", "anchor");
+                writer.add("a", "anchor");
+                Assert.fail("identifiers are not in increasing order");
+            } catch (IllegalStateException expected) {
+                // the uncommitted store is removed
+            }
+
+            Assert.assertFalse(AnchorStore.exists(store));
+            try (Stream<Path> files = Files.list(store)) {
+                Assert.assertEquals(0L, files.count());
+            }
+        } finally {
+            Fixtures.delete(store);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package edu.anadolu;
+
+import edu.anadolu.analysis.Tag;
+import edu.anadolu.datasets.Collection;
+import edu.anadolu.datasets.DataSet;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.clueweb09.ParallelGZIPInputStream;
+import org.clueweb09.WarcRecord;
+import org.clueweb09.WarcRecordReader;
+import org.clueweb09.tracks.Track;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static edu.anadolu.Indexer.FIELD_ID;
+
+/**
+ * Tests that indexing resumed from a {@link Indexer.Checkpoint} has every document exactly once
+ */
+public class TestCheckpoint {
+
+    private static final int NUM_FILES = 4;
+    private static final int NUM_RECORDS = 20;
+
+    private static DataSet dataset(Path home) {
+        return new DataSet(Collection.CW09B, new Track[0], home.toString()) {
+            @Override
+            public String getNoDocumentsID() {
+                return "clueweb09-en0000-00-00000";
+            }
+
+            @Override
+            public boolean spamAvailable() {
+                return false;
+            }
+        };
+    }
+
+    private static String prefix(int f) {
+        return String.format("clueweb09-en0000-%02d-", f);
+    }
+
+    /**
+     * @return identifiers of the live documents of the index
+     */
+    private static List<String> ids(Path indexPath) throws IOException {
+        final List<String> ids = new ArrayList<>();
+        try (Directory dir = FSDirectory.open(indexPath);
+             IndexReader reader = DirectoryReader.open(dir)) {
+            final Bits live = MultiFields.getLiveDocs(reader);
+            for (int docId = 0; docId < reader.maxDoc(); docId++)
+                if (live == null || live.get(docId))
+                    ids.add(reader.document(docId).get(FIELD_ID));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testResume() throws IOException {
+
+        final Random random = new Random(42L);
+        final Path home = Files.createTempDirectory("tfd");
+
+        try {
+            final Path docs = Files.createDirectories(home.resolve("docs").resolve("en0000"));
+            final List<Path> files = new ArrayList<>();
+            final Set<String> expected = new TreeSet<>();
+            for (int f = 0; f < NUM_FILES; f++) {
+                final Path file = docs.resolve(String.format("%02d.warc.gz", f));
+                Fixtures.warc(file, false, prefix(f), NUM_RECORDS, random);
+                files.add(file);
+                for (int d = 0; d < NUM_RECORDS; d++)
+                    expected.add(prefix(f) + String.format("%05d", d));
+            }
+
+            final Indexer indexer = new Indexer(dataset(home), home.resolve("docs").toString(), home.resolve("indexes").toString(), null, Tag.KStem,
+                    new Indexer.IndexerConfig().useResume(true).useSilent(true));
+
+            // first run: two files are completed, the third one is in progress at the last commit and the process dies
+            try (Directory dir = FSDirectory.open(indexer.indexPath)) {
+                final IndexWriter writer = new IndexWriter(dir, indexer.indexWriterConfig());
+                final Indexer.Checkpoint checkpoint = new Indexer.Checkpoint(writer);
+
+                indexer.new IndexerThread(writer, files.get(0), checkpoint).run();
+                indexer.new IndexerThread(writer, files.get(1), checkpoint).run();
+
+                final Path partial = files.get(2);
+                checkpoint.start(partial);
+                try (WarcRecordReader reader = WarcRecordReader.clueWeb09(ParallelGZIPInputStream.open(partial))) {
+                    WarcRecord record;
+                    int d = 0;
+                    while ((record = reader.next()) != null) {
+                        if (!Indexer.RESPONSE.equals(record.type())) continue;
+                        writer.addDocument(indexer.document(record));
+                        // documents added after the commit are lost with the process
+                        if (++d == NUM_RECORDS / 2) checkpoint.commit();
+                    }
+                }
+                writer.rollback();
+            }
+
+            final List<String> committed = ids(indexer.indexPath);
+            Assert.assertEquals(2 * NUM_RECORDS + NUM_RECORDS / 2, committed.size());
+
+            // second run: appends to the last commit
+            try (Directory dir = FSDirectory.open(indexer.indexPath)) {
+                final IndexWriterConfig iwc = indexer.indexWriterConfig();
+                iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+                try (IndexWriter writer = new IndexWriter(dir, iwc)) {
+                    final Indexer.Checkpoint checkpoint = new Indexer.Checkpoint(writer);
+
+                    Assert.assertEquals(2, checkpoint.numCompleted());
+                    Assert.assertTrue(checkpoint.isPartial(files.get(2)));
+                    Assert.assertFalse(checkpoint.isPartial(files.get(3)));
+
+                    final Deque<Path> remaining = new ArrayDeque<>(files);
+                    remaining.removeIf(checkpoint::isCompleted);
+                    Assert.assertEquals(files.subList(2, NUM_FILES), new ArrayList<>(remaining));
+
+                    for (Path file : remaining)
+                        indexer.new IndexerThread(writer, file, checkpoint).run();
+                    checkpoint.commit();
+
+                    Assert.assertEquals(NUM_FILES, checkpoint.numCompleted());
+                    Assert.assertFalse(checkpoint.isPartial(files.get(2)));
+                }
+            }
+
+            final List<String> ids = ids(indexer.indexPath);
+            Assert.assertEquals("duplicate identifiers", new HashSet<>(ids).size(), ids.size());
+            Assert.assertEquals(expected, new TreeSet<>(ids));
+
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+}
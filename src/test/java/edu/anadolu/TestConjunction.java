@@ -0,0 +1,85 @@
+package edu.anadolu;
+
+import edu.anadolu.similarities.BM25c;
+import edu.anadolu.similarities.DirichletLM;
+import edu.anadolu.similarities.PL2c;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.store.Directory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static edu.anadolu.Indexer.FIELD_CONTENTS;
+
+/**
+ * Tests that {@link Conjunction} returns the same hits and counts as {@link org.apache.lucene.search.BooleanQuery}
+ */
+public class TestConjunction {
+
+    private static final String[] WORDS = {"a", "b", "c", "d", "e", "f", "g", "h", "i", "j"};
+
+    private static Directory index(Random random) throws IOException {
+        return Fixtures.index(5000, 1500, 97, (document, d) -> {
+            StringBuilder contents = new StringBuilder();
+            final int length = 1 + random.nextInt(d % 7 == 0 ? 3 : 60);
+            for (int i = 0; i < length; i++)
+                contents.append(WORDS[Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length))]).append(' ');
+            document.add(new Indexer.NoPositionsTextField(FIELD_CONTENTS, contents.toString()));
+        });
+    }
+
+    @Test
+    public void testSameHitsAndCounts() throws IOException, ParseException {
+
+        final List<ModelBase> models = Arrays.asList(new PL2c(0.5), new BM25c(1.2, 0.75), new DirichletLM(500));
+
+        try (Directory directory = index(new Random(42L)); IndexReader reader = DirectoryReader.open(directory)) {
+
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            final QueryParser queryParser = new QueryParser(FIELD_CONTENTS, new WhitespaceAnalyzer());
+            queryParser.setDefaultOperator(QueryParser.Operator.AND);
+
+            for (String queryString : new String[]{"a b", "a a b", "b a b", "i j", "a c e g", "a b c d e", "h zzz"}) {
+
+                final Query query = queryParser.parse(queryString);
+                final List<String> terms = Arrays.asList(queryString.split(" "));
+
+                Assert.assertEquals(queryString, searcher.count(query), Conjunction.count(reader, FIELD_CONTENTS, terms));
+
+                for (ModelBase model : models) {
+                    searcher.setSimilarity(model);
+                    final ScoreDoc[] expected = searcher.search(query, 100).scoreDocs;
+                    final ScoreDoc[] hits = Conjunction.search(searcher, query, FIELD_CONTENTS, model, 100);
+                    final String message = model + " " + queryString;
+
+                    Assert.assertNotNull(message, hits);
+                    Assert.assertTrue(message, MaxScore.same(expected, hits));
+                }
+            }
+
+            // too long for the fast path
+            Assert.assertNull(Conjunction.search(searcher, queryParser.parse("a b c d e f"), FIELD_CONTENTS, models.get(0), 100));
+
+            final List<String> terms = Arrays.asList("a", "e", "j");
+            final int[][] pairs = Conjunction.pairs(reader, FIELD_CONTENTS, terms);
+            for (int i = 0; i < terms.size(); i++) {
+                Assert.assertEquals(0, pairs[i][i]);
+                for (int j = i + 1; j < terms.size(); j++) {
+                    Assert.assertEquals(searcher.count(queryParser.parse(terms.get(i) + " " + terms.get(j))), pairs[i][j]);
+                    Assert.assertEquals(pairs[i][j], pairs[j][i]);
+                }
+            }
+        }
+    }
+}
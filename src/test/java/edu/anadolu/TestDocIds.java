@@ -0,0 +1,86 @@
+package edu.anadolu;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static edu.anadolu.Indexer.FIELD_CONTENTS;
+import static edu.anadolu.Indexer.FIELD_ID;
+
+/**
+ * Tests that {@link DocIds} resolves the same identifiers as the stored fields, with and without doc values
+ */
+public class TestDocIds {
+
+    private static Directory index(boolean docValues) throws IOException {
+
+        final Directory directory = new RAMDirectory();
+        final IndexWriterConfig iwc = new IndexWriterConfig(new WhitespaceAnalyzer());
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+
+        try (IndexWriter writer = new IndexWriter(directory, iwc)) {
+            for (int d = 0; d < 3000; d++) {
+                final String id = "clueweb09-en" + String.format("%04d", d % 17) + "-" + d;
+                Document document = new Document();
+                document.add(new StringField(FIELD_ID, id, Field.Store.YES));
+                if (docValues) document.add(new SortedDocValuesField(FIELD_ID, new BytesRef(id)));
+                document.add(new Indexer.NoPositionsTextField(FIELD_CONTENTS, "a b c"));
+                writer.addDocument(document);
+                if (d % 1000 == 999) writer.commit();
+            }
+        }
+        return directory;
+    }
+
+    @Test
+    public void testResolve() throws IOException {
+
+        final Path home = Files.createTempDirectory("collection");
+        final Path file = DocIds.file(home.resolve("indexes").resolve("KStem"));
+        Assert.assertEquals(home.resolve("cache").resolve("KStem.ids"), file);
+
+        try {
+            for (boolean docValues : new boolean[]{true, false})
+                try (Directory directory = index(docValues); IndexReader reader = DirectoryReader.open(directory)) {
+
+                    final String[] files = directory.listAll();
+                    final Random random = new Random(42L);
+                    final ScoreDoc[] hits = new ScoreDoc[500];
+                    for (int i = 0; i < hits.length; i++)
+                        hits[i] = new ScoreDoc(random.nextInt(reader.maxDoc()), 1f);
+
+                    try (DocIds docIds = DocIds.open(reader, file)) {
+                        final String[] ids = docIds.get(hits);
+                        for (int i = 0; i < hits.length; i++) {
+                            final String expected = reader.document(hits[i].doc).get(FIELD_ID);
+                            Assert.assertEquals(expected, ids[i]);
+                            Assert.assertEquals(expected, docIds.get(hits[i].doc));
+                        }
+                    }
+
+                    // the id table is built once, outside of the index, and reused by the next resolver
+                    Assert.assertEquals(!docValues, Files.exists(file));
+                    Assert.assertArrayEquals(files, directory.listAll());
+                    try (DocIds docIds = DocIds.open(reader, file)) {
+                        Assert.assertEquals(reader.document(0).get(FIELD_ID), docIds.get(0));
+                    }
+                }
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+}
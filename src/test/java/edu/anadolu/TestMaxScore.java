@@ -0,0 +1,113 @@
+package edu.anadolu;
+
+import edu.anadolu.similarities.*;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.store.Directory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static edu.anadolu.Indexer.FIELD_CONTENTS;
+
+/**
+ * Tests that {@link MaxScore} returns the same top-k as exhaustive scoring
+ */
+public class TestMaxScore {
+
+    private static Directory index(Random random) throws IOException {
+        return Fixtures.index(20000, 7000, 101, (document, d) -> {
+            StringBuilder contents = new StringBuilder();
+            // rare terms t0 ... t9, frequent terms a ... e, one term in almost every document
+            final int length = 1 + random.nextInt(d % 5 == 0 ? 5 : 200);
+            for (int i = 0; i < length; i++) {
+                final int p = random.nextInt(1000);
+                contents.append(p < 5 ? "t" + random.nextInt(10) : p < 500 ? (char) ('a' + random.nextInt(5)) : "z").append(' ');
+            }
+            if (random.nextInt(10) != 0) contents.append("common ");
+            document.add(new Indexer.NoPositionsTextField(FIELD_CONTENTS, contents.toString()));
+        });
+    }
+
+    @Test
+    public void testSameTopK() throws IOException, ParseException {
+
+        final List<ModelBase> models = Arrays.asList(new BM25c(1.2, 0.75), new BM25c(2.0, 0.3), new PL2c(4), new LGDc(2), new DirichletLM(2000), new PL2(), new BM25());
+
+        try (Directory directory = index(new Random(42L)); IndexReader reader = DirectoryReader.open(directory)) {
+
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            final QueryParser queryParser = new QueryParser(FIELD_CONTENTS, new WhitespaceAnalyzer());
+
+            for (String queryString : new String[]{"t1", "t1 a", "t1 t2 b", "a b c", "t3 t3 common", "t4 z common", "t5 t6 t7 t8 a", "e t9 zzz", "zzz"}) {
+
+                final Query query = queryParser.parse(queryString);
+
+                for (ModelBase model : models)
+                    for (int numHits : new int[]{1, 10, 1000}) {
+                        searcher.setSimilarity(model);
+                        final ScoreDoc[] expected = searcher.search(query, numHits).scoreDocs;
+                        final ScoreDoc[] actual = MaxScore.search(new IndexSearcher(reader), query, FIELD_CONTENTS, model, numHits);
+                        Assert.assertNotNull(model + " " + queryString, actual);
+                        Assert.assertTrue(model + " " + queryString + " " + numHits, MaxScore.same(expected, actual));
+                    }
+            }
+
+            // models that cannot bound their scores are left to exhaustive scoring
+            Assert.assertNull(MaxScore.search(searcher, queryParser.parse("t1 a"), FIELD_CONTENTS, new DPH(), 10));
+        }
+    }
+
+    /**
+     * A term in 90% of long documents: its normalized TF falls in the range where PL2 is not monotone
+     */
+    private static Directory frequentTermIndex(Random random) throws IOException {
+        return Fixtures.index(5000, 5000, 0, (document, d) -> {
+            StringBuilder contents = new StringBuilder();
+            final int length = 50 + random.nextInt(3000);
+            for (int i = 0; i < length; i++)
+                contents.append(random.nextInt(500) == 0 ? "t" + random.nextInt(3) : "z").append(' ');
+            if (random.nextInt(10) != 0) contents.append("w ");
+            document.add(new Indexer.NoPositionsTextField(FIELD_CONTENTS, contents.toString()));
+        });
+    }
+
+    @Test
+    public void testFrequentTerm() throws IOException, ParseException {
+
+        try (Directory directory = frequentTermIndex(new Random(7L)); IndexReader reader = DirectoryReader.open(directory)) {
+
+            final double f = reader.totalTermFreq(new Term(FIELD_CONTENTS, "w")) / (double) reader.numDocs();
+            Assert.assertTrue(String.valueOf(f), f > 0.87 && f < 0.95);
+
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            final QueryParser queryParser = new QueryParser(FIELD_CONTENTS, new WhitespaceAnalyzer());
+
+            for (ModelBase model : Arrays.asList(new PL2(), new PL2c(1), new PL2c(4))) {
+
+                // the frequent term alone is not bounded
+                Assert.assertNull(model.toString(), MaxScore.search(searcher, queryParser.parse("w"), FIELD_CONTENTS, model, 10));
+
+                for (String queryString : new String[]{"w t0", "w t1 t2"})
+                    for (int numHits : new int[]{1, 10, 1000}) {
+                        final Query query = queryParser.parse(queryString);
+                        searcher.setSimilarity(model);
+                        final ScoreDoc[] expected = searcher.search(query, numHits).scoreDocs;
+                        final ScoreDoc[] actual = MaxScore.search(new IndexSearcher(reader), query, FIELD_CONTENTS, model, numHits);
+                        Assert.assertNotNull(model + " " + queryString, actual);
+                        Assert.assertTrue(model + " " + queryString + " " + numHits, MaxScore.same(expected, actual));
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package edu.anadolu;
+
+import edu.anadolu.similarities.BM25c;
+import edu.anadolu.similarities.DirichletLM;
+import edu.anadolu.similarities.PL2c;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.store.Directory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Tests that {@link MultiFieldScorer} with a single unit weight scores like a search over that field
+ */
+public class TestMultiFieldScorer {
+
+    private static final String[] WORDS = {"a", "b", "c", "d", "e", "f", "g", "h"};
+    private static final List<String> FIELDS = Arrays.asList("title", "body");
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++)
+            text.append(WORDS[Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length))]).append(' ');
+        return text.toString();
+    }
+
+    private static Directory index(Random random) throws IOException {
+        return Fixtures.index(2000, 700, 89, (document, d) -> {
+            // some documents have no title
+            if (d % 5 != 0)
+                document.add(new Indexer.NoPositionsTextField("title", text(random, 1 + random.nextInt(6))));
+            document.add(new Indexer.NoPositionsTextField("body", text(random, 1 + random.nextInt(80))));
+        });
+    }
+
+    @Test
+    public void testUnitWeights() throws IOException, ParseException {
+
+        final List<ModelBase> models = Arrays.asList(new PL2c(0.5), new BM25c(1.2, 0.75), new DirichletLM(500));
+
+        try (Directory directory = index(new Random(42L)); IndexReader reader = DirectoryReader.open(directory)) {
+
+            final IndexSearcher searcher = new IndexSearcher(reader);
+
+            for (String queryString : new String[]{"a", "h", "a b", "a a b", "c f g", "h zzz", "zzz"}) {
+
+                final MultiFieldScorer scorer = MultiFieldScorer.collect(reader, FIELDS, Arrays.asList(queryString.split(" ")));
+
+                for (int f = 0; f < FIELDS.size(); f++) {
+
+                    final double[] weights = new double[FIELDS.size()];
+                    weights[f] = 1;
+
+                    final Query query = new QueryParser(FIELDS.get(f), new WhitespaceAnalyzer()).parse(queryString);
+
+                    for (ModelBase model : models) {
+                        searcher.setSimilarity(model);
+                        final ScoreDoc[] expected = searcher.search(query, 100).scoreDocs;
+                        final ScoreDoc[] hits = scorer.search(model, weights, 100);
+                        final String message = model + " " + FIELDS.get(f) + " " + queryString;
+
+                        Assert.assertEquals(message, expected.length, hits.length);
+                        for (int i = 0; i < expected.length; i++) {
+                            Assert.assertEquals(message, expected[i].doc, hits[i].doc);
+                            Assert.assertEquals(message, expected[i].score, hits[i].score, 1e-5f);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFractionalWeights() throws IOException {
+
+        final List<ModelBase> models = Arrays.asList(new PL2c(0.5), new BM25c(1.2, 0.75), new DirichletLM(500));
+
+        try (Directory directory = index(new Random(42L)); IndexReader reader = DirectoryReader.open(directory)) {
+
+            for (String queryString : new String[]{"a", "a b", "a a b", "c f g"}) {
+
+                final MultiFieldScorer scorer = MultiFieldScorer.collect(reader, FIELDS, Arrays.asList(queryString.split(" ")));
+
+                // pseudo lengths are not integers, and must not round below the weighted tf
+                for (double[] weights : new double[][]{{0.3, 0.3}, {2.5, 0.1}})
+                    for (ModelBase model : models) {
+                        final ScoreDoc[] hits = scorer.search(model, weights, 100);
+                        Assert.assertTrue(hits.length > 0);
+                        for (ScoreDoc hit : hits)
+                            Assert.assertTrue(model + " " + Arrays.toString(weights) + " " + queryString, Float.isFinite(hit.score));
+                    }
+            }
+        }
+    }
+}
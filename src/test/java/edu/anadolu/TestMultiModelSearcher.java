@@ -0,0 +1,79 @@
+package edu.anadolu;
+
+import edu.anadolu.similarities.BM25c;
+import edu.anadolu.similarities.DirichletLM;
+import edu.anadolu.similarities.LGDc;
+import edu.anadolu.similarities.PL2c;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.similarities.ModelBase;
+import org.apache.lucene.store.Directory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static edu.anadolu.Indexer.FIELD_CONTENTS;
+
+/**
+ * Tests that the single pass scoring of {@link MultiModelSearcher} returns the same hits as one search per model
+ */
+public class TestMultiModelSearcher {
+
+    private static final String[] WORDS = {"a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l"};
+
+    private static Directory index(Random random) throws IOException {
+        return Fixtures.index(3000, 1000, 97, (document, d) -> {
+            StringBuilder contents = new StringBuilder();
+            // skewed term distribution, plenty of ties for short documents
+            final int length = 1 + random.nextInt(d % 7 == 0 ? 3 : 60);
+            for (int i = 0; i < length; i++)
+                contents.append(WORDS[Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length))]).append(' ');
+            document.add(new Indexer.NoPositionsTextField(FIELD_CONTENTS, contents.toString()));
+        });
+    }
+
+    @Test
+    public void testSameHits() throws IOException, ParseException {
+
+        final List<ModelBase> models = Arrays.asList(new PL2c(0.5), new LGDc(8), new BM25c(0.4, 0.3), new BM25c(1.2, 0.75), new DirichletLM(100), new DirichletLM(2000));
+
+        try (Directory directory = index(new Random(42L)); IndexReader reader = DirectoryReader.open(directory)) {
+
+            Assert.assertTrue(reader.leaves().size() > 1);
+            final IndexSearcher searcher = new IndexSearcher(reader);
+
+            for (QueryParser.Operator operator : QueryParser.Operator.values()) {
+
+                final QueryParser queryParser = new QueryParser(FIELD_CONTENTS, new WhitespaceAnalyzer());
+                queryParser.setDefaultOperator(operator);
+
+                for (String queryString : new String[]{"a", "l", "a b", "c k l", "a a b", "e f g h", "l zzz", "zzz"}) {
+
+                    final Query query = queryParser.parse(queryString);
+                    final ScoreDoc[][] hits = MultiModelSearcher.search(new IndexSearcher(reader), query, FIELD_CONTENTS, models, 100);
+
+                    for (int m = 0; m < models.size(); m++) {
+                        searcher.setSimilarity(models.get(m));
+                        final ScoreDoc[] expected = searcher.search(query, 100).scoreDocs;
+                        final String message = models.get(m) + " " + operator + " " + queryString;
+
+                        Assert.assertEquals(message, expected.length, hits[m].length);
+                        for (int i = 0; i < expected.length; i++) {
+                            Assert.assertEquals(message, expected[i].doc, hits[m][i].doc);
+                            Assert.assertEquals(message, expected[i].score, hits[m][i].score, 0f);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
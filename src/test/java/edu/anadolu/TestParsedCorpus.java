@@ -0,0 +1,104 @@
+package edu.anadolu;
+
+import edu.anadolu.ParsedDocument.Column;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Tests that the {@link ParsedCorpus} store returns the documents as they are written
+ */
+public class TestParsedCorpus {
+
+    private static List<ParsedDocument> documents(int n) {
+
+        final Random random = new Random(42L);
+        List<ParsedDocument> documents = new ArrayList<>();
+
+        for (int d = 0; d < n; d++) {
+            ParsedDocument document = new ParsedDocument();
+            for (Column column : Column.values()) {
+                // some columns are missing, some are empty, some are long enough to end a block early
+                if (random.nextInt(5) == 0) continue;
+                StringBuilder value = new StringBuilder(column + "-" + d + " ünïcödé 中文 ");
+                final int length = random.nextInt(10) == 0 ? 0 : random.nextInt(d % 100 == 99 ? 300000 : 500);
+                for (int i = 0; i < length; i++)
+                    value.append((char) ('a' + random.nextInt(26)));
+                document.set(column, random.nextInt(20) == 0 ? "" : value.toString());
+            }
+            document.set(Column.ID, "doc-" + d);
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+
+        final Path docs = Files.createTempDirectory("docs");
+        final Path store = Files.createTempDirectory("parsed");
+        final Path warcFile = docs.resolve("en0000").resolve("00.warc.gz");
+
+        try {
+            ParsedCorpus corpus = new ParsedCorpus(docs, store);
+            List<ParsedDocument> expected = documents(3000);
+
+            Assert.assertFalse(corpus.contains(warcFile));
+
+            try (ParsedCorpus.Writer writer = corpus.writer(warcFile)) {
+                for (ParsedDocument document : expected)
+                    writer.add(document);
+                writer.commit();
+            }
+
+            Assert.assertTrue(corpus.contains(warcFile));
+            Assert.assertTrue(corpus.path(warcFile).startsWith(store.resolve("en0000")));
+
+            for (Set<Column> columns : Arrays.asList(EnumSet.allOf(Column.class), EnumSet.of(Column.TEXT), EnumSet.of(Column.TITLE, Column.BODY, Column.URL))) {
+                try (ParsedCorpus.Reader reader = corpus.reader(warcFile, columns)) {
+                    for (ParsedDocument document : expected) {
+                        ParsedDocument actual = reader.next();
+                        Assert.assertNotNull(actual);
+                        for (Column column : Column.values())
+                            Assert.assertEquals(column.toString(), column == Column.ID || columns.contains(column) ? document.get(column) : null, actual.get(column));
+                    }
+                    Assert.assertNull(reader.next());
+                    Assert.assertNull(reader.next());
+                }
+            }
+        } finally {
+            Fixtures.delete(docs);
+            Fixtures.delete(store);
+        }
+    }
+
+    @Test
+    public void testUncommitted() throws IOException {
+
+        final Path docs = Files.createTempDirectory("docs");
+        final Path store = Files.createTempDirectory("parsed");
+        final Path warcFile = docs.resolve("00.warc.gz");
+
+        try {
+            ParsedCorpus corpus = new ParsedCorpus(docs, store);
+
+            try (ParsedCorpus.Writer writer = corpus.writer(warcFile)) {
+                for (ParsedDocument document : documents(10))
+                    writer.add(document);
+            }
+
+            Assert.assertFalse(corpus.contains(warcFile));
+            try (Stream<Path> files = Files.list(store)) {
+                Assert.assertEquals(0L, files.count());
+            }
+        } finally {
+            Fixtures.delete(docs);
+            Fixtures.delete(store);
+        }
+    }
+}
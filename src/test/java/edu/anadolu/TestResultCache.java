@@ -0,0 +1,71 @@
+package edu.anadolu;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests prefix serving, eviction and persistence of the {@link ResultCache}
+ */
+public class TestResultCache {
+
+    private static ScoreDoc[] hits(int n) {
+        final ScoreDoc[] hits = new ScoreDoc[n];
+        for (int i = 0; i < n; i++)
+            hits[i] = new ScoreDoc(n - i, 100f - i * 0.01f);
+        return hits;
+    }
+
+    @Test
+    public void testCache() throws IOException {
+
+        final Path root = Files.createTempDirectory("cache");
+        final Path file = root.resolve("cache").resolve("KStem.results");
+
+        final Query query = new TermQuery(new Term("contents", "obama"));
+        final String key = ResultCache.key(new BM25Similarity(), query);
+
+        try {
+            final ResultCache cache = new ResultCache(file, "KStem", 5, 30005);
+
+            // top 1000 is the prefix of the top 10000
+            cache.put(key, 10000, hits(10000));
+            ScoreDoc[] top = cache.get(key, 1000);
+            Assert.assertEquals(1000, top.length);
+            Assert.assertEquals(10000, top[0].doc);
+            Assert.assertEquals(100f - 999 * 0.01f, top[999].score, 0f);
+            Assert.assertNull(cache.get(key, 20000));
+
+            // fewer hits than requested means all matching documents are cached
+            final String rare = ResultCache.key(new BM25Similarity(), new TermQuery(new Term("contents", "rare")));
+            cache.put(rare, 1000, hits(10));
+            Assert.assertEquals(10, cache.get(rare, 10000).length);
+
+            // least recently used lists are evicted beyond the maximum number of hits
+            final String other = ResultCache.key(new BM25Similarity(1.5f, 0.5f), query);
+            cache.get(key, 10);
+            cache.put(other, 10000, hits(10000));
+            cache.put(ResultCache.key(new BM25Similarity(2f, 0.5f), query), 10000, hits(10000));
+            Assert.assertNull(cache.get(rare, 10));
+            Assert.assertNotNull(cache.get(key, 10));
+            cache.save();
+
+            Assert.assertNotNull(new ResultCache(file, "KStem", 5, 30005).get(other, 1000));
+
+            // a new commit invalidates the saved lists
+            Assert.assertNull(new ResultCache(file, "KStem", 6, 30005).get(other, 1000));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+            Files.deleteIfExists(root);
+        }
+    }
+}
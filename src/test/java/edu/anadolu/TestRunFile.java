@@ -0,0 +1,66 @@
+package edu.anadolu;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Tests that exported binary runs are byte identical to the TREC text ones
+ */
+public class TestRunFile {
+
+    @Test
+    public void testExport() throws IOException {
+
+        final Path root = Files.createTempDirectory("runs");
+        try {
+            export(root);
+        } finally {
+            Fixtures.delete(root);
+        }
+    }
+
+    private static void export(Path root) throws IOException {
+
+        final Path text = root.resolve("BM25_contents_KStem_OR_all.txt");
+        final Path binary = root.resolve("BM25_contents_KStem_OR_all" + RunFile.SUFFIX);
+
+        final Random random = new Random(42L);
+
+        try (RunFile.Output t = RunFile.text(text, "BM25_contents_KStem_OR_all", "clueweb09-en0000-00-00000");
+             RunFile.Output b = RunFile.binary(binary, "BM25_contents_KStem_OR_all", "clueweb09-en0000-00-00000")) {
+
+            for (int qid = 1; qid <= 50; qid++) {
+                // some topics retrieve nothing
+                final int size = qid % 7 == 0 ? 0 : random.nextInt(2000);
+                final String[] ids = new String[size];
+                final float[] scores = new float[size];
+                float score = random.nextFloat() * 50;
+                for (int i = 0; i < size; i++) {
+                    ids[i] = "clueweb09-en" + String.format("%04d-%02d-%05d", random.nextInt(20), random.nextInt(100), random.nextInt(3000));
+                    scores[i] = score;
+                    score -= random.nextFloat() * (i % 3 == 0 ? 0 : 0.01f);
+                }
+                t.add(qid, ids, scores);
+                b.add(qid, ids, scores);
+            }
+        }
+
+        try (RunFile.Reader reader = new RunFile.Reader(binary)) {
+            Assert.assertEquals(50, reader.numQueries());
+            Assert.assertEquals("BM25_contents_KStem_OR_all", reader.runTag());
+            int queries = 0;
+            while (reader.next()) queries++;
+            Assert.assertEquals(50, queries);
+        }
+
+        final Path exported = root.resolve("exported.txt");
+        RunFile.export(binary, exported);
+        Assert.assertArrayEquals(Files.readAllBytes(text), Files.readAllBytes(exported));
+        Assert.assertTrue(Files.size(binary) < Files.size(text));
+    }
+}
@@ -0,0 +1,211 @@
+package edu.anadolu;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static edu.anadolu.Indexer.FIELD_ID;
+
+/**
+ * Tests the deterministic partition, the file system based claiming and the merging of {@link Shards}
+ */
+public class TestShards {
+
+    @Test
+    public void testPartition() throws IOException {
+
+        final Random random = new Random(42L);
+        final Path docs = Files.createTempDirectory("docs");
+
+        try {
+            List<Path> files = new ArrayList<>();
+            for (int d = 0; d < 20; d++) {
+                Path dir = Files.createDirectories(docs.resolve(String.format("en%04d", d)));
+                for (int f = 0; f < 1 + random.nextInt(5); f++)
+                    files.add(Files.write(dir.resolve(f + ".warc.gz"), new byte[1 + random.nextInt(1000)]));
+            }
+
+            final List<List<Path>> expected = Shards.partition(docs, files, 4);
+            Assert.assertEquals(4, expected.size());
+
+            // independent of the discovery order
+            Collections.shuffle(files, random);
+            Assert.assertEquals(expected, Shards.partition(docs, files, 4));
+
+            // every file is in exactly one shard, directories are not split, and the shards are contiguous ranges
+            List<Path> all = new ArrayList<>();
+            for (List<Path> shard : expected) {
+                Assert.assertFalse(shard.isEmpty());
+                all.addAll(shard);
+            }
+            Assert.assertEquals(files.size(), all.size());
+            Assert.assertEquals(new HashSet<>(files), new HashSet<>(all));
+
+            List<Path> sorted = new ArrayList<>(all);
+            sorted.sort(Comparator.comparing(Path::toString));
+            Assert.assertEquals(sorted, all);
+
+            Assert.assertEquals(Collections.singletonList(sorted), Shards.partition(docs, files, 1));
+
+        } finally {
+            Fixtures.delete(docs);
+        }
+    }
+
+    @Test
+    public void testClaim() throws IOException, InterruptedException, ExecutionException {
+
+        final Path root = Files.createTempDirectory("shards");
+        final int numShards = 16;
+
+        try {
+            Shards.done(root, 3, 42);
+            Assert.assertTrue(Shards.isDone(root, 3));
+            Assert.assertEquals(42L, Shards.numDocs(root, 3));
+
+            // workers racing for the shards, each shard except the done one is claimed exactly once
+            final ExecutorService workers = Executors.newFixedThreadPool(8);
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int w = 0; w < 8; w++)
+                futures.add(workers.submit(() -> {
+                    List<Integer> claimed = new ArrayList<>();
+                    int shard;
+                    while ((shard = Shards.claim(root, numShards)) != -1)
+                        claimed.add(shard);
+                    return claimed;
+                }));
+
+            List<Integer> claimed = new ArrayList<>();
+            for (Future<List<Integer>> future : futures)
+                claimed.addAll(future.get());
+            workers.shutdown();
+
+            Collections.sort(claimed);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < numShards; i++)
+                if (i != 3) expected.add(i);
+            Assert.assertEquals(expected, claimed);
+
+            Assert.assertEquals(-1, Shards.claim(root, numShards));
+
+        } finally {
+            Fixtures.delete(root);
+        }
+    }
+
+    private static IndexWriterConfig config() {
+        final IndexWriterConfig iwc = new IndexWriterConfig(new WhitespaceAnalyzer());
+        iwc.setIndexSort(new Sort(new SortField(FIELD_ID, SortField.Type.STRING)));
+        return iwc;
+    }
+
+    /**
+     * Indexes the documents of every shard in the given order, committing every so often, so that the segments differ
+     *
+     * @param forceMerge whether to merge every shard to a single segment at the end, as the workers do
+     */
+    private static Directory[] shards(List<List<String>> shards, Random random, int commit, boolean forceMerge) throws IOException {
+
+        final Directory[] directories = new Directory[shards.size()];
+        for (int i = 0; i < shards.size(); i++) {
+            final List<String> ids = new ArrayList<>(shards.get(i));
+            Collections.shuffle(ids, random);
+
+            directories[i] = new RAMDirectory();
+            try (IndexWriter writer = new IndexWriter(directories[i], config())) {
+                for (int d = 0; d < ids.size(); d++) {
+                    Document document = new Document();
+                    document.add(new StringField(FIELD_ID, ids.get(d), Field.Store.YES));
+                    document.add(new SortedDocValuesField(FIELD_ID, new BytesRef(ids.get(d))));
+                    writer.addDocument(document);
+                    if (d % commit == commit - 1) writer.commit();
+                }
+                if (forceMerge) writer.forceMerge(1);
+            }
+        }
+        return directories;
+    }
+
+    private static List<String> merge(Directory[] shards) throws IOException {
+
+        try (Directory directory = new RAMDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, config())) {
+                Shards.merge(writer, shards);
+                writer.commit();
+            }
+
+            List<String> ids = new ArrayList<>();
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                for (int docId = 0; docId < reader.maxDoc(); docId++)
+                    ids.add(reader.document(docId).get(FIELD_ID));
+            }
+            return ids;
+        } finally {
+            IOUtils.close(shards);
+        }
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+
+        final Random random = new Random(42L);
+
+        final List<List<String>> input = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<String> ids = new ArrayList<>();
+            for (int d = 0; d < 500; d++)
+                ids.add(String.format("clueweb09-en%04d-%02d-%05d", i, d % 7, d));
+            input.add(ids);
+        }
+
+        // the same input, indexed twice into differently segmented shards
+        final List<String> first = merge(shards(input, random, 37, true));
+        final List<String> second = merge(shards(input, random, 101, true));
+
+        Assert.assertEquals(1500, first.size());
+        Assert.assertEquals(first, second);
+
+        List<String> sorted = new ArrayList<>(first);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, first);
+    }
+
+    @Test
+    public void testMergeRejectsSegmentedShard() throws IOException {
+
+        final List<List<String>> input = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            List<String> ids = new ArrayList<>();
+            for (int d = 0; d < 100; d++)
+                ids.add(String.format("clueweb09-en%04d-00-%05d", i, d));
+            input.add(ids);
+        }
+
+        try {
+            merge(shards(input, new Random(42L), 10, false));
+            Assert.fail("a shard with many segments must not be merged");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().startsWith("shard 0 has "));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.anadolu;
+
+import edu.anadolu.datasets.Collection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests that {@link StaticRanks} returns the imported spam percentiles and PageRank scores
+ */
+public class TestStaticRanks {
+
+    private static String docId(int d) {
+        return String.format("clueweb09-en%04d-%02d-%05d", d % 7, d % 100, d);
+    }
+
+    @Test
+    public void testImport() throws IOException {
+
+        final Random random = new Random(42L);
+        final Path home = Files.createTempDirectory("tfd");
+
+        try {
+            final Map<String, Integer> spam = new HashMap<>();
+            final Map<String, Float> pageRank = new HashMap<>();
+
+            // input files are not sorted, and some documents are missing from one of them
+            List<Integer> docs = new ArrayList<>();
+            for (int d = 0; d < 10000; d++) docs.add(d);
+            Collections.shuffle(docs, random);
+
+            final Path spamFile = home.resolve("clueweb09spam.Fusion");
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(spamFile, StandardCharsets.US_ASCII))) {
+                for (int d : docs) {
+                    if (d % 11 == 0) continue;
+                    final int percentile = random.nextInt(100);
+                    spam.put(docId(d), percentile);
+                    out.println(percentile + " " + docId(d));
+                }
+            }
+
+            final Path pageRankFile = home.resolve("pagerank.txt.gz");
+            try (OutputStream gz = new GZIPOutputStream(Files.newOutputStream(pageRankFile));
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(gz, StandardCharsets.US_ASCII))) {
+                for (int d : docs) {
+                    if (d % 13 == 0) continue;
+                    final float rank = 0.15f + random.nextFloat() * 10;
+                    pageRank.put(docId(d), rank);
+                    out.println(docId(d) + "\t" + rank);
+                }
+            }
+
+            final String tfd_home = home.toString();
+            Assert.assertFalse(StaticRanks.exists(tfd_home, Collection.CW09B));
+
+            final long count = StaticRanks.build(spamFile, pageRankFile, StaticRanks.path(tfd_home, Collection.CW09A));
+            Assert.assertEquals(10000 - 10000 / 143 - 1, count);
+
+            // ClueWeb09 sub collections share the table
+            Assert.assertTrue(StaticRanks.exists(tfd_home, Collection.CW09B));
+            StaticRanks ranks = StaticRanks.open(tfd_home, Collection.MQ09);
+            Assert.assertEquals(count, ranks.size());
+
+            for (int d = 0; d < 10000; d++) {
+                final String docId = docId(d);
+                Assert.assertEquals(docId, spam.containsKey(docId) ? spam.get(docId) : -1, ranks.percentile(docId));
+                Assert.assertEquals(docId, pageRank.containsKey(docId) ? pageRank.get(docId) : Float.NaN, ranks.pageRank(docId), 0f);
+            }
+
+            Assert.assertEquals(-1, ranks.percentile("clueweb09-en0000-00-0000"));
+            Assert.assertTrue(Float.isNaN(ranks.pageRank("clueweb12-0000tw-00-00000-and-more")));
+
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package edu.anadolu;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static edu.anadolu.Indexer.FIELD_CONTENTS;
+
+/**
+ * Tests that {@link TermStats} serves the statistics of {@link IndexSearcher}, and that saved ones are reloaded
+ * without writing to the index directory
+ */
+public class TestTermStats {
+
+    private static final String[] WORDS = {"a", "b", "c", "d", "zzz"};
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+
+        final Path home = Files.createTempDirectory("collection");
+        final Path file = TermStats.file(home.resolve("indexes").resolve("KStem"));
+        Assert.assertEquals(home.resolve("cache").resolve("KStem.terms"), file);
+
+        try (Directory directory = new RAMDirectory()) {
+
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+                for (int d = 0; d < 500; d++) {
+                    Document document = new Document();
+                    document.add(new Indexer.NoPositionsTextField(FIELD_CONTENTS, "a b " + (d % 3 == 0 ? "c c" : "d")));
+                    writer.addDocument(document);
+                    if (d % 200 == 199) writer.commit();
+                }
+            }
+
+            final String[] files = directory.listAll();
+
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                final IndexSearcher searcher = new IndexSearcher(reader);
+                final TermStats stats = TermStats.of(reader, file);
+                Assert.assertSame(stats, TermStats.of(reader));
+                for (String word : WORDS) {
+                    final Term term = new Term(FIELD_CONTENTS, word);
+                    final TermStatistics expected = searcher.termStatistics(term, TermContext.build(reader.getContext(), term));
+                    Assert.assertEquals(word, expected.docFreq(), stats.statistics(term).docFreq());
+                    Assert.assertEquals(word, expected.totalTermFreq(), stats.statistics(term).totalTermFreq());
+                    Assert.assertEquals(word, expected.docFreq(), stats.context(term).docFreq());
+                }
+                stats.save();
+            }
+
+            Assert.assertTrue(Files.isRegularFile(file));
+            Assert.assertArrayEquals(files, directory.listAll());
+
+            // a new reader of the same commit starts with the saved frequencies
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                final TermStats stats = TermStats.of(reader, file);
+                Assert.assertEquals(500, stats.docFreq(new Term(FIELD_CONTENTS, "a")));
+                Assert.assertEquals(334, stats.totalTermFreq(new Term(FIELD_CONTENTS, "c")));
+                Assert.assertEquals(0, stats.docFreq(new Term(FIELD_CONTENTS, "zzz")));
+                Assert.assertEquals(167, stats.context(new Term(FIELD_CONTENTS, "c")).docFreq());
+            }
+
+            // saving is best effort: the parent of the file is not a directory
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                final TermStats stats = TermStats.of(reader, file.resolve("KStem.terms"));
+                stats.docFreq(new Term(FIELD_CONTENTS, "b"));
+                stats.save();
+            }
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+
+        final Path home = Files.createTempDirectory("collection");
+        final Path file = home.resolve("cache").resolve("KStem.terms");
+
+        try (Directory directory = new RAMDirectory()) {
+
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+                for (int d = 0; d < 100; d++) {
+                    Document document = new Document();
+                    document.add(new Indexer.NoPositionsTextField(FIELD_CONTENTS, "a b " + (d % 2 == 0 ? "c c" : "d")));
+                    writer.addDocument(document);
+                }
+            }
+
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                final TermStats stats = TermStats.of(reader, file);
+                Assert.assertEquals(100, stats.lookupTotalTermFreq(new Term(FIELD_CONTENTS, "c")));
+                Assert.assertEquals(0, stats.lookupTotalTermFreq(new Term(FIELD_CONTENTS, "zzz")));
+                stats.save();
+            }
+
+            // looked up terms are neither cached nor saved
+            Assert.assertFalse(Files.exists(file));
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+}
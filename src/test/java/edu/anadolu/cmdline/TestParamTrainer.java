@@ -0,0 +1,103 @@
+package edu.anadolu.cmdline;
+
+import edu.anadolu.Fixtures;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Tests the best parameter file of {@link ParamTrainer}: round trip, versioning and invalidation
+ */
+public class TestParamTrainer {
+
+    private static Map<String, String> values() {
+        final Map<String, String> values = new HashMap<>();
+        values.put("CW09B_BM25_KStem_NDCG20_OR", "BM25k1.2b0.4");
+        values.put("CW09B_CW12B_LGD_KStemAnchor_ERR20_AND", "LGDc4.0");
+        values.put("MQ09_DirichletLM_KStem_MAP_OR", "DirichletLMc1500.0");
+        return values;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+
+        final Path home = Files.createTempDirectory("params");
+        try {
+            final Path file = home.resolve(ParamTrainer.FILE_NAME);
+            Assert.assertTrue(ParamTrainer.read(file).isEmpty());
+
+            ParamTrainer.write(file, values());
+            Assert.assertEquals(values(), ParamTrainer.read(file));
+
+            // overwritten atomically, no temporary files are left behind
+            ParamTrainer.write(file, values());
+            try (Stream<Path> files = Files.list(home)) {
+                Assert.assertEquals(1, files.count());
+            }
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+
+    @Test
+    public void testVersion() throws IOException {
+
+        final Path home = Files.createTempDirectory("params");
+        try {
+            final Path file = home.resolve(ParamTrainer.FILE_NAME);
+            ParamTrainer.write(file, values());
+
+            // another version
+            final byte[] bytes = Files.readAllBytes(file);
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+                out.writeInt(ParamTrainer.MAGIC);
+                out.writeInt(ParamTrainer.VERSION + 1);
+                out.write(bytes, 8, bytes.length - 8);
+            }
+            Assert.assertTrue(ParamTrainer.read(file).isEmpty());
+
+            // not a parameter file
+            Files.write(file, "BM25k1.2b0.4".getBytes(StandardCharsets.UTF_8));
+            Assert.assertTrue(ParamTrainer.read(file).isEmpty());
+
+            // truncated
+            ParamTrainer.write(file, values());
+            final byte[] complete = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(complete, complete.length - 3));
+            Assert.assertTrue(ParamTrainer.read(file).isEmpty());
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+
+    @Test
+    public void testClear() throws IOException {
+
+        final Path home = Files.createTempDirectory("params");
+        try {
+            final Path file = home.resolve(ParamTrainer.FILE_NAME);
+            ParamTrainer.write(file, values());
+            Assert.assertEquals(values(), ParamTrainer.values(file));
+
+            // the values are kept in memory for the lifetime of the process
+            Files.delete(file);
+            Assert.assertEquals(values(), ParamTrainer.values(file));
+
+            // until they are cleared with the file
+            ParamTrainer.clear(file);
+            Assert.assertTrue(ParamTrainer.values(file).isEmpty());
+        } finally {
+            ParamTrainer.clear(home.resolve(ParamTrainer.FILE_NAME));
+            Fixtures.delete(home);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package edu.anadolu.eval;
+
+import edu.anadolu.Fixtures;
+import org.clueweb09.InfoNeed;
+import org.clueweb09.tracks.Track;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that {@link EvalMatrix} parses an evaluation file once, and again only when it changes
+ */
+public class TestEvalMatrix {
+
+    private static final Track TRACK = new Track("") {
+
+        @Override
+        protected void populateInfoNeeds() {
+            for (int id = 201; id <= 203; id++)
+                needs.add(new InfoNeed(id, "query", this, Collections.singletonMap("d" + id, 1)));
+        }
+
+        @Override
+        protected void populateQRelsMap() {
+        }
+    };
+
+    private static void write(Path path, String runid, double ndcg) throws IOException {
+        Files.write(path, Arrays.asList(
+                "runid,topic,ndcg@20,err@20",
+                runid + ",201," + String.format(Locale.US, "%.5f", ndcg) + ",0.10000",
+                runid + ",203,0.00000,0.00000",
+                runid + ",amean,0.20000,0.05000"), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+
+        final Path directory = Files.createTempDirectory("evals");
+        try {
+            final Path bm25 = directory.resolve("BM25_contents_KStem_OR_all.txt");
+            final Path dph = directory.resolve("DPH_contents_KStem_OR_all.txt");
+            write(bm25, "BM25", 0.5);
+            write(dph, "DPH", 0.25);
+
+            final List<Path> paths = Arrays.asList(bm25, dph);
+            final List<InfoNeed> needs = TRACK.getTopics();
+            final AtomicInteger parsed = new AtomicInteger();
+            final EvalMatrix.Parser parser = path -> {
+                parsed.incrementAndGet();
+                return new GdEval(path);
+            };
+
+            EvalMatrix matrix = EvalMatrix.load(paths, needs, 20, parser);
+            Assert.assertEquals(2, parsed.get());
+            Assert.assertEquals(0.5, matrix.value(bm25, needs.get(0), Metric.NDCG), 0);
+            Assert.assertEquals(0.1, matrix.value(dph, needs.get(0), Metric.ERR), 0);
+            // gdeval.pl does not print the topics without relevant documents
+            Assert.assertEquals(0, matrix.value(dph, needs.get(1), Metric.NDCG), 0);
+
+            try {
+                matrix.value(bm25, needs.get(0), Metric.MAP);
+                Assert.fail("gdeval does not report MAP");
+            } catch (RuntimeException e) {
+                // expected
+            }
+
+            matrix = EvalMatrix.load(paths, needs, 20, parser);
+            Assert.assertEquals(2, parsed.get());
+
+            write(dph, "DPH", 0.75);
+            Files.setLastModifiedTime(dph, FileTime.fromMillis(Files.getLastModifiedTime(dph).toMillis() + 2000));
+
+            matrix = EvalMatrix.load(paths, needs, 20, parser);
+            Assert.assertEquals(3, parsed.get());
+            Assert.assertEquals(0.5, matrix.value(bm25, needs.get(0), Metric.NDCG), 0);
+            Assert.assertEquals(0.75, matrix.value(dph, needs.get(0), Metric.NDCG), 0);
+
+        } finally {
+            Fixtures.delete(directory);
+        }
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+
+        try {
+            EvalMatrix.load(Collections.emptyList(), TRACK.getTopics(), 20, GdEval::new);
+            Assert.fail("no output files");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        final Path directory = Files.createTempDirectory("evals");
+        try {
+            final Path bm25 = directory.resolve("BM25_contents_KStem_OR_all.txt");
+            write(bm25, "BM25", 0.5);
+
+            // a need that is not in the file, a metric that is not reported, or an NA value, fails on access only
+            final EvalMatrix matrix = EvalMatrix.load(Collections.singletonList(bm25), TRACK.getTopics(), path -> (need, metric) -> {
+                if (Metric.Recall.equals(metric)) throw new UnsupportedOperationException("Recall metric is not reported");
+                if (need.id() == 202) throw new NeedNotFoundException(need);
+                return Metric.MAP.equals(metric) ? "NA" : "0.5";
+            });
+            Assert.assertEquals(0.5, matrix.value(bm25, TRACK.getTopics().get(0), Metric.NDCG), 0);
+            Assert.assertEquals(0.5, matrix.value(bm25, TRACK.getTopics().get(0), Metric.P), 0);
+            try {
+                matrix.value(bm25, TRACK.getTopics().get(0), Metric.MAP);
+                Assert.fail("NA has no value");
+            } catch (RuntimeException e) {
+                // expected
+            }
+
+            // any other failure of the tool is not taken for a missing need
+            try {
+                EvalMatrix.load(Collections.singletonList(bm25), TRACK.getTopics(), path -> (need, metric) -> {
+                    throw new RuntimeException("broken output");
+                });
+                Assert.fail("the tool failed");
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains(bm25.toString()));
+            }
+
+            // a value that is not a number is not taken for a missing one
+            try {
+                EvalMatrix.load(Collections.singletonList(bm25), TRACK.getTopics(), path -> (need, metric) -> "n/a");
+                Assert.fail("n/a is not a number");
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains(bm25.toString()));
+            }
+
+        } finally {
+            Fixtures.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package edu.anadolu.eval;
+
+import edu.anadolu.RunFile;
+import edu.anadolu.Fixtures;
+import org.clueweb09.InfoNeed;
+import org.clueweb09.tracks.MQ09;
+import org.clueweb09.tracks.Track;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests {@link NativeEval} against values worked out by hand the way trec_eval, gdeval.pl and statAP_MQ_eval_v4.pl
+ * compute them
+ */
+public class TestNativeEval {
+
+    private static final Map<String, Integer> JUDGMENTS = new HashMap<>();
+
+    static {
+        JUDGMENTS.put("d1", 2);
+        JUDGMENTS.put("d2", 1);
+        JUDGMENTS.put("d3", 0);
+        JUDGMENTS.put("d4", 1);
+    }
+
+    private static final Track TRACK = new Track("") {
+
+        @Override
+        protected void populateInfoNeeds() {
+        }
+
+        @Override
+        protected void populateQRelsMap() {
+            map.put(1, JUDGMENTS);
+        }
+    };
+
+    private static final InfoNeed NEED = new InfoNeed(1, "query", TRACK, JUDGMENTS);
+
+    private static NativeEval.Run run() {
+        final NativeEval.Run run = new NativeEval.Run();
+        // d1 and d5 tie, d5 comes first
+        run.add(1, new String[]{"d3", "d1", "d5", "d2"}, new float[]{3f, 2f, 2f, 1f});
+        return run;
+    }
+
+    private static void check(EvalTool eval) {
+        Assert.assertEquals("0.2778", eval.getMetric(NEED, Metric.MAP));
+        Assert.assertEquals("0.2000", eval.getMetric(NEED, Metric.P));
+        Assert.assertEquals("0.6667", eval.getMetric(NEED, Metric.Recall));
+        Assert.assertEquals("0.7500", eval.getMetric(NEED, Metric.NCG));
+        Assert.assertEquals("0.46737", eval.getMetric(NEED, Metric.NDCG));
+        Assert.assertEquals("0.07520", eval.getMetric(NEED, Metric.ERR));
+    }
+
+    @Test
+    public void testMetrics() {
+        check(new NativeEval(run(), 10));
+    }
+
+    @Test
+    public void testRunFile() throws IOException {
+
+        final Path path = Files.createTempFile("BM25_contents_KStem_OR_all", ".txt");
+        try {
+            try (RunFile.Output out = RunFile.text(path, "BM25_contents_KStem_OR_all", "clueweb09-en0000-00-00000")) {
+                out.add(1, new String[]{"d3", "d1", "d5", "d2"}, new float[]{3f, 2f, 2f, 1f});
+            }
+            check(new NativeEval(path, 10));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testStatAP() throws IOException {
+
+        final Path home = Files.createTempDirectory("MQ09");
+        try {
+            final Path dir = Files.createDirectory(home.resolve("topics-and-qrels"));
+            Files.write(dir.resolve("09.mq.topics.20001-60000"), Arrays.asList("20001:1:query one", "20002:1:query two"), StandardCharsets.ISO_8859_1);
+            Files.write(dir.resolve("prels.20001-60000"), Arrays.asList(
+                    "20001 a 1 1 0.5",
+                    "20001 b 0 1 0.25",
+                    // judged by both methods, a collision: sampled with certainty
+                    "20001 c 2 2 0.2",
+                    "20001 d 1 1 0.25",
+                    // ignored
+                    "20001 e 1 1 NA",
+                    "20001 f -999 1 0.5",
+                    // judged by UMASS exclusively
+                    "20002 a 1 0 0.5"), StandardCharsets.US_ASCII);
+
+            final MQ09 track = new MQ09(home.toString());
+
+            final NativeEval.Run run = new NativeEval.Run();
+            run.add(20001,
+                    new String[]{"b", "a", "x", "c", "e", "d", "x1", "x2", "x3", "x4", "x5", "x6"},
+                    new float[]{12f, 11f, 10f, 9f, 8f, 7f, 6f, 5f, 4f, 3f, 2f, 1f});
+            run.add(20002, new String[]{"a"}, new float[]{1f});
+
+            final InfoNeed need = track.need(20001);
+
+            // estimated number of relevant documents 1/0.5 + 1/1 + 1/0.25 = 7,
+            // relevant ones at ranks 2, 4 and 6: ((1 + 0) / 2 / 0.5 + (1 + 2) / 4 / 1 + (1 + 3) / 6 / 0.25) / 7
+            Assert.assertEquals("0.631", new NativeEval(run, 1000).getMetric(need, Metric.MAP));
+            // (1/0.5 + 1/1 + 1/0.25) / 10, more than the 3 / 10 of the sample
+            Assert.assertEquals("0.700", new NativeEval(run, 10).getMetric(need, Metric.P));
+            // (1/log2(3) + 3/log2(5) + 1/log2(7)) / (3 + 1/log2(3) + 1/log2(4))
+            Assert.assertEquals("0.552", new NativeEval(run, 10).getMetric(need, Metric.NDCG));
+
+            Assert.assertEquals("0.00000", new NativeEval(run, 1000).getMetric(track.need(20002), Metric.MAP));
+
+            try {
+                new NativeEval(run, 30).getMetric(need, Metric.P);
+                Assert.fail("statAP_MQ_eval_v4.pl does not report Prec_at_30");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        } finally {
+            Fixtures.delete(home);
+        }
+    }
+
+    @Test
+    public void testFormat() {
+        // printf rounds the exact binary value, ties to even
+        Assert.assertEquals("0.062", NativeEval.format(0.0625, 3));
+        Assert.assertEquals("0.188", NativeEval.format(0.1875, 3));
+        Assert.assertEquals("0.1000", NativeEval.format(0.1, 4));
+        Assert.assertEquals("0.00000", NativeEval.format(0, 5));
+    }
+}
@@ -0,0 +1,72 @@
+package edu.anadolu.eval;
+
+import org.clueweb09.InfoNeed;
+import org.clueweb09.tracks.Track;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests the row and column operations of {@link ScoreMatrix}
+ */
+public class TestScoreMatrix {
+
+    private static final Track TRACK = new Track("") {
+
+        @Override
+        protected void populateInfoNeeds() {
+            for (int id = 1; id <= 3; id++)
+                needs.add(new InfoNeed(id, "query", this, Collections.emptyMap()));
+        }
+
+        @Override
+        protected void populateQRelsMap() {
+        }
+    };
+
+    private static ScoreMatrix matrix() {
+        final List<InfoNeed> needs = TRACK.getTopics();
+        final Map<InfoNeed, List<ModelScore>> performanceMap = new HashMap<>();
+        performanceMap.put(needs.get(0), Arrays.asList(new ModelScore("BM25", 0.5), new ModelScore("DPH", 0.25), new ModelScore("LGD", 0.5)));
+        performanceMap.put(needs.get(1), Arrays.asList(new ModelScore("BM25", 0.1), new ModelScore("DPH", 0.3), new ModelScore("LGD", 0.2)));
+        performanceMap.put(needs.get(2), Arrays.asList(new ModelScore("BM25", 0.0), new ModelScore("DPH", 0.0)));
+        return new ScoreMatrix(Arrays.asList("LGD", "BM25", "DPH"), performanceMap);
+    }
+
+    @Test
+    public void testIndices() {
+        final ScoreMatrix matrix = matrix();
+        Assert.assertEquals(3, matrix.modelCount());
+        Assert.assertEquals(3, matrix.topicCount());
+        Assert.assertEquals(0, matrix.model("LGD"));
+        Assert.assertEquals(-1, matrix.model("PL2"));
+        Assert.assertEquals(2, matrix.topic(TRACK.getTopics().get(2)));
+        Assert.assertTrue(Double.isNaN(matrix.score(matrix.model("LGD"), 2)));
+    }
+
+    @Test
+    public void testOperations() {
+        final ScoreMatrix matrix = matrix();
+        final int[] models = matrix.models(Arrays.asList("LGD", "BM25", "DPH"));
+        final int[] topics = matrix.topics(TRACK.getTopics().subList(0, 2));
+
+        Assert.assertArrayEquals(new double[]{0.1, 0.5}, matrix.row(matrix.model("BM25"), new int[]{1, 0}), 0);
+        Assert.assertArrayEquals(new double[]{0.2, 0.1, 0.3}, matrix.column(1, models), 0);
+        Assert.assertEquals(0.3, matrix.mean(matrix.model("BM25"), topics), 1e-12);
+        Assert.assertEquals(0.6, matrix.columnSum(1, models), 1e-12);
+
+        // ties go to the model that comes first
+        Assert.assertEquals(matrix.model("LGD"), matrix.argMax(0, models));
+        Assert.assertEquals(matrix.model("BM25"), matrix.argMax(0, matrix.models(Arrays.asList("BM25", "LGD"))));
+        Assert.assertEquals(matrix.model("DPH"), matrix.argMin(0, models));
+
+        Assert.assertArrayEquals(new double[]{0.5, 0.3}, matrix.max(models, topics), 0);
+        Assert.assertArrayEquals(new double[]{0.25, 0.1}, matrix.min(models, topics), 0);
+
+        Assert.assertEquals(0.01, matrix.variance(1, models), 1e-12);
+        Assert.assertEquals(0, matrix.variance(1, new int[]{0}), 0);
+
+        Assert.assertArrayEquals(new int[]{matrix.model("DPH"), matrix.model("LGD"), matrix.model("BM25")}, matrix.ranks(1, models));
+    }
+}
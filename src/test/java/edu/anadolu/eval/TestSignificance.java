@@ -0,0 +1,79 @@
+package edu.anadolu.eval;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Tests {@link Significance} against exact p-values and hand-computed corrections
+ */
+public class TestSignificance {
+
+    @Test
+    public void testRandomization() {
+        // only the two assignments with all signs equal reach the observed sum: 2 / 2^3
+        Assert.assertEquals(0.25, Significance.randomization(new double[]{1, 1, 1}, 100000, new SplittableRandom(1)), 0.01);
+        Assert.assertEquals(1.0, Significance.randomization(new double[]{0, 0, 0}, 1000, new SplittableRandom(1)), 0);
+    }
+
+    @Test
+    public void testBootstrap() {
+        // zero mean differences cannot be significant
+        Assert.assertEquals(1.0, Significance.bootstrap(new double[]{0.5, -0.5, 0.25, -0.25}, 1000, new SplittableRandom(1)), 0);
+        // resampled {-1, +1} sums of 70 topics rarely reach 70
+        final double[] differences = new double[70];
+        for (int i = 0; i < differences.length; i++)
+            differences[i] = i % 2 == 0 ? 2 : 0;
+        Assert.assertTrue(Significance.bootstrap(differences, 100000, new SplittableRandom(1)) < 0.001);
+    }
+
+    @Test
+    public void testPValues() {
+
+        final double[][] scores = {
+                {0.30, 0.40, 0.50, 0.60, 0.70, 0.20, 0.30, 0.40},
+                {0.10, 0.20, 0.30, 0.40, 0.50, 0.00, 0.10, 0.20},
+                {0.30, 0.40, 0.50, 0.60, 0.70, 0.20, 0.30, 0.40}};
+
+        final Significance significance = new Significance(new String[]{"BM25", "DPH", "LGD"}, scores);
+        final double[][] pValues = significance.pValues(Significance.Test.Randomization, 10000, 42);
+
+        Assert.assertTrue(Double.isNaN(pValues[1][1]));
+        Assert.assertEquals(pValues[0][1], pValues[1][0], 0);
+        // all eight differences are 0.2: 2 / 2^8
+        Assert.assertEquals(2.0 / 256, pValues[0][1], 0.005);
+        Assert.assertEquals(1.0, pValues[0][2], 0);
+
+        // same seed, same p-values, however the pairs are scheduled
+        Assert.assertArrayEquals(pValues[1], significance.pValues(Significance.Test.Randomization, 10000, 42)[1], 0);
+    }
+
+    @Test
+    public void testMissingScore() {
+        try {
+            new Significance(new String[]{"BM25", "DPH"}, new double[][]{{0.1, 0.2}, {0.3, Double.NaN}});
+            Assert.fail("a missing score must not be tested");
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNeverZero() {
+        // no sign assignment of 70 equal differences but the two extremes reaches the observed sum
+        final double[] differences = new double[70];
+        Arrays.fill(differences, 1.0);
+        Assert.assertEquals(1.0 / 1001, Significance.randomization(differences, 1000, new SplittableRandom(1)), 0);
+    }
+
+    @Test
+    public void testCorrection() {
+        final double[] pValues = {0.01, 0.04, 0.03};
+        Assert.assertArrayEquals(new double[]{0.03, 0.12, 0.09}, Significance.adjust(pValues, Significance.Correction.Bonferroni), 1e-12);
+        Assert.assertArrayEquals(new double[]{0.03, 0.06, 0.06}, Significance.adjust(pValues, Significance.Correction.Holm), 1e-12);
+        Assert.assertArrayEquals(new double[]{0.03, 0.04, 0.04}, Significance.adjust(pValues, Significance.Correction.BH), 1e-12);
+        Assert.assertArrayEquals(pValues, Significance.adjust(pValues, Significance.Correction.None), 0);
+    }
+}
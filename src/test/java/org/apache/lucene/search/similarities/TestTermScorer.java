@@ -0,0 +1,41 @@
+package org.apache.lucene.search.similarities;
+
+import edu.anadolu.similarities.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests that the precomputed {@link ModelBase.TermScorer}s return the same bits as the plain scoring formulas
+ */
+public class TestTermScorer {
+
+    @Test
+    public void testBoundScorers() {
+
+        final List<ModelBase> models = Arrays.asList(new BM25c(1.2, 0.75), new BM25c(0.2, 0.1), new PL2c(0.25), new PL2c(10),
+                new LGDc(2), new DirichletLM(10), new DirichletLM(2500), new DFIC(), new DPH());
+
+        final Random random = new Random(42L);
+
+        for (int i = 0; i < 10000; i++) {
+
+            final double numberOfDocuments = 1000000 + random.nextInt(50000000);
+            final double numberOfTokens = numberOfDocuments * (100 + random.nextInt(1000));
+            final double averageDocumentLength = numberOfTokens / numberOfDocuments;
+            final double documentFrequency = 1 + random.nextInt((int) (numberOfDocuments / 10));
+            final double termFrequency = documentFrequency * (1 + random.nextInt(20));
+            final long docLength = 2 + random.nextInt(5000);
+            final double tf = 1 + random.nextInt((int) Math.min(docLength - 1, 50));
+
+            for (ModelBase model : models) {
+                final double expected = model.score(tf, docLength, averageDocumentLength, 1, documentFrequency, termFrequency, numberOfDocuments, numberOfTokens);
+                final double actual = model.termScorer(averageDocumentLength, documentFrequency, termFrequency, numberOfDocuments, numberOfTokens).score(tf, docLength);
+                Assert.assertEquals(model.toString(), expected, actual, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.clueweb09;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests that {@link ParallelGZIPInputStream} decompresses concatenated gzip members like {@link GZIPInputStream}
+ */
+public class TestParallelGZIPInputStream {
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1)
+            out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    private static void assertSameBytes(boolean trailingGarbage) throws IOException {
+
+        final Random random = new Random(42L);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+
+        for (int m = 0; m < 500; m++) {
+
+            byte[] data = new byte[random.nextInt(20000)];
+            for (int i = 0; i < data.length; i++)
+                data[i] = (byte) (random.nextInt(10) == 0 ? random.nextInt(256) : 'a' + random.nextInt(5));
+
+            // gzip magic bytes inside stored (level 0) blocks are false member candidates
+            for (int i = 0; i + 4 < data.length && i < 200; i += 50) {
+                data[i] = 0x1f;
+                data[i + 1] = (byte) 0x8b;
+                data[i + 2] = 8;
+                data[i + 3] = 0;
+            }
+
+            final int level = m % 2 == 0 ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION;
+
+            ByteArrayOutputStream member = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(member) {
+                {
+                    def.setLevel(level);
+                }
+            }) {
+                out.write(data);
+            }
+            file.write(member.toByteArray());
+        }
+
+        if (trailingGarbage)
+            file.write(new byte[]{1, 2, 3, 4, 5});
+
+        Path path = Files.createTempFile("members", ".gz");
+        try {
+            Files.write(path, file.toByteArray());
+
+            final byte[] expected;
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+                expected = readAll(in);
+            }
+
+            try (InputStream in = ParallelGZIPInputStream.open(path)) {
+                Assert.assertTrue(in instanceof ParallelGZIPInputStream);
+                Assert.assertArrayEquals(expected, readAll(in));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testMembers() throws IOException {
+        assertSameBytes(false);
+    }
+
+    @Test
+    public void testTrailingGarbage() throws IOException {
+        assertSameBytes(true);
+    }
+
+    private static byte[] member(byte[] data) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(member) {
+            {
+                def.setLevel(Deflater.NO_COMPRESSION);
+            }
+        }) {
+            out.write(data);
+        }
+        return member.toByteArray();
+    }
+
+    /**
+     * A member larger than {@link ParallelGZIPInputStream#MAX_MEMBER} with magic bytes inside is streamed, not buffered
+     */
+    @Test
+    public void testLargeMember() throws IOException {
+
+        final Random random = new Random(42L);
+
+        final byte[] large = new byte[ParallelGZIPInputStream.MAX_MEMBER + 12345];
+        for (int i = 0; i < large.length; i++)
+            large[i] = (byte) ('a' + random.nextInt(5));
+        for (int i = 0; i + 10 < large.length; i += 1 << 20) {
+            large[i] = 0x1f;
+            large[i + 1] = (byte) 0x8b;
+            large[i + 2] = 8;
+            large[i + 3] = 0;
+            large[i + 8] = 0;
+            large[i + 9] = 3;
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(member("small member before".getBytes(StandardCharsets.US_ASCII)));
+        file.write(member(large));
+        file.write(member("small member after".getBytes(StandardCharsets.US_ASCII)));
+
+        Path path = Files.createTempFile("large", ".gz");
+        try {
+            Files.write(path, file.toByteArray());
+
+            final byte[] expected;
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+                expected = readAll(in);
+            }
+
+            try (InputStream in = ParallelGZIPInputStream.open(path)) {
+                Assert.assertTrue(in instanceof ParallelGZIPInputStream);
+                Assert.assertArrayEquals(expected, readAll(in));
+            }
+
+            // the streamed rest of the file is a single range to the offset index
+            final ParallelGZIPInputStream tracked = ParallelGZIPInputStream.tracking(path);
+            Assert.assertNotNull(tracked);
+            try (InputStream in = tracked) {
+                Assert.assertArrayEquals(expected, readAll(in));
+                final long[] range = tracked.compressedRange(expected.length - 5, expected.length);
+                Assert.assertEquals(file.size(), range[0] + range[1]);
+                Assert.assertEquals("small member before".length(), range[2]);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Files opened while as many parallel streams as cores are open are read with a plain {@link GZIPInputStream},
+     * and streams read side by side share the read ahead budget
+     */
+    @Test
+    public void testOpenStreams() throws IOException {
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        for (int m = 0; m < ParallelGZIPInputStream.AHEAD * 3; m++)
+            file.write(member(("member " + m + "\n").getBytes(StandardCharsets.US_ASCII)));
+
+        Path path = Files.createTempFile("streams", ".gz");
+        try {
+            Files.write(path, file.toByteArray());
+
+            final byte[] expected;
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+                expected = readAll(in);
+            }
+
+            final List<InputStream> streams = new ArrayList<>();
+            try {
+                for (int i = 0; i < ParallelGZIPInputStream.THREADS; i++) {
+                    streams.add(ParallelGZIPInputStream.open(path));
+                    Assert.assertTrue(streams.get(i) instanceof ParallelGZIPInputStream);
+                }
+
+                try (InputStream in = ParallelGZIPInputStream.open(path)) {
+                    Assert.assertFalse(in instanceof ParallelGZIPInputStream);
+                    Assert.assertArrayEquals(expected, readAll(in));
+                }
+
+                // the offset index needs the members
+                try (InputStream in = ParallelGZIPInputStream.tracking(path)) {
+                    Assert.assertNotNull(in);
+                    Assert.assertArrayEquals(expected, readAll(in));
+                }
+
+                final ByteArrayOutputStream[] outs = new ByteArrayOutputStream[streams.size()];
+                for (int i = 0; i < outs.length; i++) outs[i] = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[7];
+                for (boolean more = true; more; ) {
+                    more = false;
+                    for (int i = 0; i < outs.length; i++) {
+                        final int n = streams.get(i).read(buffer);
+                        if (n == -1) continue;
+                        outs[i].write(buffer, 0, n);
+                        more = true;
+                    }
+                }
+                for (ByteArrayOutputStream out : outs)
+                    Assert.assertArrayEquals(expected, out.toByteArray());
+
+            } finally {
+                for (InputStream in : streams)
+                    in.close();
+            }
+
+            try (InputStream in = ParallelGZIPInputStream.open(path)) {
+                Assert.assertTrue(in instanceof ParallelGZIPInputStream);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
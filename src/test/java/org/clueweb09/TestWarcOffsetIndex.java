@@ -0,0 +1,142 @@
+package org.clueweb09;
+
+import edu.anadolu.Fixtures;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests that {@link WarcOffsetIndex#fetch(String)} returns the same records as scanning the files
+ */
+public class TestWarcOffsetIndex {
+
+    /**
+     * Writes a GOV2 like file: a single gzip member
+     */
+    private static void gov2(Path file, String prefix, int numRecords, Random random) throws IOException {
+
+        StringBuilder builder = new StringBuilder();
+        for (int d = 0; d < numRecords; d++) {
+            builder.append("<DOC>\n<DOCNO>").append(prefix).append(String.format("%05d", d)).append("</DOCNO>\n");
+            builder.append("<DOCHDR>\nhttp://example.org/").append(d).append("\n</DOCHDR>\n<html>");
+            final int length = random.nextInt(5000);
+            for (int i = 0; i < length; i++)
+                builder.append(i % 80 == 79 ? '\n' : (char) ('a' + random.nextInt(26)));
+            builder.append("</html>\n</DOC>\n");
+        }
+
+        Files.write(file, Fixtures.gzip(builder.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Map<String, String> scan(Path file, WarcOffsetIndex.Format format) throws IOException {
+
+        Map<String, String> records = new HashMap<>();
+
+        if (WarcOffsetIndex.Format.GOV2.equals(format)) {
+            try (InputStream in = ParallelGZIPInputStream.open(file)) {
+                WarcRecord record;
+                while ((record = nextGov2(in)) != null)
+                    records.put(record.id(), record.content());
+            }
+            return records;
+        }
+
+        try (WarcRecordReader reader = WarcOffsetIndex.Format.CW12.equals(format) ? WarcRecordReader.clueWeb12(ParallelGZIPInputStream.open(file)) : WarcRecordReader.clueWeb09(ParallelGZIPInputStream.open(file))) {
+            WarcRecord record;
+            while ((record = reader.next()) != null)
+                if (record.id() != null)
+                    records.put(record.id(), record.url() + "|" + record.content());
+        }
+        return records;
+    }
+
+    private static WarcRecord nextGov2(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        StringBuilder builder = new StringBuilder();
+        boolean found = false;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b != '\n') {
+                line.append((char) b);
+                continue;
+            }
+            final String s = line.toString().trim();
+            line.setLength(0);
+            if (s.startsWith(Gov2Record.DOC)) {
+                found = true;
+                continue;
+            }
+            if (s.startsWith(Gov2Record.TERMINATING_DOC))
+                return Gov2Record.parseGov2Record(builder);
+            if (found)
+                builder.append(s).append(" ");
+        }
+        return null;
+    }
+
+    private static void assertFetch(WarcOffsetIndex.Format format) throws IOException, InterruptedException {
+
+        final Random random = new Random(42L);
+        final Path docs = Files.createTempDirectory("docs");
+        final Path index = Files.createTempDirectory("offsets");
+
+        try {
+            Map<String, String> expected = new HashMap<>();
+
+            // the file order differs from the document identifier order
+            for (int f = 0; f < 6; f++) {
+                Path dir = Files.createDirectories(docs.resolve("en000" + (5 - f)));
+                Path file = dir.resolve(f + format.suffix());
+                String prefix = "doc-en000" + (5 - f) + "-" + f + "-";
+                if (WarcOffsetIndex.Format.GOV2.equals(format))
+                    gov2(file, prefix, 40, random);
+                else
+                    Fixtures.warc(file, WarcOffsetIndex.Format.CW12.equals(format), prefix, 40, random);
+                expected.putAll(scan(file, format));
+            }
+
+            Assert.assertEquals(240, expected.size());
+            Assert.assertEquals(240L, WarcOffsetIndex.build(docs, format, index, 3));
+
+            WarcOffsetIndex offsets = WarcOffsetIndex.open(index, docs);
+            Assert.assertEquals(240L, offsets.size());
+
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                WarcRecord record = offsets.fetch(entry.getKey());
+                Assert.assertNotNull(entry.getKey(), record);
+                Assert.assertEquals(entry.getKey(), record.id());
+                Assert.assertEquals(entry.getValue(), WarcOffsetIndex.Format.GOV2.equals(format) ? record.content() : record.url() + "|" + record.content());
+            }
+
+            Assert.assertNull(offsets.fetch("doc-en0009-0-00000"));
+            Assert.assertNull(offsets.fetch("doc-en0000-5-00000-and-a-much-longer-identifier"));
+
+        } finally {
+            Fixtures.delete(docs);
+            Fixtures.delete(index);
+        }
+    }
+
+    @Test
+    public void testClueWeb09() throws IOException, InterruptedException {
+        assertFetch(WarcOffsetIndex.Format.CW09);
+    }
+
+    @Test
+    public void testClueWeb12() throws IOException, InterruptedException {
+        assertFetch(WarcOffsetIndex.Format.CW12);
+    }
+
+    @Test
+    public void testGov2() throws IOException, InterruptedException {
+        assertFetch(WarcOffsetIndex.Format.GOV2);
+    }
+}
@@ -0,0 +1,101 @@
+package org.clueweb09;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests that {@link WarcRecordReader} returns the same records as the legacy readNextWarcRecord methods
+ */
+public class TestWarcRecordReader {
+
+    private static byte[] warc(boolean cw12, int numRecords, long seed) throws IOException {
+
+        final Random random = new Random(seed);
+        final String newLine = cw12 ? "\r\n" : "\n";
+        final String version = cw12 ? ClueWeb12WarcRecord.WARC_VERSION : ClueWeb09WarcRecord.WARC_VERSION;
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+
+        for (int d = 0; d < numRecords; d++) {
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write(("HTTP/1.1 200 OK" + newLine + "Content-Type: text/html" + newLine).getBytes(StandardCharsets.US_ASCII));
+            if (random.nextBoolean())
+                body.write(("Content-Length: 123" + newLine).getBytes(StandardCharsets.US_ASCII));
+            body.write(newLine.getBytes(StandardCharsets.US_ASCII));
+            body.write("<html><title>ünïcödé 中文</title> ".getBytes(StandardCharsets.UTF_8));
+
+            // text with some binary garbage, every tenth record is larger than the reader's window
+            final int length = random.nextInt(d % 10 == 9 ? WarcRecordReader.WINDOW_SIZE + 1000 : 20000);
+            for (int i = 0; i < length; i++)
+                body.write(random.nextInt(20) == 0 ? random.nextInt(256) : 'a' + random.nextInt(26));
+
+            final byte[] content = body.toByteArray();
+
+            final String header = version + newLine +
+                    "WARC-Type: " + (d % 5 == 0 ? "warcinfo" : "response") + newLine +
+                    "WARC-Target-URI: http://example.org/" + (d % 3 == 0 ? "ü中" : "p") + d + newLine +
+                    "WARC-TREC-ID: clueweb-" + d + newLine +
+                    "Content-Type: application/http;msgtype=response" + newLine +
+                    "Content-Length: " + content.length + newLine + newLine;
+
+            raw.write(header.getBytes(StandardCharsets.UTF_8));
+            raw.write(content);
+            raw.write((newLine + newLine).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(raw.toByteArray());
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String toString(WarcRecord record) {
+        return record.id() + "|" + record.type() + "|" + record.url() + "|" + record.content();
+    }
+
+    private static void assertSameRecords(boolean cw12) throws IOException {
+
+        final byte[] data = warc(cw12, 50, 42L);
+
+        List<String> expected = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            WarcRecord record;
+            while ((record = cw12 ? ClueWeb12WarcRecord.readNextWarcRecord(in) : ClueWeb09WarcRecord.readNextWarcRecord(in)) != null)
+                expected.add(toString(record));
+        }
+
+        List<String> actual = new ArrayList<>();
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+        try (WarcRecordReader reader = cw12 ? WarcRecordReader.clueWeb12(in) : WarcRecordReader.clueWeb09(in)) {
+            WarcRecord record;
+            while ((record = reader.next()) != null)
+                actual.add(toString(record));
+        }
+
+        Assert.assertEquals(50, expected.size());
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testClueWeb09() throws IOException {
+        assertSameRecords(false);
+    }
+
+    @Test
+    public void testClueWeb12() throws IOException {
+        assertSameRecords(true);
+    }
+}